@@ -16,6 +16,8 @@
 package org.socialcars.sinziana.pfara.agents;
 
 import org.socialcars.sinziana.pfara.agents.events.CEvent;
+import org.socialcars.sinziana.pfara.agents.events.CEventHistory;
+import org.socialcars.sinziana.pfara.agents.events.CEventLog;
 import org.socialcars.sinziana.pfara.agents.events.EEventType;
 import org.socialcars.sinziana.pfara.agents.events.IEvent;
 import org.socialcars.sinziana.pfara.agents.proprieties.CUtility;
@@ -36,6 +38,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,7 +47,7 @@ import java.util.logging.Logger;
  */
 public class CVehicle implements IVehicle
 {
-    private static Logger s_logger;
+    private static CEventLog s_log;
 
     private final String m_name;
 
@@ -62,7 +65,7 @@ public class CVehicle implements IVehicle
     private CPreference m_preference;
     private CUnits m_unit;
 
-    private final ArrayList<IEvent> m_events;
+    private final CEventHistory m_events;
 
     private Boolean m_platooning = false;
     private ArrayList<CVehicle> m_companions;
@@ -76,7 +79,7 @@ public class CVehicle implements IVehicle
     private Integer m_departuretime;
 
 
-    private Boolean m_negotiating;
+    private Boolean m_negotiating = false;
     private INegotiationModule m_negmodule;
     private final ArrayList<INegotiationEvent> m_negevents;
     private IProtocol m_protocol;
@@ -97,7 +100,23 @@ public class CVehicle implements IVehicle
      */
     public CVehicle( final CVehiclepojo p_pojo, final Integer p_timestep, final Logger p_log, final CUnits p_unit, final Boolean p_mikro, final Double p_omega )
     {
-        s_logger = p_log;
+        this( p_pojo, p_timestep, p_log, p_unit, p_mikro, p_omega, CEventHistory.all() );
+    }
+
+    /**
+     * ctor
+     * @param p_pojo plain old java object
+     * @param p_timestep the current time
+     * @param p_log the logger
+     * @param p_unit the unit object
+     * @param p_mikro movement type, true if microscopic, false for macroscopic
+     * @param p_omega the subsidisation coefficient
+     * @param p_history the event history, defines how many events are retained
+     */
+    public CVehicle( final CVehiclepojo p_pojo, final Integer p_timestep, final Logger p_log, final CUnits p_unit, final Boolean p_mikro, final Double p_omega,
+                     final CEventHistory p_history )
+    {
+        s_log = CEventLog.of( p_log );
 
         m_name = p_pojo.getName();
         m_origin = p_pojo.getStart();
@@ -120,8 +139,8 @@ public class CVehicle implements IVehicle
         m_unit = p_unit;
 
         final CEvent l_created = new CEvent( this, EEventType.CREATED, m_origin, p_timestep, null );
-        s_logger.log( Level.INFO, l_created.toString() );
-        m_events = new ArrayList<>();
+        s_log.log( Level.INFO, l_created );
+        m_events = p_history;
         m_events.add( l_created );
 
         m_negevents = new ArrayList<>();
@@ -180,6 +199,15 @@ public class CVehicle implements IVehicle
         return m_position;
     }
 
+    /**
+     * the current speed
+     * @return the speed
+     */
+    public Double speed()
+    {
+        return m_speed;
+    }
+
     /**
      * preferences
      * @return the vehicle's preferences
@@ -262,7 +290,7 @@ public class CVehicle implements IVehicle
     {
         final CEvent l_departed = new CEvent( this, EEventType.DEPARTED, p_position.from().name(), p_timestep, null );
         m_events.add( l_departed );
-        s_logger.log( Level.INFO, l_departed.toString() );
+        s_log.log( Level.INFO, l_departed );
 
         m_location = p_position.name();
         m_lastedge = p_position;
@@ -281,7 +309,7 @@ public class CVehicle implements IVehicle
     {
         final CEvent l_arrived = new CEvent( this, EEventType.ARRIVED, p_position.to().name(), p_timestep, null );
         m_events.add( l_arrived );
-        s_logger.log( Level.INFO, l_arrived.toString() );
+        s_log.log( Level.INFO, l_arrived );
 
         m_location = p_position.to().name();
         m_position = 0.0;
@@ -315,9 +343,9 @@ public class CVehicle implements IVehicle
     {
         final CEvent l_completed = new CEvent( this, EEventType.COMPLETED, p_position, p_timestep, null );
         m_events.add( l_completed );
-        s_logger.log( Level.INFO, l_completed.toString() );
-        s_logger.log( Level.INFO, m_name + " cost: " + m_cost + ", " + m_routelength + " blocks" );
-        s_logger.log( Level.INFO, m_name + " has an allowance of " + m_preference.lengthLimit() + " blocks, "
+        s_log.log( Level.INFO, l_completed );
+        s_log.log( Level.INFO, m_name + " cost: " + m_cost + ", " + m_routelength + " blocks" );
+        s_log.log( Level.INFO, m_name + " has an allowance of " + m_preference.lengthLimit() + " blocks, "
                 + m_preference.timeLimit() + " timesteps and  " + m_preference.maxCost() + " cost" );
     }
 
@@ -337,7 +365,7 @@ public class CVehicle implements IVehicle
         final CEvent l_formed = new CEvent( this, EEventType.FORMED, p_position, p_timestep, l_plat );
         m_events.add( l_formed );
         m_platooning = true;
-        s_logger.log( Level.INFO, l_formed.toString() );
+        s_log.log( Level.INFO, l_formed );
     }
 
     /**
@@ -353,7 +381,7 @@ public class CVehicle implements IVehicle
         m_platooning = false;
         m_precedence = 0;
         m_companions.removeAll( m_companions );
-        s_logger.log( Level.INFO, l_split.toString() );
+        s_log.log( Level.INFO, l_split );
     }
 
     /**
@@ -366,6 +394,15 @@ public class CVehicle implements IVehicle
         return m_platooning;
     }
 
+    /**
+     * whether the vehicle is currently part of a negotiation
+     * @return true if it is and false if not
+     */
+    public Boolean negotiating()
+    {
+        return m_negotiating;
+    }
+
     /**
      * companions
      * @return the co-platooning vehicles
@@ -425,13 +462,14 @@ public class CVehicle implements IVehicle
     public void joinParty( final IProtocol p_protocol )
     {
         m_negotiating = true;
-        m_negmodule = new CNegotiationModule( p_protocol, m_utility, m_unit, m_preference, m_mikro );
+        m_negmodule = new CNegotiationModule( p_protocol, m_utility, m_unit, m_preference, m_mikro,
+                                              Objects.hash( m_name, p_protocol.getNodeID().name(), m_negevents.size() ) );
         m_protocol = p_protocol;
         if ( m_speed == 0.0 ) m_speed = m_preference.maxSpeed();
 
         final CNegotiationEvent l_join = new CNegotiationEvent( this, ENegotiationEventType.JOINED, null );
         m_negevents.add( l_join );
-        s_logger.log( Level.INFO, l_join.toString() + " protocol " + p_protocol.getNodeID().name() );
+        s_log.log( Level.INFO, l_join, " protocol " + p_protocol.getNodeID().name() );
     }
 
     /**
@@ -444,7 +482,7 @@ public class CVehicle implements IVehicle
         m_negotiating = false;
         m_negmodule = null;
         final CNegotiationEvent l_leave = new CNegotiationEvent( this, ENegotiationEventType.LEFT, null );
-        s_logger.log( Level.INFO, l_leave.toString() );
+        s_log.log( Level.INFO, l_leave, null );
     }
 
     /**
@@ -458,7 +496,7 @@ public class CVehicle implements IVehicle
     {
         final CNegotiationEvent l_getoffer = new CNegotiationEvent( this, ENegotiationEventType.RECEIVED, p_offer );
         m_negevents.add( l_getoffer );
-        s_logger.log( Level.INFO, l_getoffer.toString() );
+        s_log.log( Level.INFO, l_getoffer, null );
         final String l_response = m_negmodule.receiveOffer( p_offer, p_oldroute, m_speed );
         switch ( l_response )
         {
@@ -490,7 +528,7 @@ public class CVehicle implements IVehicle
         final CInitialOffer l_offer = m_negmodule.sendOffer( p_route, m_name );
         final CNegotiationEvent l_newoffer = new CNegotiationEvent( this, ENegotiationEventType.SENT, l_offer );
         m_negevents.add( l_newoffer );
-        s_logger.log( Level.INFO, l_newoffer.toString() );
+        s_log.log( Level.INFO, l_newoffer, null );
         m_protocol.sendOffer( this, l_offer );
     }
 
@@ -504,7 +542,7 @@ public class CVehicle implements IVehicle
     {
         final CNegotiationEvent l_getoffer = new CNegotiationEvent( this, ENegotiationEventType.RECEIVED, p_offer );
         m_negevents.add( l_getoffer );
-        s_logger.log( Level.INFO, l_getoffer.toString() );
+        s_log.log( Level.INFO, l_getoffer, null );
         final String l_result = m_negmodule.haggle( p_offer );
         switch ( l_result )
         {
@@ -558,7 +596,7 @@ public class CVehicle implements IVehicle
     {
         final CNegotiationEvent l_accept = new CNegotiationEvent( this, ENegotiationEventType.ACCEPTED, p_offer );
         m_negevents.add( l_accept );
-        s_logger.log( Level.INFO, l_accept.toString() );
+        s_log.log( Level.INFO, l_accept, null );
     }
 
     /**
@@ -570,7 +608,7 @@ public class CVehicle implements IVehicle
     {
         final CNegotiationEvent l_reject = new CNegotiationEvent( this, ENegotiationEventType.REJECTED, p_offer );
         m_negevents.add( l_reject );
-        s_logger.log( Level.INFO, l_reject.toString() );
+        s_log.log( Level.INFO, l_reject, null );
     }
 
     /**
@@ -582,7 +620,7 @@ public class CVehicle implements IVehicle
     {
         final CNegotiationEvent l_getoffer = new CNegotiationEvent( this, ENegotiationEventType.SENT, p_offer );
         m_negevents.add( l_getoffer );
-        s_logger.log( Level.INFO, l_getoffer.toString() );
+        s_log.log( Level.INFO, l_getoffer, null );
     }
 
     /**
@@ -595,10 +633,19 @@ public class CVehicle implements IVehicle
     }
 
     /**
-     * the vehicles's events
-     * @return the list of events
+     * the vehicles's retained events
+     * @return the events
+     */
+    public Collection<IEvent> events()
+    {
+        return m_events.events();
+    }
+
+    /**
+     * the vehicle's event history
+     * @return the history
      */
-    public ArrayList<IEvent> events()
+    public CEventHistory history()
     {
         return m_events;
     }
@@ -0,0 +1,200 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.socialcars.sinziana.pfara.negotiation.events.ENegotiationEventType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+
+/**
+ * streaming reader of the binary event file,
+ * the blocks are memory-mapped one at a time, so a run is never loaded as a whole
+ * and the records read back format like the lines of the text log
+ */
+public class CBinaryReader implements Iterator<CEventRecord>, Closeable
+{
+    private final FileChannel m_channel;
+    private final List<String> m_names = new ArrayList<>();
+    private final List<String> m_vehicles = new ArrayList<>();
+    private long m_position;
+
+    private MappedByteBuffer m_block;
+    private int m_count;
+    private int m_index;
+    private int m_who;
+    private int m_what;
+    private int m_where;
+    private int m_when;
+    private int m_buyout;
+    private int m_offsets;
+    private int m_words;
+
+    /**
+     * ctor
+     * @param p_file the file
+     * @throws IOException file or wrong format
+     */
+    public CBinaryReader( final Path p_file ) throws IOException
+    {
+        m_channel = FileChannel.open( p_file, StandardOpenOption.READ );
+        final ByteBuffer l_header = ByteBuffer.allocate( 2 * Integer.BYTES );
+        while ( l_header.hasRemaining() )
+            if ( m_channel.read( l_header ) < 0 ) throw new IOException( "no event file " + p_file );
+        l_header.flip();
+        if ( ( l_header.getInt() != CBinaryWriter.MAGIC ) || ( l_header.getInt() != CBinaryWriter.VERSION ) )
+            throw new IOException( "no event file " + p_file );
+        m_position = l_header.capacity();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        try
+        {
+            while ( m_index == m_count )
+                if ( !block() ) return false;
+            return true;
+        }
+        catch ( final IOException l_err )
+        {
+            throw new UncheckedIOException( l_err );
+        }
+    }
+
+    @Override
+    public CEventRecord next()
+    {
+        if ( !hasNext() ) throw new NoSuchElementException();
+        final int l_index = m_index++;
+
+        final int l_type = m_block.get( m_what + l_index );
+        final Enum<?> l_what = ( l_type & CBinaryWriter.NEGOTIATION ) != 0
+                               ? ENegotiationEventType.values()[l_type & ~CBinaryWriter.NEGOTIATION]
+                               : EEventType.values()[l_type];
+        final int l_where = m_block.getInt( m_where + l_index * Integer.BYTES );
+        final int l_when = m_block.getInt( m_when + l_index * Integer.BYTES );
+        final double l_buyout = m_block.getDouble( m_buyout + l_index * Double.BYTES );
+
+        return new CEventRecord(
+            Level.INFO,
+            m_names.get( m_block.getInt( m_who + l_index * Integer.BYTES ) ),
+            l_what,
+            l_where == CBinaryWriter.NONE ? null : m_names.get( l_where ),
+            l_when == CBinaryWriter.NONE ? null : l_when,
+            l_what instanceof EEventType ? with( l_index ) : null,
+            Double.isNaN( l_buyout ) ? null : l_buyout,
+            null
+        );
+    }
+
+    /**
+     * the names numbered so far
+     * @return the names, indexed by their number
+     */
+    public List<String> names()
+    {
+        return m_names;
+    }
+
+    /**
+     * the companions numbered so far
+     * @return the names, indexed by their companion number
+     */
+    public List<String> vehicles()
+    {
+        return m_vehicles;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        m_block = null;
+        m_channel.close();
+    }
+
+    /**
+     * maps the next block and reads its new names
+     * @return false at the end of the file
+     * @throws IOException file
+     */
+    private boolean block() throws IOException
+    {
+        if ( m_position + Integer.BYTES > m_channel.size() ) return false;
+        final ByteBuffer l_size = ByteBuffer.allocate( Integer.BYTES );
+        while ( l_size.hasRemaining() )
+            if ( m_channel.read( l_size, m_position + l_size.position() ) < 0 ) return false;
+        final int l_length = l_size.getInt( 0 );
+
+        m_block = m_channel.map( FileChannel.MapMode.READ_ONLY, m_position + Integer.BYTES, l_length );
+        m_position += Integer.BYTES + l_length;
+
+        final int l_names = m_block.getInt();
+        for ( int i = 0; i < l_names; i++ )
+        {
+            final byte[] l_name = new byte[m_block.getInt()];
+            m_block.get( l_name );
+            m_names.add( new String( l_name, StandardCharsets.UTF_8 ) );
+        }
+        final int l_vehicles = m_block.getInt();
+        for ( int i = 0; i < l_vehicles; i++ )
+            m_vehicles.add( m_names.get( m_block.getInt() ) );
+        m_count = m_block.getInt();
+        m_index = 0;
+        m_who = m_block.position();
+        m_what = m_who + m_count * Integer.BYTES;
+        m_where = m_what + m_count;
+        m_when = m_where + m_count * Integer.BYTES;
+        m_buyout = m_when + m_count * Integer.BYTES;
+        m_offsets = m_buyout + m_count * Double.BYTES;
+        m_words = m_offsets + ( m_count + 1 ) * Integer.BYTES;
+        return true;
+    }
+
+    /**
+     * names of the companions of an event
+     * @param p_index the index of the event in the block
+     * @return the names, ordered by their companion number
+     */
+    private String[] with( final int p_index )
+    {
+        final int l_begin = m_block.getInt( m_offsets + p_index * Integer.BYTES );
+        final int l_end = m_block.getInt( m_offsets + ( p_index + 1 ) * Integer.BYTES );
+        final List<String> l_with = new ArrayList<>();
+        for ( int j = l_begin; j < l_end; j++ )
+        {
+            long l_word = m_block.getLong( m_words + j * Long.BYTES );
+            while ( l_word != 0 )
+            {
+                l_with.add( m_vehicles.get( ( j - l_begin ) * Long.SIZE + Long.numberOfTrailingZeros( l_word ) ) );
+                l_word &= l_word - 1;
+            }
+        }
+        return l_with.toArray( new String[0] );
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.socialcars.sinziana.pfara.negotiation.events.ENegotiationEventType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * writes the vehicle and negotiation events as a compact binary columnar file,
+ * free text records are skipped
+ * the file is a header followed by one block per batch, every block is
+ * its length, the names seen for the first time, the name numbers of the companions seen for the first time,
+ * the number of events and the columns who, what, where, when, buyout, companion offsets and companion bitmap words
+ * names are numbered in the order they first appear, companions get a second number in the order
+ * they first appear, the companions of an event are a bitmap over these, so it does not grow with the nodes,
+ * the numbers of a block are only kept once it is written
+ */
+public class CBinaryWriter implements IEventWriter
+{
+    /**
+     * first int of the file
+     */
+    public static final int MAGIC = 0x50464556;
+    /**
+     * format version
+     */
+    public static final int VERSION = 2;
+    /**
+     * flag of the type code of negotiation events, the rest is the ordinal of the type
+     */
+    public static final int NEGOTIATION = 0x40;
+    /**
+     * where and when of events without location or time
+     */
+    public static final int NONE = -1;
+
+    private final FileChannel m_channel;
+    private final Map<String, Integer> m_ids = new HashMap<>();
+    private final Map<String, Integer> m_vehicles = new HashMap<>();
+    private ByteBuffer m_buffer = ByteBuffer.allocate( 1 << 16 );
+
+    /**
+     * ctor
+     * @param p_file the file, it is replaced
+     * @throws IOException file
+     */
+    public CBinaryWriter( final Path p_file ) throws IOException
+    {
+        m_channel = FileChannel.open( p_file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+        final ByteBuffer l_header = ByteBuffer.allocate( 2 * Integer.BYTES );
+        l_header.putInt( MAGIC ).putInt( VERSION ).flip();
+        while ( l_header.hasRemaining() )
+            m_channel.write( l_header );
+    }
+
+    @Override
+    public synchronized void write( final List<CEventRecord> p_batch ) throws IOException
+    {
+        if ( !m_channel.isOpen() ) return;
+
+        final List<CEventRecord> l_events = new ArrayList<>( p_batch.size() );
+        final Map<String, Integer> l_names = new LinkedHashMap<>();
+        final Map<String, Integer> l_vehicles = new LinkedHashMap<>();
+        p_batch.stream().filter( r -> r.what() != null ).forEach( r ->
+        {
+            l_events.add( r );
+            id( r.who(), m_ids, l_names );
+            id( r.where(), m_ids, l_names );
+            if ( r.with() != null )
+                for ( final String l_name : r.with() )
+                {
+                    id( l_name, m_ids, l_names );
+                    id( l_name, m_vehicles, l_vehicles );
+                }
+        } );
+        if ( l_events.isEmpty() ) return;
+
+        final ByteBuffer l_block = block( l_events, l_names, l_vehicles );
+        while ( l_block.hasRemaining() )
+            m_channel.write( l_block );
+
+        //the numbers are only known to a reader once their block is written
+        m_ids.putAll( l_names );
+        m_vehicles.putAll( l_vehicles );
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if ( !m_channel.isOpen() ) return;
+        m_channel.force( false );
+        m_channel.close();
+    }
+
+    /**
+     * encodes a block
+     * @param p_events the events
+     * @param p_names the names of the block seen for the first time
+     * @param p_vehicles the companions of the block seen for the first time
+     * @return the flipped block buffer
+     */
+    private ByteBuffer block( final List<CEventRecord> p_events, final Map<String, Integer> p_names, final Map<String, Integer> p_vehicles )
+    {
+        final int l_count = p_events.size();
+        final long[][] l_bitmaps = new long[l_count][];
+        int l_words = 0;
+        for ( int i = 0; i < l_count; i++ )
+        {
+            l_bitmaps[i] = bitmap( p_events.get( i ).with(), p_vehicles );
+            l_words += l_bitmaps[i].length;
+        }
+        final List<byte[]> l_encoded = new ArrayList<>( p_names.size() );
+        int l_size = 3 * Integer.BYTES + p_vehicles.size() * Integer.BYTES;
+        for ( final String l_name : p_names.keySet() )
+        {
+            l_encoded.add( l_name.getBytes( StandardCharsets.UTF_8 ) );
+            l_size += Integer.BYTES + l_encoded.get( l_encoded.size() - 1 ).length;
+        }
+        l_size += l_count * ( 4 * Integer.BYTES + 1 + Double.BYTES ) + Integer.BYTES + l_words * Long.BYTES;
+
+        final ByteBuffer l_block = buffer( Integer.BYTES + l_size );
+        l_block.putInt( l_size );
+        l_block.putInt( l_encoded.size() );
+        l_encoded.forEach( n -> l_block.putInt( n.length ).put( n ) );
+        l_block.putInt( p_vehicles.size() );
+        p_vehicles.keySet().forEach( n -> l_block.putInt( id( n, p_names ) ) );
+        l_block.putInt( l_count );
+        columns( l_block, p_events, p_names );
+
+        int l_offset = 0;
+        l_block.putInt( l_offset );
+        for ( final long[] l_bitmap : l_bitmaps )
+        {
+            l_offset += l_bitmap.length;
+            l_block.putInt( l_offset );
+        }
+        for ( final long[] l_bitmap : l_bitmaps )
+            for ( final long l_word : l_bitmap )
+                l_block.putLong( l_word );
+        return l_block.flip();
+    }
+
+    /**
+     * puts the columns who, what, where, when and buyout
+     * @param p_block the block buffer
+     * @param p_events the events
+     * @param p_names the names of the block seen for the first time
+     */
+    private void columns( final ByteBuffer p_block, final List<CEventRecord> p_events, final Map<String, Integer> p_names )
+    {
+        p_events.forEach( r -> p_block.putInt( id( r.who(), p_names ) ) );
+        p_events.forEach( r -> p_block.put( (byte) type( r.what() ) ) );
+        p_events.forEach( r -> p_block.putInt( r.where() == null ? NONE : id( r.where(), p_names ) ) );
+        p_events.forEach( r -> p_block.putInt( r.when() == null ? NONE : r.when() ) );
+        p_events.forEach( r -> p_block.putDouble( r.buyout() == null ? Double.NaN : r.buyout() ) );
+    }
+
+    /**
+     * numbers a name that was not numbered before,
+     * following the numbers already given
+     * @param p_name the name, may be null
+     * @param p_ids the numbers already written
+     * @param p_new the numbers of the current block
+     */
+    private static void id( final String p_name, final Map<String, Integer> p_ids, final Map<String, Integer> p_new )
+    {
+        if ( ( p_name == null ) || ( p_ids.containsKey( p_name ) ) || ( p_new.containsKey( p_name ) ) ) return;
+        p_new.put( p_name, p_ids.size() + p_new.size() );
+    }
+
+    /**
+     * number of a name
+     * @param p_name the name
+     * @param p_new the names of the current block seen for the first time
+     * @return the number
+     */
+    private int id( final String p_name, final Map<String, Integer> p_new )
+    {
+        final Integer l_id = m_ids.get( p_name );
+        return l_id == null ? p_new.get( p_name ) : l_id;
+    }
+
+    /**
+     * bitmap of the companions over their vehicle numbers
+     * @param p_with the names of the companions, may be null
+     * @param p_new the companions of the current block seen for the first time
+     * @return the bitmap words, empty if there are none
+     */
+    private long[] bitmap( final String[] p_with, final Map<String, Integer> p_new )
+    {
+        if ( ( p_with == null ) || ( p_with.length == 0 ) ) return new long[0];
+        final int[] l_ids = new int[p_with.length];
+        int l_max = 0;
+        for ( int i = 0; i < p_with.length; i++ )
+        {
+            final Integer l_id = m_vehicles.get( p_with[i] );
+            l_ids[i] = l_id == null ? p_new.get( p_with[i] ) : l_id;
+            l_max = Math.max( l_max, l_ids[i] );
+        }
+        final long[] l_words = new long[l_max / Long.SIZE + 1];
+        for ( final int l_id : l_ids )
+            l_words[l_id / Long.SIZE] |= 1L << ( l_id % Long.SIZE );
+        return l_words;
+    }
+
+    /**
+     * type code of an event type
+     * @param p_what the event type
+     * @return the code
+     */
+    private static int type( final Enum<?> p_what )
+    {
+        return p_what instanceof ENegotiationEventType ? NEGOTIATION | p_what.ordinal() : p_what.ordinal();
+    }
+
+    /**
+     * the reused block buffer, grown if needed
+     * @param p_size the size of the block
+     * @return the cleared buffer
+     */
+    private ByteBuffer buffer( final int p_size )
+    {
+        if ( m_buffer.capacity() < p_size )
+            m_buffer = ByteBuffer.allocate( Math.max( p_size, 2 * m_buffer.capacity() ) );
+        m_buffer.clear();
+        return m_buffer;
+    }
+}
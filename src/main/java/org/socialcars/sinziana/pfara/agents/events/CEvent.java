@@ -17,9 +17,8 @@ package org.socialcars.sinziana.pfara.agents.events;
 
 import org.socialcars.sinziana.pfara.agents.IDynamic;
 
-import java.text.MessageFormat;
 import java.util.Collection;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 
 /**
  * Simulation event class
@@ -107,15 +106,7 @@ public class CEvent implements IEvent
     @Override
     public String toString()
     {
-        String l_message = MessageFormat.format( "{0} {1} at {2} at {3} timestep", m_who.name(), m_type, m_where, m_when );
-        if ( ( m_with != null ) && ( !m_with.isEmpty() )  )
-        {
-            final AtomicReference<String> l_with = new AtomicReference<>();
-            l_message += " with ";
-            m_with.forEach( e -> l_with.getAndSet( l_with.get() + " " + e.name() ) );
-            l_message += l_with.get();
-        }
-        return l_message;
+        return CEventRecord.of( Level.INFO, this ).toString();
     }
 
 }
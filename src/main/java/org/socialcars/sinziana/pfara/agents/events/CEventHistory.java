@@ -0,0 +1,153 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * event history of a vehicle
+ * keeps the last event and the number of events of every type, so lifecycle
+ * questions are answered in constant time, while the retained list of events is
+ * bounded, everything, the last n events or nothing when the events only go to a log
+ */
+public final class CEventHistory
+{
+    /**
+     * default number of events retained by a bounded history
+     */
+    public static final int RETAINED = 64;
+
+    private final int m_capacity;
+    private final ArrayDeque<IEvent> m_events = new ArrayDeque<>();
+    private final IEvent[] m_last = new IEvent[EEventType.values().length];
+    private final long[] m_sequence = new long[EEventType.values().length];
+    private final int[] m_count = new int[EEventType.values().length];
+    private long m_size;
+
+    /**
+     * ctor
+     * @param p_capacity the maximum number of retained events
+     */
+    private CEventHistory( final int p_capacity )
+    {
+        m_capacity = p_capacity;
+    }
+
+    /**
+     * history retaining every event
+     * @return the history
+     */
+    public static CEventHistory all()
+    {
+        return new CEventHistory( Integer.MAX_VALUE );
+    }
+
+    /**
+     * history retaining the last events
+     * @param p_capacity the number of retained events
+     * @return the history
+     */
+    public static CEventHistory last( final int p_capacity )
+    {
+        return new CEventHistory( p_capacity );
+    }
+
+    /**
+     * history retaining no events, only the last event of every type
+     * @return the history
+     */
+    public static CEventHistory none()
+    {
+        return new CEventHistory( 0 );
+    }
+
+    /**
+     * adds an event
+     * @param p_event the event
+     */
+    public void add( final IEvent p_event )
+    {
+        final int l_type = p_event.what().ordinal();
+        m_last[l_type] = p_event;
+        m_sequence[l_type] = ++m_size;
+        m_count[l_type]++;
+
+        if ( m_capacity == 0 ) return;
+        if ( m_events.size() == m_capacity ) m_events.pollFirst();
+        m_events.addLast( p_event );
+    }
+
+    /**
+     * whether an event of a type happened
+     * @param p_type the event type
+     * @return true if it happened
+     */
+    public boolean has( final EEventType p_type )
+    {
+        return m_count[p_type.ordinal()] > 0;
+    }
+
+    /**
+     * whether an event of a type happened after the last event of another type
+     * @param p_type the event type
+     * @param p_other the other event type
+     * @return true if the type happened and the other did not happen since
+     */
+    public boolean after( final EEventType p_type, final EEventType p_other )
+    {
+        return m_sequence[p_type.ordinal()] > m_sequence[p_other.ordinal()];
+    }
+
+    /**
+     * last event of a type
+     * @param p_type the event type
+     * @return the event, null if none happened
+     */
+    public IEvent last( final EEventType p_type )
+    {
+        return m_last[p_type.ordinal()];
+    }
+
+    /**
+     * number of events of a type
+     * @param p_type the event type
+     * @return the number of events, retained or not
+     */
+    public int count( final EEventType p_type )
+    {
+        return m_count[p_type.ordinal()];
+    }
+
+    /**
+     * number of events
+     * @return the number of events, retained or not
+     */
+    public long size()
+    {
+        return m_size;
+    }
+
+    /**
+     * the retained events
+     * @return the events in the order they happened
+     */
+    public Collection<IEvent> events()
+    {
+        return Collections.unmodifiableCollection( m_events );
+    }
+}
@@ -0,0 +1,367 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.socialcars.sinziana.pfara.negotiation.events.INegotiationEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * asynchronous event log
+ * the simulation thread only copies the event into a compact record and puts it into a bounded ring buffer,
+ * a background thread drains the buffer in batches and hands them to the writer,
+ * so formatting and file access are off the simulation thread
+ * records below the level are dropped before they are copied,
+ * further writers, e.g. a binary event file, can be attached and receive the same batches,
+ * work running concurrently can defer its records and commit them in a fixed order
+ */
+public final class CEventLog
+{
+    /**
+     * default size of the ring buffer
+     */
+    public static final int CAPACITY = 1 << 16;
+    /**
+     * default maximum number of records written at once
+     */
+    public static final int BATCH = 1024;
+    /**
+     * milliseconds the background thread waits for records before checking for closing
+     */
+    private static final long POLL = 100;
+
+    private static final Map<Logger, CEventLog> TEXTLOGS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<CDeferred> DEFERRED = new ThreadLocal<>();
+
+    private final List<IEventWriter> m_writers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<CEventRecord> m_buffer;
+    private final int m_batch;
+    private final Thread m_thread;
+    private volatile Level m_level;
+
+    private final AtomicLong m_logged = new AtomicLong();
+    private volatile long m_written;
+    private volatile boolean m_closed;
+
+    /**
+     * ctor
+     * @param p_writer the writer of the batches
+     * @param p_level the lowest level that is logged
+     * @param p_capacity the size of the ring buffer, logging blocks while it is full
+     * @param p_batch the maximum number of records written at once
+     */
+    public CEventLog( final IEventWriter p_writer, final Level p_level, final int p_capacity, final int p_batch )
+    {
+        m_writers.add( p_writer );
+        m_level = p_level;
+        m_buffer = new ArrayBlockingQueue<>( p_capacity );
+        m_batch = p_batch;
+        m_thread = new Thread( this::drain, "event-log" );
+        m_thread.setDaemon( true );
+        m_thread.start();
+    }
+
+    /**
+     * the shared asynchronous text log of a logger,
+     * created on first use with the level of the logger
+     * @param p_logger the logger
+     * @return the event log
+     */
+    public static CEventLog of( final Logger p_logger )
+    {
+        return TEXTLOGS.computeIfAbsent( p_logger, l -> new CEventLog( new CTextWriter( l ), l.getLevel() == null ? Level.INFO : l.getLevel(), CAPACITY, BATCH ) );
+    }
+
+    /**
+     * runs work with the records logged by the current thread held back,
+     * so concurrent work can be committed to the logs in a fixed order
+     * @param p_work the work
+     * @return the records held back, in the order they were logged
+     */
+    public static CDeferred defer( final Runnable p_work )
+    {
+        final CDeferred l_outer = DEFERRED.get();
+        final CDeferred l_deferred = new CDeferred();
+        DEFERRED.set( l_deferred );
+        try
+        {
+            p_work.run();
+        }
+        finally
+        {
+            if ( l_outer == null ) DEFERRED.remove();
+            else DEFERRED.set( l_outer );
+        }
+        return l_deferred;
+    }
+
+    /**
+     * changes the lowest level that is logged
+     * @param p_level the level
+     */
+    public void level( final Level p_level )
+    {
+        m_level = p_level;
+    }
+
+    /**
+     * whether records of a level are logged
+     * @param p_level the level
+     * @return true if logged
+     */
+    public boolean enabled( final Level p_level )
+    {
+        return p_level.intValue() >= m_level.intValue();
+    }
+
+    /**
+     * logs a simulation event
+     * @param p_level the level
+     * @param p_event the event
+     */
+    public void log( final Level p_level, final IEvent p_event )
+    {
+        if ( enabled( p_level ) ) put( CEventRecord.of( p_level, p_event ) );
+    }
+
+    /**
+     * logs a negotiation event
+     * @param p_level the level
+     * @param p_event the event
+     * @param p_note text appended to the event, null if none
+     */
+    public void log( final Level p_level, final INegotiationEvent p_event, final String p_note )
+    {
+        if ( enabled( p_level ) ) put( CEventRecord.of( p_level, p_event, p_note ) );
+    }
+
+    /**
+     * logs a free text message
+     * @param p_level the level
+     * @param p_text the message
+     */
+    public void log( final Level p_level, final String p_text )
+    {
+        if ( enabled( p_level ) ) put( CEventRecord.of( p_level, p_text ) );
+    }
+
+    /**
+     * attaches a further writer, which receives all records logged from now on
+     * @param p_writer the writer
+     */
+    public void attach( final IEventWriter p_writer )
+    {
+        m_writers.add( p_writer );
+    }
+
+    /**
+     * writes everything logged so far, then detaches and closes a writer
+     * @param p_writer the writer
+     * @throws IOException writer
+     */
+    public void detach( final IEventWriter p_writer ) throws IOException
+    {
+        flush();
+        if ( m_writers.remove( p_writer ) ) p_writer.close();
+    }
+
+    /**
+     * waits until everything logged so far is written
+     */
+    public void flush()
+    {
+        final long l_target = m_logged.get();
+        synchronized ( this )
+        {
+            while ( ( m_written < l_target ) && ( m_thread.isAlive() ) )
+            {
+                try
+                {
+                    wait( 100 );
+                }
+                catch ( final InterruptedException l_err )
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * stops accepting records, lets the background thread write everything accepted before
+     * and closes the writer
+     */
+    public void close()
+    {
+        m_closed = true;
+        try
+        {
+            m_thread.join();
+        }
+        catch ( final InterruptedException l_err )
+        {
+            Thread.currentThread().interrupt();
+        }
+        for ( final IEventWriter l_writer : m_writers )
+        {
+            try
+            {
+                l_writer.close();
+            }
+            catch ( final IOException l_err )
+            {
+                l_err.printStackTrace();
+            }
+        }
+        m_writers.clear();
+        TEXTLOGS.values().remove( this );
+    }
+
+    /**
+     * number of records accepted so far
+     * @return the number of records
+     */
+    long logged()
+    {
+        return m_logged.get();
+    }
+
+    /**
+     * puts a record into the ring buffer
+     * @param p_record the record
+     */
+    private void put( final CEventRecord p_record )
+    {
+        final CDeferred l_deferred = DEFERRED.get();
+        if ( l_deferred != null )
+        {
+            l_deferred.add( this, p_record );
+            return;
+        }
+
+        //counted before the check, so the background thread waits for every record that passes it
+        m_logged.incrementAndGet();
+        if ( m_closed )
+        {
+            m_logged.decrementAndGet();
+            return;
+        }
+        try
+        {
+            m_buffer.put( p_record );
+        }
+        catch ( final InterruptedException l_err )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * the background thread, writes the buffer in batches
+     * until the log is closed and every accepted record is written
+     */
+    private void drain()
+    {
+        final ArrayList<CEventRecord> l_batch = new ArrayList<>( m_batch );
+        while ( ( !m_closed ) || ( m_written < m_logged.get() ) )
+        {
+            try
+            {
+                final CEventRecord l_first = m_buffer.poll( POLL, TimeUnit.MILLISECONDS );
+                if ( l_first == null ) continue;
+                l_batch.add( l_first );
+            }
+            catch ( final InterruptedException l_err )
+            {
+                break;
+            }
+            m_buffer.drainTo( l_batch, m_batch - 1 );
+            for ( final IEventWriter l_writer : m_writers )
+            {
+                //a failing writer loses the batch but must not stop the thread, loggers and flush would wait for it forever
+                try
+                {
+                    l_writer.write( l_batch );
+                }
+                catch ( final IOException | RuntimeException l_err )
+                {
+                    l_err.printStackTrace();
+                }
+            }
+            //only this thread writes the counter
+            m_written += l_batch.size();
+            synchronized ( this )
+            {
+                notifyAll();
+            }
+            l_batch.clear();
+        }
+    }
+
+    /**
+     * records held back by a thread,
+     * with the log each of them was logged to
+     */
+    public static final class CDeferred
+    {
+        private final List<CEventLog> m_logs = new ArrayList<>();
+        private final List<CEventRecord> m_records = new ArrayList<>();
+
+        /**
+         * holds back a record
+         * @param p_log the log
+         * @param p_record the record
+         */
+        private void add( final CEventLog p_log, final CEventRecord p_record )
+        {
+            m_logs.add( p_log );
+            m_records.add( p_record );
+        }
+
+        /**
+         * number of records held back
+         * @return the number of records
+         */
+        public int size()
+        {
+            return m_records.size();
+        }
+
+        /**
+         * puts the records into their logs in the order they were logged,
+         * into the records of the enclosing deferral if the current thread defers
+         */
+        public void commit()
+        {
+            for ( int i = 0; i < m_records.size(); i++ )
+                m_logs.get( i ).put( m_records.get( i ) );
+            m_logs.clear();
+            m_records.clear();
+        }
+    }
+}
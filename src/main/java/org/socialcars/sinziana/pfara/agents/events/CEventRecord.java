@@ -0,0 +1,198 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.socialcars.sinziana.pfara.negotiation.events.INegotiationEvent;
+
+import java.text.MessageFormat;
+import java.util.logging.Level;
+
+/**
+ * compact, immutable copy of an event
+ * taken when the event happens, so it can be formatted and written later on another thread
+ */
+public final class CEventRecord
+{
+    private final Level m_level;
+    private final String m_who;
+    private final Enum<?> m_what;
+    private final String m_where;
+    private final Integer m_when;
+    private final String[] m_with;
+    private final Double m_buyout;
+    private final String m_text;
+
+    /**
+     * ctor
+     * @param p_level the level
+     * @param p_who the name of the subject
+     * @param p_what the event type
+     * @param p_where the location
+     * @param p_when the timestep
+     * @param p_with the names of the partners
+     * @param p_buyout the buyout of the offer
+     * @param p_text free text
+     */
+    CEventRecord( final Level p_level, final String p_who, final Enum<?> p_what, final String p_where, final Integer p_when,
+                          final String[] p_with, final Double p_buyout, final String p_text )
+    {
+        m_level = p_level;
+        m_who = p_who;
+        m_what = p_what;
+        m_where = p_where;
+        m_when = p_when;
+        m_with = p_with;
+        m_buyout = p_buyout;
+        m_text = p_text;
+    }
+
+    /**
+     * record of a simulation event
+     * @param p_level the level
+     * @param p_event the event
+     * @return the record
+     */
+    public static CEventRecord of( final Level p_level, final IEvent p_event )
+    {
+        final String[] l_with = p_event.with() == null ? null : p_event.with().stream().map( e -> e.name() ).toArray( String[]::new );
+        return new CEventRecord( p_level, p_event.who().name(), p_event.what(), p_event.where(), p_event.when(), l_with, null, null );
+    }
+
+    /**
+     * record of a negotiation event
+     * @param p_level the level
+     * @param p_event the event
+     * @param p_note text appended to the event, null if none
+     * @return the record
+     */
+    public static CEventRecord of( final Level p_level, final INegotiationEvent p_event, final String p_note )
+    {
+        return new CEventRecord( p_level, p_event.who().name(), p_event.what(), null, null, null,
+                                 p_event.which() == null ? null : p_event.which().buyout(), p_note );
+    }
+
+    /**
+     * record of a free text message
+     * @param p_level the level
+     * @param p_text the message
+     * @return the record
+     */
+    public static CEventRecord of( final Level p_level, final String p_text )
+    {
+        return new CEventRecord( p_level, null, null, null, null, null, null, p_text );
+    }
+
+    /**
+     * the level
+     * @return the level
+     */
+    public Level level()
+    {
+        return m_level;
+    }
+
+    /**
+     * the name of the subject
+     * @return the name, null for free text
+     */
+    public String who()
+    {
+        return m_who;
+    }
+
+    /**
+     * the event type
+     * @return a simulation or negotiation event type, null for free text
+     */
+    public Enum<?> what()
+    {
+        return m_what;
+    }
+
+    /**
+     * the location
+     * @return the name of the location, null if unknown
+     */
+    public String where()
+    {
+        return m_where;
+    }
+
+    /**
+     * the timestep
+     * @return the timestep, null if unknown
+     */
+    public Integer when()
+    {
+        return m_when;
+    }
+
+    /**
+     * the names of the partners
+     * @return the names, null if none
+     */
+    public String[] with()
+    {
+        return m_with;
+    }
+
+    /**
+     * the buyout of the offer of a negotiation event
+     * @return the buyout, null if none
+     */
+    public Double buyout()
+    {
+        return m_buyout;
+    }
+
+    /**
+     * the free text or the note of a negotiation event
+     * @return the text, null if none
+     */
+    public String text()
+    {
+        return m_text;
+    }
+
+    /**
+     * the text log line of the record
+     * @return the string message
+     */
+    @Override
+    public String toString()
+    {
+        if ( m_what == null ) return m_text;
+
+        if ( m_what instanceof EEventType )
+        {
+            String l_message = MessageFormat.format( "{0} {1} at {2} at {3} timestep", m_who, m_what, m_where, m_when );
+            if ( ( m_with != null ) && ( m_with.length > 0 ) )
+            {
+                //the partners of the text log have always been led by null
+                final StringBuilder l_with = new StringBuilder( "null" );
+                for ( final String l_name : m_with )
+                    l_with.append( " " ).append( l_name );
+                l_message += " with " + l_with;
+            }
+            return l_message;
+        }
+
+        String l_res = m_who + "  " + m_what;
+        if ( m_buyout != null ) l_res += " with buyout " + m_buyout;
+        if ( m_text != null ) l_res += m_text;
+        return l_res;
+    }
+}
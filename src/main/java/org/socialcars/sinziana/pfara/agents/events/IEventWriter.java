@@ -0,0 +1,39 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * writes batches of event records,
+ * called from the background thread of the event log only
+ */
+public interface IEventWriter
+{
+    /**
+     * writes a batch of records
+     * @param p_batch the records in the order they were logged
+     * @throws IOException file
+     */
+    void write( final List<CEventRecord> p_batch ) throws IOException;
+
+    /**
+     * flushes and releases the target
+     * @throws IOException file
+     */
+    void close() throws IOException;
+}
@@ -15,7 +15,6 @@
 
 package org.socialcars.sinziana.pfara.agents.proprieties;
 
-import com.google.common.util.concurrent.AtomicDouble;
 import org.socialcars.sinziana.pfara.agents.CPreference;
 import org.socialcars.sinziana.pfara.data.input.CUtilitypojo;
 import org.socialcars.sinziana.pfara.environment.IEdge;
@@ -73,22 +72,24 @@ public class CUtility implements IUtility
     @Override
     public Double calculateMakro( final List<IEdge> p_route, final Double p_speed, final CUnits p_unit, final Double p_buyout, final CPreference p_pref )
     {
-        final AtomicDouble l_time = new AtomicDouble( 0.0 );
-        final AtomicDouble l_length = new AtomicDouble( 0.0 );
-        final AtomicDouble l_cost = new AtomicDouble( 0.0 );
-        p_route.forEach( e ->
+        final double l_speed = p_unit.speedToBlocks( p_speed ).doubleValue();
+        double l_time = 0.0;
+        double l_length = 0.0;
+        double l_cost = 0.0;
+        for ( final IEdge l_edge : p_route )
         {
+            final double l_blocks = l_edge.blocks( p_unit );
             //time
-            l_time.getAndAdd( p_unit.distanceToBlocks( e.length().doubleValue() ).doubleValue() / p_unit.speedToBlocks( p_speed ).doubleValue( ) );
+            l_time += l_blocks / l_speed;
             //length
-            l_length.getAndAdd( p_unit.distanceToBlocks( e.length().doubleValue() ).doubleValue() );
+            l_length += l_blocks;
             //cost
-            l_cost.getAndAdd( e.weight().doubleValue() );
-        } );
-        l_cost.getAndAdd( -p_buyout );
-        if ( ( l_length.get() > p_pref.lengthLimit() ) || ( l_time.get() > p_pref.timeLimit() ) )
+            l_cost += l_edge.weight();
+        }
+        l_cost -= p_buyout;
+        if ( ( l_length > p_pref.lengthLimit() ) || ( l_time > p_pref.timeLimit() ) )
             return null;
-        else return m_rho * l_length.get() + m_sigma * l_cost.get();
+        else return m_rho * l_length + m_sigma * l_cost;
     }
 
     /**
@@ -103,20 +104,20 @@ public class CUtility implements IUtility
     @Override
     public Double calculateMikro( final List<IEdge> p_route, final Double p_speed, final CUnits p_unit, final Double p_buyout, final CPreference p_pref )
     {
-        final AtomicDouble l_time = new AtomicDouble( 0.0 );
-        final AtomicDouble l_length = new AtomicDouble( 0.0 );
-
-        p_route.forEach( e ->
+        final double l_speed = p_unit.speedToBlocks( p_speed ).doubleValue();
+        double l_time = 0.0;
+        double l_length = 0.0;
+        for ( final IEdge l_edge : p_route )
         {
+            final double l_blocks = l_edge.blocks( p_unit );
             //time
-            l_time.getAndAdd( p_unit.distanceToBlocks( e.length().doubleValue() ).doubleValue() / p_unit.speedToBlocks( p_speed ).doubleValue( ) );
+            l_time += l_blocks / l_speed;
             //length
-            l_length.getAndAdd( p_unit.distanceToBlocks( e.length().doubleValue() ).doubleValue() );
-
-        } );
-        if ( ( l_length.get() > p_pref.lengthLimit() ) || ( l_time.get() > p_pref.timeLimit() ) )
+            l_length += l_blocks;
+        }
+        if ( ( l_length > p_pref.lengthLimit() ) || ( l_time > p_pref.timeLimit() ) )
             return null;
-        else return m_rho * l_length.get() + m_sigma * l_time.get();
+        else return m_rho * l_length + m_sigma * l_time;
     }
 
     /**
@@ -130,9 +131,10 @@ public class CUtility implements IUtility
     @Override
     public Double calculateRV( final List<IEdge> p_route, final Double p_speed, final CUnits p_unit, final Double p_oldutility )
     {
-        final AtomicDouble l_length = new AtomicDouble( 0.0 );
-        p_route.forEach( e -> l_length.getAndAdd( p_unit.distanceToBlocks( e.length().doubleValue() ).doubleValue() ) );
-        Double l_rv =  p_oldutility - m_rho * l_length.get();
+        double l_length = 0.0;
+        for ( final IEdge l_edge : p_route )
+            l_length += l_edge.blocks( p_unit );
+        Double l_rv =  p_oldutility - m_rho * l_length;
         l_rv = l_rv / m_sigma;
         return Math.abs( l_rv );
     }
@@ -0,0 +1,475 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * read-only compressed sparse row representation of the graph
+ * nodes and edges are numbered densely in input order,
+ * the outgoing and incoming edges of node n are found at
+ * positions [begin(n), end(n)) of the adjacency arrays
+ */
+public final class CCompressedGraph
+{
+    private final INode[] m_nodes;
+    private final IEdge[] m_edges;
+    private final HashMap<INode, Integer> m_nodeids;
+    private final HashMap<IEdge, Integer> m_edgeids;
+    private final HashMap<Long, Integer> m_pairs;
+
+    private final int[] m_from;
+    private final int[] m_to;
+    private final double[] m_weights;
+    private final double[] m_lengths;
+    private final long[] m_keys;
+
+    private final int[] m_outbegin;
+    private final int[] m_outedges;
+    private final int[] m_inbegin;
+    private final int[] m_inedges;
+
+    /**
+     * ctor
+     * @param p_nodes the nodes
+     * @param p_edges the edges
+     */
+    public CCompressedGraph( final List<INode> p_nodes, final List<IEdge> p_edges )
+    {
+        m_nodes = p_nodes.toArray( new INode[0] );
+        m_edges = p_edges.toArray( new IEdge[0] );
+        m_nodeids = new HashMap<>( 2 * m_nodes.length );
+        m_edgeids = new HashMap<>( 2 * m_edges.length );
+        m_pairs = new HashMap<>( 2 * m_edges.length );
+        for ( int i = 0; i < m_nodes.length; i++ )
+            m_nodeids.put( m_nodes[i], i );
+
+        m_from = new int[m_edges.length];
+        m_to = new int[m_edges.length];
+        m_weights = new double[m_edges.length];
+        m_lengths = new double[m_edges.length];
+        m_keys = new long[m_edges.length];
+        m_outbegin = new int[m_nodes.length + 1];
+        m_inbegin = new int[m_nodes.length + 1];
+        for ( int i = 0; i < m_edges.length; i++ )
+        {
+            m_edgeids.put( m_edges[i], i );
+            m_from[i] = m_nodeids.get( m_edges[i].from() );
+            m_to[i] = m_nodeids.get( m_edges[i].to() );
+            m_weights[i] = m_edges[i].weight();
+            m_lengths[i] = m_edges[i].length();
+            m_keys[i] = key( (long) i );
+            m_outbegin[m_from[i] + 1]++;
+            m_inbegin[m_to[i] + 1]++;
+            m_pairs.putIfAbsent( pair( m_from[i], m_to[i] ), i );
+        }
+        for ( int i = 0; i < m_nodes.length; i++ )
+        {
+            m_outbegin[i + 1] += m_outbegin[i];
+            m_inbegin[i + 1] += m_inbegin[i];
+        }
+
+        m_outedges = new int[m_edges.length];
+        m_inedges = new int[m_edges.length];
+        final int[] l_outfill = Arrays.copyOf( m_outbegin, m_nodes.length );
+        final int[] l_infill = Arrays.copyOf( m_inbegin, m_nodes.length );
+        for ( int i = 0; i < m_edges.length; i++ )
+        {
+            m_outedges[l_outfill[m_from[i]]++] = i;
+            m_inedges[l_infill[m_to[i]]++] = i;
+        }
+    }
+
+    /**
+     * number of nodes
+     * @return the number of nodes
+     */
+    public int nodeCount()
+    {
+        return m_nodes.length;
+    }
+
+    /**
+     * number of edges
+     * @return the number of edges
+     */
+    public int edgeCount()
+    {
+        return m_edges.length;
+    }
+
+    /**
+     * the node with the given id
+     * @param p_id the node id
+     * @return the node
+     */
+    public INode node( final int p_id )
+    {
+        return m_nodes[p_id];
+    }
+
+    /**
+     * the edge with the given id
+     * @param p_id the edge id
+     * @return the edge
+     */
+    public IEdge edge( final int p_id )
+    {
+        return m_edges[p_id];
+    }
+
+    /**
+     * the id of a node
+     * @param p_node the node
+     * @return the node id
+     */
+    public int nodeId( final INode p_node )
+    {
+        return m_nodeids.get( p_node );
+    }
+
+    /**
+     * the id of an edge
+     * @param p_edge the edge
+     * @return the edge id
+     */
+    public int edgeId( final IEdge p_edge )
+    {
+        return m_edgeids.get( p_edge );
+    }
+
+    /**
+     * the first edge between two nodes
+     * @param p_from the origin node id
+     * @param p_to the end node id
+     * @return the lowest id of the edges from the origin to the end, negative if there is none
+     */
+    public int edge( final int p_from, final int p_to )
+    {
+        return m_pairs.getOrDefault( pair( p_from, p_to ), -1 );
+    }
+
+    /**
+     * key of an ordered pair of nodes
+     * @param p_from the origin node id
+     * @param p_to the end node id
+     * @return the key
+     */
+    private static long pair( final int p_from, final int p_to )
+    {
+        return ( (long) p_from << 32 ) | ( p_to & 0xffffffffL );
+    }
+
+    /**
+     * all nodes in id order
+     * @return the nodes
+     */
+    public List<INode> nodes()
+    {
+        return Arrays.asList( m_nodes );
+    }
+
+    /**
+     * all edges in id order
+     * @return the edges
+     */
+    public List<IEdge> edges()
+    {
+        return Arrays.asList( m_edges );
+    }
+
+    /**
+     * origin node of an edge
+     * @param p_edge the edge id
+     * @return the node id
+     */
+    public int from( final int p_edge )
+    {
+        return m_from[p_edge];
+    }
+
+    /**
+     * end node of an edge
+     * @param p_edge the edge id
+     * @return the node id
+     */
+    public int to( final int p_edge )
+    {
+        return m_to[p_edge];
+    }
+
+    /**
+     * weight of an edge
+     * @param p_edge the edge id
+     * @return the weight
+     */
+    public double weight( final int p_edge )
+    {
+        return m_weights[p_edge];
+    }
+
+    /**
+     * length of an edge
+     * @param p_edge the edge id
+     * @return the length
+     */
+    public double length( final int p_edge )
+    {
+        return m_lengths[p_edge];
+    }
+
+    /**
+     * tie-breaking key of an edge, among paths of equal weight
+     * the one with the smallest sum of keys is chosen
+     * @param p_edge the edge id
+     * @return the key
+     */
+    public long key( final int p_edge )
+    {
+        return m_keys[p_edge];
+    }
+
+    /**
+     * the weights of all edges, indexed by edge id
+     * the array must not be modified
+     * @return the weights
+     */
+    public double[] weights()
+    {
+        return m_weights;
+    }
+
+    /**
+     * the lengths of all edges, indexed by edge id
+     * the array must not be modified
+     * @return the lengths
+     */
+    public double[] lengths()
+    {
+        return m_lengths;
+    }
+
+    /**
+     * first adjacency position of the edges leaving a node
+     * @param p_node the node id
+     * @return the position
+     */
+    public int outBegin( final int p_node )
+    {
+        return m_outbegin[p_node];
+    }
+
+    /**
+     * position after the last edge leaving a node
+     * @param p_node the node id
+     * @return the position
+     */
+    public int outEnd( final int p_node )
+    {
+        return m_outbegin[p_node + 1];
+    }
+
+    /**
+     * outgoing edge at an adjacency position
+     * @param p_position the position
+     * @return the edge id
+     */
+    public int outEdge( final int p_position )
+    {
+        return m_outedges[p_position];
+    }
+
+    /**
+     * first adjacency position of the edges entering a node
+     * @param p_node the node id
+     * @return the position
+     */
+    public int inBegin( final int p_node )
+    {
+        return m_inbegin[p_node];
+    }
+
+    /**
+     * position after the last edge entering a node
+     * @param p_node the node id
+     * @return the position
+     */
+    public int inEnd( final int p_node )
+    {
+        return m_inbegin[p_node + 1];
+    }
+
+    /**
+     * incoming edge at an adjacency position
+     * @param p_position the position
+     * @return the edge id
+     */
+    public int inEdge( final int p_position )
+    {
+        return m_inedges[p_position];
+    }
+
+    /**
+     * dijkstra shortest path,
+     * among several shortest paths the one with the smallest sum of edge keys
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @param p_weights the weight of every edge, indexed by edge id
+     * @param p_excluded an edge id that may not be used, negative for none
+     * @return the edge ids of the path, empty if the destination is not reachable
+     */
+    public int[] shortestPath( final int p_from, final int p_to, final double[] p_weights, final int p_excluded )
+    {
+        if ( p_from == p_to ) return new int[0];
+        return path( dijkstra( p_from, p_to, p_weights, p_excluded ), p_from, p_to );
+    }
+
+    /**
+     * complete dijkstra shortest path tree of an origin
+     * @param p_from the origin node id
+     * @param p_weights the weight of every edge, indexed by edge id
+     * @return the id of the edge leading to every node, negative if the node is not reachable
+     */
+    public int[] shortestPathTree( final int p_from, final double[] p_weights )
+    {
+        return dijkstra( p_from, -1, p_weights, -1 );
+    }
+
+    /**
+     * shortest distances from a node to all nodes, or from all nodes to it
+     * @param p_node the node id
+     * @param p_weights the weight of every edge, indexed by edge id
+     * @param p_backward true for the distances to the node, following the edges backwards
+     * @return the distance of every node, infinite if it is not connected
+     */
+    public double[] distances( final int p_node, final double[] p_weights, final boolean p_backward )
+    {
+        final double[] l_distance = new double[m_nodes.length];
+        Arrays.fill( l_distance, Double.POSITIVE_INFINITY );
+        final int[] l_begin = p_backward ? m_inbegin : m_outbegin;
+        final int[] l_edges = p_backward ? m_inedges : m_outedges;
+        final int[] l_other = p_backward ? m_from : m_to;
+
+        final CHeap l_heap = new CHeap( m_nodes.length, l_distance );
+        l_distance[p_node] = 0;
+        l_heap.update( p_node );
+        while ( !l_heap.isEmpty() )
+        {
+            final int l_node = l_heap.poll();
+            for ( int i = l_begin[l_node]; i < l_begin[l_node + 1]; i++ )
+            {
+                final double l_candidate = l_distance[l_node] + p_weights[l_edges[i]];
+                if ( l_candidate < l_distance[l_other[l_edges[i]]] )
+                {
+                    l_distance[l_other[l_edges[i]]] = l_candidate;
+                    l_heap.update( l_other[l_edges[i]] );
+                }
+            }
+        }
+        return l_distance;
+    }
+
+    /**
+     * reads a path out of a shortest path tree
+     * @param p_tree the tree of the origin
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @return the edge ids of the path, empty if the destination is not reachable
+     */
+    public int[] path( final int[] p_tree, final int p_from, final int p_to )
+    {
+        if ( ( p_from == p_to ) || ( p_tree[p_to] < 0 ) ) return new int[0];
+
+        int l_count = 0;
+        for ( int l_node = p_to; l_node != p_from; l_node = m_from[p_tree[l_node]] )
+            l_count++;
+        final int[] l_path = new int[l_count];
+        for ( int l_node = p_to; l_node != p_from; l_node = m_from[p_tree[l_node]] )
+            l_path[--l_count] = p_tree[l_node];
+        return l_path;
+    }
+
+    /**
+     * dijkstra search
+     * @param p_from the origin node id
+     * @param p_to the node id at which the search stops, negative to settle all nodes
+     * @param p_weights the weight of every edge, indexed by edge id
+     * @param p_excluded an edge id that may not be used, negative for none
+     * @return the id of the edge leading to every settled node
+     */
+    private int[] dijkstra( final int p_from, final int p_to, final double[] p_weights, final int p_excluded )
+    {
+        final double[] l_distance = new double[m_nodes.length];
+        final long[] l_key = new long[m_nodes.length];
+        final int[] l_previous = new int[m_nodes.length];
+        Arrays.fill( l_distance, Double.POSITIVE_INFINITY );
+        Arrays.fill( l_previous, -1 );
+
+        final CHeap l_heap = new CHeap( m_nodes.length, l_distance );
+        l_distance[p_from] = 0;
+        l_heap.update( p_from );
+        while ( !l_heap.isEmpty() )
+        {
+            final int l_node = l_heap.poll();
+            if ( l_node == p_to ) break;
+            for ( int i = m_outbegin[l_node]; i < m_outbegin[l_node + 1]; i++ )
+            {
+                final int l_edge = m_outedges[i];
+                if ( l_edge == p_excluded ) continue;
+                final double l_candidate = l_distance[l_node] + p_weights[l_edge];
+                final long l_candidatekey = l_key[l_node] + m_keys[l_edge];
+                if ( ( l_candidate < l_distance[m_to[l_edge]] ) || ( ( l_candidate == l_distance[m_to[l_edge]] ) && ( l_candidatekey < l_key[m_to[l_edge]] ) ) )
+                {
+                    l_distance[m_to[l_edge]] = l_candidate;
+                    l_key[m_to[l_edge]] = l_candidatekey;
+                    l_previous[m_to[l_edge]] = l_edge;
+                    l_heap.update( m_to[l_edge] );
+                }
+            }
+        }
+        return l_previous;
+    }
+
+    /**
+     * tie-breaking key of an edge id, a fixed pseudo-random number
+     * below 2^40 so that the sums over paths do not overflow
+     * @param p_id the edge id
+     * @return the key
+     */
+    private static long key( final long p_id )
+    {
+        long l_mix = p_id + 0x9E3779B97F4A7C15L;
+        l_mix = ( l_mix ^ ( l_mix >>> 30 ) ) * 0xBF58476D1CE4E5B9L;
+        l_mix = ( l_mix ^ ( l_mix >>> 27 ) ) * 0x94D049BB133111EBL;
+        return ( l_mix ^ ( l_mix >>> 31 ) ) >>> 24;
+    }
+
+    /**
+     * transforms edge ids into a modifiable list of edges
+     * @param p_path the edge ids
+     * @return the edges
+     */
+    public List<IEdge> toEdges( final int[] p_path )
+    {
+        final List<IEdge> l_route = new ArrayList<>( p_path.length );
+        for ( final int l_edge : p_path )
+            l_route.add( m_edges[l_edge] );
+        return l_route;
+    }
+}
@@ -0,0 +1,856 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * contraction hierarchy index of the compressed graph
+ * the nodes are contracted one by one in the order of their edge difference,
+ * adding a shortcut wherever a shortest path led through the contracted node,
+ * a query is a bidirectional dijkstra that only goes up the hierarchy
+ * and so settles a few hundred nodes instead of the whole graph,
+ * the shortcuts are unpacked into the edges of the graph afterwards
+ *
+ * the paths are the dijkstra paths of the compressed graph, among several shortest paths both choose
+ * the one with the smallest sum of edge keys, the shortcuts carry the key sum of the edges they replace
+ * and ties are compared the same way while contracting and querying,
+ * so the paths agree wherever the weight sums are exact, as for integer weights
+ *
+ * the index can be written to a file and is only read back for the graph it was built for,
+ * the file is replaced atomically and carries a checksum, a truncated or corrupt file is rebuilt
+ */
+public final class CContractionHierarchy
+{
+    /**
+     * maximum number of nodes settled by a witness search while contracting
+     */
+    private static final int WITNESSLIMIT = 256;
+    private static final int MAGIC = 0x50464348;
+    private static final int VERSION = 3;
+    /**
+     * bytes of a hierarchy edge in the index file
+     */
+    private static final int EDGEBYTES = 32;
+
+    private final int m_nodecount;
+    private final long m_fingerprint;
+    private final int[] m_rank;
+    private final int[] m_from;
+    private final int[] m_to;
+    private final double[] m_weight;
+    private final long[] m_key;
+    private final int[] m_first;
+    private final int[] m_second;
+
+    private final int[] m_upbegin;
+    private final int[] m_upedges;
+    private final int[] m_downbegin;
+    private final int[] m_downedges;
+
+    private final ThreadLocal<CSearch> m_search;
+    private final AtomicLong m_queries = new AtomicLong();
+    private final AtomicLong m_settled = new AtomicLong();
+
+    /**
+     * ctor
+     * @param p_nodecount the number of nodes
+     * @param p_fingerprint the fingerprint of the graph
+     * @param p_rank the contraction order of every node
+     * @param p_from the origin of every hierarchy edge
+     * @param p_to the end of every hierarchy edge
+     * @param p_weight the weight of every hierarchy edge
+     * @param p_key the tie-breaking key of every hierarchy edge
+     * @param p_first the graph edge, or the first half of a shortcut
+     * @param p_second the second half of a shortcut, negative for graph edges
+     */
+    private CContractionHierarchy( final int p_nodecount, final long p_fingerprint, final int[] p_rank, final int[] p_from, final int[] p_to,
+                                   final double[] p_weight, final long[] p_key, final int[] p_first, final int[] p_second )
+    {
+        m_nodecount = p_nodecount;
+        m_fingerprint = p_fingerprint;
+        m_rank = p_rank;
+        m_from = p_from;
+        m_to = p_to;
+        m_weight = p_weight;
+        m_key = p_key;
+        m_first = p_first;
+        m_second = p_second;
+
+        //upward edges are searched from their origin, downward edges backwards from their end
+        m_upbegin = new int[m_nodecount + 1];
+        m_downbegin = new int[m_nodecount + 1];
+        for ( int i = 0; i < m_from.length; i++ )
+            if ( m_rank[m_from[i]] < m_rank[m_to[i]] ) m_upbegin[m_from[i] + 1]++;
+            else m_downbegin[m_to[i] + 1]++;
+        for ( int i = 0; i < m_nodecount; i++ )
+        {
+            m_upbegin[i + 1] += m_upbegin[i];
+            m_downbegin[i + 1] += m_downbegin[i];
+        }
+        m_upedges = new int[m_upbegin[m_nodecount]];
+        m_downedges = new int[m_downbegin[m_nodecount]];
+        final int[] l_upfill = Arrays.copyOf( m_upbegin, m_nodecount );
+        final int[] l_downfill = Arrays.copyOf( m_downbegin, m_nodecount );
+        for ( int i = 0; i < m_from.length; i++ )
+            if ( m_rank[m_from[i]] < m_rank[m_to[i]] ) m_upedges[l_upfill[m_from[i]]++] = i;
+            else m_downedges[l_downfill[m_to[i]]++] = i;
+
+        m_search = ThreadLocal.withInitial( () -> new CSearch( m_nodecount ) );
+    }
+
+    /**
+     * builds the index over the weights of the graph
+     * @param p_core the graph
+     * @return the index
+     */
+    public static CContractionHierarchy build( final CCompressedGraph p_core )
+    {
+        return new CContraction( p_core ).run();
+    }
+
+    /**
+     * reads the index from a file, it is rebuilt and written
+     * if the file does not exist, is corrupt or belongs to another graph
+     * @param p_core the graph
+     * @param p_file the index file
+     * @return the index
+     * @throws IOException file
+     */
+    public static CContractionHierarchy of( final CCompressedGraph p_core, final Path p_file ) throws IOException
+    {
+        final CContractionHierarchy l_loaded = Files.exists( p_file ) ? load( p_core, p_file ) : null;
+        if ( l_loaded != null ) return l_loaded;
+
+        final CContractionHierarchy l_built = build( p_core );
+        l_built.save( p_file );
+        return l_built;
+    }
+
+    /**
+     * the index file next to an input file
+     * @param p_input the input json file
+     * @return the index file
+     */
+    public static Path indexFile( final String p_input )
+    {
+        return Paths.get( p_input.replaceFirst( "\\.json$", "" ) + ".ch" );
+    }
+
+    /**
+     * reads the index from a file
+     * @param p_core the graph
+     * @param p_file the index file
+     * @return the index, null if it belongs to another graph or the file is truncated or corrupt
+     * @throws IOException file
+     */
+    public static CContractionHierarchy load( final CCompressedGraph p_core, final Path p_file ) throws IOException
+    {
+        final CRC32 l_checksum = new CRC32();
+        try ( DataInputStream l_in = new DataInputStream( new CheckedInputStream( new BufferedInputStream( Files.newInputStream( p_file ) ), l_checksum ) ) )
+        {
+            if ( ( l_in.readInt() != MAGIC ) || ( l_in.readInt() != VERSION ) ) return null;
+            final int l_nodecount = l_in.readInt();
+            final long l_fingerprint = l_in.readLong();
+            if ( ( l_nodecount != p_core.nodeCount() ) || ( l_fingerprint != fingerprint( p_core ) ) ) return null;
+
+            final int[] l_rank = new int[l_nodecount];
+            for ( int i = 0; i < l_nodecount; i++ )
+                l_rank[i] = l_in.readInt();
+
+            final int l_edgecount = l_in.readInt();
+            if ( ( l_edgecount < 0 ) || ( l_edgecount > Files.size( p_file ) / EDGEBYTES ) ) return null;
+            final int[] l_from = new int[l_edgecount];
+            final int[] l_to = new int[l_edgecount];
+            final double[] l_weight = new double[l_edgecount];
+            final long[] l_key = new long[l_edgecount];
+            final int[] l_first = new int[l_edgecount];
+            final int[] l_second = new int[l_edgecount];
+            for ( int i = 0; i < l_edgecount; i++ )
+            {
+                l_from[i] = l_in.readInt();
+                l_to[i] = l_in.readInt();
+                l_weight[i] = l_in.readDouble();
+                l_key[i] = l_in.readLong();
+                l_first[i] = l_in.readInt();
+                l_second[i] = l_in.readInt();
+            }
+
+            final long l_expected = l_checksum.getValue();
+            if ( ( l_in.readLong() != l_expected ) || ( l_in.read() >= 0 ) ) return null;
+            return new CContractionHierarchy( l_nodecount, l_fingerprint, l_rank, l_from, l_to, l_weight, l_key, l_first, l_second );
+        }
+        catch ( final EOFException l_err )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * writes the index to a file,
+     * it is written to a temporary file next to it that then replaces the file
+     * @param p_file the index file
+     * @throws IOException file
+     */
+    public void save( final Path p_file ) throws IOException
+    {
+        final Path l_temporary = Files.createTempFile( p_file.toAbsolutePath().getParent(), p_file.getFileName().toString(), ".tmp" );
+        try
+        {
+            write( l_temporary );
+            Files.move( l_temporary, p_file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        finally
+        {
+            Files.deleteIfExists( l_temporary );
+        }
+    }
+
+    /**
+     * writes the index and its checksum
+     * @param p_file the file
+     * @throws IOException file
+     */
+    private void write( final Path p_file ) throws IOException
+    {
+        final CRC32 l_checksum = new CRC32();
+        try ( DataOutputStream l_out = new DataOutputStream( new CheckedOutputStream( new BufferedOutputStream( Files.newOutputStream( p_file ) ), l_checksum ) ) )
+        {
+            l_out.writeInt( MAGIC );
+            l_out.writeInt( VERSION );
+            l_out.writeInt( m_nodecount );
+            l_out.writeLong( m_fingerprint );
+            for ( final int l_rank : m_rank )
+                l_out.writeInt( l_rank );
+
+            l_out.writeInt( m_from.length );
+            for ( int i = 0; i < m_from.length; i++ )
+            {
+                l_out.writeInt( m_from[i] );
+                l_out.writeInt( m_to[i] );
+                l_out.writeDouble( m_weight[i] );
+                l_out.writeLong( m_key[i] );
+                l_out.writeInt( m_first[i] );
+                l_out.writeInt( m_second[i] );
+            }
+            l_out.writeLong( l_checksum.getValue() );
+        }
+    }
+
+    /**
+     * shortest path over the weights of the graph
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @return the edge ids of the path, empty if the destination is not reachable
+     */
+    public int[] shortestPath( final int p_from, final int p_to )
+    {
+        if ( p_from == p_to ) return new int[0];
+        m_queries.incrementAndGet();
+        return m_search.get().run( p_from, p_to );
+    }
+
+    /**
+     * number of shortcuts added while contracting
+     * @return the number of shortcuts
+     */
+    public int shortcuts()
+    {
+        int l_count = 0;
+        for ( final int l_second : m_second )
+            if ( l_second >= 0 ) l_count++;
+        return l_count;
+    }
+
+    /**
+     * number of queries answered
+     * @return the number of queries
+     */
+    public long queries()
+    {
+        return m_queries.get();
+    }
+
+    /**
+     * number of nodes settled by all queries
+     * @return the number of settled nodes
+     */
+    public long settled()
+    {
+        return m_settled.get();
+    }
+
+    /**
+     * fingerprint of the topology and weights of a graph
+     * @param p_core the graph
+     * @return the fingerprint
+     */
+    private static long fingerprint( final CCompressedGraph p_core )
+    {
+        long l_hash = 1125899906842597L;
+        for ( int i = 0; i < p_core.edgeCount(); i++ )
+        {
+            l_hash = 31 * l_hash + p_core.from( i );
+            l_hash = 31 * l_hash + p_core.to( i );
+            l_hash = 31 * l_hash + Double.doubleToLongBits( p_core.weight( i ) );
+        }
+        return 31 * l_hash + p_core.edgeCount();
+    }
+
+    /**
+     * compares two paths by weight and, for equal weights, by key sum
+     * @param p_weight the weight of the first path
+     * @param p_key the key sum of the first path
+     * @param p_otherweight the weight of the second path
+     * @param p_otherkey the key sum of the second path
+     * @return true if the first path is shorter
+     */
+    private static boolean shorter( final double p_weight, final long p_key, final double p_otherweight, final long p_otherkey )
+    {
+        return ( p_weight < p_otherweight ) || ( ( p_weight == p_otherweight ) && ( p_key < p_otherkey ) );
+    }
+
+    /**
+     * per thread state of a query,
+     * the arrays are reset through the list of touched nodes
+     */
+    private final class CSearch
+    {
+        private final double[] m_forward;
+        private final double[] m_backward;
+        private final long[] m_forwardkey;
+        private final long[] m_backwardkey;
+        private final int[] m_forwardedge;
+        private final int[] m_backwardedge;
+        private final CHeap m_forwardheap;
+        private final CHeap m_backwardheap;
+        private final int[] m_touched;
+        private int m_touchedcount;
+
+        /**
+         * ctor
+         * @param p_nodecount the number of nodes
+         */
+        CSearch( final int p_nodecount )
+        {
+            m_forward = new double[p_nodecount];
+            m_backward = new double[p_nodecount];
+            m_forwardkey = new long[p_nodecount];
+            m_backwardkey = new long[p_nodecount];
+            m_forwardedge = new int[p_nodecount];
+            m_backwardedge = new int[p_nodecount];
+            m_touched = new int[p_nodecount];
+            Arrays.fill( m_forward, Double.POSITIVE_INFINITY );
+            Arrays.fill( m_backward, Double.POSITIVE_INFINITY );
+            Arrays.fill( m_forwardedge, -1 );
+            Arrays.fill( m_backwardedge, -1 );
+            m_forwardheap = new CHeap( p_nodecount, m_forward );
+            m_backwardheap = new CHeap( p_nodecount, m_backward );
+        }
+
+        /**
+         * bidirectional search up the hierarchy
+         * @param p_from the origin node id
+         * @param p_to the destination node id
+         * @return the edge ids of the path, empty if the destination is not reachable
+         */
+        int[] run( final int p_from, final int p_to )
+        {
+            touch( p_from );
+            touch( p_to );
+            m_forward[p_from] = 0;
+            m_backward[p_to] = 0;
+            m_forwardkey[p_from] = 0;
+            m_backwardkey[p_to] = 0;
+            m_forwardheap.update( p_from );
+            m_backwardheap.update( p_to );
+
+            double l_best = Double.POSITIVE_INFINITY;
+            long l_bestkey = 0;
+            int l_meeting = -1;
+            long l_settled = 0;
+            while ( ( !m_forwardheap.isEmpty() ) || ( !m_backwardheap.isEmpty() ) )
+            {
+                final double l_forwardmin = m_forwardheap.isEmpty() ? Double.POSITIVE_INFINITY : m_forward[m_forwardheap.peek()];
+                final double l_backwardmin = m_backwardheap.isEmpty() ? Double.POSITIVE_INFINITY : m_backward[m_backwardheap.peek()];
+                //a node at the weight of the best path may still lead to a smaller key sum
+                if ( Math.min( l_forwardmin, l_backwardmin ) > l_best ) break;
+
+                final boolean l_forwards = l_forwardmin <= l_backwardmin;
+                final int l_node = l_forwards ? m_forwardheap.poll() : m_backwardheap.poll();
+                l_settled++;
+                if ( shorter( m_forward[l_node] + m_backward[l_node], m_forwardkey[l_node] + m_backwardkey[l_node], l_best, l_bestkey ) )
+                {
+                    l_best = m_forward[l_node] + m_backward[l_node];
+                    l_bestkey = m_forwardkey[l_node] + m_backwardkey[l_node];
+                    l_meeting = l_node;
+                }
+
+                if ( l_forwards )
+                    for ( int i = m_upbegin[l_node]; i < m_upbegin[l_node + 1]; i++ )
+                        relax( m_upedges[i], m_to[m_upedges[i]], l_node, m_forward, m_forwardkey, m_forwardedge, m_forwardheap );
+                else
+                    for ( int i = m_downbegin[l_node]; i < m_downbegin[l_node + 1]; i++ )
+                        relax( m_downedges[i], m_from[m_downedges[i]], l_node, m_backward, m_backwardkey, m_backwardedge, m_backwardheap );
+            }
+            m_settled.addAndGet( l_settled );
+
+            final int[] l_path = l_meeting < 0 ? new int[0] : unpack( p_from, p_to, l_meeting );
+            reset();
+            return l_path;
+        }
+
+        /**
+         * relaxes a hierarchy edge
+         * @param p_edge the hierarchy edge
+         * @param p_node the node reached over the edge
+         * @param p_settled the settled node
+         * @param p_distances the distances of the direction
+         * @param p_keys the key sums of the direction
+         * @param p_edges the edges leading to the nodes of the direction
+         * @param p_heap the heap of the direction
+         */
+        private void relax( final int p_edge, final int p_node, final int p_settled, final double[] p_distances, final long[] p_keys, final int[] p_edges,
+                            final CHeap p_heap )
+        {
+            final double l_candidate = p_distances[p_settled] + m_weight[p_edge];
+            final long l_candidatekey = p_keys[p_settled] + m_key[p_edge];
+            if ( !shorter( l_candidate, l_candidatekey, p_distances[p_node], p_keys[p_node] ) ) return;
+            if ( ( m_forward[p_node] == Double.POSITIVE_INFINITY ) && ( m_backward[p_node] == Double.POSITIVE_INFINITY ) ) touch( p_node );
+            p_distances[p_node] = l_candidate;
+            p_keys[p_node] = l_candidatekey;
+            p_edges[p_node] = p_edge;
+            p_heap.update( p_node );
+        }
+
+        /**
+         * unpacks the hierarchy path through the meeting node into graph edges
+         * @param p_from the origin node id
+         * @param p_to the destination node id
+         * @param p_meeting the meeting node of both searches
+         * @return the edge ids of the path
+         */
+        private int[] unpack( final int p_from, final int p_to, final int p_meeting )
+        {
+            int l_forward = 0;
+            int l_count = 0;
+            for ( int l_node = p_meeting; l_node != p_from; l_node = m_from[m_forwardedge[l_node]] )
+                l_forward++;
+            for ( int l_node = p_meeting; l_node != p_to; l_node = m_to[m_backwardedge[l_node]] )
+                l_count++;
+
+            //the stack holds the hierarchy edges still to unpack, the next one on top
+            int[] l_stack = new int[Math.max( 16, l_forward + l_count )];
+            int l_index = l_count;
+            for ( int l_node = p_meeting; l_node != p_to; l_node = m_to[m_backwardedge[l_node]] )
+                l_stack[--l_index] = m_backwardedge[l_node];
+            l_index = l_count;
+            for ( int l_node = p_meeting; l_node != p_from; l_node = m_from[m_forwardedge[l_node]] )
+                l_stack[l_index++] = m_forwardedge[l_node];
+
+            int[] l_path = new int[l_stack.length];
+            int l_length = 0;
+            int l_size = l_forward + l_count;
+            while ( l_size > 0 )
+            {
+                final int l_edge = l_stack[--l_size];
+                if ( m_second[l_edge] < 0 )
+                {
+                    if ( l_length == l_path.length ) l_path = Arrays.copyOf( l_path, 2 * l_length );
+                    l_path[l_length++] = m_first[l_edge];
+                    continue;
+                }
+                if ( l_size + 2 > l_stack.length ) l_stack = Arrays.copyOf( l_stack, 2 * l_stack.length );
+                l_stack[l_size++] = m_second[l_edge];
+                l_stack[l_size++] = m_first[l_edge];
+            }
+            return Arrays.copyOf( l_path, l_length );
+        }
+
+        /**
+         * remembers a node to reset
+         * @param p_node the node id
+         */
+        private void touch( final int p_node )
+        {
+            m_touched[m_touchedcount++] = p_node;
+        }
+
+        /**
+         * resets the touched nodes and the heaps
+         */
+        private void reset()
+        {
+            for ( int i = 0; i < m_touchedcount; i++ )
+            {
+                m_forward[m_touched[i]] = Double.POSITIVE_INFINITY;
+                m_backward[m_touched[i]] = Double.POSITIVE_INFINITY;
+                m_forwardedge[m_touched[i]] = -1;
+                m_backwardedge[m_touched[i]] = -1;
+            }
+            m_touchedcount = 0;
+            m_forwardheap.clear();
+            m_backwardheap.clear();
+        }
+    }
+
+    /**
+     * the contraction of the graph into a hierarchy,
+     * every node keeps the lists of hierarchy edges to and from its neighbours,
+     * only the shortest edge between two nodes is kept in the lists
+     */
+    private static final class CContraction
+    {
+        private final CCompressedGraph m_core;
+        private final int m_nodecount;
+
+        private int[] m_from;
+        private int[] m_to;
+        private double[] m_weight;
+        private long[] m_key;
+        private int[] m_first;
+        private int[] m_second;
+        private int m_edgecount;
+
+        private final int[][] m_out;
+        private final int[] m_outsize;
+        private final int[][] m_in;
+        private final int[] m_insize;
+
+        private final boolean[] m_contracted;
+        private final int[] m_deleted;
+        private final double[] m_priority;
+        private final int[] m_visited;
+        private int m_stamp;
+        private final int[] m_target;
+        private int m_search;
+
+        private final List<int[]> m_shortcuts = new ArrayList<>();
+        private final double[] m_distance;
+        private final long[] m_distancekey;
+        private final CHeap m_witnessheap;
+        private final int[] m_touched;
+        private int m_touchedcount;
+
+        /**
+         * ctor
+         * @param p_core the graph
+         */
+        CContraction( final CCompressedGraph p_core )
+        {
+            m_core = p_core;
+            m_nodecount = p_core.nodeCount();
+            final int l_capacity = 2 * p_core.edgeCount() + 16;
+            m_from = new int[l_capacity];
+            m_to = new int[l_capacity];
+            m_weight = new double[l_capacity];
+            m_key = new long[l_capacity];
+            m_first = new int[l_capacity];
+            m_second = new int[l_capacity];
+
+            m_out = new int[m_nodecount][4];
+            m_outsize = new int[m_nodecount];
+            m_in = new int[m_nodecount][4];
+            m_insize = new int[m_nodecount];
+            m_contracted = new boolean[m_nodecount];
+            m_deleted = new int[m_nodecount];
+            m_priority = new double[m_nodecount];
+            m_visited = new int[m_nodecount];
+            m_target = new int[m_nodecount];
+
+            m_distance = new double[m_nodecount];
+            Arrays.fill( m_distance, Double.POSITIVE_INFINITY );
+            m_distancekey = new long[m_nodecount];
+            m_witnessheap = new CHeap( m_nodecount, m_distance );
+            m_touched = new int[m_nodecount];
+
+            //the hierarchy edges of the graph edges keep their ids
+            for ( int i = 0; i < p_core.edgeCount(); i++ )
+                connect( add( p_core.from( i ), p_core.to( i ), p_core.weight( i ), p_core.key( i ), i, -1 ) );
+        }
+
+        /**
+         * contracts all nodes
+         * @return the index
+         */
+        CContractionHierarchy run()
+        {
+            final CHeap l_order = new CHeap( m_nodecount, m_priority );
+            for ( int i = 0; i < m_nodecount; i++ )
+            {
+                m_priority[i] = contract( i, false );
+                l_order.update( i );
+            }
+
+            final int[] l_rank = new int[m_nodecount];
+            int l_next = 0;
+            while ( !l_order.isEmpty() )
+            {
+                final int l_node = l_order.poll();
+                //lazy update, the priority may have grown since it was computed
+                final double l_priority = contract( l_node, true );
+                if ( ( !l_order.isEmpty() ) && ( l_priority > m_priority[l_order.peek()] ) )
+                {
+                    m_shortcuts.clear();
+                    m_priority[l_node] = l_priority;
+                    l_order.update( l_node );
+                    continue;
+                }
+
+                m_shortcuts.forEach( c -> connect( add( m_from[c[0]], m_to[c[1]], m_weight[c[0]] + m_weight[c[1]], m_key[c[0]] + m_key[c[1]], c[0], c[1] ) ) );
+                m_shortcuts.clear();
+                m_contracted[l_node] = true;
+                l_rank[l_node] = l_next++;
+                neighbours( l_node, l_order );
+            }
+
+            return new CContractionHierarchy( m_nodecount, fingerprint( m_core ), l_rank,
+                                              Arrays.copyOf( m_from, m_edgecount ), Arrays.copyOf( m_to, m_edgecount ), Arrays.copyOf( m_weight, m_edgecount ),
+                                              Arrays.copyOf( m_key, m_edgecount ), Arrays.copyOf( m_first, m_edgecount ), Arrays.copyOf( m_second, m_edgecount ) );
+        }
+
+        /**
+         * counts the shortcuts the contraction of a node needs
+         * @param p_node the node id
+         * @param p_shortcut true to collect the shortcuts as pairs of hierarchy edges
+         * @return the priority of the node, the edge difference plus the contracted neighbours
+         */
+        private double contract( final int p_node, final boolean p_shortcut )
+        {
+            int l_shortcuts = 0;
+            int l_removed = 0;
+            final int[] l_in = Arrays.copyOf( m_in[p_node], m_insize[p_node] );
+            final int[] l_out = Arrays.copyOf( m_out[p_node], m_outsize[p_node] );
+            for ( final int l_outedge : l_out )
+                if ( !m_contracted[m_to[l_outedge]] ) l_removed++;
+
+            for ( final int l_inedge : l_in )
+                if ( !m_contracted[m_from[l_inedge]] )
+                {
+                    l_removed++;
+                    l_shortcuts += shortcuts( p_node, l_inedge, l_out, p_shortcut );
+                }
+
+            return l_shortcuts - l_removed + m_deleted[p_node];
+        }
+
+        /**
+         * counts the shortcuts from the origin of an incoming edge
+         * to the ends of the outgoing edges of a node
+         * @param p_node the node id
+         * @param p_inedge the incoming hierarchy edge
+         * @param p_out the outgoing hierarchy edges
+         * @param p_shortcut true to collect the shortcuts as pairs of hierarchy edges
+         * @return the number of shortcuts
+         */
+        private int shortcuts( final int p_node, final int p_inedge, final int[] p_out, final boolean p_shortcut )
+        {
+            final int l_source = m_from[p_inedge];
+            m_search++;
+            int l_targets = 0;
+            double l_maximum = Double.NEGATIVE_INFINITY;
+            for ( final int l_outedge : p_out )
+                if ( ( !m_contracted[m_to[l_outedge]] ) && ( m_to[l_outedge] != l_source ) )
+                {
+                    l_maximum = Math.max( l_maximum, m_weight[p_inedge] + m_weight[l_outedge] );
+                    m_target[m_to[l_outedge]] = m_search;
+                    l_targets++;
+                }
+            if ( l_targets == 0 ) return 0;
+
+            int l_shortcuts = 0;
+            witness( l_source, p_node, l_maximum, l_targets );
+            for ( final int l_outedge : p_out )
+            {
+                final int l_target = m_to[l_outedge];
+                if ( ( m_contracted[l_target] ) || ( l_target == l_source ) ) continue;
+                final double l_via = m_weight[p_inedge] + m_weight[l_outedge];
+                if ( !shorter( l_via, m_key[p_inedge] + m_key[l_outedge], m_distance[l_target], m_distancekey[l_target] ) ) continue;
+
+                l_shortcuts++;
+                if ( p_shortcut ) m_shortcuts.add( new int[]{p_inedge, l_outedge} );
+            }
+            clear();
+            return l_shortcuts;
+        }
+
+        /**
+         * dijkstra from a node avoiding the contracted node,
+         * limited in distance and settled nodes
+         * @param p_source the source node id
+         * @param p_avoided the node being contracted
+         * @param p_maximum the distance after which the search stops
+         * @param p_targets the number of targets, the search stops when all are settled
+         */
+        private void witness( final int p_source, final int p_avoided, final double p_maximum, final int p_targets )
+        {
+            int l_targets = p_targets;
+            m_distance[p_source] = 0;
+            m_distancekey[p_source] = 0;
+            m_touched[m_touchedcount++] = p_source;
+            m_witnessheap.update( p_source );
+            int l_settled = 0;
+            while ( ( !m_witnessheap.isEmpty() ) && ( l_settled++ < WITNESSLIMIT ) )
+            {
+                final int l_node = m_witnessheap.poll();
+                if ( ( m_distance[l_node] > p_maximum ) || ( ( m_target[l_node] == m_search ) && ( --l_targets == 0 ) ) ) break;
+                for ( int i = 0; i < m_outsize[l_node]; i++ )
+                {
+                    final int l_edge = m_out[l_node][i];
+                    final int l_target = m_to[l_edge];
+                    if ( ( l_target == p_avoided ) || ( m_contracted[l_target] ) ) continue;
+                    final double l_candidate = m_distance[l_node] + m_weight[l_edge];
+                    final long l_candidatekey = m_distancekey[l_node] + m_key[l_edge];
+                    if ( !shorter( l_candidate, l_candidatekey, m_distance[l_target], m_distancekey[l_target] ) ) continue;
+                    if ( m_distance[l_target] == Double.POSITIVE_INFINITY ) m_touched[m_touchedcount++] = l_target;
+                    m_distance[l_target] = l_candidate;
+                    m_distancekey[l_target] = l_candidatekey;
+                    m_witnessheap.update( l_target );
+                }
+            }
+        }
+
+        /**
+         * resets the witness search
+         */
+        private void clear()
+        {
+            for ( int i = 0; i < m_touchedcount; i++ )
+                m_distance[m_touched[i]] = Double.POSITIVE_INFINITY;
+            m_touchedcount = 0;
+            m_witnessheap.clear();
+        }
+
+        /**
+         * counts the contraction for the remaining neighbours and updates their priority
+         * @param p_node the contracted node
+         * @param p_order the contraction order
+         */
+        private void neighbours( final int p_node, final CHeap p_order )
+        {
+            m_stamp++;
+            for ( int i = 0; i < m_outsize[p_node]; i++ )
+                neighbour( m_to[m_out[p_node][i]], p_order );
+            for ( int i = 0; i < m_insize[p_node]; i++ )
+                neighbour( m_from[m_in[p_node][i]], p_order );
+        }
+
+        /**
+         * counts the contraction for a neighbour and updates its priority
+         * @param p_node the neighbour
+         * @param p_order the contraction order
+         */
+        private void neighbour( final int p_node, final CHeap p_order )
+        {
+            if ( ( m_contracted[p_node] ) || ( m_visited[p_node] == m_stamp ) ) return;
+            m_visited[p_node] = m_stamp;
+            m_outsize[p_node] = prune( m_out[p_node], m_outsize[p_node], m_to );
+            m_insize[p_node] = prune( m_in[p_node], m_insize[p_node], m_from );
+            m_deleted[p_node]++;
+            m_priority[p_node] = contract( p_node, false );
+            p_order.change( p_node );
+        }
+
+        /**
+         * removes the edges to contracted nodes from an edge list
+         * @param p_list the hierarchy edge ids
+         * @param p_size the number of edges in the list
+         * @param p_other the node at the other end of every edge
+         * @return the new number of edges in the list
+         */
+        private int prune( final int[] p_list, final int p_size, final int[] p_other )
+        {
+            int l_size = 0;
+            for ( int i = 0; i < p_size; i++ )
+                if ( !m_contracted[p_other[p_list[i]]] ) p_list[l_size++] = p_list[i];
+            return l_size;
+        }
+
+        /**
+         * adds a hierarchy edge
+         * @param p_from the origin node id
+         * @param p_to the end node id
+         * @param p_weight the weight
+         * @param p_key the tie-breaking key
+         * @param p_first the graph edge or the first half of the shortcut
+         * @param p_second the second half of the shortcut, negative for graph edges
+         * @return the hierarchy edge id
+         */
+        private int add( final int p_from, final int p_to, final double p_weight, final long p_key, final int p_first, final int p_second )
+        {
+            if ( m_edgecount == m_from.length )
+            {
+                final int l_capacity = 2 * m_edgecount;
+                m_from = Arrays.copyOf( m_from, l_capacity );
+                m_to = Arrays.copyOf( m_to, l_capacity );
+                m_weight = Arrays.copyOf( m_weight, l_capacity );
+                m_key = Arrays.copyOf( m_key, l_capacity );
+                m_first = Arrays.copyOf( m_first, l_capacity );
+                m_second = Arrays.copyOf( m_second, l_capacity );
+            }
+            m_from[m_edgecount] = p_from;
+            m_to[m_edgecount] = p_to;
+            m_weight[m_edgecount] = p_weight;
+            m_key[m_edgecount] = p_key;
+            m_first[m_edgecount] = p_first;
+            m_second[m_edgecount] = p_second;
+            return m_edgecount++;
+        }
+
+        /**
+         * puts a hierarchy edge into the lists of its nodes,
+         * unless there is a shorter one between them, a longer one is replaced
+         * @param p_edge the hierarchy edge id
+         */
+        private void connect( final int p_edge )
+        {
+            final int l_from = m_from[p_edge];
+            final int l_to = m_to[p_edge];
+            if ( l_from == l_to ) return;
+            for ( int i = 0; i < m_outsize[l_from]; i++ )
+            {
+                final int l_existing = m_out[l_from][i];
+                if ( m_to[l_existing] != l_to ) continue;
+                if ( !shorter( m_weight[p_edge], m_key[p_edge], m_weight[l_existing], m_key[l_existing] ) ) return;
+                m_out[l_from][i] = p_edge;
+                for ( int j = 0; j < m_insize[l_to]; j++ )
+                    if ( m_in[l_to][j] == l_existing ) m_in[l_to][j] = p_edge;
+                return;
+            }
+
+            if ( m_outsize[l_from] == m_out[l_from].length ) m_out[l_from] = Arrays.copyOf( m_out[l_from], 2 * m_outsize[l_from] );
+            m_out[l_from][m_outsize[l_from]++] = p_edge;
+            if ( m_insize[l_to] == m_in[l_to].length ) m_in[l_to] = Arrays.copyOf( m_in[l_to], 2 * m_insize[l_to] );
+            m_in[l_to][m_insize[l_to]++] = p_edge;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.socialcars.sinziana.pfara.environment;
 
 import org.socialcars.sinziana.pfara.data.input.CEdgepojo;
+import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.text.MessageFormat;
 
@@ -28,12 +29,17 @@ public class CEdge implements IEdge
     private final INode m_from;
     private final INode m_to;
     private final Double m_weight;
+    private final Double m_length;
+    private CUnits m_unit;
+    private double m_blocks;
+    private double m_freeflow;
     private CStoplight m_stoplight;
     private CSections m_sections;
     private CBackground m_traffic;
 
     /**
      * ctor
+     * the length is computed once from the node coordinates
      * @param p_pojo the edge plain old jaca object
      * @param p_from the origin node
      * @param p_to the end node
@@ -44,6 +50,9 @@ public class CEdge implements IEdge
         m_from = p_from;
         m_to = p_to;
         m_weight = p_pojo.getWeight();
+        m_length = Math.sqrt( Math.pow( m_from.coordinates().latitude() - m_to.coordinates().latitude(), 2 )
+                + Math.pow( m_from.coordinates().longitude() - m_to.coordinates().longitude(), 2 ) );
+        m_freeflow = Double.NaN;
     }
 
     /**
@@ -93,9 +102,42 @@ public class CEdge implements IEdge
     @Override
     public Double length()
     {
-        final Double l_length = Math.sqrt( Math.pow( m_from.coordinates().latitude() - m_to.coordinates().latitude(), 2 )
-                + Math.pow( m_from.coordinates().longitude() - m_to.coordinates().longitude(), 2 ) );
-        return l_length;
+        return m_length;
+    }
+
+    /**
+     * precomputes the quantities depending on the simulation units
+     * @param p_unit the transformation unit
+     */
+    @Override
+    public void precompute( final CUnits p_unit )
+    {
+        m_unit = p_unit;
+        m_blocks = p_unit.distanceToBlocks( m_length ).doubleValue();
+        m_freeflow = m_traffic == null ? Double.NaN : m_blocks / p_unit.speedToBlocks( m_traffic.maxspeed() ).doubleValue();
+    }
+
+    /**
+     * length of the edge in blocks,
+     * the precomputed value for the units of the graph
+     * @param p_unit the transformation unit
+     * @return the number of blocks
+     */
+    @Override
+    public double blocks( final CUnits p_unit )
+    {
+        return p_unit == m_unit ? m_blocks : p_unit.distanceToBlocks( m_length ).doubleValue();
+    }
+
+    /**
+     * number of timesteps needed to traverse the edge
+     * at the maximum speed permitted by traffic
+     * @return the free-flow time, NaN without units or background traffic
+     */
+    @Override
+    public double freeFlowTime()
+    {
+        return m_freeflow;
     }
 
     /**
@@ -146,6 +188,7 @@ public class CEdge implements IEdge
     public void addBackgroundTraffic( final CBackground p_traffic )
     {
         m_traffic = p_traffic;
+        if ( m_unit != null ) precompute( m_unit );
     }
 
     /**
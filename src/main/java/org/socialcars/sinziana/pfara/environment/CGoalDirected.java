@@ -0,0 +1,305 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * goal directed dijkstra over the compressed graph,
+ * the nodes are settled in the order of their distance plus a lower bound
+ * of the distance left to the destination, so the search is pulled towards it
+ *
+ * a* bounds the distance left by the straight line to the destination,
+ * scaled by the smallest weight per length of all edges,
+ * alt bounds it by the triangle inequality over the distances to and from landmarks,
+ * both bounds are consistent so every settled node is final and the paths are shortest
+ */
+public final class CGoalDirected
+{
+    private final CCompressedGraph m_core;
+    private final ERouting m_routing;
+
+    private final double[] m_latitude;
+    private final double[] m_longitude;
+    private final double m_scale;
+
+    private final int[] m_landmarks;
+    private final double[][] m_fromlandmark;
+    private final double[][] m_tolandmark;
+
+    private final ThreadLocal<CSearch> m_search;
+    private final AtomicLong m_queries = new AtomicLong();
+    private final AtomicLong m_settled = new AtomicLong();
+
+    /**
+     * ctor
+     * @param p_core the graph
+     * @param p_routing the algorithm
+     * @param p_landmarks the number of landmarks for alt
+     */
+    private CGoalDirected( final CCompressedGraph p_core, final ERouting p_routing, final int p_landmarks )
+    {
+        m_core = p_core;
+        m_routing = p_routing;
+
+        m_latitude = new double[ERouting.ASTAR.equals( p_routing ) ? p_core.nodeCount() : 0];
+        m_longitude = new double[m_latitude.length];
+        m_scale = ERouting.ASTAR.equals( p_routing ) ? scale( p_core ) : 0;
+        for ( int i = 0; i < m_latitude.length; i++ )
+        {
+            m_latitude[i] = p_core.node( i ).coordinates().latitude();
+            m_longitude[i] = p_core.node( i ).coordinates().longitude();
+        }
+
+        m_landmarks = ERouting.ALT.equals( p_routing ) ? new int[Math.min( p_landmarks, p_core.nodeCount() )] : new int[0];
+        m_fromlandmark = new double[m_landmarks.length][];
+        m_tolandmark = new double[m_landmarks.length][];
+        choose();
+
+        m_search = ThreadLocal.withInitial( () -> new CSearch( m_core.nodeCount() ) );
+    }
+
+    /**
+     * plain dijkstra, stopping at the destination
+     * @param p_core the graph
+     * @return the search
+     */
+    public static CGoalDirected dijkstra( final CCompressedGraph p_core )
+    {
+        return new CGoalDirected( p_core, ERouting.DIJKSTRA, 0 );
+    }
+
+    /**
+     * a* with the straight line heuristic over the node coordinates
+     * @param p_core the graph
+     * @return the search
+     */
+    public static CGoalDirected astar( final CCompressedGraph p_core )
+    {
+        return new CGoalDirected( p_core, ERouting.ASTAR, 0 );
+    }
+
+    /**
+     * a* with landmarks and the triangle inequality,
+     * the distances to and from the landmarks are computed here
+     * @param p_core the graph
+     * @param p_landmarks the number of landmarks
+     * @return the search
+     */
+    public static CGoalDirected alt( final CCompressedGraph p_core, final int p_landmarks )
+    {
+        return new CGoalDirected( p_core, ERouting.ALT, p_landmarks );
+    }
+
+    /**
+     * the algorithm of the search
+     * @return the algorithm
+     */
+    public ERouting routing()
+    {
+        return m_routing;
+    }
+
+    /**
+     * the landmark nodes
+     * @return the node ids
+     */
+    public int[] landmarks()
+    {
+        return m_landmarks.clone();
+    }
+
+    /**
+     * shortest path over the weights of the graph
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @return the edge ids of the path, empty if the destination is not reachable
+     */
+    public int[] shortestPath( final int p_from, final int p_to )
+    {
+        if ( p_from == p_to ) return new int[0];
+        m_queries.incrementAndGet();
+        return m_search.get().run( p_from, p_to );
+    }
+
+    /**
+     * number of queries answered
+     * @return the number of queries
+     */
+    public long queries()
+    {
+        return m_queries.get();
+    }
+
+    /**
+     * number of nodes settled by all queries
+     * @return the number of settled nodes
+     */
+    public long settled()
+    {
+        return m_settled.get();
+    }
+
+    /**
+     * lower bound of the distance between two nodes
+     * @param p_node the node id
+     * @param p_to the destination node id
+     * @return the lower bound
+     */
+    private double estimate( final int p_node, final int p_to )
+    {
+        switch ( m_routing )
+        {
+            case ASTAR:
+                return m_scale * Math.sqrt( Math.pow( m_latitude[p_node] - m_latitude[p_to], 2 ) + Math.pow( m_longitude[p_node] - m_longitude[p_to], 2 ) );
+
+            case ALT:
+                double l_bound = 0;
+                for ( int i = 0; i < m_landmarks.length; i++ )
+                {
+                    //d(l, to) - d(l, node) and d(node, l) - d(to, l), only between connected nodes
+                    if ( ( m_fromlandmark[i][p_to] < Double.POSITIVE_INFINITY ) && ( m_fromlandmark[i][p_node] < Double.POSITIVE_INFINITY ) )
+                        l_bound = Math.max( l_bound, m_fromlandmark[i][p_to] - m_fromlandmark[i][p_node] );
+                    if ( ( m_tolandmark[i][p_node] < Double.POSITIVE_INFINITY ) && ( m_tolandmark[i][p_to] < Double.POSITIVE_INFINITY ) )
+                        l_bound = Math.max( l_bound, m_tolandmark[i][p_node] - m_tolandmark[i][p_to] );
+                }
+                return l_bound;
+
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * chooses the landmarks far from each other, each one is the node
+     * farthest from the ones already chosen, the first is the node farthest from node 0
+     */
+    private void choose()
+    {
+        if ( m_landmarks.length == 0 ) return;
+
+        final double[] l_nearest = m_core.distances( 0, m_core.weights(), false );
+        for ( int i = 0; i < m_landmarks.length; i++ )
+        {
+            int l_farthest = 0;
+            for ( int j = 0; j < l_nearest.length; j++ )
+                if ( ( l_nearest[j] < Double.POSITIVE_INFINITY ) && ( l_nearest[j] > l_nearest[l_farthest] ) ) l_farthest = j;
+
+            m_landmarks[i] = l_farthest;
+            m_fromlandmark[i] = m_core.distances( l_farthest, m_core.weights(), false );
+            m_tolandmark[i] = m_core.distances( l_farthest, m_core.weights(), true );
+            for ( int j = 0; j < l_nearest.length; j++ )
+                l_nearest[j] = i == 0 ? m_fromlandmark[i][j] : Math.min( l_nearest[j], m_fromlandmark[i][j] );
+        }
+    }
+
+    /**
+     * smallest weight per length of all edges,
+     * so the weight of a path is at least its straight line length times the scale
+     * @param p_core the graph
+     * @return the scale
+     */
+    private static double scale( final CCompressedGraph p_core )
+    {
+        double l_scale = Double.POSITIVE_INFINITY;
+        for ( int i = 0; i < p_core.edgeCount(); i++ )
+            if ( p_core.length( i ) > 0 ) l_scale = Math.min( l_scale, p_core.weight( i ) / p_core.length( i ) );
+        return l_scale == Double.POSITIVE_INFINITY ? 0 : Math.max( 0, l_scale );
+    }
+
+    /**
+     * per thread state of a query,
+     * the arrays are reset through the list of touched nodes
+     */
+    private final class CSearch
+    {
+        private final double[] m_distance;
+        private final double[] m_key;
+        private final int[] m_edge;
+        private final CHeap m_heap;
+        private final int[] m_touched;
+        private int m_touchedcount;
+
+        /**
+         * ctor
+         * @param p_nodecount the number of nodes
+         */
+        CSearch( final int p_nodecount )
+        {
+            m_distance = new double[p_nodecount];
+            m_key = new double[p_nodecount];
+            m_edge = new int[p_nodecount];
+            m_touched = new int[p_nodecount];
+            Arrays.fill( m_distance, Double.POSITIVE_INFINITY );
+            Arrays.fill( m_edge, -1 );
+            m_heap = new CHeap( p_nodecount, m_key );
+        }
+
+        /**
+         * search ordered by the distance plus the estimate
+         * @param p_from the origin node id
+         * @param p_to the destination node id
+         * @return the edge ids of the path, empty if the destination is not reachable
+         */
+        int[] run( final int p_from, final int p_to )
+        {
+            m_touched[m_touchedcount++] = p_from;
+            m_distance[p_from] = 0;
+            m_key[p_from] = estimate( p_from, p_to );
+            m_heap.update( p_from );
+
+            long l_settled = 0;
+            while ( !m_heap.isEmpty() )
+            {
+                final int l_node = m_heap.poll();
+                l_settled++;
+                if ( l_node == p_to ) break;
+                for ( int i = m_core.outBegin( l_node ); i < m_core.outEnd( l_node ); i++ )
+                {
+                    final int l_edge = m_core.outEdge( i );
+                    final int l_target = m_core.to( l_edge );
+                    final double l_candidate = m_distance[l_node] + m_core.weight( l_edge );
+                    if ( l_candidate >= m_distance[l_target] ) continue;
+                    if ( m_distance[l_target] == Double.POSITIVE_INFINITY ) m_touched[m_touchedcount++] = l_target;
+                    m_distance[l_target] = l_candidate;
+                    m_key[l_target] = l_candidate + estimate( l_target, p_to );
+                    m_edge[l_target] = l_edge;
+                    m_heap.update( l_target );
+                }
+            }
+            m_settled.addAndGet( l_settled );
+
+            final int[] l_path = m_core.path( m_edge, p_from, p_to );
+            reset();
+            return l_path;
+        }
+
+        /**
+         * resets the touched nodes and the heap
+         */
+        private void reset()
+        {
+            for ( int i = 0; i < m_touchedcount; i++ )
+            {
+                m_distance[m_touched[i]] = Double.POSITIVE_INFINITY;
+                m_edge[m_touched[i]] = -1;
+            }
+            m_touchedcount = 0;
+            m_heap.clear();
+        }
+    }
+}
@@ -19,7 +19,6 @@ import com.codepoetics.protonpack.StreamUtils;
 import com.google.common.base.Function;
 import edu.uci.ics.jung.algorithms.layout.FRLayout;
 import edu.uci.ics.jung.algorithms.layout.util.RandomLocationTransformer;
-import edu.uci.ics.jung.algorithms.shortestpath.DijkstraShortestPath;
 import edu.uci.ics.jung.graph.DirectedGraph;
 import edu.uci.ics.jung.graph.DirectedSparseMultigraph;
 import edu.uci.ics.jung.graph.Graph;
@@ -29,9 +28,13 @@ import edu.uci.ics.jung.visualization.decorators.ToStringLabeller;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
 import org.socialcars.sinziana.pfara.data.input.CGraphpojo;
 import org.socialcars.sinziana.pfara.data.input.CStoplightpojo;
+import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -44,11 +47,20 @@ import java.util.stream.Stream;
 
 /**
  * the graph class
+ * routing runs on the compressed sparse row core,
+ * the jung graph is only kept for the visualisation
  */
 public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
 {
+    private static final int ROUTECACHE = 256;
+    private static final int LANDMARKS = 8;
+
     private final Graph<INode, IEdge> m_graph;
-    private final DijkstraShortestPath<INode, IEdge> m_pathalgorithm;
+    private final CCompressedGraph m_core;
+    private final CRouteCache m_routes;
+    private volatile CContractionHierarchy m_hierarchy;
+    private volatile CGoalDirected m_search;
+    private final CKShortestPaths m_alternatives;
     private final Map<String, INode> m_nodes;
     private final HashMap<String, IEdge> m_edges = new HashMap<>();
     private final HashMap<String, List<INode>> m_zones;
@@ -58,23 +70,62 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
      * @param p_pojo the graph plain old java object
      */
     public CGraph( final CGraphpojo p_pojo )
+    {
+        this( p_pojo, null, ROUTECACHE );
+    }
+
+    /**
+     * ctor
+     * @param p_pojo the graph plain old java object
+     * @param p_unit the transformation unit used to precompute the edge geometry
+     */
+    public CGraph( final CGraphpojo p_pojo, final CUnits p_unit )
+    {
+        this( p_pojo, p_unit, ROUTECACHE );
+    }
+
+    /**
+     * ctor
+     * @param p_pojo the graph plain old java object
+     * @param p_cachesize the number of shortest path trees kept by the route cache
+     */
+    public CGraph( final CGraphpojo p_pojo, final int p_cachesize )
+    {
+        this( p_pojo, null, p_cachesize );
+    }
+
+    /**
+     * ctor
+     * @param p_pojo the graph plain old java object
+     * @param p_unit the transformation unit used to precompute the edge geometry, can be null
+     * @param p_cachesize the number of shortest path trees kept by the route cache
+     */
+    public CGraph( final CGraphpojo p_pojo, final CUnits p_unit, final int p_cachesize )
     {
         final DirectedGraph<INode, IEdge> l_graph = new DirectedSparseMultigraph<>();
 
-        m_nodes = p_pojo.getNodes().stream()
+        final List<INode> l_nodes = p_pojo.getNodes().stream()
                 .map( CNode::new )
                 .peek( l_graph::addVertex )
-                .collect( Collectors.toMap( CNode::name, i -> i ) );
+                .collect( Collectors.toList() );
+        m_nodes = l_nodes.stream().collect( Collectors.toMap( INode::name, i -> i ) );
 
+        final List<IEdge> l_edges = new ArrayList<>();
         p_pojo.getEdges().forEach( e ->
         {
             final IEdge l_edge = new CEdge( e, m_nodes.get( e.getFrom() ), m_nodes.get( e.getTo() ) );
+            if ( p_unit != null ) l_edge.precompute( p_unit );
             l_graph.addEdge( l_edge, m_nodes.get( e.getFrom() ), m_nodes.get( e.getTo() ) );
             m_edges.put( e.getName(), l_edge );
+            l_edges.add( l_edge );
         } );
 
         m_graph = Graphs.unmodifiableGraph( l_graph );
-        m_pathalgorithm = new DijkstraShortestPath<>( m_graph, IEdge::weight );
+        m_core = new CCompressedGraph( l_nodes, l_edges );
+        m_routes = new CRouteCache( m_core, p_cachesize );
+        final double[] l_hops = new double[m_core.edgeCount()];
+        Arrays.fill( l_hops, 1.0 );
+        m_alternatives = new CKShortestPaths( m_core, l_hops );
 
         //divides the nodes into zones
         // for traffic demand and background information generation
@@ -131,7 +182,11 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     @Override
     public List<IEdge> route( final INode p_from, final INode p_to )
     {
-        return m_pathalgorithm.getPath( p_from, p_to );
+        final CContractionHierarchy l_hierarchy = m_hierarchy;
+        if ( l_hierarchy != null ) return m_core.toEdges( l_hierarchy.shortestPath( m_core.nodeId( p_from ), m_core.nodeId( p_to ) ) );
+        final CGoalDirected l_search = m_search;
+        if ( l_search != null ) return m_core.toEdges( l_search.shortestPath( m_core.nodeId( p_from ), m_core.nodeId( p_to ) ) );
+        return m_core.toEdges( m_routes.route( m_core.nodeId( p_from ), m_core.nodeId( p_to ), m_core.weights() ) );
     }
 
     /**
@@ -154,7 +209,7 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
                 ),
                 2
         ).flatMap(
-                i -> m_pathalgorithm.getPath( i.get( 0 ), i.get( 1 ) ).stream()
+                i -> this.route( i.get( 0 ), i.get( 1 ) ).stream()
         ).collect( Collectors.toList() );
     }
 
@@ -167,7 +222,7 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     @Override
     public List<IEdge> route( final String p_from, final String p_to )
     {
-        return m_pathalgorithm.getPath( m_nodes.get( p_from ), m_nodes.get( p_to ) );
+        return this.route( m_nodes.get( p_from ), m_nodes.get( p_to ) );
     }
 
     /**
@@ -196,7 +251,7 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     @Override
     public Collection<INode> nodes()
     {
-        return m_graph.getVertices();
+        return m_core.nodes();
     }
 
     /**
@@ -206,7 +261,93 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     @Override
     public Collection<IEdge> edges()
     {
-        return m_graph.getEdges();
+        return m_core.edges();
+    }
+
+    /**
+     * the integer indexed core of the graph
+     * @return the compressed sparse row graph
+     */
+    public CCompressedGraph core()
+    {
+        return m_core;
+    }
+
+    /**
+     * the cache answering the route requests
+     * @return the route cache
+     */
+    public CRouteCache routeCache()
+    {
+        return m_routes;
+    }
+
+    /**
+     * answers the weighted route requests with a contraction hierarchy
+     * instead of the route cache, the index is read from the file
+     * or built and written to it
+     * @param p_file the index file
+     * @return self-reference
+     * @throws IOException file
+     */
+    public CGraph hierarchy( final Path p_file ) throws IOException
+    {
+        m_hierarchy = CContractionHierarchy.of( m_core, p_file );
+        return this;
+    }
+
+    /**
+     * the contraction hierarchy answering the route requests
+     * @return the index, null if the route cache is used
+     */
+    public CContractionHierarchy hierarchy()
+    {
+        return m_hierarchy;
+    }
+
+    /**
+     * chooses the algorithm of the weighted route requests,
+     * dijkstra uses the route cache, the landmarks of alt are computed here,
+     * a contraction hierarchy takes precedence over all of them
+     * @param p_routing the algorithm
+     * @return self-reference
+     */
+    public CGraph routing( final ERouting p_routing )
+    {
+        switch ( p_routing )
+        {
+            case ASTAR:
+                m_search = CGoalDirected.astar( m_core );
+                break;
+
+            case ALT:
+                m_search = CGoalDirected.alt( m_core, LANDMARKS );
+                break;
+
+            default:
+                m_search = null;
+        }
+        return this;
+    }
+
+    /**
+     * the algorithm of the weighted route requests
+     * @return the algorithm
+     */
+    public ERouting routing()
+    {
+        final CGoalDirected l_search = m_search;
+        return l_search == null ? ERouting.DIJKSTRA : l_search.routing();
+    }
+
+    /**
+     * the goal directed search answering the route requests,
+     * it counts the queries and settled nodes
+     * @return the search, null if the route cache is used
+     */
+    public CGoalDirected search()
+    {
+        return m_search;
     }
 
     /**
@@ -218,7 +359,7 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     public List<IEdge> route( final String p_finish, final List<IEdge> p_via )
     {
         final List<IEdge> l_route = p_via;
-        final List<IEdge> l_altroute = m_pathalgorithm.getPath( p_via.get( p_via.size() - 1 ).to(), nodeByName( p_finish ) );
+        final List<IEdge> l_altroute = this.route( p_via.get( p_via.size() - 1 ).to(), nodeByName( p_finish ) );
         l_altroute.forEach( e -> l_route.add( e ) );
         return l_route;
     }
@@ -233,40 +374,41 @@ public class CGraph implements IGraph<VisualizationViewer<INode, IEdge>>
     }
 
     /**
-     * delays the vehicle based on the time left of a red light cycle
+     * delays the vehicle based on the time left of a red light cycle,
+     * a vehicle on an edge without a light is not delayed
      * @param p_pod the vehicle
+     * @param p_time the current timestep
      */
-    public void delayVehicle( final CVehicle p_pod )
+    public void delayVehicle( final CVehicle p_pod, final Integer p_time )
     {
         final IEdge l_edge = edgeByName( p_pod.location() );
-        if ( l_edge.stoplight().state().equals( ELightState.RED ) ) p_pod.setDelay( l_edge.stoplight().timeLeft() );
+        if ( ( l_edge.stoplight() != null ) && ( l_edge.stoplight().state( p_time ) == ELightState.RED ) ) p_pod.setDelay( l_edge.stoplight().timeLeft( p_time ) );
     }
 
     /**
-     * finds multiple paths between the given edge's start and end nodes
+     * finds alternative routes between the given edge's start and end nodes,
+     * the loopless routes with the fewest edges that do not use the edge itself
      * @param p_edge edge for which we are looking for alternative routes
-     * @return alternative route
+     * @param p_count the maximum number of alternatives
+     * @return the alternative routes, fewest edges first
      */
-    public List<IEdge> findMultiplePaths( final IEdge p_edge )
+    public List<List<IEdge>> alternatives( final IEdge p_edge, final int p_count )
     {
-        final Function<IEdge, Integer> l_transformer = new Function<IEdge, Integer>()
-        {
-            public Integer apply( final IEdge p_otheredge )
-            {
-                if ( p_otheredge.equals( p_edge ) )
-                    return Integer.MAX_VALUE;
-                else
-                    return 1;
-            }
-        };
-
-        final DijkstraShortestPath<INode, IEdge> l_algorithm = new DijkstraShortestPath<>( m_graph, l_transformer );
-        final Double l_distance = l_algorithm.getDistance( p_edge.from(), p_edge.to() ).doubleValue();
+        final int l_edge = m_core.edgeId( p_edge );
+        return m_alternatives.paths( m_core.from( l_edge ), m_core.to( l_edge ), p_count + 1 ).stream()
+                             .filter( i -> ( i.length != 1 ) || ( i[0] != l_edge ) )
+                             .limit( p_count )
+                             .map( m_core::toEdges )
+                             .collect( Collectors.toList() );
+    }
 
-        if ( l_distance < Integer.MAX_VALUE )
-            return l_algorithm.getPath( p_edge.from(), p_edge.to() );
-        else
-            return null;
+    /**
+     * the k shortest paths engine of the alternative routes
+     * @return the engine
+     */
+    public CKShortestPaths alternatives()
+    {
+        return m_alternatives;
     }
 
     /**
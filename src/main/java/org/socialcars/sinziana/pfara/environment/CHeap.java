@@ -0,0 +1,146 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.Arrays;
+
+/**
+ * indexed binary min-heap of node ids
+ * ordered by an external distance array
+ */
+final class CHeap
+{
+    private final int[] m_heap;
+    private final int[] m_position;
+    private final double[] m_key;
+    private int m_size;
+
+    /**
+     * ctor
+     * @param p_capacity the number of nodes
+     * @param p_key the distances
+     */
+    CHeap( final int p_capacity, final double[] p_key )
+    {
+        m_heap = new int[p_capacity];
+        m_position = new int[p_capacity];
+        Arrays.fill( m_position, -1 );
+        m_key = p_key;
+    }
+
+    /**
+     * whether the heap is empty
+     * @return true if empty
+     */
+    boolean isEmpty()
+    {
+        return m_size == 0;
+    }
+
+    /**
+     * the node with the smallest distance
+     * @return the node id
+     */
+    int peek()
+    {
+        return m_heap[0];
+    }
+
+    /**
+     * removes all nodes
+     */
+    void clear()
+    {
+        for ( int i = 0; i < m_size; i++ )
+            m_position[m_heap[i]] = -1;
+        m_size = 0;
+    }
+
+    /**
+     * inserts a node or moves it up after its distance decreased
+     * @param p_node the node id
+     */
+    void update( final int p_node )
+    {
+        if ( m_position[p_node] < 0 )
+        {
+            m_heap[m_size] = p_node;
+            m_position[p_node] = m_size++;
+        }
+        up( m_position[p_node] );
+    }
+
+    /**
+     * inserts a node or moves it to its place after its distance changed in either direction
+     * @param p_node the node id
+     */
+    void change( final int p_node )
+    {
+        update( p_node );
+        down( m_position[p_node] );
+    }
+
+    /**
+     * removes the node with the smallest distance
+     * @return the node id
+     */
+    int poll()
+    {
+        final int l_top = m_heap[0];
+        m_size--;
+        if ( m_size > 0 )
+        {
+            m_heap[0] = m_heap[m_size];
+            m_position[m_heap[0]] = 0;
+            down( 0 );
+        }
+        m_position[l_top] = -1;
+        return l_top;
+    }
+
+    private void up( final int p_index )
+    {
+        int l_index = p_index;
+        final int l_node = m_heap[l_index];
+        while ( l_index > 0 )
+        {
+            final int l_parent = ( l_index - 1 ) >>> 1;
+            if ( m_key[m_heap[l_parent]] <= m_key[l_node] ) break;
+            m_heap[l_index] = m_heap[l_parent];
+            m_position[m_heap[l_index]] = l_index;
+            l_index = l_parent;
+        }
+        m_heap[l_index] = l_node;
+        m_position[l_node] = l_index;
+    }
+
+    private void down( final int p_index )
+    {
+        int l_index = p_index;
+        final int l_node = m_heap[l_index];
+        while ( 2 * l_index + 1 < m_size )
+        {
+            int l_child = 2 * l_index + 1;
+            if ( ( l_child + 1 < m_size ) && ( m_key[m_heap[l_child + 1]] < m_key[m_heap[l_child]] ) ) l_child++;
+            if ( m_key[l_node] <= m_key[m_heap[l_child]] ) break;
+            m_heap[l_index] = m_heap[l_child];
+            m_position[m_heap[l_index]] = l_index;
+            l_index = l_child;
+        }
+        m_heap[l_index] = l_node;
+        m_position[l_node] = l_index;
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * yen's k shortest loopless paths over the compressed graph
+ * every further path deviates from an earlier one at a spur node,
+ * the spur paths are searched with the edges of the earlier paths sharing the root
+ * and the nodes of the root removed, the searches stop at the destination
+ * and reset only the nodes they touched, so alternatives around an edge
+ * only cost the neighbourhood of the edge instead of a search over the whole graph
+ */
+public final class CKShortestPaths
+{
+    private final CCompressedGraph m_core;
+    private final double[] m_weights;
+
+    private final ThreadLocal<CSearch> m_search;
+    private final AtomicLong m_queries = new AtomicLong();
+    private final AtomicLong m_searches = new AtomicLong();
+    private final AtomicLong m_settled = new AtomicLong();
+
+    /**
+     * ctor
+     * @param p_core the graph
+     * @param p_weights the weight of every edge, indexed by edge id
+     */
+    public CKShortestPaths( final CCompressedGraph p_core, final double[] p_weights )
+    {
+        m_core = p_core;
+        m_weights = p_weights;
+        m_search = ThreadLocal.withInitial( () -> new CSearch( m_core.nodeCount(), m_core.edgeCount() ) );
+    }
+
+    /**
+     * the shortest loopless paths between two nodes
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @param p_count the maximum number of paths
+     * @return the edge ids of the paths in the order of their cost
+     */
+    public List<int[]> paths( final int p_from, final int p_to, final int p_count )
+    {
+        final List<int[]> l_paths = new ArrayList<>( p_count );
+        if ( ( p_count <= 0 ) || ( p_from == p_to ) ) return l_paths;
+        m_queries.incrementAndGet();
+
+        final CSearch l_search = m_search.get();
+        final int[] l_first = l_search.run( p_from, p_to );
+        if ( l_first.length == 0 ) return l_paths;
+        l_paths.add( l_first );
+
+        final PriorityQueue<CPath> l_candidates = new PriorityQueue<>();
+        final Set<CPath> l_known = new HashSet<>();
+        l_known.add( new CPath( l_first, cost( l_first ) ) );
+        while ( l_paths.size() < p_count )
+        {
+            final int[] l_previous = l_paths.get( l_paths.size() - 1 );
+            for ( int i = 0; i < l_previous.length; i++ )
+            {
+                final int l_spur = m_core.from( l_previous[i] );
+                l_search.clearBans();
+
+                //the next edge of every path with the same root is not taken again
+                for ( final int[] l_path : l_paths )
+                    if ( ( l_path.length > i ) && ( Arrays.equals( l_path, 0, i, l_previous, 0, i ) ) ) l_search.banEdge( l_path[i] );
+                //the root path is not entered again
+                for ( int j = 0; j < i; j++ )
+                    l_search.banNode( m_core.from( l_previous[j] ) );
+
+                final int[] l_spurpath = l_search.run( l_spur, p_to );
+                if ( l_spurpath.length == 0 ) continue;
+
+                final int[] l_candidate = Arrays.copyOf( l_previous, i + l_spurpath.length );
+                System.arraycopy( l_spurpath, 0, l_candidate, i, l_spurpath.length );
+                final CPath l_path = new CPath( l_candidate, cost( l_candidate ) );
+                if ( l_known.add( l_path ) ) l_candidates.add( l_path );
+            }
+            l_search.clearBans();
+
+            if ( l_candidates.isEmpty() ) break;
+            l_paths.add( l_candidates.poll().m_edges );
+        }
+        return l_paths;
+    }
+
+    /**
+     * number of path queries answered
+     * @return the number of queries
+     */
+    public long queries()
+    {
+        return m_queries.get();
+    }
+
+    /**
+     * number of shortest path searches of all queries
+     * @return the number of searches
+     */
+    public long searches()
+    {
+        return m_searches.get();
+    }
+
+    /**
+     * number of nodes settled by all searches
+     * @return the number of settled nodes
+     */
+    public long settled()
+    {
+        return m_settled.get();
+    }
+
+    /**
+     * cost of a path
+     * @param p_path the edge ids
+     * @return the sum of the weights
+     */
+    private double cost( final int[] p_path )
+    {
+        double l_cost = 0;
+        for ( final int l_edge : p_path )
+            l_cost += m_weights[l_edge];
+        return l_cost;
+    }
+
+    /**
+     * a path ordered by its cost
+     */
+    private static final class CPath implements Comparable<CPath>
+    {
+        private final int[] m_edges;
+        private final double m_cost;
+
+        /**
+         * ctor
+         * @param p_edges the edge ids
+         * @param p_cost the cost
+         */
+        CPath( final int[] p_edges, final double p_cost )
+        {
+            m_edges = p_edges;
+            m_cost = p_cost;
+        }
+
+        @Override
+        public int compareTo( final CPath p_other )
+        {
+            final int l_cost = Double.compare( m_cost, p_other.m_cost );
+            return l_cost != 0 ? l_cost : Integer.compare( m_edges.length, p_other.m_edges.length );
+        }
+
+        @Override
+        public boolean equals( final Object p_object )
+        {
+            return ( p_object instanceof CPath ) && ( Arrays.equals( ( (CPath) p_object ).m_edges, m_edges ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode( m_edges );
+        }
+    }
+
+    /**
+     * per thread state of the searches,
+     * the arrays are reset through the list of touched nodes,
+     * the removed nodes and edges are marked with the number of the current spur
+     */
+    private final class CSearch
+    {
+        private final double[] m_distance;
+        private final int[] m_edge;
+        private final CHeap m_heap;
+        private final int[] m_touched;
+        private int m_touchedcount;
+
+        private final int[] m_bannednodes;
+        private final int[] m_bannededges;
+        private int m_spur = 1;
+
+        /**
+         * ctor
+         * @param p_nodecount the number of nodes
+         * @param p_edgecount the number of edges
+         */
+        CSearch( final int p_nodecount, final int p_edgecount )
+        {
+            m_distance = new double[p_nodecount];
+            m_edge = new int[p_nodecount];
+            m_touched = new int[p_nodecount];
+            m_bannednodes = new int[p_nodecount];
+            m_bannededges = new int[p_edgecount];
+            Arrays.fill( m_distance, Double.POSITIVE_INFINITY );
+            Arrays.fill( m_edge, -1 );
+            m_heap = new CHeap( p_nodecount, m_distance );
+        }
+
+        /**
+         * allows all nodes and edges again
+         */
+        void clearBans()
+        {
+            m_spur++;
+        }
+
+        /**
+         * removes a node from the next searches
+         * @param p_node the node id
+         */
+        void banNode( final int p_node )
+        {
+            m_bannednodes[p_node] = m_spur;
+        }
+
+        /**
+         * removes an edge from the next searches
+         * @param p_edge the edge id
+         */
+        void banEdge( final int p_edge )
+        {
+            m_bannededges[p_edge] = m_spur;
+        }
+
+        /**
+         * dijkstra stopping at the destination
+         * @param p_from the origin node id
+         * @param p_to the destination node id
+         * @return the edge ids of the path, empty if the destination is not reachable
+         */
+        int[] run( final int p_from, final int p_to )
+        {
+            m_searches.incrementAndGet();
+            m_touched[m_touchedcount++] = p_from;
+            m_distance[p_from] = 0;
+            m_heap.update( p_from );
+
+            long l_settled = 0;
+            while ( !m_heap.isEmpty() )
+            {
+                final int l_node = m_heap.poll();
+                l_settled++;
+                if ( l_node == p_to ) break;
+                for ( int i = m_core.outBegin( l_node ); i < m_core.outEnd( l_node ); i++ )
+                {
+                    final int l_edge = m_core.outEdge( i );
+                    final int l_target = m_core.to( l_edge );
+                    if ( ( m_bannededges[l_edge] == m_spur ) || ( m_bannednodes[l_target] == m_spur ) ) continue;
+                    final double l_candidate = m_distance[l_node] + m_weights[l_edge];
+                    if ( l_candidate >= m_distance[l_target] ) continue;
+                    if ( m_distance[l_target] == Double.POSITIVE_INFINITY ) m_touched[m_touchedcount++] = l_target;
+                    m_distance[l_target] = l_candidate;
+                    m_edge[l_target] = l_edge;
+                    m_heap.update( l_target );
+                }
+            }
+            m_settled.addAndGet( l_settled );
+
+            final int[] l_path = m_core.path( m_edge, p_from, p_to );
+            reset();
+            return l_path;
+        }
+
+        /**
+         * resets the touched nodes and the heap
+         */
+        private void reset()
+        {
+            for ( int i = 0; i < m_touchedcount; i++ )
+            {
+                m_distance[m_touched[i]] = Double.POSITIVE_INFINITY;
+                m_edge[m_touched[i]] = -1;
+            }
+            m_touchedcount = 0;
+            m_heap.clear();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * bounded, thread-safe cache of shortest path trees
+ * a route (from, to, weights) is answered from the tree of (from, weights),
+ * so repeated origins only cost the length of the path,
+ * the least recently used tree is evicted when the cache is full
+ */
+public final class CRouteCache
+{
+    private final CCompressedGraph m_core;
+    private final int m_capacity;
+    private final LinkedHashMap<CKey, int[]> m_trees;
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+    private final AtomicLong m_evictions = new AtomicLong();
+
+    /**
+     * ctor
+     * @param p_core the graph the routes are computed on
+     * @param p_capacity the maximum number of trees kept, zero disables the cache
+     */
+    public CRouteCache( final CCompressedGraph p_core, final int p_capacity )
+    {
+        m_core = p_core;
+        m_capacity = p_capacity;
+        m_trees = new LinkedHashMap<>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<CKey, int[]> p_eldest )
+            {
+                if ( size() <= m_capacity ) return false;
+                m_evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * shortest route between two nodes
+     * @param p_from the origin node id
+     * @param p_to the destination node id
+     * @param p_weights the weight function as weights indexed by edge id,
+     * routes are shared between calls using the same array instance
+     * @return the edge ids of the route, empty if the destination is not reachable
+     */
+    public int[] route( final int p_from, final int p_to, final double[] p_weights )
+    {
+        if ( m_capacity == 0 ) return m_core.shortestPath( p_from, p_to, p_weights, -1 );
+
+        final CKey l_key = new CKey( p_from, p_weights );
+        int[] l_tree;
+        synchronized ( m_trees )
+        {
+            l_tree = m_trees.get( l_key );
+        }
+        if ( l_tree != null )
+            m_hits.incrementAndGet();
+        else
+        {
+            m_misses.incrementAndGet();
+            l_tree = m_core.shortestPathTree( p_from, p_weights );
+            synchronized ( m_trees )
+            {
+                m_trees.put( l_key, l_tree );
+            }
+        }
+        return m_core.path( l_tree, p_from, p_to );
+    }
+
+    /**
+     * removes all trees, the counters are kept
+     */
+    public void clear()
+    {
+        synchronized ( m_trees )
+        {
+            m_trees.clear();
+        }
+    }
+
+    /**
+     * number of trees currently kept
+     * @return the number of trees
+     */
+    public int size()
+    {
+        synchronized ( m_trees )
+        {
+            return m_trees.size();
+        }
+    }
+
+    /**
+     * routes answered from a cached tree
+     * @return the number of hits
+     */
+    public long hits()
+    {
+        return m_hits.get();
+    }
+
+    /**
+     * routes for which a tree had to be computed
+     * @return the number of misses
+     */
+    public long misses()
+    {
+        return m_misses.get();
+    }
+
+    /**
+     * trees removed because the cache was full
+     * @return the number of evictions
+     */
+    public long evictions()
+    {
+        return m_evictions.get();
+    }
+
+    /**
+     * key of a tree, the origin and the identity of the weights
+     */
+    private static final class CKey
+    {
+        private final int m_from;
+        private final double[] m_weights;
+
+        /**
+         * ctor
+         * @param p_from the origin node id
+         * @param p_weights the weights
+         */
+        CKey( final int p_from, final double[] p_weights )
+        {
+            m_from = p_from;
+            m_weights = p_weights;
+        }
+
+        @Override
+        public boolean equals( final Object p_object )
+        {
+            return ( p_object instanceof CKey ) && ( ( (CKey) p_object ).m_from == m_from ) && ( ( (CKey) p_object ).m_weights == m_weights );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * m_from + System.identityHashCode( m_weights );
+        }
+    }
+}
@@ -15,6 +15,7 @@
 
 package org.socialcars.sinziana.pfara.environment;
 
+import org.socialcars.sinziana.pfara.agents.events.CEventLog;
 import org.socialcars.sinziana.pfara.data.input.CStoplightpojo;
 
 import java.util.logging.Level;
@@ -22,10 +23,13 @@ import java.util.logging.Logger;
 
 /**
  * the stoplight class
+ * the light is green for the green time and red for the red time from its start on,
+ * so its state at any timestep is computed in closed form and nothing has to be counted down,
+ * the stateful methods answer for the timestep the light was last updated to
  */
 public class CStoplight implements IStoplight
 {
-    private static Logger s_logger;
+    private static CEventLog s_log;
 
     private String m_edgename;
 
@@ -33,8 +37,7 @@ public class CStoplight implements IStoplight
     private final Integer m_green;
     private final Integer m_start;
 
-    private ELightState m_state;
-    private Integer m_current;
+    private Integer m_time;
 
     /**
      * ctor
@@ -55,7 +58,7 @@ public class CStoplight implements IStoplight
     @Override
     public void setLogger( final Logger p_log )
     {
-        s_logger = p_log;
+        s_log = CEventLog.of( p_log );
     }
 
     /**
@@ -74,18 +77,17 @@ public class CStoplight implements IStoplight
     @Override
     public void start()
     {
-        m_state = ELightState.GREEN;
-        m_current = m_green;
+        m_time = m_start;
     }
 
     /**
-     * state
-     * @return the current state
+     * time left
+     * @return how many timesteps untill light changes
      */
     @Override
     public Integer timeLeft()
     {
-        return m_current;
+        return m_time == null ? null : timeLeft( m_time );
     }
 
     @Override
@@ -95,13 +97,49 @@ public class CStoplight implements IStoplight
     }
 
     /**
-     * time left
-     * @return how many timesteps untill light changes
+     * state
+     * @return the current state
      */
     @Override
     public ELightState state()
     {
-        return m_state;
+        return m_time == null ? null : state( m_time );
+    }
+
+    /**
+     * state at a timestep
+     * @param p_time the timestep
+     * @return the state, null before the start
+     */
+    @Override
+    public ELightState state( final int p_time )
+    {
+        if ( p_time < m_start ) return null;
+        return phase( p_time ) < m_green ? ELightState.GREEN : ELightState.RED;
+    }
+
+    /**
+     * time left at a timestep
+     * @param p_time the timestep
+     * @return how many timesteps until the light changes, null before the start
+     */
+    @Override
+    public Integer timeLeft( final int p_time )
+    {
+        if ( p_time < m_start ) return null;
+        final int l_phase = phase( p_time );
+        return l_phase < m_green ? m_green - l_phase : m_green + m_red - l_phase;
+    }
+
+    /**
+     * first switch after a timestep
+     * @param p_time the timestep
+     * @return the timestep in which the light has changed
+     */
+    @Override
+    public int nextSwitch( final int p_time )
+    {
+        return p_time < m_start ? m_start + m_green : p_time + timeLeft( p_time );
     }
 
     /**
@@ -110,26 +148,31 @@ public class CStoplight implements IStoplight
     @Override
     public void update()
     {
-        if ( m_current > 1 )
-            m_current--;
-        else if ( m_current == 1 )
-        {
-            switch ( m_state )
-            {
-                case RED:
-                    m_state = ELightState.GREEN;
-                    s_logger.log( Level.INFO, m_edgename + " switched to green" );
-                    m_current = m_green;
-                    break;
-
-
-                case GREEN: m_state = ELightState.RED;
-                    s_logger.log( Level.INFO, m_edgename + " switched to red" );
-                    m_current = m_red;
-                    break;
-
-                default: break;
-            }
-        }
+        update( 1 );
+    }
+
+    /**
+     * updates the light over several timesteps,
+     * only the switches in between are visited to log them
+     * @param p_steps the number of timesteps
+     */
+    @Override
+    public void update( final int p_steps )
+    {
+        if ( m_time == null ) return;
+        final int l_time = m_time + p_steps;
+        for ( int l_switch = nextSwitch( m_time ); l_switch <= l_time; l_switch = nextSwitch( l_switch ) )
+            s_log.log( Level.INFO, m_edgename + ( state( l_switch ) == ELightState.GREEN ? " switched to green" : " switched to red" ) );
+        m_time = l_time;
+    }
+
+    /**
+     * position within the light cycle
+     * @param p_time the timestep, not before the start
+     * @return the timesteps since the last switch to green
+     */
+    private int phase( final int p_time )
+    {
+        return ( p_time - m_start ) % ( m_green + m_red );
     }
 }
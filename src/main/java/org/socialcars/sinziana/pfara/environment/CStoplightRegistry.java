@@ -0,0 +1,89 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * registry of the stoplights of a simulation
+ * keeps the next switch of every light in a priority queue, so an event-driven loop
+ * knows the next timestep in which a light changes and lights cost nothing in between
+ */
+public final class CStoplightRegistry
+{
+    private final List<IStoplight> m_stoplights;
+    private final int[] m_synced;
+    private final PriorityQueue<int[]> m_switches = new PriorityQueue<>( Comparator.<int[]>comparingInt( s -> s[0] ).thenComparingInt( s -> s[1] ) );
+
+    /**
+     * ctor
+     * @param p_stoplights the started stoplights, null entries of edges without a light are skipped
+     * @param p_time the timestep the lights are updated to
+     */
+    public CStoplightRegistry( final List<? extends IStoplight> p_stoplights, final int p_time )
+    {
+        m_stoplights = p_stoplights.stream().filter( Objects::nonNull ).collect( Collectors.toList() );
+        m_synced = new int[m_stoplights.size()];
+        for ( int i = 0; i < m_synced.length; i++ )
+        {
+            m_synced[i] = p_time;
+            m_switches.add( new int[]{m_stoplights.get( i ).nextSwitch( p_time ), i} );
+        }
+    }
+
+    /**
+     * the next timestep in which a light changes
+     * @return the timestep, the largest integer if there are no lights
+     */
+    public int nextSwitch()
+    {
+        return m_switches.isEmpty() ? Integer.MAX_VALUE : m_switches.peek()[0];
+    }
+
+    /**
+     * updates the lights that change up to a timestep, in time and list order
+     * @param p_time the timestep
+     * @return the number of switches
+     */
+    public int advance( final int p_time )
+    {
+        int l_switches = 0;
+        while ( ( !m_switches.isEmpty() ) && ( m_switches.peek()[0] <= p_time ) )
+        {
+            final int[] l_switch = m_switches.poll();
+            final IStoplight l_light = m_stoplights.get( l_switch[1] );
+            l_light.update( l_switch[0] - m_synced[l_switch[1]] );
+            m_synced[l_switch[1]] = l_switch[0];
+            l_switch[0] = l_light.nextSwitch( l_switch[0] );
+            m_switches.add( l_switch );
+            l_switches++;
+        }
+        return l_switches;
+    }
+
+    /**
+     * number of lights
+     * @return the number of lights
+     */
+    public int size()
+    {
+        return m_stoplights.size();
+    }
+}
@@ -15,6 +15,8 @@
 
 package org.socialcars.sinziana.pfara.environment;
 
+import org.socialcars.sinziana.pfara.units.CUnits;
+
 /**
  * the edge interface
  */
@@ -50,6 +52,26 @@ public interface IEdge
      */
     Double length();
 
+    /**
+     * precomputes the quantities depending on the simulation units
+     * @param p_unit the transformation unit
+     */
+    void precompute( final CUnits p_unit );
+
+    /**
+     * length of the edge in blocks
+     * @param p_unit the transformation unit
+     * @return the number of blocks
+     */
+    double blocks( final CUnits p_unit );
+
+    /**
+     * number of timesteps needed to traverse the edge
+     * at the maximum speed permitted by traffic
+     * @return the free-flow time
+     */
+    double freeFlowTime();
+
     /**
      * adds a stoplight to this edge
      * @param p_light the stoplight object
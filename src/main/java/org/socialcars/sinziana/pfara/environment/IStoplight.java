@@ -51,6 +51,27 @@ public interface IStoplight
      */
     Integer timeLeft();
 
+    /**
+     * state at a timestep
+     * @param p_time the timestep
+     * @return the state, null before the start
+     */
+    ELightState state( final int p_time );
+
+    /**
+     * time left at a timestep
+     * @param p_time the timestep
+     * @return how many timesteps until the light changes, null before the start
+     */
+    Integer timeLeft( final int p_time );
+
+    /**
+     * first switch after a timestep
+     * @param p_time the timestep
+     * @return the timestep in which the light has changed
+     */
+    int nextSwitch( final int p_time );
+
     /**
      * the edge where the light sits
      * @return the edge name
@@ -61,4 +82,11 @@ public interface IStoplight
      * updates the light
      */
     void update();
+
+    /**
+     * updates the light over several timesteps,
+     * same as calling update that many times
+     * @param p_steps the number of timesteps
+     */
+    void update( final int p_steps );
 }
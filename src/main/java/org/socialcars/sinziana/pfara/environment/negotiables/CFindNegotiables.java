@@ -20,9 +20,9 @@ package org.socialcars.sinziana.pfara.environment.negotiables;
 
 import com.google.common.util.concurrent.AtomicDouble;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.CCompressedGraph;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
-import org.socialcars.sinziana.pfara.environment.INode;
 import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.util.ArrayList;
@@ -44,6 +44,14 @@ import java.util.stream.IntStream;
  */
 public class CFindNegotiables implements IFingNegotiables
 {
+    /**
+     * number of alternative routes tried for every edge
+     */
+    private static final int ALTERNATIVES = 3;
+    /**
+     * number of progress reports while searching and validating
+     */
+    private static final int PROGRESS = 10;
     private static Logger s_logger;
 
     private final CGraph m_env;
@@ -74,54 +82,39 @@ public class CFindNegotiables implements IFingNegotiables
     @Override
     public void findSimple()
     {
-        final HashMap<Integer, CNegotiableElement> l_triangles = new HashMap<>();
-        final AtomicInteger l_counter = new AtomicInteger( 0 );
-        m_env.nodes().forEach( n ->
+        final CCompressedGraph l_core = m_env.core();
+        final long l_start = System.currentTimeMillis();
+        final int l_nodestep = Math.max( 1, l_core.nodeCount() / PROGRESS );
+        final List<CNegotiableElement> l_triangles = new ArrayList<>();
+        for ( int n = 0; n < l_core.nodeCount(); n += l_nodestep )
         {
-            final List<IEdge> l_edges = m_env.edges().stream().filter( e -> e.from().equals( n ) ).collect( Collectors.toList() );
-            //tests all the edges in the network
-            l_edges.forEach( original ->
-            {
-                final INode l_dest = original.to();
-                //selects all other edges that have the same endpoint as the "original" edge
-                final List<IEdge> l_tos =  m_env.edges().stream().filter( et -> et.to().equals( l_dest ) ).collect( Collectors.toList() );
-                l_tos.forEach( alone ->
-                {
-                    //find the third edge which connects the "original" to the "alone" edges
-                    if ( !m_env.edges().stream()
-                            .filter( ea -> ea.from().equals( n ) && ea.to().equals( alone.from() ) )
-                            .findFirst().isEmpty() )
-                    {
-                        final IEdge l_common = m_env.edges().stream()
-                                .filter( ea -> ea.from().equals( n ) && ea.to().equals( alone.from() )  )
-                                .findFirst().get();
-                        //creates the triangle
-                        final CNegotiableElement l_trig = new CNegotiableElement( Collections.singletonList( original ),
-                                Collections.singletonList( l_common ), Collections.singletonList( alone ) );
-                        l_triangles.put( l_counter.get(), l_trig  );
-                        l_counter.getAndIncrement();
-                    }
-                } );
-            } );
-        } );
-        s_logger.log( Level.INFO, "Total triangles: " + l_triangles.keySet().size() );
+            l_triangles.addAll( triangles( l_core, n, Math.min( n + l_nodestep, l_core.nodeCount() ) ) );
+            s_logger.log( Level.INFO, "Searched nodes: " + Math.min( n + l_nodestep, l_core.nodeCount() ) + " of " + l_core.nodeCount()
+                                      + ", triangles: " + l_triangles.size() );
+        }
+        s_logger.log( Level.INFO, "Total triangles: " + l_triangles.size() + " in " + ( System.currentTimeMillis() - l_start ) + " ms" );
 
-        //new list of only valid "negotiable" triangles
-        l_counter.set( 0 );
-        final HashMap<Integer, CNegotiableElement> l_negotiable = new HashMap<>();
-        l_triangles.keySet().forEach( t ->
-        {
-            if ( validateSimple( l_triangles.get( t ) ) )
-            {
-                l_negotiable.put( l_counter.get(), l_triangles.get( t ) );
-                l_counter.getAndIncrement();
-            }
-        } );
-        s_logger.log( Level.INFO, "Valid triangles: " + l_counter.get() );
+        //new list of only valid "negotiable" triangles, validated in parallel in the order they were found
+        final long l_validation = System.currentTimeMillis();
+        final int l_trianglestep = Math.max( 1, l_triangles.size() / PROGRESS );
+        final AtomicInteger l_validated = new AtomicInteger( 0 );
+        final AtomicInteger l_valid = new AtomicInteger( 0 );
+        final List<CNegotiableElement> l_negotiable = IntStream.range( 0, l_triangles.size() ).parallel()
+                .filter( t ->
+                {
+                    final boolean l_result = validateSimple( l_triangles.get( t ) );
+                    if ( l_result ) l_valid.incrementAndGet();
+                    if ( l_validated.incrementAndGet() % l_trianglestep == 0 )
+                        s_logger.log( Level.INFO, "Validated triangles: " + l_validated.get() + " of " + l_triangles.size() + ", valid: " + l_valid.get() );
+                    return l_result;
+                } )
+                .mapToObj( l_triangles::get )
+                .collect( Collectors.toList() );
+        s_logger.log( Level.INFO, "Valid triangles: " + l_negotiable.size() + " in " + ( System.currentTimeMillis() - l_validation ) + " ms" );
 
-        l_negotiable.keySet().forEach( k -> s_logger.log( Level.INFO, "original: " + l_negotiable.get( k ).original()
-                + " proposed:" + l_negotiable.get( k ).common()
-                + " alone:" + l_negotiable.get( k ).alone() ) );
+        l_negotiable.forEach( k -> s_logger.log( Level.INFO, "original: " + k.original()
+                + " proposed:" + k.common()
+                + " alone:" + k.alone() ) );
     }
 
     /**
@@ -168,20 +161,102 @@ public class CFindNegotiables implements IFingNegotiables
     @Override
     public void findComplex()
     {
+        final List<CNegotiableElement> l_candidates = polygons( m_env, 0, m_env.core().nodeCount() );
         final HashMap<Integer, CNegotiableElement> l_polygons = new HashMap<>();
         final AtomicInteger l_counter = new AtomicInteger( 0 );
-        final AtomicInteger l_trapezoidcount = new AtomicInteger( 0 );
-        m_env.nodes().forEach( n ->
+        l_candidates.forEach( p ->
+        {
+            //validates polygon
+            if ( validateComplex( p ) )
+            {
+                l_polygons.put( l_counter.get(), p );
+                l_counter.getAndIncrement();
+            }
+        } );
+        s_logger.log( Level.INFO, "Alternative searches: " + m_env.alternatives().searches() + " settling " + m_env.alternatives().settled() + " nodes" );
+        //every alternative is split into one polygon per length of the common part, the first one has a single common edge
+        s_logger.log( Level.INFO, "Total Trapezes: " + l_candidates.stream().filter( p -> p.common().size() == 1 ).count() );
+        s_logger.log( Level.INFO, "Split Polygons: " + l_candidates.size() );
+        s_logger.log( Level.INFO, "Valid Trapezes: " + l_polygons.size() );
+        l_polygons.keySet().forEach( k ->
+        {
+            s_logger.log( Level.INFO, "Original: " + l_polygons.get( k ).original() );
+            s_logger.log( Level.INFO, "Common: " + l_polygons.get( k ).common() );
+            s_logger.log( Level.INFO, "Alone: " + l_polygons.get( k ).alone() );
+        } );
+
+        //calculates the complexity of the negotiable size
+        final HashMap<Integer, Integer> l_complexitymap = new HashMap<>();
+        l_polygons.keySet().forEach( k ->
+        {
+            l_complexitymap.put( l_polygons.get( k ).common().size(), l_complexitymap.getOrDefault( l_polygons.get( k ).common().size(), 1 ) + 1 );
+        } );
+        l_complexitymap.keySet().forEach( k -> s_logger.log( Level.INFO, "Size: " + k + " has " + l_complexitymap.get( k ) + " occurences." ) );
+    }
+
+    /**
+     * simple triangles whose original edge leaves one of a range of nodes,
+     * an original edge n-d, an alone edge x-d and the common edge n-x,
+     * the alone edges are the incoming edges of d and the common edge is looked up by its nodes,
+     * so the triangles are enumerated in the sum of the squared degrees
+     * @param p_core the network
+     * @param p_from the first node id
+     * @param p_to the node id after the last one
+     * @return the triangles in the order of the nodes and edges
+     */
+    public static List<CNegotiableElement> triangles( final CCompressedGraph p_core, final int p_from, final int p_to )
+    {
+        final List<CNegotiableElement> l_triangles = new ArrayList<>();
+        for ( int n = p_from; n < p_to; n++ )
+            //tests all the edges leaving the node
+            for ( int i = p_core.outBegin( n ); i < p_core.outEnd( n ); i++ )
+                triangles( p_core, n, p_core.outEdge( i ), l_triangles );
+        return l_triangles;
+    }
+
+    /**
+     * simple triangles of one original edge
+     * @param p_core the network
+     * @param p_node the origin of the original edge
+     * @param p_original the original edge id
+     * @param p_triangles the triangles found so far
+     */
+    private static void triangles( final CCompressedGraph p_core, final int p_node, final int p_original, final List<CNegotiableElement> p_triangles )
+    {
+        //selects all other edges that have the same endpoint as the "original" edge
+        for ( int j = p_core.inBegin( p_core.to( p_original ) ); j < p_core.inEnd( p_core.to( p_original ) ); j++ )
+        {
+            final int l_alone = p_core.inEdge( j );
+            //find the third edge which connects the "original" to the "alone" edges
+            final int l_common = p_core.edge( p_node, p_core.from( l_alone ) );
+            if ( l_common < 0 ) continue;
+            //creates the triangle
+            p_triangles.add( new CNegotiableElement( Collections.singletonList( p_core.edge( p_original ) ),
+                    Collections.singletonList( p_core.edge( l_common ) ), Collections.singletonList( p_core.edge( l_alone ) ) ) );
+        }
+    }
+
+    /**
+     * complex polygons whose original edge leaves one of a range of nodes,
+     * every alternative route of the original edge is split into
+     * a common and an alone part after each of its nodes
+     * @param p_env the network
+     * @param p_from the first node id
+     * @param p_to the node id after the last one
+     * @return the polygons in the order of the nodes and edges
+     */
+    public static List<CNegotiableElement> polygons( final CGraph p_env, final int p_from, final int p_to )
+    {
+        final CCompressedGraph l_core = p_env.core();
+        final List<CNegotiableElement> l_polygons = new ArrayList<>();
+        IntStream.range( p_from, p_to ).forEach( n ->
         {
             //tests all the edges in the network
-            final List<IEdge> l_edges = m_env.edges().stream().filter( e -> e.from().equals( n ) ).collect( Collectors.toList() );
-            l_edges.forEach( original ->
+            IntStream.range( l_core.outBegin( n ), l_core.outEnd( n ) ).mapToObj( i -> l_core.edge( l_core.outEdge( i ) ) ).forEach( original ->
             {
                 //finds alternative routes
-                final List<IEdge> l_alternative = m_env.findMultiplePaths( original );
-                if ( ( l_alternative != null ) && ( l_alternative.size() != 1 ) )
+                p_env.alternatives( original, ALTERNATIVES ).stream().filter( a -> a.size() != 1 ).forEach( l_alternative ->
                 {
-                    l_trapezoidcount.getAndIncrement();
                     IntStream.range( 0, l_alternative.size() - 1 ).boxed().forEach( j ->
                     {
                         //constructs polygon
@@ -194,33 +269,12 @@ public class CFindNegotiables implements IFingNegotiables
                             else l_alone.add( l_alternative.get( i ) );
                         } );
                         l_alone.add( l_alternative.get( l_alternative.size() - 1 ) );
-                        final CNegotiableElement l_trap = new CNegotiableElement( l_original, l_common, l_alone );
-                        //validates polygon
-                        if ( validateComplex( l_trap ) )
-                        {
-                            l_polygons.put( l_counter.get(), l_trap );
-                            l_counter.getAndIncrement();
-                        }
+                        l_polygons.add( new CNegotiableElement( l_original, l_common, l_alone ) );
                     } );
-                }
+                } );
             } );
         } );
-        s_logger.log( Level.INFO, "Total Trapezes: " + l_trapezoidcount.get() );
-        s_logger.log( Level.INFO, "Valid Trapezes: " + l_polygons.size() );
-        l_polygons.keySet().forEach( k ->
-        {
-            s_logger.log( Level.INFO, "Original: " + l_polygons.get( k ).original() );
-            s_logger.log( Level.INFO, "Common: " + l_polygons.get( k ).common() );
-            s_logger.log( Level.INFO, "Alone: " + l_polygons.get( k ).alone() );
-        } );
-
-        //calculates the complexity of the negotiable size
-        final HashMap<Integer, Integer> l_complexitymap = new HashMap<>();
-        l_polygons.keySet().forEach( k ->
-        {
-            l_complexitymap.put( l_polygons.get( k ).common().size(), l_complexitymap.getOrDefault( l_polygons.get( k ).common().size(), 1 ) + 1 );
-        } );
-        l_complexitymap.keySet().forEach( k -> s_logger.log( Level.INFO, "Size: " + k + " has " + l_complexitymap.get( k ) + " occurences." ) );
+        return l_polygons;
     }
 
     /**
@@ -0,0 +1,296 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.environment.negotiables;
+
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * negotiability analysis of the whole network
+ * the candidate triangles and polygons are enumerated once and
+ * validated for every vehicle preference profile,
+ * the work is split into chunks run on a fixed number of threads,
+ * the negotiable elements are written to a file as soon as a chunk is done
+ * and the analysis stops early when it is cancelled or its time budget is spent
+ */
+public final class CNegotiabilityAnalysis
+{
+    /**
+     * number of candidates validated by one task
+     */
+    private static final int CHUNK = 512;
+    /**
+     * number of node ranges the candidates are enumerated in
+     */
+    private static final int RANGES = 64;
+
+    private final CGraph m_env;
+    private final List<CVehicle> m_profiles;
+    private final CUnits m_unit;
+    private final Double m_omega;
+    private final int m_threads;
+    private final Logger m_logger;
+    private final AtomicBoolean m_cancelled = new AtomicBoolean();
+
+    /**
+     * ctor
+     * @param p_env the network
+     * @param p_profiles the agents whose utility functions and preferences are the profiles
+     * @param p_unit the simulations transformation unit
+     * @param p_omega the platooning subsidisation coefficient
+     * @param p_threads the number of threads
+     * @param p_log the logger
+     */
+    public CNegotiabilityAnalysis( final CGraph p_env, final List<CVehicle> p_profiles, final CUnits p_unit, final Double p_omega,
+                                   final int p_threads, final Logger p_log )
+    {
+        m_env = p_env;
+        m_profiles = p_profiles;
+        m_unit = p_unit;
+        m_omega = p_omega;
+        m_threads = Math.max( 1, p_threads );
+        m_logger = p_log;
+    }
+
+    /**
+     * stops the analysis, the chunks being validated are finished,
+     * the result holds everything found so far and later runs stop at once
+     */
+    public void cancel()
+    {
+        m_cancelled.set( true );
+    }
+
+    /**
+     * whether the analysis was cancelled
+     * @return true if cancelled
+     */
+    public boolean cancelled()
+    {
+        return m_cancelled.get();
+    }
+
+    /**
+     * runs the analysis
+     * @param p_output the file the negotiable elements are written to
+     * @param p_budget the time budget in milliseconds, zero or negative for none
+     * @return the result set
+     * @throws IOException file
+     */
+    public CNegotiabilityResult run( final Path p_output, final long p_budget ) throws IOException
+    {
+        final long l_start = System.nanoTime();
+        final long l_deadline = p_budget > 0 ? l_start + TimeUnit.MILLISECONDS.toNanos( p_budget ) : Long.MAX_VALUE;
+        final AtomicLong l_evaluated = new AtomicLong();
+        final AtomicBoolean l_skipped = new AtomicBoolean();
+        final List<CNegotiabilityResult.CEntry> l_entries = new ArrayList<>();
+        final ExecutorService l_pool = Executors.newFixedThreadPool( m_threads );
+        try ( BufferedWriter l_out = Files.newBufferedWriter( p_output ) )
+        {
+            l_out.write( "profile,vehicle,shape,candidate,original,common,alone" );
+            l_out.newLine();
+
+            final int l_nodes = m_env.core().nodeCount();
+            final List<CNegotiableElement> l_triangles = enumerate( l_pool, ( f, t ) -> CFindNegotiables.triangles( m_env.core(), f, t ), l_nodes, l_deadline, l_skipped );
+            final List<CNegotiableElement> l_polygons = enumerate( l_pool, ( f, t ) -> CFindNegotiables.polygons( m_env, f, t ), l_nodes, l_deadline, l_skipped );
+            m_logger.log( Level.INFO, "Candidates: " + l_triangles.size() + " triangles, " + l_polygons.size() + " polygons for " + m_profiles.size() + " profiles" );
+
+            final List<Future<List<CNegotiabilityResult.CEntry>>> l_tasks = new ArrayList<>();
+            for ( int p = 0; p < m_profiles.size(); p++ )
+            {
+                final IFingNegotiables l_validator = new CFindNegotiables( m_env, m_profiles.get( p ), m_unit, m_omega, m_logger );
+                final int l_profile = p;
+                for ( int i = 0; i < l_triangles.size(); i += CHUNK )
+                {
+                    final int l_begin = i;
+                    l_tasks.add( l_pool.submit( () -> validate( l_validator, l_profile, ENegotiableShape.TRIANGLE, l_triangles, l_begin, l_out, l_evaluated, l_deadline ) ) );
+                }
+                for ( int i = 0; i < l_polygons.size(); i += CHUNK )
+                {
+                    final int l_begin = i;
+                    l_tasks.add( l_pool.submit( () -> validate( l_validator, l_profile, ENegotiableShape.POLYGON, l_polygons, l_begin, l_out, l_evaluated, l_deadline ) ) );
+                }
+            }
+            l_tasks.forEach( i -> l_entries.addAll( await( i ) ) );
+            l_out.flush();
+
+            Collections.sort( l_entries );
+            final long l_total = (long) m_profiles.size() * ( l_triangles.size() + l_polygons.size() );
+            final EAnalysisState l_state;
+            if ( m_cancelled.get() )
+                l_state = EAnalysisState.CANCELLED;
+            else if ( ( l_skipped.get() ) || ( l_evaluated.get() < l_total ) )
+                l_state = EAnalysisState.EXPIRED;
+            else
+                l_state = EAnalysisState.COMPLETED;
+            final long l_duration = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - l_start );
+            m_logger.log( Level.INFO, "Negotiability analysis " + l_state + ": " + l_evaluated.get() + " of " + l_total + " evaluations, "
+                                      + l_entries.size() + " negotiable in " + l_duration + " ms" );
+            return new CNegotiabilityResult( l_state, m_profiles.size(), l_triangles.size(), l_polygons.size(), l_evaluated.get(), l_duration, l_entries );
+        }
+        catch ( final UncheckedIOException l_exception )
+        {
+            throw l_exception.getCause();
+        }
+        finally
+        {
+            l_pool.shutdownNow();
+        }
+    }
+
+    /**
+     * enumerates candidates over ranges of nodes in parallel
+     * @param p_pool the threads
+     * @param p_range the enumeration of a node range
+     * @param p_nodes the number of nodes
+     * @param p_deadline the time at which the enumeration stops
+     * @param p_skipped set if a range was not enumerated
+     * @return the candidates in the order of the nodes
+     */
+    private List<CNegotiableElement> enumerate( final ExecutorService p_pool, final BiFunction<Integer, Integer, List<CNegotiableElement>> p_range,
+                                                final int p_nodes, final long p_deadline, final AtomicBoolean p_skipped )
+    {
+        final int l_step = Math.max( 1, ( p_nodes + RANGES - 1 ) / RANGES );
+        final List<Future<List<CNegotiableElement>>> l_ranges = new ArrayList<>();
+        for ( int i = 0; i < p_nodes; i += l_step )
+        {
+            final int l_begin = i;
+            l_ranges.add( p_pool.submit( () ->
+            {
+                if ( !stopped( p_deadline ) ) return p_range.apply( l_begin, Math.min( l_begin + l_step, p_nodes ) );
+                p_skipped.set( true );
+                return Collections.<CNegotiableElement>emptyList();
+            } ) );
+        }
+        return l_ranges.stream().flatMap( i -> await( i ).stream() ).collect( Collectors.toList() );
+    }
+
+    /**
+     * validates a chunk of candidates for a profile and writes the negotiable ones
+     * @param p_validator the validator of the profile
+     * @param p_profile the profile index
+     * @param p_shape the shape of the candidates
+     * @param p_candidates the candidates
+     * @param p_begin the first candidate of the chunk
+     * @param p_out the output file
+     * @param p_evaluated the number of evaluations
+     * @param p_deadline the time at which the validation stops
+     * @return the negotiable elements of the chunk
+     * @throws IOException file
+     */
+    private List<CNegotiabilityResult.CEntry> validate( final IFingNegotiables p_validator, final int p_profile, final ENegotiableShape p_shape,
+                                                        final List<CNegotiableElement> p_candidates, final int p_begin, final BufferedWriter p_out,
+                                                        final AtomicLong p_evaluated, final long p_deadline ) throws IOException
+    {
+        final List<CNegotiabilityResult.CEntry> l_entries = new ArrayList<>();
+        final int l_end = Math.min( p_begin + CHUNK, p_candidates.size() );
+        for ( int i = p_begin; ( i < l_end ) && ( !stopped( p_deadline ) ); i++ )
+        {
+            final CNegotiableElement l_candidate = p_candidates.get( i );
+            //the complex validation is the simple one for single edges and, like it, rejects routes over the preference limits
+            final Boolean l_valid = p_validator.validateComplex( l_candidate );
+            p_evaluated.incrementAndGet();
+            if ( l_valid ) l_entries.add( new CNegotiabilityResult.CEntry( p_profile, p_shape, i, l_candidate ) );
+        }
+        if ( l_entries.isEmpty() ) return l_entries;
+
+        final StringBuilder l_lines = new StringBuilder();
+        l_entries.forEach( e -> l_lines.append( e.profile() ).append( ',' )
+                                       .append( m_profiles.get( e.profile() ).name() ).append( ',' )
+                                       .append( e.shape() ).append( ',' )
+                                       .append( e.candidate() ).append( ',' )
+                                       .append( names( e.element().original() ) ).append( ',' )
+                                       .append( names( e.element().common() ) ).append( ',' )
+                                       .append( names( e.element().alone() ) ).append( System.lineSeparator() ) );
+        synchronized ( p_out )
+        {
+            p_out.write( l_lines.toString() );
+            p_out.flush();
+        }
+        return l_entries;
+    }
+
+    /**
+     * whether the analysis has to stop
+     * @param p_deadline the end of the time budget
+     * @return true if cancelled or out of time
+     */
+    private boolean stopped( final long p_deadline )
+    {
+        return m_cancelled.get() || ( System.nanoTime() > p_deadline );
+    }
+
+    /**
+     * waits for a task, an interruption cancels the analysis
+     * @param p_task the task
+     * @param <T> the result type
+     * @return the result of the task, empty if interrupted
+     * @throws UncheckedIOException if the task failed writing
+     */
+    private <T> List<T> await( final Future<List<T>> p_task )
+    {
+        try
+        {
+            return p_task.get();
+        }
+        catch ( final InterruptedException l_exception )
+        {
+            Thread.currentThread().interrupt();
+            cancel();
+            return Collections.emptyList();
+        }
+        catch ( final ExecutionException l_exception )
+        {
+            if ( l_exception.getCause() instanceof IOException ) throw new UncheckedIOException( (IOException) l_exception.getCause() );
+            throw new RuntimeException( l_exception.getCause() );
+        }
+    }
+
+    /**
+     * edge names of a route
+     * @param p_route the route
+     * @return the names separated by spaces
+     */
+    private static String names( final List<IEdge> p_route )
+    {
+        return p_route.stream().map( IEdge::name ).collect( Collectors.joining( " " ) );
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.environment.negotiables;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * the result set of a negotiability analysis
+ * the negotiable elements found for every profile,
+ * ordered by profile, shape and candidate
+ */
+public final class CNegotiabilityResult
+{
+    private final EAnalysisState m_state;
+    private final int m_profiles;
+    private final int m_triangles;
+    private final int m_polygons;
+    private final long m_evaluated;
+    private final long m_duration;
+    private final List<CEntry> m_entries;
+
+    /**
+     * ctor
+     * @param p_state how the analysis ended
+     * @param p_profiles the number of profiles
+     * @param p_triangles the number of candidate triangles
+     * @param p_polygons the number of candidate polygons
+     * @param p_evaluated the number of evaluated candidates over all profiles
+     * @param p_duration the duration of the analysis in milliseconds
+     * @param p_entries the negotiable elements
+     */
+    CNegotiabilityResult( final EAnalysisState p_state, final int p_profiles, final int p_triangles, final int p_polygons,
+                          final long p_evaluated, final long p_duration, final List<CEntry> p_entries )
+    {
+        m_state = p_state;
+        m_profiles = p_profiles;
+        m_triangles = p_triangles;
+        m_polygons = p_polygons;
+        m_evaluated = p_evaluated;
+        m_duration = p_duration;
+        m_entries = Collections.unmodifiableList( p_entries );
+    }
+
+    /**
+     * how the analysis ended
+     * @return the state
+     */
+    public EAnalysisState state()
+    {
+        return m_state;
+    }
+
+    /**
+     * number of profiles
+     * @return the number of profiles
+     */
+    public int profiles()
+    {
+        return m_profiles;
+    }
+
+    /**
+     * number of candidates of a shape
+     * @param p_shape the shape
+     * @return the number of candidates
+     */
+    public int candidates( final ENegotiableShape p_shape )
+    {
+        return ENegotiableShape.TRIANGLE.equals( p_shape ) ? m_triangles : m_polygons;
+    }
+
+    /**
+     * number of evaluations, a candidate is evaluated once for every profile
+     * @return the number of evaluations
+     */
+    public long evaluated()
+    {
+        return m_evaluated;
+    }
+
+    /**
+     * duration of the analysis
+     * @return the duration in milliseconds
+     */
+    public long duration()
+    {
+        return m_duration;
+    }
+
+    /**
+     * all negotiable elements
+     * @return the entries
+     */
+    public List<CEntry> entries()
+    {
+        return m_entries;
+    }
+
+    /**
+     * negotiable elements of a profile and shape
+     * @param p_profile the profile index
+     * @param p_shape the shape
+     * @return the entries
+     */
+    public List<CEntry> entries( final int p_profile, final ENegotiableShape p_shape )
+    {
+        return m_entries.stream().filter( i -> ( i.profile() == p_profile ) && ( i.shape().equals( p_shape ) ) ).collect( Collectors.toList() );
+    }
+
+    /**
+     * a negotiable element for a profile
+     */
+    public static final class CEntry implements Comparable<CEntry>
+    {
+        private final int m_profile;
+        private final ENegotiableShape m_shape;
+        private final int m_candidate;
+        private final INegotiableElement m_element;
+
+        /**
+         * ctor
+         * @param p_profile the profile index
+         * @param p_shape the shape
+         * @param p_candidate the candidate index within the shape
+         * @param p_element the element
+         */
+        CEntry( final int p_profile, final ENegotiableShape p_shape, final int p_candidate, final INegotiableElement p_element )
+        {
+            m_profile = p_profile;
+            m_shape = p_shape;
+            m_candidate = p_candidate;
+            m_element = p_element;
+        }
+
+        /**
+         * the profile index
+         * @return the index
+         */
+        public int profile()
+        {
+            return m_profile;
+        }
+
+        /**
+         * the shape
+         * @return the shape
+         */
+        public ENegotiableShape shape()
+        {
+            return m_shape;
+        }
+
+        /**
+         * the candidate index within the shape
+         * @return the index
+         */
+        public int candidate()
+        {
+            return m_candidate;
+        }
+
+        /**
+         * the negotiable element
+         * @return the element
+         */
+        public INegotiableElement element()
+        {
+            return m_element;
+        }
+
+        @Override
+        public int compareTo( final CEntry p_other )
+        {
+            if ( m_profile != p_other.m_profile ) return Integer.compare( m_profile, p_other.m_profile );
+            if ( m_shape != p_other.m_shape ) return m_shape.compareTo( p_other.m_shape );
+            return Integer.compare( m_candidate, p_other.m_candidate );
+        }
+    }
+}
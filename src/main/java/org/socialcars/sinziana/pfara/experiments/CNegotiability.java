@@ -20,13 +20,16 @@ package org.socialcars.sinziana.pfara.experiments;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.CEventHistory;
 import org.socialcars.sinziana.pfara.data.input.CInputpojo;
 import org.socialcars.sinziana.pfara.environment.CGraph;
-import org.socialcars.sinziana.pfara.environment.negotiables.CFindNegotiables;
+import org.socialcars.sinziana.pfara.environment.negotiables.CNegotiabilityAnalysis;
+import org.socialcars.sinziana.pfara.environment.negotiables.CNegotiabilityResult;
 import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.logging.FileHandler;
 import java.util.logging.Logger;
@@ -48,6 +51,8 @@ public class CNegotiability
     private final ArrayList<CVehicle> m_vehicles;
 
     private final Double m_omega;
+    private final String m_outfile;
+    private volatile CNegotiabilityAnalysis m_analysis;
 
     /**
      * ctor
@@ -64,23 +69,47 @@ public class CNegotiability
         l_handler.setFormatter( new SimpleFormatter() );
 
         m_input = new ObjectMapper().readValue( new File( p_infile ), CInputpojo.class );
-        m_env = new CGraph( m_input.getGraph() );
-
         m_unit = new CUnits( p_time, p_space );
+        m_env = new CGraph( m_input.getGraph(), m_unit );
+
         m_time = 0;
         m_vehicles = new ArrayList<>();
-        m_input.getVehicles().forEach( p -> m_vehicles.add( new CVehicle( p, 0, LOGGER, m_unit, false, 1.0 ) ) );
+        m_input.getVehicles().forEach( p -> m_vehicles.add( new CVehicle( p, 0, LOGGER, m_unit, false, 1.0, CEventHistory.last( CEventHistory.RETAINED ) ) ) );
         m_omega = p_omega;
+        m_outfile = p_outfile;
     }
 
     /**
      * searches for negotiable shapes
-     * both simple and complex
+     * both simple and complex, for the preferences of every vehicle
+     * @return the negotiable shapes
+     * @throws IOException file
+     */
+    public CNegotiabilityResult run() throws IOException
+    {
+        return this.run( 0 );
+    }
+
+    /**
+     * searches for negotiable shapes within a time budget
+     * both simple and complex, for the preferences of every vehicle
+     * @param p_budget the time budget in milliseconds, zero for none
+     * @return the negotiable shapes found within the budget
+     * @throws IOException file
+     */
+    public CNegotiabilityResult run( final long p_budget ) throws IOException
+    {
+        m_analysis = new CNegotiabilityAnalysis( m_env, m_vehicles, m_unit, m_omega, Runtime.getRuntime().availableProcessors(), LOGGER );
+        return m_analysis.run( Paths.get( "NEGOTIABLES" + m_outfile ), p_budget );
+    }
+
+    /**
+     * cancels the running search,
+     * it returns the shapes found so far
      */
-    public void run()
+    public void cancel()
     {
-        final CFindNegotiables l_findneg = new CFindNegotiables( m_env, m_vehicles.get( 0 ), m_unit, m_omega, LOGGER );
-        l_findneg.findSimple();
-        l_findneg.findComplex();
+        final CNegotiabilityAnalysis l_analysis = m_analysis;
+        if ( l_analysis != null ) l_analysis.cancel();
     }
 }
@@ -20,26 +20,30 @@ package org.socialcars.sinziana.pfara.experiments;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.CBinaryWriter;
+import org.socialcars.sinziana.pfara.agents.events.CEventHistory;
+import org.socialcars.sinziana.pfara.agents.events.CEventLog;
 import org.socialcars.sinziana.pfara.data.input.CInputpojo;
-import org.socialcars.sinziana.pfara.environment.CBackground;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
 import org.socialcars.sinziana.pfara.environment.INode;
 import org.socialcars.sinziana.pfara.functionality.CEdgeEnd;
+import org.socialcars.sinziana.pfara.functionality.CEventKernel;
 import org.socialcars.sinziana.pfara.functionality.CPreGrouping;
 import org.socialcars.sinziana.pfara.functionality.CReadBackground;
-import org.socialcars.sinziana.pfara.negotiation.CAlternativeOffers;
-import org.socialcars.sinziana.pfara.negotiation.CTakeItOrLeaveIt;
-import org.socialcars.sinziana.pfara.negotiation.IProtocol;
+import org.socialcars.sinziana.pfara.functionality.CSimulationState;
+import org.socialcars.sinziana.pfara.functionality.IEventHandler;
+import org.socialcars.sinziana.pfara.negotiation.CClusterNegotiation;
 import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,20 +52,21 @@ import java.util.logging.SimpleFormatter;
 /**
  * class for simulation with macroscopic movement with an optimisation approach + the negotiation approach
  */
-public class CNegotiationMakro
+public class CNegotiationMakro implements IEventHandler
 {
     private static final Logger LOGGER = Logger.getLogger( CNegotiationMakro.class.getName() );
+    private final CEventLog m_log;
+    private final CBinaryWriter m_events;
 
     private final CInputpojo m_input;
     private final CGraph m_env;
     private final CReadBackground m_readbackground;
-    private final HashMap<IEdge, CBackground> m_backinfo;
 
     private final CUnits m_unit;
     private Integer m_time;
 
     private final ArrayList<CVehicle> m_vehicles;
-    private final HashMap<CVehicle, String> m_status = new HashMap<>();
+    private final CSimulationState m_state;
     private HashMap<CVehicle, List<IEdge>> m_routes = new HashMap<>();
     private final Map<IEdge, Integer> m_countingmap = new HashMap<>();
     private final Map<CVehicle, List<IEdge>> m_finalroute = new HashMap<>();
@@ -91,17 +96,20 @@ public class CNegotiationMakro
         final FileHandler l_handler = new FileHandler( p_outfile );
         LOGGER.addHandler( l_handler );
         l_handler.setFormatter( new SimpleFormatter() );
+        m_log = CEventLog.of( LOGGER );
+        m_events = new CBinaryWriter( Paths.get( "EVENTS" + p_outfile ) );
+        m_log.attach( m_events );
         m_input = new ObjectMapper().readValue( new File( p_infile ), CInputpojo.class );
-        m_env = new CGraph( m_input.getGraph() );
-        m_readbackground = new CReadBackground( m_env );
-        m_backinfo = m_readbackground.getBackground( p_backfile );
         m_unit = new CUnits( p_time, p_space );
+        m_env = new CGraph( m_input.getGraph(), m_unit );
+        m_readbackground = new CReadBackground( m_env );
+        m_readbackground.getBackground( p_backfile );
         m_time = 0;
         m_vehicles = new ArrayList<>();
-        m_input.getVehicles().forEach( p -> m_vehicles.add( new CVehicle( p, 0, LOGGER, m_unit, false, p_omega ) ) );
+        m_input.getVehicles().forEach( p -> m_vehicles.add( new CVehicle( p, 0, LOGGER, m_unit, false, p_omega, CEventHistory.none() ) ) );
+        m_state = new CSimulationState( m_vehicles.size() );
         m_vehicles.forEach( p ->
         {
-            m_status.put( p, "Incomplete" );
             m_routes.put( p, m_env.route( p.origin(), p.destination() ) );
             m_finalroute.put( p, new ArrayList<>() );
         } );
@@ -118,15 +126,11 @@ public class CNegotiationMakro
      */
     public void run() throws IOException
     {
-        m_grouping = new CPreGrouping( m_vehicles, m_env, m_unit, m_routes, m_time, false, true, m_omega );
+        m_grouping = new CPreGrouping( m_vehicles, m_env, m_unit, m_routes, false, true, m_omega );
+        m_grouping.group( m_time );
         checkNegotiation();
-        while ( m_status.containsValue( "Incomplete" ) )
-        {
-            LOGGER.log( Level.INFO, "Time is " + m_time );
-            move();
-            m_clusters.clear();
-            m_time++;
-        }
+        m_time = new CEventKernel( m_vehicles, m_routes, Collections.emptyList(), m_state, this, m_time ).run();
+        m_log.detach( m_events );
         m_report.writeCSV( m_vehicles );
     }
 
@@ -155,55 +159,82 @@ public class CNegotiationMakro
             }
         } );
         //if there are at least 2 vehicles in the cluster,
-        //create a protocol and send the first offer
-        m_clusters.keySet().forEach( n ->
-        {
-            if ( m_clusters.get( n ).size() > 1 )
-            {
-                final IProtocol l_protocol;
-                if ( m_ao ) l_protocol = new CAlternativeOffers( m_clusters.get( n ), n, m_env, m_routes, m_deadline );
-                else l_protocol = new CTakeItOrLeaveIt( m_clusters.get( n ), n, m_env, m_routes );
-                l_protocol.open( m_time );
-                final CVehicle l_vehicle = m_clusters.get( n ).get( 0 );
-                l_vehicle.sendOffer( m_routes.get( l_vehicle ) );
-            }
-        } );
+        //create a protocol and negotiate, the clusters are independent and negotiate in parallel
+        new CClusterNegotiation( m_env, m_ao, m_deadline ).negotiate( m_clusters, m_routes, m_time );
     }
 
     /**
-     * moves vehicles one by one
-     * if vehicle reached the destination updates status
-     * if any vehicle reached the end of an edge
-     * triggers the platoon search
+     * logs the timestep and reports the fleet
+     * @param p_time the timestep
      */
-    private void move()
+    @Override
+    public void timestep( final Integer p_time )
     {
-        final AtomicBoolean l_trig = new AtomicBoolean( false );
-        m_vehicles.forEach( p ->
+        //the clusters only live for the timestep they were created in
+        if ( p_time > m_time ) m_clusters.clear();
+        m_time = p_time;
+        m_log.log( Level.INFO, "Time is " + m_time );
+        try
         {
-            if ( m_routes.get( p ).isEmpty() ) m_status.put( p, "Complete" );
-            else if ( p.getDelay() <= 0 )
-            {
-                final IEdge l_edge = m_routes.get( p ).iterator().next();
-                if ( p.position().equals( 0.0 ) ) p.departed( l_edge, m_time );
-                if ( p.position().doubleValue() < l_edge.length() ) p.moveMakro( m_backinfo.get( l_edge ).maxspeed() );
-                else
-                {
-                    p.arrived( l_edge, m_time );
-                    m_countingmap.put( l_edge, m_countingmap.getOrDefault( l_edge, 0 ) + 1 );
-                    m_finalroute.get( p ).add( l_edge );
-                    m_routes.get( p ).remove( 0 );
-                    l_trig.set( true );
-                }
-            }
-            else if ( p.getDelay() > 0 ) p.updateDelay();
-        } );
-        if ( l_trig.get() )
+            m_report.tick( m_time, m_vehicles, m_state );
+        }
+        catch ( final IOException l_err )
         {
-            m_edgeend = new CEdgeEnd( m_vehicles, m_routes, m_time, m_env );
-            m_grouping = new CPreGrouping( m_vehicles, m_env, m_unit, m_routes, m_time, false, true, m_omega );
-            m_edgeend.checkLoners();
-            checkNegotiation();
+            l_err.printStackTrace();
         }
     }
+
+    /**
+     * departs from the node
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it enters
+     * @param p_time the timestep
+     */
+    @Override
+    public void depart( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+    {
+        p_vehicle.departed( p_edge, p_time );
+        m_grouping.departed( p_vehicle );
+    }
+
+    /**
+     * moves the vehicle for one timestep
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it is travelling on
+     */
+    @Override
+    public void move( final CVehicle p_vehicle, final IEdge p_edge )
+    {
+        p_vehicle.moveMakro( p_edge.maxSpeed() );
+    }
+
+    /**
+     * registers the arrival at the end of the edge
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it travelled on
+     * @param p_time the timestep
+     */
+    @Override
+    public void arrive( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+    {
+        p_vehicle.arrived( p_edge, p_time );
+        m_countingmap.put( p_edge, m_countingmap.getOrDefault( p_edge, 0 ) + 1 );
+        m_finalroute.get( p_vehicle ).add( p_edge );
+        m_routes.get( p_vehicle ).remove( 0 );
+        m_grouping.arrived( p_vehicle );
+    }
+
+    /**
+     * if any vehicle reached the end of an edge
+     * triggers the platoon search
+     * @param p_time the timestep
+     */
+    @Override
+    public void edgeEnd( final Integer p_time )
+    {
+        m_edgeend = new CEdgeEnd( m_vehicles, m_routes, m_time, m_env );
+        m_grouping.group( m_time );
+        m_edgeend.checkLoners();
+        checkNegotiation();
+    }
 }
@@ -20,18 +20,44 @@ package org.socialcars.sinziana.pfara.experiments;
 
 import com.opencsv.CSVWriter;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.EEventType;
+import org.socialcars.sinziana.pfara.agents.events.IEvent;
+import org.socialcars.sinziana.pfara.functionality.CSimulationState;
+import org.socialcars.sinziana.pfara.functionality.EVehicleState;
 
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
  * class for final reporting
+ * the vehicle rows are streamed into the csv file as the vehicles complete their route,
+ * the remaining ones when the run ends, and aggregates of the fleet are
+ * written into a second csv file every interval, both through bounded buffers
  */
 public class CReporting
 {
+    /**
+     * default number of timesteps between two aggregate rows
+     */
+    public static final int INTERVAL = 1;
+    /**
+     * size of the output buffers in characters
+     */
+    private static final int BUFFER = 1 << 16;
+
     private final CSVWriter m_csvwriter;
+    private final CSVWriter m_tickwriter;
     private final Boolean m_mikro;
+    private final int m_interval;
+    private final BitSet m_reported = new BitSet();
+    private int[] m_formed = new int[0];
+    private int m_platoons;
+    private int m_completions;
+    private int m_nexttick;
 
     /**
      * ctor
@@ -41,27 +67,109 @@ public class CReporting
      */
     public CReporting( final String p_outfile, final Boolean p_mikro ) throws IOException
     {
-        m_csvwriter = new CSVWriter( new FileWriter( "CSV" + p_outfile ) );
+        this( p_outfile, p_mikro, INTERVAL );
+    }
+
+    /**
+     * ctor
+     * @param p_outfile the output file
+     * @param p_mikro type of movement
+     * @param p_interval the number of timesteps between two aggregate rows, zero for no aggregates
+     * @throws IOException file
+     */
+    public CReporting( final String p_outfile, final Boolean p_mikro, final int p_interval ) throws IOException
+    {
+        m_csvwriter = new CSVWriter( new BufferedWriter( new FileWriter( "CSV" + p_outfile ), BUFFER ) );
+        m_csvwriter.writeNext( new String[]{"Vehicle", "Cost", "Length", "Time", "Utility"} );
         m_mikro = p_mikro;
+        m_interval = p_interval;
+        if ( m_interval <= 0 )
+            m_tickwriter = null;
+        else
+        {
+            m_tickwriter = new CSVWriter( new BufferedWriter( new FileWriter( "CSVTicks" + p_outfile ), BUFFER ) );
+            m_tickwriter.writeNext( new String[]{"Time", "Active", "Idle", "Completed", "Platooning", "Formed", "Negotiating"} );
+        }
     }
 
     /**
-     * writes the vehicles' information into a csv file
+     * reports the start of a timestep
+     * writes the rows of the vehicles completed since the last call
+     * and the aggregates of the fleet if the interval passed,
+     * the output is flushed with every aggregate row
+     * @param p_time the timestep
      * @param p_vehicles the vehicles
+     * @param p_state the state of the vehicles
      * @throws IOException file
      */
-    public void writeCSV( final ArrayList<CVehicle> p_vehicles ) throws IOException
+    public void tick( final Integer p_time, final ArrayList<CVehicle> p_vehicles, final CSimulationState p_state ) throws IOException
     {
-        final ArrayList<String[]> l_stringarray = new ArrayList<>();
-        final String[] l_header = new String[]{"Vehicle", "Cost", "Length", "Time", "Utility"};
-        l_stringarray.add( l_header );
-        p_vehicles.forEach( v ->
+        while ( m_completions < p_state.count( EVehicleState.COMPLETE ) )
+            write( p_vehicles, p_state.completion( m_completions++ ) );
+
+        if ( ( m_tickwriter == null ) || ( p_time < m_nexttick ) ) return;
+        m_nexttick = p_time - p_time % m_interval + m_interval;
+
+        if ( m_formed.length < p_vehicles.size() ) m_formed = Arrays.copyOf( m_formed, p_vehicles.size() );
+        int l_platooning = 0;
+        int l_negotiating = 0;
+        for ( int i = 0; i < p_vehicles.size(); i++ )
         {
-            final String[] l_singular = new String[] {v.name(), v.routeCost().toString(), v.routeLength().toString(),
-                    v.routeDuration().toString(), v.endUtility( m_mikro ).toString() };
-            l_stringarray.add( l_singular );
-        } );
-        m_csvwriter.writeAll( l_stringarray );
+            final CVehicle l_vehicle = p_vehicles.get( i );
+            if ( l_vehicle.platooning() ) l_platooning++;
+            if ( l_vehicle.negotiating() ) l_negotiating++;
+            formed( l_vehicle, i );
+        }
+
+        m_tickwriter.writeNext( new String[]{p_time.toString(), String.valueOf( p_state.count( EVehicleState.ACTIVE ) ),
+                                             String.valueOf( p_state.count( EVehicleState.IDLE ) ), String.valueOf( p_state.count( EVehicleState.COMPLETE ) ),
+                                             String.valueOf( l_platooning ), String.valueOf( m_platoons ), String.valueOf( l_negotiating )} );
+        m_tickwriter.flush();
+        m_csvwriter.flush();
+    }
+
+    /**
+     * counts the platoons a vehicle formed since the last aggregate row,
+     * every member of a platoon logs its formation, so only the member with
+     * the smallest name counts it, formations between two rows are attributed
+     * to the last platoon of the vehicle
+     * @param p_vehicle the vehicle
+     * @param p_index the index of the vehicle
+     */
+    private void formed( final CVehicle p_vehicle, final int p_index )
+    {
+        final int l_formed = p_vehicle.history().count( EEventType.FORMED );
+        if ( l_formed == m_formed[p_index] ) return;
+
+        final IEvent l_last = p_vehicle.history().last( EEventType.FORMED );
+        if ( l_last.with().stream().allMatch( p -> p.name().compareTo( p_vehicle.name() ) > 0 ) )
+            m_platoons += l_formed - m_formed[p_index];
+        m_formed[p_index] = l_formed;
+    }
+
+    /**
+     * writes the rows of the vehicles not reported yet and closes the files
+     * @param p_vehicles the vehicles
+     * @throws IOException file
+     */
+    public void writeCSV( final ArrayList<CVehicle> p_vehicles ) throws IOException
+    {
+        for ( int i = m_reported.nextClearBit( 0 ); i < p_vehicles.size(); i = m_reported.nextClearBit( i + 1 ) )
+            write( p_vehicles, i );
         m_csvwriter.close();
+        if ( m_tickwriter != null ) m_tickwriter.close();
+    }
+
+    /**
+     * writes the row of a vehicle
+     * @param p_vehicles the vehicles
+     * @param p_index the index of the vehicle
+     */
+    private void write( final ArrayList<CVehicle> p_vehicles, final int p_index )
+    {
+        final CVehicle l_vehicle = p_vehicles.get( p_index );
+        m_csvwriter.writeNext( new String[] {l_vehicle.name(), l_vehicle.routeCost().toString(), l_vehicle.routeLength().toString(),
+                l_vehicle.routeDuration().toString(), l_vehicle.endUtility( m_mikro ).toString() } );
+        m_reported.set( p_index );
     }
 }
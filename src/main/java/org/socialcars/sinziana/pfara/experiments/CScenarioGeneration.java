@@ -25,6 +25,7 @@ import org.json.simple.JSONObject;
 import org.socialcars.sinziana.pfara.data.input.CDemandspojo;
 import org.socialcars.sinziana.pfara.data.input.CInputpojo;
 import org.socialcars.sinziana.pfara.environment.CBackground;
+import org.socialcars.sinziana.pfara.environment.CContractionHierarchy;
 import org.socialcars.sinziana.pfara.environment.CDemand;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
@@ -39,6 +40,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.stream.IntStream;
@@ -50,6 +52,8 @@ public class CScenarioGeneration
 {
     private final CDemandspojo m_inputd;
     private final CInputpojo m_input;
+    private final String m_graphfile;
+    private Path m_hierarchy;
 
     private ArrayList<CDemand> m_demand;
     private CGraph m_env;
@@ -67,9 +71,10 @@ public class CScenarioGeneration
     CScenarioGeneration( final String p_demand, final String p_graph, final Double p_space, final Integer p_time ) throws IOException
     {
         m_input = new ObjectMapper().readValue( new File( p_graph ), CInputpojo.class );
+        m_graphfile = p_graph;
         m_inputd = new ObjectMapper().readValue( new File( p_demand ), CDemandspojo.class );
         m_unit = new CUnits( p_time, p_space );
-        m_env = new CGraph( m_input.getGraph() );
+        m_env = new CGraph( m_input.getGraph(), m_unit );
         m_demand = new ArrayList<>();
         m_inputd.getDemand().forEach( j ->
         {
@@ -79,6 +84,17 @@ public class CScenarioGeneration
 
     }
 
+    /**
+     * routes the trips over a contraction hierarchy instead of dijkstra,
+     * the index is read from the file next to the input file or built and written to it
+     * @return self-reference
+     */
+    public CScenarioGeneration hierarchy()
+    {
+        m_hierarchy = CContractionHierarchy.indexFile( m_graphfile );
+        return this;
+    }
+
     /**
      * generates the traffic
      * @param p_ratio the ratio of traffic generated (by hour)
@@ -87,8 +103,10 @@ public class CScenarioGeneration
      */
     public void generateDensityFlow( final Integer p_ratio, final String p_endfile ) throws IOException
     {
-        //this generates deltaN
-        final IGraph<VisualizationViewer<INode, IEdge>> l_env = new CGraph( m_input.getGraph() );
+        //this generates deltaN, the trips have random origins so the contraction hierarchy pays off if it is enabled
+        final CGraph l_graph = new CGraph( m_input.getGraph() );
+        if ( m_hierarchy != null ) l_graph.hierarchy( m_hierarchy );
+        final IGraph<VisualizationViewer<INode, IEdge>> l_env = l_graph;
         final HashMap<IEdge, Integer> l_countingmap = new HashMap<>();
 
         //generates the trips
@@ -79,8 +79,8 @@ public class CVisualise
         l_handler.setFormatter( new SimpleFormatter() );
 
         m_input = new ObjectMapper().readValue( new File( p_infile ), CInputpojo.class );
-        m_env = new CGraph( m_input.getGraph() );
         m_unit = new CUnits( p_time, p_space );
+        m_env = new CGraph( m_input.getGraph(), m_unit );
         m_time = 0;
     }
 
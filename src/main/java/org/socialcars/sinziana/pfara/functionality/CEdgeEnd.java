@@ -17,12 +17,10 @@ package org.socialcars.sinziana.pfara.functionality;
 
 import org.socialcars.sinziana.pfara.agents.CVehicle;
 import org.socialcars.sinziana.pfara.agents.events.EEventType;
-import org.socialcars.sinziana.pfara.agents.events.IEvent;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -96,13 +94,7 @@ public class CEdgeEnd
         if ( p_pod.location().contentEquals( p_pod.destination() ) )
         {
             //ensures that the vehicle has not already registered a completed route
-            final AtomicBoolean l_dest = new AtomicBoolean( false );
-            final Collection<IEvent> l_events = p_pod.events();
-            l_events.forEach( e ->
-            {
-                if ( e.what().equals( EEventType.COMPLETED ) ) l_dest.set( true );
-            } );
-            if ( !l_dest.get() ) destinationReach( p_pod );
+            if ( !p_pod.history().has( EEventType.COMPLETED ) ) destinationReach( p_pod );
         }
     }
 
@@ -137,18 +129,10 @@ public class CEdgeEnd
     {
         m_pods.forEach( p ->
         {
-            final AtomicBoolean l_dest = new AtomicBoolean( false );
-            if ( ( p.platooning() ) && ( p.companions().isEmpty() ) )
-            {
-                //if the last event is not a split after a formed was registere
-                //creates and registers a split
-                p.events().forEach( e ->
-                {
-                    if ( e.what().equals( EEventType.FORMED ) ) l_dest.set( true );
-                    if ( e.what().equals( EEventType.SPLIT ) ) l_dest.set( false );
-                } );
-            }
-            if ( l_dest.get() ) p.split( p.location(), m_time );
+            //if the last event is not a split after a formed was registered
+            //creates and registers a split
+            if ( ( p.platooning() ) && ( p.companions().isEmpty() ) && ( p.history().after( EEventType.FORMED, EEventType.SPLIT ) ) )
+                p.split( p.location(), m_time );
         } );
     }
 }
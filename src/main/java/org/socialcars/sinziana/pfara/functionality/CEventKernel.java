@@ -0,0 +1,316 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.CStoplightRegistry;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.environment.IStoplight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * discrete-event simulation kernel
+ * instead of stepping every vehicle and light in every timestep,
+ * the next departure, arrival and delay expiry are kept in a priority queue, the next light switch
+ * is taken from the stoplight registry, and the simulation jumps straight to the next timestep in which something happens,
+ * lights are only updated when they switch, so their state is looked up by timestep
+ *
+ * a vehicle's movement on an edge only depends on the vehicle and the edge,
+ * so it is stepped in one go at departure to find the timestep of arrival,
+ * the vehicles act in the same timesteps and order as in the stepped simulation
+ *
+ * every timestep has two phases, the events are handled sequentially in vehicle order
+ * and the movements of the departed vehicles are then stepped in parallel on a fork-join pool,
+ * the arrivals are committed sequentially again so the results do not depend on the threads
+ */
+public final class CEventKernel
+{
+    /**
+     * below this number of departures the movement is stepped sequentially
+     */
+    private static final int PARALLEL = 64;
+
+    private final ArrayList<CVehicle> m_vehicles;
+    private final HashMap<CVehicle, List<IEdge>> m_routes;
+    private final CStoplightRegistry m_stoplights;
+    private final CSimulationState m_state;
+    private final IEventHandler m_handler;
+    private final ForkJoinPool m_pool;
+    private final int m_parallel;
+
+    private final PriorityQueue<CEntry> m_queue = new PriorityQueue<>();
+    private final IEdge[] m_edges;
+    private final int[] m_departed;
+    private final int[] m_arrivals;
+    private int m_departures;
+
+    private int m_time;
+    private long m_events;
+
+    /**
+     * ctor
+     * @param p_vehicles the vehicles, their index is their order within a timestep
+     * @param p_routes the routes of the vehicles
+     * @param p_stoplights the started stoplights, empty if there are none
+     * @param p_state the lifecycle state of the vehicles, kept up to date by the kernel
+     * @param p_handler the actions of the experiment
+     * @param p_time the first timestep
+     */
+    public CEventKernel( final ArrayList<CVehicle> p_vehicles, final HashMap<CVehicle, List<IEdge>> p_routes,
+                         final List<? extends IStoplight> p_stoplights, final CSimulationState p_state, final IEventHandler p_handler, final Integer p_time )
+    {
+        this( p_vehicles, p_routes, p_stoplights, p_state, p_handler, p_time, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * ctor
+     * @param p_vehicles the vehicles, their index is their order within a timestep
+     * @param p_routes the routes of the vehicles
+     * @param p_stoplights the started stoplights, empty if there are none
+     * @param p_state the lifecycle state of the vehicles, kept up to date by the kernel
+     * @param p_handler the actions of the experiment
+     * @param p_time the first timestep
+     * @param p_pool the pool the movement is stepped on, null for sequential movement
+     */
+    public CEventKernel( final ArrayList<CVehicle> p_vehicles, final HashMap<CVehicle, List<IEdge>> p_routes,
+                         final List<? extends IStoplight> p_stoplights, final CSimulationState p_state, final IEventHandler p_handler, final Integer p_time,
+                         final ForkJoinPool p_pool )
+    {
+        this( p_vehicles, p_routes, p_stoplights, p_state, p_handler, p_time, p_pool, PARALLEL );
+    }
+
+    /**
+     * ctor
+     * @param p_vehicles the vehicles, their index is their order within a timestep
+     * @param p_routes the routes of the vehicles
+     * @param p_stoplights the started stoplights, empty if there are none
+     * @param p_state the lifecycle state of the vehicles, kept up to date by the kernel
+     * @param p_handler the actions of the experiment
+     * @param p_time the first timestep
+     * @param p_pool the pool the movement is stepped on, null for sequential movement
+     * @param p_parallel the number of departures from which the movement is stepped on the pool
+     */
+    CEventKernel( final ArrayList<CVehicle> p_vehicles, final HashMap<CVehicle, List<IEdge>> p_routes,
+                  final List<? extends IStoplight> p_stoplights, final CSimulationState p_state, final IEventHandler p_handler, final Integer p_time,
+                  final ForkJoinPool p_pool, final int p_parallel )
+    {
+        m_pool = p_pool;
+        m_parallel = p_parallel;
+        m_vehicles = p_vehicles;
+        m_routes = p_routes;
+        m_stoplights = new CStoplightRegistry( p_stoplights, p_time );
+        m_state = p_state;
+        m_handler = p_handler;
+        m_time = p_time;
+        m_edges = new IEdge[p_vehicles.size()];
+        m_departed = new int[p_vehicles.size()];
+        m_arrivals = new int[p_vehicles.size()];
+
+        for ( int i = 0; i < m_vehicles.size(); i++ )
+            wake( i, p_time );
+    }
+
+    /**
+     * runs the simulation until all vehicles completed their route
+     * @return the timestep after the last one
+     */
+    public Integer run()
+    {
+        while ( ( !m_state.finished() ) && ( !m_queue.isEmpty() ) )
+        {
+            //lights switching before the next vehicle event are updated on their own
+            m_time = Math.min( m_queue.peek().m_time, m_stoplights.nextSwitch() );
+            m_events += m_stoplights.advance( m_time );
+            if ( m_queue.peek().m_time > m_time ) continue;
+
+            boolean l_active = false;
+            boolean l_arrived = false;
+            //vehicles crossing an edge within the timestep arrive in a second round
+            do
+            {
+                while ( ( !m_queue.isEmpty() ) && ( m_queue.peek().m_time == m_time ) )
+                {
+                    final CEntry l_entry = m_queue.poll();
+                    m_events++;
+                    if ( !l_active )
+                    {
+                        m_handler.timestep( m_time );
+                        l_active = true;
+                    }
+
+                    if ( l_entry.m_type == ESimulationEvent.ARRIVAL )
+                    {
+                        arrive( l_entry.m_index );
+                        l_arrived = true;
+                    }
+                    else depart( l_entry.m_index );
+                }
+                travel();
+            } while ( ( !m_queue.isEmpty() ) && ( m_queue.peek().m_time == m_time ) );
+            if ( l_arrived ) m_handler.edgeEnd( m_time );
+        }
+        return m_time + 1;
+    }
+
+    /**
+     * number of events handled so far
+     * @return the number of events
+     */
+    public long events()
+    {
+        return m_events;
+    }
+
+    /**
+     * the lifecycle state of the vehicles
+     * @return the state
+     */
+    public CSimulationState state()
+    {
+        return m_state;
+    }
+
+    /**
+     * schedules the next action of a vehicle standing at a node,
+     * completing or departing once its delay ran out
+     * @param p_index the vehicle index
+     * @param p_time the first timestep in which the vehicle acts
+     */
+    private void wake( final int p_index, final int p_time )
+    {
+        final CVehicle l_vehicle = m_vehicles.get( p_index );
+        if ( ( m_routes.get( l_vehicle ).isEmpty() ) || ( l_vehicle.getDelay() <= 0 ) )
+            m_queue.add( new CEntry( p_time, ESimulationEvent.DEPARTURE, p_index ) );
+        else
+            m_queue.add( new CEntry( p_time + l_vehicle.getDelay(), ESimulationEvent.DELAYEXPIRY, p_index ) );
+    }
+
+    /**
+     * a vehicle at a node completes or departs,
+     * its movement is stepped once all events of the timestep are handled
+     * @param p_index the vehicle index
+     */
+    private void depart( final int p_index )
+    {
+        final CVehicle l_vehicle = m_vehicles.get( p_index );
+        final List<IEdge> l_route = m_routes.get( l_vehicle );
+        if ( l_route.isEmpty() )
+        {
+            m_state.set( p_index, EVehicleState.COMPLETE );
+            return;
+        }
+
+        //one decrement for every timestep waited
+        while ( l_vehicle.getDelay() > 0 ) l_vehicle.updateDelay();
+
+        final IEdge l_edge = l_route.iterator().next();
+        m_handler.depart( l_vehicle, l_edge, m_time );
+        m_edges[p_index] = l_edge;
+        m_state.set( p_index, EVehicleState.ACTIVE );
+        m_departed[m_departures++] = p_index;
+    }
+
+    /**
+     * steps the movement of the vehicles departed in this timestep,
+     * in parallel if there are enough of them,
+     * and schedules their arrivals in vehicle order
+     */
+    private void travel()
+    {
+        if ( ( m_pool != null ) && ( m_departures >= m_parallel ) )
+        {
+            final int l_departures = m_departures;
+            m_pool.submit( () -> IntStream.range( 0, l_departures ).parallel().forEach( i -> cross( m_departed[i] ) ) ).join();
+        }
+        else
+            for ( int i = 0; i < m_departures; i++ )
+                cross( m_departed[i] );
+
+        for ( int i = 0; i < m_departures; i++ )
+            m_queue.add( new CEntry( m_arrivals[m_departed[i]], ESimulationEvent.ARRIVAL, m_departed[i] ) );
+        m_departures = 0;
+    }
+
+    /**
+     * steps a vehicle over its whole edge to find the timestep of arrival,
+     * only touches the vehicle itself so it can run concurrently to other vehicles
+     * @param p_index the vehicle index
+     */
+    private void cross( final int p_index )
+    {
+        final CVehicle l_vehicle = m_vehicles.get( p_index );
+        final IEdge l_edge = m_edges[p_index];
+        int l_arrival = m_time;
+        while ( l_vehicle.position().doubleValue() < l_edge.length() )
+        {
+            m_handler.move( l_vehicle, l_edge );
+            l_arrival++;
+        }
+        m_arrivals[p_index] = l_arrival;
+    }
+
+    /**
+     * a vehicle reaches the end of its edge
+     * @param p_index the vehicle index
+     */
+    private void arrive( final int p_index )
+    {
+        final CVehicle l_vehicle = m_vehicles.get( p_index );
+        m_handler.arrive( l_vehicle, m_edges[p_index], m_time );
+        m_edges[p_index] = null;
+        m_state.set( p_index, EVehicleState.IDLE );
+        wake( p_index, m_time + 1 );
+    }
+
+    /**
+     * an event in the queue,
+     * ordered by time and index
+     */
+    private static final class CEntry implements Comparable<CEntry>
+    {
+        private final int m_time;
+        private final ESimulationEvent m_type;
+        private final int m_index;
+
+        /**
+         * ctor
+         * @param p_time the timestep
+         * @param p_type the event type
+         * @param p_index the vehicle index
+         */
+        CEntry( final int p_time, final ESimulationEvent p_type, final int p_index )
+        {
+            m_time = p_time;
+            m_type = p_type;
+            m_index = p_index;
+        }
+
+        @Override
+        public int compareTo( final CEntry p_other )
+        {
+            if ( m_time != p_other.m_time ) return Integer.compare( m_time, p_other.m_time );
+            //vehicles in their list order
+            return Integer.compare( m_index, p_other.m_index );
+        }
+    }
+}
@@ -22,7 +22,10 @@ import gurobi.GRBException;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.optimisation.CLabellingPSPP;
 import org.socialcars.sinziana.pfara.optimisation.CPSPP;
+import org.socialcars.sinziana.pfara.optimisation.ESolverType;
+import org.socialcars.sinziana.pfara.optimisation.IPSPP;
 import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.util.ArrayList;
@@ -33,11 +36,46 @@ import java.util.HashMap;
  */
 public class COptimiser
 {
-    private final CPSPP m_opt;
+    private final IPSPP m_opt;
 
+    /**
+     * ctor
+     * solves with gurobi
+     * @param p_env the environment
+     * @param p_origin the origin node
+     * @param p_vehicles the vehicles
+     * @param p_unit the transformation unit
+     * @param p_omega the platooning subsidisation coefficient
+     * @throws GRBException gurobi
+     */
     public COptimiser( final CGraph p_env, final Integer p_origin, final ArrayList<CVehicle> p_vehicles, final CUnits p_unit, final Double p_omega ) throws GRBException
     {
-        m_opt = new CPSPP( p_env, p_origin, p_vehicles, p_unit, p_omega );
+        this( p_env, p_origin, p_vehicles, p_unit, p_omega, ESolverType.GUROBI );
+    }
+
+    /**
+     * ctor
+     * @param p_env the environment
+     * @param p_origin the origin node
+     * @param p_vehicles the vehicles
+     * @param p_unit the transformation unit
+     * @param p_omega the platooning subsidisation coefficient
+     * @param p_solver the solver used
+     * @throws GRBException gurobi
+     */
+    public COptimiser( final CGraph p_env, final Integer p_origin, final ArrayList<CVehicle> p_vehicles, final CUnits p_unit, final Double p_omega,
+                       final ESolverType p_solver ) throws GRBException
+    {
+        switch ( p_solver )
+        {
+            case LABELLING:
+                m_opt = new CLabellingPSPP( p_env, p_origin, p_vehicles, p_unit, p_omega );
+                break;
+            case GUROBI:
+            default:
+                m_opt = new CPSPP( p_env, p_origin, p_vehicles, p_unit, p_omega );
+                break;
+        }
         m_opt.solve();
     }
 
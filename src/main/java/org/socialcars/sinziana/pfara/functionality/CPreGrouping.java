@@ -21,13 +21,17 @@ import org.socialcars.sinziana.pfara.agents.CVehicle;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.ELightState;
 import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.optimisation.ESolverType;
 import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
@@ -35,77 +39,139 @@ import java.util.stream.IntStream;
 /**
  * class for pre-sorting vehicles
  * on location, speed and light-cycle
+ *
+ * keeps the vehicles waiting at every node,
+ * the arriving and departing vehicles are fed in and only the nodes they arrived at or left are regrouped
  */
 public class CPreGrouping
 {
     private final ArrayList<CVehicle> m_pods;
     private final CGraph m_env;
     private final CUnits m_unit;
-    private final Integer m_time;
+    private Integer m_time;
     private HashMap<CVehicle, List<IEdge>> m_routes;
     private final Boolean m_mikro;
     private final Boolean m_opt;
     private final Double m_omega;
+    private final ESolverType m_solver;
+
+    private final HashMap<CVehicle, Integer> m_index = new HashMap<>();
+    private final HashMap<String, BitSet> m_waiting = new HashMap<>();
+    private final String[] m_nodes;
+    private final Set<String> m_affected = new HashSet<>();
 
     /**
      * ctor
-     * triggers the platoon-matching algorithm
+     * registers the vehicles standing at nodes,
+     * all their nodes are grouped at the next call of group
      * @param p_pods pods
      * @param p_env environment
      * @param p_unit unit
      * @param p_routes routes
-     * @param p_time time
+     * @param p_mikro microscopic movement
+     * @param p_opt whether the optimiser is used
+     * @param p_omega the platooning coefficient
      */
     public CPreGrouping( final ArrayList<CVehicle> p_pods, final CGraph p_env, final CUnits p_unit, final HashMap<CVehicle, List<IEdge>> p_routes,
-                         final Integer p_time, final Boolean p_mikro, final Boolean p_opt, final Double p_omega )
+                         final Boolean p_mikro, final Boolean p_opt, final Double p_omega )
     {
+        this( p_pods, p_env, p_unit, p_routes, p_mikro, p_opt, p_omega, ESolverType.GUROBI );
+    }
+
+    /**
+     * ctor
+     * registers the vehicles standing at nodes,
+     * all their nodes are grouped at the next call of group
+     * @param p_pods pods
+     * @param p_env environment
+     * @param p_unit unit
+     * @param p_routes routes
+     * @param p_mikro microscopic movement
+     * @param p_opt whether the optimiser is used
+     * @param p_omega the platooning coefficient
+     * @param p_solver the solver used by the optimiser
+     */
+    public CPreGrouping( final ArrayList<CVehicle> p_pods, final CGraph p_env, final CUnits p_unit, final HashMap<CVehicle, List<IEdge>> p_routes,
+                         final Boolean p_mikro, final Boolean p_opt, final Double p_omega, final ESolverType p_solver )
+    {
+        m_solver = p_solver;
         m_pods = p_pods;
         m_env = p_env;
         m_unit = p_unit;
         m_routes = p_routes;
-        m_time = p_time;
         m_mikro = p_mikro;
         m_opt = p_opt;
         m_omega = p_omega;
-        checkforPlatoon();
+        m_nodes = new String[p_pods.size()];
+        IntStream.range( 0, m_pods.size() ).forEach( i ->
+        {
+            m_index.put( m_pods.get( i ), i );
+            if ( m_pods.get( i ).position().equals( 0.0 ) ) arrived( m_pods.get( i ) );
+        } );
+    }
+
+    /**
+     * registers a vehicle that arrived at a node,
+     * the node is regrouped at the next call of group
+     * @param p_pod the vehicle
+     */
+    public void arrived( final CVehicle p_pod )
+    {
+        if ( p_pod.location().contentEquals( p_pod.destination() ) ) return;
+        departed( p_pod );
+        final int l_index = m_index.get( p_pod );
+        m_nodes[l_index] = p_pod.location();
+        m_waiting.computeIfAbsent( p_pod.location(), n -> new BitSet() ).set( l_index );
+        m_affected.add( p_pod.location() );
     }
 
     /**
-     * groups the vehicles by their location
-     * the node where they are currently
+     * removes a vehicle that left its node,
+     * the node is regrouped at the next call of group, as the vehicles left behind may need a new platoon
+     * @param p_pod the vehicle
      */
-    private void checkforPlatoon()
+    public void departed( final CVehicle p_pod )
     {
-        final ArrayList<CVehicle> l_platooners = new ArrayList<>();
-        IntStream.range( 0, m_pods.size() ).boxed().forEach( i ->
+        final int l_index = m_index.get( p_pod );
+        if ( m_nodes[l_index] == null ) return;
+        m_waiting.get( m_nodes[l_index] ).clear( l_index );
+        m_affected.add( m_nodes[l_index] );
+        m_nodes[l_index] = null;
+    }
+
+    /**
+     * triggers the platoon-matching algorithm
+     * at the nodes vehicles arrived at or left since the last call
+     * @param p_time time
+     */
+    public void group( final Integer p_time )
+    {
+        m_time = p_time;
+        final ArrayList<String> l_nodes = new ArrayList<>( m_affected );
+        m_affected.clear();
+        //nodes in the order of their first waiting vehicle
+        l_nodes.sort( Comparator.comparingInt( n -> m_waiting.get( n ).nextSetBit( 0 ) ) );
+        l_nodes.forEach( this::checkforPlatoon );
+    }
+
+    /**
+     * groups the vehicles waiting at a node
+     * @param p_node the node name
+     */
+    private void checkforPlatoon( final String p_node )
+    {
+        final ArrayList<CVehicle> l_platoon = new ArrayList<>();
+        m_waiting.get( p_node ).stream().forEach( i ->
         {
-            //if the vehicle was not already grouped, is at a node and not at its destination
-            if ( ( !l_platooners.contains( m_pods.get( i ) ) )
-                    && ( m_pods.get( i ).position().equals( 0.0 ) )
+            //if the vehicle is still at the node and not at its destination
+            if ( ( m_pods.get( i ).position().equals( 0.0 ) )
+                    && ( m_pods.get( i ).location().contentEquals( p_node ) )
                     && ( !m_pods.get( i ).location().contentEquals( m_pods.get( i ).destination() ) ) )
-            {
-                //create a new platooning group
-                final HashSet<CVehicle> l_platoon = new HashSet<>();
                 l_platoon.add( m_pods.get( i ) );
-                //find all the other vehicles at the same position
-                //that were not already grouped and not at their destination
-                IntStream.range( i + 1, m_pods.size() ).boxed().forEach( j ->
-                {
-                    if ( ( m_pods.get( j ).position().equals( 0.0 ) )
-                            & ( m_pods.get( j ).location().contentEquals( m_pods.get( i ).location() ) )
-                            & ( !m_pods.get( j ).destination().contentEquals( m_pods.get( j ).location() ) )
-                            & ( !l_platooners.contains( m_pods.get( j ) ) ) )
-                        l_platoon.add( m_pods.get( j ) );
-                } );
-                //if there are more than 2 vehicles in a group,
-                //move to step 2
-                if ( l_platoon.size() > 1 )
-                {
-                    l_platooners.addAll( l_platoon );
-                    checkforPlatoonStage2( l_platoon );
-                }
-            }
         } );
+        //if there are more than 2 vehicles in a group,
+        //move to step 2
+        if ( l_platoon.size() > 1 ) checkforPlatoonStage2( l_platoon );
     }
 
     /**
@@ -115,7 +181,7 @@ public class CPreGrouping
      * based on their possible minimum speed
      * ensuring that they can drive together in a platoon and no vehicle gets left behind
      */
-    private void checkforPlatoonStage2( final HashSet<CVehicle> p_platoon )
+    private void checkforPlatoonStage2( final ArrayList<CVehicle> p_platoon )
     {
         final ArrayList<CVehicle> l_pl = new ArrayList<>( p_platoon );
         if ( !platoonIntact( l_pl ) )
@@ -195,7 +261,7 @@ public class CPreGrouping
         {
             if ( p.getLastEdge() != null )
             {
-                if ( ( p.getLastEdge().stoplight() != null ) && ( p.getLastEdge().stoplight().state().equals( ELightState.RED ) ) ) l_red.add( p );
+                if ( ( p.getLastEdge().stoplight() != null ) && ( p.getLastEdge().stoplight().state( m_time ) == ELightState.RED ) ) l_red.add( p );
                 else l_green.add( p );
             }
             else l_green.add( p );
@@ -217,7 +283,7 @@ public class CPreGrouping
             try
             {
                 final COptimiser l_opt = new COptimiser( m_env, Integer.valueOf( p_vehicles.get( k ).iterator().next().location() ),
-                        p_vehicles.get( k ), m_unit, m_omega );
+                        p_vehicles.get( k ), m_unit, m_omega, m_solver );
                 final HashMap<CVehicle, ArrayList<IEdge>> l_platroutes = l_opt.getRoutes();
                 final HashMap<IEdge, ArrayList<CVehicle>> l_clusters = platoonSort1( l_platroutes );
                 if ( checkFlagged( l_opt.getFlagged(), l_platroutes, l_opt.getNP(), l_clusters ) )
@@ -50,6 +50,7 @@ public class CReadBackground
 
     /**
      * returns hashmap structure containing the background info of a graph
+     * the background is also attached to the edges
      * @return Hashmap of edges and background
      */
     public HashMap<IEdge, CBackground> getBackground( final String p_file )
@@ -73,6 +74,7 @@ public class CReadBackground
                 }
                 final CBackground l_cbg = new CBackground( Double.parseDouble( l_word.get( 1 ) ), Double.parseDouble( l_word.get( 2 ) ) );
                 final IEdge l_iedge = m_env.edgeByName( l_edge.toString() );
+                if ( l_iedge != null ) l_iedge.addBackgroundTraffic( l_cbg );
                 l_storing.put( l_iedge, l_cbg );
             }
         }
@@ -87,6 +89,7 @@ public class CReadBackground
             if ( l_storing.get( e ) == null )
             {
                 final CBackground l_cbg = new CBackground( 0.0, 1.0 );
+                e.addBackgroundTraffic( l_cbg );
                 l_storing.put( e, l_cbg );
             }
         } );
@@ -0,0 +1,139 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * the lifecycle state of all vehicles of a simulation, indexed by their position in the vehicle list
+ * idle vehicles stand at a node, active vehicles travel on an edge
+ * and complete vehicles have no more route,
+ * every state keeps the set of its vehicles and their count,
+ * completions are also kept in the order they happened
+ */
+public final class CSimulationState
+{
+    private final EVehicleState[] m_states;
+    private final BitSet[] m_sets;
+    private final int[] m_counts;
+    private final int[] m_completions;
+
+    /**
+     * ctor
+     * all vehicles start idle
+     * @param p_vehicles the number of vehicles
+     */
+    public CSimulationState( final int p_vehicles )
+    {
+        m_states = new EVehicleState[p_vehicles];
+        m_sets = new BitSet[EVehicleState.values().length];
+        m_counts = new int[EVehicleState.values().length];
+        m_completions = new int[p_vehicles];
+        for ( int i = 0; i < m_sets.length; i++ )
+            m_sets[i] = new BitSet( p_vehicles );
+
+        Arrays.fill( m_states, EVehicleState.IDLE );
+        m_sets[EVehicleState.IDLE.ordinal()].set( 0, p_vehicles );
+        m_counts[EVehicleState.IDLE.ordinal()] = p_vehicles;
+    }
+
+    /**
+     * changes the state of a vehicle
+     * @param p_index the vehicle index
+     * @param p_state the new state
+     */
+    public void set( final int p_index, final EVehicleState p_state )
+    {
+        final EVehicleState l_old = m_states[p_index];
+        if ( l_old == p_state ) return;
+        m_sets[l_old.ordinal()].clear( p_index );
+        m_counts[l_old.ordinal()]--;
+        m_sets[p_state.ordinal()].set( p_index );
+        m_counts[p_state.ordinal()]++;
+        m_states[p_index] = p_state;
+        if ( p_state == EVehicleState.COMPLETE ) m_completions[m_counts[p_state.ordinal()] - 1] = p_index;
+    }
+
+    /**
+     * the state of a vehicle
+     * @param p_index the vehicle index
+     * @return the state
+     */
+    public EVehicleState state( final int p_index )
+    {
+        return m_states[p_index];
+    }
+
+    /**
+     * number of vehicles in a state
+     * @param p_state the state
+     * @return the number of vehicles
+     */
+    public int count( final EVehicleState p_state )
+    {
+        return m_counts[p_state.ordinal()];
+    }
+
+    /**
+     * vehicle that completed its route in a given order
+     * @param p_order the position in the order of completions, less than the number of complete vehicles
+     * @return the vehicle index
+     */
+    public int completion( final int p_order )
+    {
+        return m_completions[p_order];
+    }
+
+    /**
+     * number of vehicles that did not complete their route
+     * @return the number of vehicles
+     */
+    public int remaining()
+    {
+        return m_states.length - m_counts[EVehicleState.COMPLETE.ordinal()];
+    }
+
+    /**
+     * whether all vehicles completed their route
+     * @return true if no vehicle remains
+     */
+    public boolean finished()
+    {
+        return remaining() == 0;
+    }
+
+    /**
+     * the vehicles in a state
+     * @param p_state the state
+     * @return the vehicle indices in increasing order
+     */
+    public IntStream vehicles( final EVehicleState p_state )
+    {
+        return m_sets[p_state.ordinal()].stream();
+    }
+
+    /**
+     * number of vehicles
+     * @return the number of vehicles
+     */
+    public int size()
+    {
+        return m_states.length;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+
+/**
+ * the actions of an experiment driven by the event kernel
+ */
+public interface IEventHandler
+{
+    /**
+     * called once for every timestep in which vehicles act,
+     * before any of them does
+     * @param p_time the timestep
+     */
+    void timestep( final Integer p_time );
+
+    /**
+     * a vehicle leaves its node
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it enters
+     * @param p_time the timestep
+     */
+    void depart( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time );
+
+    /**
+     * moves a vehicle for one timestep,
+     * may be called concurrently for different vehicles
+     * so it must only change the vehicle itself
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it is travelling on
+     */
+    void move( final CVehicle p_vehicle, final IEdge p_edge );
+
+    /**
+     * a vehicle reaches the end of its edge
+     * @param p_vehicle the vehicle
+     * @param p_edge the edge it travelled on
+     * @param p_time the timestep
+     */
+    void arrive( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time );
+
+    /**
+     * called after all vehicles acted in a timestep
+     * in which at least one vehicle arrived at a node
+     * @param p_time the timestep
+     */
+    void edgeEnd( final Integer p_time );
+}
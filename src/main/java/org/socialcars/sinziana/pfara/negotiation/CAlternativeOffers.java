@@ -23,10 +23,13 @@ import org.socialcars.sinziana.pfara.environment.INode;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
  * the alternative offer protocol class
+ * haggling offers are posted to the mailbox of their negotiation
+ * and delivered one per negotiation and round by step
  */
 public class CAlternativeOffers implements IProtocol
 {
@@ -37,7 +40,8 @@ public class CAlternativeOffers implements IProtocol
     private final HashMap<CVehicle, List<IEdge>> m_routes;
     private Integer m_time;
     private final Integer m_deadline;
-    private Integer m_roundcount;
+    private final LinkedHashMap<String, CMailbox> m_mailboxes;
+    private CMailbox m_current;
 
     /**
      * ctor
@@ -52,7 +56,7 @@ public class CAlternativeOffers implements IProtocol
         m_offers = new HashMap<>();
         m_routes = p_routes;
         m_deadline = p_deadline;
-        m_roundcount = 0;
+        m_mailboxes = new LinkedHashMap<>();
     }
 
     /**
@@ -91,6 +95,8 @@ public class CAlternativeOffers implements IProtocol
                 final List<IEdge> l_newroute = m_env.route( p.destination(), p_offer.route() );
                 final CCompleteOffer l_newoffer = new CCompleteOffer( p_offeror, p_offer, p, l_newroute );
                 m_offers.put( l_newoffer.id(), l_newoffer );
+                m_current = new CMailbox( l_newoffer );
+                m_mailboxes.put( l_newoffer.id(), m_current );
                 try
                 {
                     p.receiveOffer( new CInitialOffer( l_newoffer.id(), l_newoffer.savings() + p_offer.buyout(), l_newroute ), m_routes.get( p ) );
@@ -101,52 +107,96 @@ public class CAlternativeOffers implements IProtocol
                 }
             }
         } );
+        m_current = null;
     }
 
 
     /**
      * funtion for the haggling process
+     * the offer is posted to the other vehicle and delivered in the next round
      * @param p_responder the vehicle sending the haggling offer
      * @param p_offer the offer
-     * @throws IOException file exception
      */
-    public void haggle( final CVehicle p_responder, final CSimpleOffer p_offer ) throws IOException
+    @Override
+    public void haggle( final CVehicle p_responder, final CSimpleOffer p_offer )
     {
-        if ( m_roundcount < m_deadline )
+        final CMailbox l_mailbox = m_mailboxes.get( p_offer.id() );
+        if ( l_mailbox == null ) return;
+        if ( l_mailbox.round() < m_deadline )
         {
-            m_roundcount++;
-            final CCompleteOffer l_io = m_offers.get( p_offer.id() );
+            l_mailbox.nextRound();
+            final CCompleteOffer l_io = l_mailbox.offer();
             if ( l_io.acceptor().equals( p_responder ) )
             {
                 l_io.changeBuyout( p_offer.buyout() - l_io.savings() );
                 p_offer.changeBuyout( l_io.buyout() );
-                l_io.offeror().haggle( p_offer );
+                l_mailbox.post( l_io.offeror(), p_offer );
             }
             else
             {
                 l_io.changeBuyout( p_offer.buyout() );
                 p_offer.changeBuyout( l_io.buyout() + l_io.savings() );
-                l_io.acceptor().haggle( p_offer );
+                l_mailbox.post( l_io.acceptor(), p_offer );
             }
-
         }
-        else
+        else close( l_mailbox );
+    }
+
+    /**
+     * plays one round, the next offer of every open negotiation is delivered,
+     * negotiations with nothing left to deliver are finished
+     * @return whether negotiations are still open
+     */
+    @Override
+    public boolean step()
+    {
+        new ArrayList<>( m_mailboxes.values() ).forEach( m ->
         {
-            final CCompleteOffer l_co = m_offers.get( p_offer.id() );
-            l_co.offeror().release( this );
-            l_co.acceptor().release( this );
-            l_co.close();
-        }
+            final CMailbox.CMessage l_message = m.poll();
+            if ( l_message == null ) return;
+            //a vehicle released by another negotiation of the node cannot answer
+            if ( !l_message.recipient().negotiating() )
+            {
+                close( m );
+                return;
+            }
+            m_current = m;
+            try
+            {
+                l_message.recipient().haggle( l_message.offer() );
+            }
+            catch ( final IOException l_err )
+            {
+                l_err.printStackTrace();
+            }
+        } );
+        m_current = null;
+        m_mailboxes.values().removeIf( CMailbox::isEmpty );
+        return !m_mailboxes.isEmpty();
+    }
 
+    /**
+     * closes a negotiation without agreement
+     * @param p_mailbox the mailbox of the negotiation
+     */
+    private void close( final CMailbox p_mailbox )
+    {
+        final CCompleteOffer l_co = p_mailbox.offer();
+        l_co.offeror().release( this );
+        l_co.acceptor().release( this );
+        l_co.close();
+        m_mailboxes.remove( l_co.id() );
     }
 
     /**
      * gets the round counter
+     * of the negotiation currently played
      * @return round counter
      */
+    @Override
     public Integer getRoundCounter()
     {
-        return m_roundcount;
+        return m_current == null ? 0 : m_current.round();
     }
 
     /**
@@ -154,6 +204,7 @@ public class CAlternativeOffers implements IProtocol
      * the maximum number of rounds
      * @return the deadline
      */
+    @Override
     public Integer getDeadline()
     {
         return m_deadline;
@@ -178,6 +229,7 @@ public class CAlternativeOffers implements IProtocol
         {
             l_co.changeBuyout( p_offer.buyout() );
         }
+        m_mailboxes.remove( l_co.id() );
         m_routes.replace( l_co.acceptor(), l_co.alternativeRoute() );
         l_co.offeror().acceptUpdateCost( l_co.buyout() );
         l_co.offeror().release( this );
@@ -203,7 +255,8 @@ public class CAlternativeOffers implements IProtocol
         l_co.reject();
         l_co.offeror().release( this );
         l_co.acceptor().release( this );
-        m_offers.remove( l_co );
+        m_offers.remove( l_co.id() );
+        m_mailboxes.remove( l_co.id() );
     }
 
     /**
@@ -218,7 +271,8 @@ public class CAlternativeOffers implements IProtocol
         l_co.reject();
         l_co.offeror().release( this );
         l_co.acceptor().release( this );
-        m_offers.remove( l_co );
+        m_offers.remove( l_co.id() );
+        m_mailboxes.remove( l_co.id() );
     }
 
     /**
@@ -24,6 +24,11 @@ import java.util.ArrayList;
 
 public class CBiddingModule implements IBiddingModule
 {
+    /**
+     * number of samples of the payment limit distribution
+     */
+    private static final int SAMPLES = 100;
+
     private final String m_type;
     private Double m_strategy;
     private final Double m_firstbid;
@@ -33,10 +38,22 @@ public class CBiddingModule implements IBiddingModule
     private Integer m_round;
 
     private final CProbGenerator m_probgen;
-    private CRVtoAccProb m_rvtoacc;
+    private final CRVtoAccProb m_rvtoacc;
     private final CSimultaneousSearch m_ss;
 
     public CBiddingModule( final String p_type, final Double p_firstbid, final Integer p_deadline )
+    {
+        this( p_type, p_firstbid, p_deadline, System.nanoTime() );
+    }
+
+    /**
+     * ctor
+     * @param p_type the type of the negotiator (initiator/acceptor)
+     * @param p_firstbid the first bid
+     * @param p_deadline the deadline
+     * @param p_seed the seed of the payment limit samples
+     */
+    public CBiddingModule( final String p_type, final Double p_firstbid, final Integer p_deadline, final long p_seed )
     {
         m_type = p_type;
         m_strategy = 1.0;
@@ -46,7 +63,8 @@ public class CBiddingModule implements IBiddingModule
         m_offers = new ArrayList<>();
         m_round = 0;
 
-        m_probgen = new CProbGenerator();
+        m_probgen = new CProbGenerator( p_seed );
+        m_rvtoacc = new CRVtoAccProb( m_type, m_strategy, m_firstbid, m_deadline, new double[SAMPLES] );
         m_ss = new CSimultaneousSearch();
     }
 
@@ -61,9 +79,8 @@ public class CBiddingModule implements IBiddingModule
     public Double getBestBid( final ArrayList<Double> p_bids, final Integer p_time, final Double p_rv )
     {
         //generates the opponets payment limit(RV) distribution
-        final ArrayList<Double> l_rvs = m_probgen.getDistribution( "normal", 100, p_rv );
-        //transforms the RV distribution to acceptance probability of ego bids
-        m_rvtoacc = new CRVtoAccProb( m_type, m_strategy, m_firstbid, m_deadline, l_rvs );
+        //and transforms it to acceptance probability of ego bids
+        m_rvtoacc.reset( m_strategy, m_probgen.sample( "normal", SAMPLES, p_rv ) );
         //uses the adapted simultaneous search to determine the best bid to make at this point in the negotiation
         m_ss.fromAccProb( m_rvtoacc.calculateForBids( p_bids, p_time ) );
         //chooses the best bid
@@ -71,6 +88,21 @@ public class CBiddingModule implements IBiddingModule
         return l_res.getU();
     }
 
+    /**
+     * gives the best bid in the current round
+     * @param p_bids the candidate bids
+     * @param p_time the current round
+     * @param p_rv opponent's estimated reservation value
+     * @return best offer
+     */
+    @Override
+    public Double getBestBid( final double[] p_bids, final Integer p_time, final Double p_rv )
+    {
+        m_rvtoacc.reset( m_strategy, m_probgen.sample( "normal", SAMPLES, p_rv ) );
+        m_ss.fromAccProb( m_rvtoacc.calculateForBids( p_bids, p_time ) );
+        return m_ss.getBestBid().getU();
+    }
+
     /**
      * updates the opponents perceived strategy
      * @param p_offer the current offer made by the opponent
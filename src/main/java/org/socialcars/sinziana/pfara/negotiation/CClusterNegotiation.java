@@ -0,0 +1,143 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.CEventLog;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.environment.INode;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * negotiates the clusters of vehicles waiting at the nodes,
+ * a vehicle is only part of one cluster, so every cluster negotiates on its own copy of the routes of its vehicles
+ * and the clusters are negotiated in parallel on a fork-join pool,
+ * the changed routes and the logged events are committed in the order of the node names so the results do not depend on the threads
+ */
+public final class CClusterNegotiation
+{
+    /**
+     * below this number of clusters the negotiations run sequentially
+     */
+    private static final int PARALLEL = 4;
+
+    private final CGraph m_env;
+    private final Boolean m_ao;
+    private final Integer m_deadline;
+    private final ForkJoinPool m_pool;
+
+    /**
+     * ctor
+     * @param p_env the environment
+     * @param p_ao true for alternative offers, false for take it or leave it
+     * @param p_deadline the deadline of the alternative offers
+     */
+    public CClusterNegotiation( final CGraph p_env, final Boolean p_ao, final Integer p_deadline )
+    {
+        this( p_env, p_ao, p_deadline, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * ctor
+     * @param p_env the environment
+     * @param p_ao true for alternative offers, false for take it or leave it
+     * @param p_deadline the deadline of the alternative offers
+     * @param p_pool the pool the clusters are negotiated on, null for sequential negotiation
+     */
+    public CClusterNegotiation( final CGraph p_env, final Boolean p_ao, final Integer p_deadline, final ForkJoinPool p_pool )
+    {
+        m_env = p_env;
+        m_ao = p_ao;
+        m_deadline = p_deadline;
+        m_pool = p_pool;
+    }
+
+    /**
+     * negotiates every cluster of at least two vehicles
+     * @param p_clusters the vehicles by the node they wait at
+     * @param p_routes the routes of the vehicles, updated with the agreed routes
+     * @param p_time the current timestep
+     * @return the number of clusters negotiated
+     */
+    public int negotiate( final Map<INode, List<CVehicle>> p_clusters, final HashMap<CVehicle, List<IEdge>> p_routes, final Integer p_time )
+    {
+        final List<INode> l_nodes = p_clusters.keySet().stream()
+                                              .filter( n -> p_clusters.get( n ).size() > 1 )
+                                              .sorted( Comparator.comparing( INode::name ) )
+                                              .collect( Collectors.toList() );
+        final List<HashMap<CVehicle, List<IEdge>>> l_routes = l_nodes.stream()
+                                                                     .map( n -> routes( p_clusters.get( n ), p_routes ) )
+                                                                     .collect( Collectors.toList() );
+
+        final CEventLog.CDeferred[] l_events = new CEventLog.CDeferred[l_nodes.size()];
+        if ( ( m_pool != null ) && ( l_nodes.size() >= PARALLEL ) )
+            m_pool.submit( () -> IntStream.range( 0, l_nodes.size() ).parallel()
+                                          .forEach( i -> l_events[i] = negotiate( l_nodes.get( i ), p_clusters.get( l_nodes.get( i ) ), l_routes.get( i ), p_time ) ) )
+                  .join();
+        else
+            for ( int i = 0; i < l_nodes.size(); i++ )
+                l_events[i] = negotiate( l_nodes.get( i ), p_clusters.get( l_nodes.get( i ) ), l_routes.get( i ), p_time );
+
+        for ( final CEventLog.CDeferred l_deferred : l_events )
+            l_deferred.commit();
+        l_routes.forEach( p_routes::putAll );
+        return l_nodes.size();
+    }
+
+    /**
+     * creates a protocol, sends the first offer
+     * and haggles until the negotiations of the cluster are finished
+     * @param p_node the node
+     * @param p_cluster the vehicles waiting at the node
+     * @param p_routes the routes of the vehicles of the cluster
+     * @param p_time the current timestep
+     * @return the events logged by the negotiation, not committed yet
+     */
+    private CEventLog.CDeferred negotiate( final INode p_node, final List<CVehicle> p_cluster, final HashMap<CVehicle, List<IEdge>> p_routes, final Integer p_time )
+    {
+        return CEventLog.defer( () ->
+        {
+            final IProtocol l_protocol;
+            if ( m_ao ) l_protocol = new CAlternativeOffers( p_cluster, p_node, m_env, p_routes, m_deadline );
+            else l_protocol = new CTakeItOrLeaveIt( p_cluster, p_node, m_env, p_routes );
+            l_protocol.open( p_time );
+            final CVehicle l_vehicle = p_cluster.get( 0 );
+            l_vehicle.sendOffer( p_routes.get( l_vehicle ) );
+            new CNegotiationScheduler().add( l_protocol ).run();
+        } );
+    }
+
+    /**
+     * copies the routes of the vehicles of a cluster
+     * @param p_cluster the vehicles
+     * @param p_routes all routes
+     * @return the routes of the cluster
+     */
+    private static HashMap<CVehicle, List<IEdge>> routes( final List<CVehicle> p_cluster, final HashMap<CVehicle, List<IEdge>> p_routes )
+    {
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        p_cluster.forEach( v -> l_routes.put( v, p_routes.get( v ) ) );
+        return l_routes;
+    }
+}
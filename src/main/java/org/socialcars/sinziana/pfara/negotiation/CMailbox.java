@@ -0,0 +1,133 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+
+import java.util.ArrayDeque;
+
+/**
+ * mailbox of one negotiation between two vehicles,
+ * keeps the haggling offers not yet delivered and the rounds played
+ */
+final class CMailbox
+{
+    private final CCompleteOffer m_offer;
+    private final ArrayDeque<CMessage> m_messages;
+    private int m_round;
+
+    /**
+     * ctor
+     * @param p_offer the offer negotiated
+     */
+    CMailbox( final CCompleteOffer p_offer )
+    {
+        m_offer = p_offer;
+        m_messages = new ArrayDeque<>();
+    }
+
+    /**
+     * the offer negotiated
+     * @return the offer
+     */
+    CCompleteOffer offer()
+    {
+        return m_offer;
+    }
+
+    /**
+     * the number of rounds played
+     * @return the round
+     */
+    int round()
+    {
+        return m_round;
+    }
+
+    /**
+     * starts the next round
+     */
+    void nextRound()
+    {
+        m_round++;
+    }
+
+    /**
+     * posts an offer for a vehicle
+     * @param p_recipient the vehicle the offer is delivered to
+     * @param p_offer the offer
+     */
+    void post( final CVehicle p_recipient, final CSimpleOffer p_offer )
+    {
+        m_messages.add( new CMessage( p_recipient, p_offer ) );
+    }
+
+    /**
+     * takes the next offer to deliver
+     * @return the message, null if there is none
+     */
+    CMessage poll()
+    {
+        return m_messages.poll();
+    }
+
+    /**
+     * whether offers are waiting
+     * @return true if there is nothing to deliver
+     */
+    boolean isEmpty()
+    {
+        return m_messages.isEmpty();
+    }
+
+    /**
+     * an offer with its recipient
+     */
+    static final class CMessage
+    {
+        private final CVehicle m_recipient;
+        private final CSimpleOffer m_offer;
+
+        /**
+         * ctor
+         * @param p_recipient the recipient
+         * @param p_offer the offer
+         */
+        CMessage( final CVehicle p_recipient, final CSimpleOffer p_offer )
+        {
+            m_recipient = p_recipient;
+            m_offer = p_offer;
+        }
+
+        /**
+         * the vehicle the offer is delivered to
+         * @return the recipient
+         */
+        CVehicle recipient()
+        {
+            return m_recipient;
+        }
+
+        /**
+         * the offer
+         * @return the offer
+         */
+        CSimpleOffer offer()
+        {
+            return m_offer;
+        }
+    }
+}
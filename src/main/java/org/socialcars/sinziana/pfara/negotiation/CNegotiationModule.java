@@ -23,15 +23,19 @@ import org.socialcars.sinziana.pfara.units.CUnits;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * the negotiation module class
  */
 public class CNegotiationModule implements INegotiationModule
 {
+    /**
+     * default number of candidate bids of a round
+     */
+    private static final int BIDS = 20;
+
     private EAgentType m_role;
     private final IProtocol m_protocol;
     private Double m_altroutecost;
@@ -45,6 +49,9 @@ public class CNegotiationModule implements INegotiationModule
     private CBiddingModule m_bb;
     private Double m_rvpeak;
     private final Boolean m_mikro;
+    private final SplittableRandom m_random;
+    private final IBidDistribution m_distribution;
+    private final double[] m_bids;
 
     /**
      * ctor
@@ -55,12 +62,47 @@ public class CNegotiationModule implements INegotiationModule
      * @param p_mikro type of movement
      */
     public CNegotiationModule( final IProtocol p_protocol, final CUtility p_utility, final CUnits p_unit, final CPreference p_preference, final Boolean p_mikro )
+    {
+        this( p_protocol, p_utility, p_unit, p_preference, p_mikro, System.nanoTime() );
+    }
+
+    /**
+     * ctor
+     * @param p_protocol the negotiation protocol
+     * @param p_utility the utility of the agent
+     * @param p_unit the transformation unit
+     * @param p_preference the agent's preference
+     * @param p_mikro type of movement
+     * @param p_seed the seed of the negotiation, equal seeds give equal bids
+     */
+    public CNegotiationModule( final IProtocol p_protocol, final CUtility p_utility, final CUnits p_unit, final CPreference p_preference, final Boolean p_mikro,
+                               final long p_seed )
+    {
+        this( p_protocol, p_utility, p_unit, p_preference, p_mikro, p_seed, BIDS, EBidDistribution.UNIFORM );
+    }
+
+    /**
+     * ctor
+     * @param p_protocol the negotiation protocol
+     * @param p_utility the utility of the agent
+     * @param p_unit the transformation unit
+     * @param p_preference the agent's preference
+     * @param p_mikro type of movement
+     * @param p_seed the seed of the negotiation, equal seeds give equal bids
+     * @param p_bidcount the number of candidate bids of a round
+     * @param p_distribution the distribution of the candidate bids
+     */
+    public CNegotiationModule( final IProtocol p_protocol, final CUtility p_utility, final CUnits p_unit, final CPreference p_preference, final Boolean p_mikro,
+                               final long p_seed, final int p_bidcount, final IBidDistribution p_distribution )
     {
         m_protocol = p_protocol;
         m_utility = p_utility;
         m_unit = p_unit;
         m_preference = p_preference;
         m_mikro = p_mikro;
+        m_random = new SplittableRandom( p_seed );
+        m_distribution = p_distribution;
+        m_bids = new double[p_bidcount];
     }
 
     /**
@@ -107,7 +149,7 @@ public class CNegotiationModule implements INegotiationModule
                     if ( l_newutility > l_oldutility )
                     {
                         m_av = m_altroutecost;
-                        m_bb = new CBiddingModule( "Initiator", p_offer.buyout(), m_protocol.getDeadline() );
+                        m_bb = new CBiddingModule( "Initiator", p_offer.buyout(), m_protocol.getDeadline(), m_random.nextLong() );
                         return "haggle";
                     }
                     else return "accept";
@@ -206,7 +248,7 @@ public class CNegotiationModule implements INegotiationModule
     {
         if ( m_lastoffer == null )
         {
-            m_bb = new CBiddingModule( "Acceptor", p_offer.buyout(), m_protocol.getDeadline() );
+            m_bb = new CBiddingModule( "Acceptor", p_offer.buyout(), m_protocol.getDeadline(), m_random.nextLong() );
             m_lastoffer = p_offer.buyout();
         }
         if ( ( m_protocol.getRoundCounter() < m_protocol.getDeadline() ) && ( p_offer.buyout() > m_rv ) || ( m_protocol.getRoundCounter() < m_protocol.getDeadline() * 0.75 ) )
@@ -246,40 +288,48 @@ public class CNegotiationModule implements INegotiationModule
 
     /**
      * calls the bidding module to select the best bid
+     * the candidate bids are drawn from the negotiation's generator into the same buffer every round
      */
     private void chooseBestBid()
     {
-        final ArrayList<Double> l_bids = new ArrayList<>();
-        Iterator<Double> l_it =  new Random().doubles( 0, 1 ).iterator();
         //the agent's payment limit based on the deadline and current round
-        final Double l_lim = Math.abs( m_av - m_rv ) / m_protocol.getDeadline() * m_protocol.getRoundCounter();
+        final double l_lim = Math.abs( m_av - m_rv ) / m_protocol.getDeadline() * m_protocol.getRoundCounter();
         if ( m_rvpeak == null ) m_rvpeak = m_lastoffer;
-        //creates a random generator based on out payment limit
+        //the range of the bids based on our payment limit
+        double l_low = 0;
+        double l_high = 1;
         switch ( m_role )
         {
             case INITIATOR:
-                l_it = new Random().doubles( m_av, m_av + l_lim ).iterator();
+                l_low = m_av;
+                l_high = m_av + l_lim;
                 m_rvpeak -= m_lastoffer / 2;
                 break;
             case ACCEPTOR:
-                l_it = new Random().doubles( m_av - l_lim, m_av ).iterator();
+                l_low = m_av - l_lim;
+                l_high = m_av;
                 m_rvpeak += m_lastoffer / 2;
                 break;
             default:
                 break;
         }
         //creates a number of possible bids
-        while ( l_bids.size() < 20 ) l_bids.add( l_it.next() );
-        Double l_bb = m_bb.getBestBid( l_bids, m_protocol.getRoundCounter(), m_rvpeak );
+        for ( int i = 0; i < m_bids.length; i++ )
+            m_bids[i] = m_distribution.sample( m_random, l_low, l_high );
+        Double l_bb = m_bb.getBestBid( m_bids, m_protocol.getRoundCounter(), m_rvpeak );
         if ( l_bb == 0.0 )
         {
             switch ( m_role )
             {
                 case INITIATOR:
-                    l_bb = l_bids.stream().mapToDouble( d -> d ).max().orElse( m_av );
+                    l_bb = m_bids.length == 0 ? m_av : m_bids[0];
+                    for ( final double l_bid : m_bids )
+                        l_bb = Math.max( l_bb, l_bid );
                     break;
                 case ACCEPTOR:
-                    l_bb = l_bids.stream().mapToDouble( d -> d ).min().orElse( m_av );
+                    l_bb = m_bids.length == 0 ? m_av : m_bids[0];
+                    for ( final double l_bid : m_bids )
+                        l_bb = Math.min( l_bb, l_bid );
                     break;
                 default:
                     break;
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * steps the negotiations of one or more protocols round by round,
+ * every open negotiation gets one delivery per round,
+ * so the stack depth does not grow with the rounds
+ */
+public final class CNegotiationScheduler
+{
+    private final List<IProtocol> m_protocols;
+    private long m_rounds;
+
+    /**
+     * ctor
+     */
+    public CNegotiationScheduler()
+    {
+        m_protocols = new ArrayList<>();
+    }
+
+    /**
+     * adds an opened protocol
+     * @param p_protocol the protocol
+     * @return self-reference
+     */
+    public CNegotiationScheduler add( final IProtocol p_protocol )
+    {
+        m_protocols.add( p_protocol );
+        return this;
+    }
+
+    /**
+     * steps all protocols until none has an open negotiation
+     * @return the number of rounds played
+     */
+    public long run()
+    {
+        final long l_start = m_rounds;
+        while ( step() ) continue;
+        return m_rounds - l_start;
+    }
+
+    /**
+     * plays one round of every protocol,
+     * protocols without open negotiations are removed
+     * @return whether a protocol still has open negotiations
+     */
+    public boolean step()
+    {
+        if ( m_protocols.isEmpty() ) return false;
+        m_rounds++;
+        m_protocols.removeIf( p -> !p.step() );
+        return !m_protocols.isEmpty();
+    }
+
+    /**
+     * the protocols with open negotiations
+     * @return the number of protocols
+     */
+    public int size()
+    {
+        return m_protocols.size();
+    }
+
+    /**
+     * the rounds played in total
+     * @return the number of rounds
+     */
+    public long rounds()
+    {
+        return m_rounds;
+    }
+}
@@ -166,6 +166,17 @@ public class CTakeItOrLeaveIt implements IProtocol
     {
     }
 
+    /**
+     * plays one round,
+     * offers are answered at once so nothing is ever open
+     * @return false
+     */
+    @Override
+    public boolean step()
+    {
+        return false;
+    }
+
     /**
      * gets the round counter
      * @return round counter
@@ -0,0 +1,42 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import java.util.SplittableRandom;
+
+/**
+ * candidate bid distributions defined
+ * UNIFORM = every bid of the range is equally likely
+ * TRIANGULAR = bids in the middle of the range are more likely
+ */
+public enum EBidDistribution implements IBidDistribution
+{
+    UNIFORM,
+    TRIANGULAR;
+
+    @Override
+    public double sample( final SplittableRandom p_random, final double p_low, final double p_high )
+    {
+        switch ( this )
+        {
+            case TRIANGULAR:
+                return p_low + ( p_random.nextDouble() + p_random.nextDouble() ) / 2 * ( p_high - p_low );
+            case UNIFORM:
+            default:
+                return p_low + p_random.nextDouble() * ( p_high - p_low );
+        }
+    }
+}
@@ -31,6 +31,15 @@ public interface IBiddingModule
      */
     Double getBestBid( final ArrayList<Double> p_bids, final Integer p_time, final Double p_rv );
 
+    /**
+     * gives the best bid in the current round
+     * @param p_bids the candidate bids
+     * @param p_time the current round
+     * @param p_rv opponent's estimated reservation value
+     * @return best offer
+     */
+    Double getBestBid( final double[] p_bids, final Integer p_time, final Double p_rv );
+
     /**
      * updates the opponents perceived strategy
      * @param p_offer the current offer made by the opponent
@@ -75,8 +75,16 @@ public interface IProtocol
      */
     void haggle( final CVehicle p_veh, final CSimpleOffer p_offer ) throws IOException;
 
+    /**
+     * plays one round, every open negotiation
+     * delivers at most one haggling offer
+     * @return whether negotiations are still open
+     */
+    boolean step();
+
     /**
      * gets the round counter
+     * of the negotiation currently played
      * @return round counter
      */
     Integer getRoundCounter();
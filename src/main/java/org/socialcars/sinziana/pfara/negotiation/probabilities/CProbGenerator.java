@@ -1,33 +1,59 @@
 package org.socialcars.sinziana.pfara.negotiation.probabilities;
 
+import org.apache.commons.math3.distribution.AbstractRealDistribution;
 import org.apache.commons.math3.distribution.BetaDistribution;
 import org.apache.commons.math3.distribution.CauchyDistribution;
 import org.apache.commons.math3.distribution.GammaDistribution;
 import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
 import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CCollege;
 import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CColleges;
 
 import java.util.ArrayList;
-import java.util.stream.IntStream;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * class for generating a probability distribuition
+ * distributions are cached per type and share one seeded random generator, the normal
+ * distribution of a peak is the one of peak one scaled, so all peaks share one distribution,
+ * samples are drawn into a reused buffer, so the memory does not grow with the number of rounds
  */
 public class CProbGenerator
 {
-    private CColleges m_colprob;
-    private ArrayList<Double> m_prob;
+    private final RandomGenerator m_random;
+    private final Map<String, AbstractRealDistribution> m_distributions;
+    private double[] m_buffer;
 
     /**
      * ctor
      */
     public CProbGenerator()
     {
-        m_prob = new ArrayList<>();
-        m_colprob = new CColleges();
+        this( System.nanoTime() );
     }
 
+    /**
+     * ctor
+     * @param p_seed the seed of the samples, equal seeds give equal samples
+     */
+    public CProbGenerator( final long p_seed )
+    {
+        m_random = new Well19937c( p_seed );
+        m_buffer = new double[0];
+        m_distributions = new HashMap<>();
+    }
+
+    /**
+     * restarts the samples from a seed
+     * @param p_seed the seed
+     */
+    public void seed( final long p_seed )
+    {
+        m_random.setSeed( p_seed );
+    }
 
     /**
      * creates touples of a probability distribution dependant on type
@@ -37,27 +63,14 @@ public class CProbGenerator
      */
     public CColleges getCollegeDistribution( final String p_type, final Integer p_samplesize )
     {
-        switch ( p_type )
-        {
-            case "normal":
-                colNormal( p_samplesize );
-                break;
-            case "log":
-                collogNormal( p_samplesize );
-                break;
-            case "beta":
-                colbeta( p_samplesize );
-                break;
-            case "cauchy":
-                colcauchy( p_samplesize );
-                break;
-            case "gamma":
-                colgamma( p_samplesize );
-                break;
-            default:
-        }
-
-        return m_colprob;
+        final CColleges l_colprob = new CColleges();
+        final AbstractRealDistribution l_distribution = collegeDistribution( p_type );
+        if ( l_distribution == null ) return l_colprob;
+
+        final double[] l_sample = sample( l_distribution, p_samplesize, 1 );
+        for ( int i = 0; i < p_samplesize; i++ )
+            l_colprob.add( new CCollege( l_sample[i], 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 ) );
+        return l_colprob;
     }
 
     /**
@@ -69,152 +82,78 @@ public class CProbGenerator
      */
     public ArrayList<Double> getDistribution( final String p_type, final Integer p_samplesize, final Double p_peak )
     {
-        switch ( p_type )
-        {
-            case "normal":
-                normal( p_samplesize, p_peak );
-                break;
-            case "log":
-                logNormal( p_samplesize, p_peak );
-                break;
-            case "beta":
-                beta( p_samplesize, p_peak );
-                break;
-            case "cauchy":
-                cauchy( p_samplesize, p_peak );
-                break;
-            case "gamma":
-                gamma( p_samplesize, p_peak );
-                break;
-            default:
-        }
-        return m_prob;
-    }
-
-    /**
-     * collage normal distribution
-     * @param p_samplesize the size
-     */
-    private void colNormal( final Integer p_samplesize )
-    {
-        final NormalDistribution l_norm = new NormalDistribution( 0.5, 0.18 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-
-        final ArrayList<Double> l_prob = new ArrayList<>();
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> l_prob.add( i, 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 ) );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_colprob.add( new CCollege( l_sample[i], l_prob.get( i ) ) ) );
-    }
-
-    /**
-     * normal distribution
-     * @param p_samplesize size
-     * @param p_peak peak
-     */
-    private void normal( final Integer p_samplesize, final Double p_peak )
-    {
-        final NormalDistribution l_norm = new NormalDistribution( p_peak, p_peak / 3 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_prob.add(  l_sample[i] ) );
-    }
-
-    /**
-     * college beta distribution
-     * @param p_samplesize size
-     */
-    private void colbeta( final Integer p_samplesize )
-    {
-        final BetaDistribution l_te = new BetaDistribution( 2, 2 );
-        final double[] l_sample = l_te.sample( p_samplesize );
-        final ArrayList<Double> l_prob = new ArrayList<>();
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> l_prob.add( i, 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 ) );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_colprob.add( new CCollege( l_sample[i], l_prob.get( i ) ) ) );
-    }
-
-    /**
-     * beta distribution
-     * @param p_samplesize size
-     * @param p_peak peak
-     */
-    private void beta( final Integer p_samplesize, final Double p_peak )
-    {
-        final BetaDistribution l_norm = new BetaDistribution( 2, 2 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_prob.add(  l_sample[i] ) );
-    }
-
-    /**
-     * college cauchy distribution
-     * @param p_samplesize size
-     */
-    private void colcauchy( final Integer p_samplesize )
-    {
-        final CauchyDistribution l_cauchy = new CauchyDistribution( 0.5, 0.1 );
-        final double[] l_sample = l_cauchy.sample( p_samplesize );
-        final ArrayList<Double> l_prob = new ArrayList<>();
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> l_prob.add( i, 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 ) );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_colprob.add( new CCollege( l_sample[i], l_prob.get( i ) ) ) );
-    }
-
-    /**
-     * cauchy distribution
-     * @param p_samplesize size
-     * @param p_peak peak
-     */
-    private void cauchy( final Integer p_samplesize, final Double p_peak )
-    {
-        final CauchyDistribution l_norm = new CauchyDistribution( 0.5, 0.1 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_prob.add(  l_sample[i] ) );
+        final double[] l_sample = sample( p_type, p_samplesize, p_peak );
+        final ArrayList<Double> l_prob = new ArrayList<>( l_sample.length );
+        for ( final double l_value : l_sample )
+            l_prob.add( l_value );
+        return l_prob;
     }
 
     /**
-     * college gamma distribution
-     * @param p_samplesize size
+     * draws a simple set of a probability distribution based on type
+     * into a buffer that is reused by the next sample
+     * @param p_type the distribution type
+     * @param p_samplesize the size of the distribution
+     * @param p_peak the peak of the distribution
+     * @return the samples, empty for an unknown type
      */
-    private void colgamma( final Integer p_samplesize )
+    public double[] sample( final String p_type, final int p_samplesize, final double p_peak )
     {
-        final GammaDistribution l_gamma = new GammaDistribution( 0.5, 1 );
-        final double[] l_sample = l_gamma.sample( p_samplesize );
-        final ArrayList<Double> l_prob = new ArrayList<>();
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> l_prob.add( i, 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 ) );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_colprob.add( new CCollege( l_sample[i], l_prob.get( i ) ) ) );
+        final AbstractRealDistribution l_distribution = distribution( p_type );
+        return l_distribution == null ? new double[0] : sample( l_distribution, p_samplesize, "normal".equals( p_type ) ? p_peak : 1 );
     }
 
     /**
-     * gamma distribution
-     * @param p_samplesize size
-     * @param p_peak peak
+     * fills the buffer with scaled samples of a distribution
+     * @param p_distribution the distribution
+     * @param p_samplesize the size
+     * @param p_scale the factor of the samples
+     * @return the buffer
      */
-    private void gamma( final Integer p_samplesize, final Double p_peak )
+    private double[] sample( final AbstractRealDistribution p_distribution, final int p_samplesize, final double p_scale )
     {
-        final GammaDistribution l_norm = new GammaDistribution( 0.5, 1 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_prob.add(  l_sample[i] ) );
+        if ( m_buffer.length != p_samplesize )
+            m_buffer = new double[p_samplesize];
+        for ( int i = 0; i < p_samplesize; i++ )
+            m_buffer[i] = p_scale * p_distribution.sample();
+        return m_buffer;
     }
 
     /**
-     * college lognormal distribution
-     * @param p_samplesize size
+     * cached payment limit distribution,
+     * the normal one has the peak one and is scaled by the peak
+     * @param p_type the distribution type
+     * @return the distribution, null for an unknown type
      */
-    private void collogNormal( final Integer p_samplesize )
+    private AbstractRealDistribution distribution( final String p_type )
     {
-        final LogNormalDistribution l_lognorm = new LogNormalDistribution( -0.5, 0.125 );
-        final double[] l_sample = l_lognorm.sample( p_samplesize );
-        final ArrayList<Double> l_prob = new ArrayList<>();
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> l_prob.add( i, 1 - Math.abs( l_sample[i] - 0.5 ) / 0.5 )  );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_colprob.add( new CCollege( l_sample[i], l_prob.get( i ) ) ) );
+        switch ( p_type )
+        {
+            case "normal":
+                return m_distributions.computeIfAbsent( "normal", k -> new NormalDistribution( m_random, 1, 1.0 / 3 ) );
+            case "log":
+                return m_distributions.computeIfAbsent( "log", k -> new LogNormalDistribution( m_random, -0.5, 0.125 ) );
+            case "beta":
+                return m_distributions.computeIfAbsent( "beta", k -> new BetaDistribution( m_random, 2, 2 ) );
+            case "cauchy":
+                return m_distributions.computeIfAbsent( "cauchy", k -> new CauchyDistribution( m_random, 0.5, 0.1 ) );
+            case "gamma":
+                return m_distributions.computeIfAbsent( "gamma", k -> new GammaDistribution( m_random, 0.5, 1 ) );
+            default:
+                return null;
+        }
     }
 
     /**
-     * lognormal distribution
-     * @param p_samplesize size
-     * @param p_peak peak
+     * cached college distribution
+     * @param p_type the distribution type
+     * @return the distribution, null for an unknown type
      */
-    private void logNormal( final Integer p_samplesize, final Double p_peak )
+    private AbstractRealDistribution collegeDistribution( final String p_type )
     {
-        final LogNormalDistribution l_norm = new LogNormalDistribution( -0.5, 0.125 );
-        final double[] l_sample = l_norm.sample( p_samplesize );
-        IntStream.range( 0, p_samplesize ).boxed().forEach( i -> m_prob.add(  l_sample[i] ) );
+        return "normal".equals( p_type )
+               ? m_distributions.computeIfAbsent( "college normal", k -> new NormalDistribution( m_random, 0.5, 0.18 ) )
+               : distribution( p_type );
     }
 
     /**
@@ -223,17 +162,18 @@ public class CProbGenerator
      */
     public CColleges fixedColleges()
     {
-        m_colprob.add( new CCollege( 0.6430336328991796,  0.7139327342016408 ) );
-        m_colprob.add( new CCollege( 0.5506689434307167,  0.8986621131385666 ) );
-        m_colprob.add( new CCollege( 0.4770024715900329,  0.9540049431800658 ) );
-        m_colprob.add( new CCollege( 0.42107626757093114,  0.8421525351418623 ) );
-        m_colprob.add( new CCollege( 0.39256257723817983,  0.7851251544763597 ) );
-        m_colprob.add( new CCollege( 0.3920240289045138,  0.7840480578090276 ) );
-        m_colprob.add( new CCollege( 0.37490620114134326,  0.7498124022826865 ) );
-        m_colprob.add( new CCollege( 0.3509479069562612,  0.7018958139125224 ) );
-        m_colprob.add( new CCollege( 0.3217605222550841,  0.6435210445101682 ) );
-        m_colprob.add( new CCollege( 0.2041920703259128,  0.4083841406518256 ) );
-        return m_colprob;
+        final CColleges l_colprob = new CColleges();
+        l_colprob.add( new CCollege( 0.6430336328991796,  0.7139327342016408 ) );
+        l_colprob.add( new CCollege( 0.5506689434307167,  0.8986621131385666 ) );
+        l_colprob.add( new CCollege( 0.4770024715900329,  0.9540049431800658 ) );
+        l_colprob.add( new CCollege( 0.42107626757093114,  0.8421525351418623 ) );
+        l_colprob.add( new CCollege( 0.39256257723817983,  0.7851251544763597 ) );
+        l_colprob.add( new CCollege( 0.3920240289045138,  0.7840480578090276 ) );
+        l_colprob.add( new CCollege( 0.37490620114134326,  0.7498124022826865 ) );
+        l_colprob.add( new CCollege( 0.3509479069562612,  0.7018958139125224 ) );
+        l_colprob.add( new CCollege( 0.3217605222550841,  0.6435210445101682 ) );
+        l_colprob.add( new CCollege( 0.2041920703259128,  0.4083841406518256 ) );
+        return l_colprob;
     }
 
     /**
@@ -1,10 +1,10 @@
 package org.socialcars.sinziana.pfara.negotiation.probabilities;
 
-import com.google.common.util.concurrent.AtomicDouble;
 import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CCollege;
 import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CColleges;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * class for transforming the opponent payment limit(RV)
@@ -12,12 +12,13 @@ import java.util.ArrayList;
  */
 public class CRVtoAccProb
 {
-    private final ArrayList<Double> m_rvprob;
+    private double[] m_rvprob;
     private final String m_opponent;
     private Double m_opponenttype;
     private final Double m_firstbid;
     private final Integer m_deadline;
-    private ArrayList<Double> m_accprob;
+    private double[] m_curve;
+    private Integer m_curvetime;
 
     /**
      * ctor
@@ -28,6 +29,19 @@ public class CRVtoAccProb
      * @param p_rvprob the payment limit distribution
      */
     public CRVtoAccProb( final String p_type, final Double p_opptype, final Double p_firstbid, final Integer p_deadline, final ArrayList<Double> p_rvprob )
+    {
+        this( p_type, p_opptype, p_firstbid, p_deadline, p_rvprob.stream().mapToDouble( i -> i ).toArray() );
+    }
+
+    /**
+     * ctor
+     * @param p_type the type of opponent (initiator/acceptor)
+     * @param p_opptype the opponent strategy (boulware,linear,conceder)
+     * @param p_firstbid the first bid
+     * @param p_deadline the deadline
+     * @param p_rvprob the payment limit distribution, not copied
+     */
+    public CRVtoAccProb( final String p_type, final Double p_opptype, final Double p_firstbid, final Integer p_deadline, final double[] p_rvprob )
     {
         m_rvprob = p_rvprob;
         m_firstbid = p_firstbid;
@@ -36,13 +50,34 @@ public class CRVtoAccProb
         m_opponent = p_type;
     }
 
+    /**
+     * starts a new round with another payment limit distribution and opponent strategy,
+     * the samples are copied into the current arrays, so a negotiation keeps one instance
+     * @param p_opptype the opponent strategy
+     * @param p_rvprob the payment limit distribution
+     */
+    public void reset( final Double p_opptype, final double[] p_rvprob )
+    {
+        if ( m_rvprob.length != p_rvprob.length )
+        {
+            m_rvprob = new double[p_rvprob.length];
+            m_curve = null;
+        }
+        System.arraycopy( p_rvprob, 0, m_rvprob, 0, p_rvprob.length );
+        m_opponenttype = p_opptype;
+        m_curvetime = null;
+    }
+
     /**
      * the RV probability
      * @return the RV probability
      */
     public ArrayList<Double> getRVProb()
     {
-        return m_rvprob;
+        final ArrayList<Double> l_rvprob = new ArrayList<>( m_rvprob.length );
+        for ( final double l_rv : m_rvprob )
+            l_rvprob.add( l_rv );
+        return l_rvprob;
     }
 
     /**
@@ -52,24 +87,11 @@ public class CRVtoAccProb
      */
     public ArrayList<Double> calculateAccProb( final Integer p_time )
     {
-        final Double l_alpha = m_firstbid + ( 1 - m_firstbid ) * Math.pow( p_time.doubleValue() / m_deadline.doubleValue(), m_opponenttype );
-        m_accprob = new ArrayList<>();
-        m_rvprob.forEach( c ->
-        {
-            Double l_xs = 0.0;
-            switch ( m_opponent )
-            {
-                case "Initiator":
-                    l_xs = m_firstbid + l_alpha * ( c - m_firstbid );
-                    break;
-                case "Acceptor":
-                    l_xs = c + ( 1 - l_alpha ) * ( m_firstbid - c );
-                    break;
-                default:
-            }
-            m_accprob.add( l_xs );
-        } );
-        return m_accprob;
+        final double[] l_values = values( p_time, new double[m_rvprob.length] );
+        final ArrayList<Double> l_accprob = new ArrayList<>( l_values.length );
+        for ( final double l_value : l_values )
+            l_accprob.add( l_value );
+        return l_accprob;
     }
 
     /**
@@ -80,70 +102,123 @@ public class CRVtoAccProb
      */
     public Double calculateForBid( final Double p_bid, final Integer p_time )
     {
-        final AtomicDouble l_prob = new AtomicDouble( 0.0 );
-        m_accprob = calculateAccProb( p_time );
-        final ArrayList<Double> l_new = new ArrayList<>();
-        m_accprob.forEach( c ->
+        return rank( curve( p_time ), p_bid ) / (double) m_rvprob.length;
+    }
+
+    /**
+     * calculates the acceptance probability for multiple bids
+     * the acceptance values of the round are computed and sorted once,
+     * every bid is then a binary search
+     * @param p_bids the desired bids
+     * @param p_time the current moment in the negotiation
+     * @return touples consisting o bids and their acceptance rate
+     */
+    public CColleges calculateForBids( final ArrayList<Double> p_bids, final Integer p_time )
+    {
+        final double[] l_curve = curve( p_time );
+        final CColleges l_bidprob = new CColleges();
+        p_bids.forEach( b -> l_bidprob.add( new CCollege( b, rank( l_curve, b ) / (double) m_rvprob.length ) ) );
+        return l_bidprob;
+    }
+
+    /**
+     * calculates the acceptance probability for multiple bids
+     * @param p_bids the desired bids
+     * @param p_time the current moment in the negotiation
+     * @return touples consisting o bids and their acceptance rate
+     */
+    public CColleges calculateForBids( final double[] p_bids, final Integer p_time )
+    {
+        final double[] l_curve = curve( p_time );
+        final CColleges l_bidprob = new CColleges();
+        for ( final double l_bid : p_bids )
+            l_bidprob.add( new CCollege( l_bid, rank( l_curve, l_bid ) / (double) m_rvprob.length ) );
+        return l_bidprob;
+    }
+
+    /**
+     * the acceptance values of a moment, in the order of the payment limits
+     * @param p_time the current moment of negotiation
+     * @param p_values the array filled with the values
+     * @return the acceptance values
+     */
+    private double[] values( final Integer p_time, final double[] p_values )
+    {
+        final double l_alpha = m_firstbid + ( 1 - m_firstbid ) * Math.pow( p_time.doubleValue() / m_deadline.doubleValue(), m_opponenttype );
+        for ( int i = 0; i < p_values.length; i++ )
         {
+            final double l_rv = m_rvprob[i];
             switch ( m_opponent )
             {
                 case "Initiator":
-                    if ( c >= p_bid )
-                    {
-                        l_prob.getAndAdd( 1.0 );
-                        l_new.add( c );
-                    }
+                    p_values[i] = m_firstbid + l_alpha * ( l_rv - m_firstbid );
                     break;
                 case "Acceptor":
-                    if ( c <= p_bid )
-                    {
-                        l_prob.getAndAdd( 1.0 );
-                        l_new.add( c );
-                    }
+                    p_values[i] = l_rv + ( 1 - l_alpha ) * ( m_firstbid - l_rv );
                     break;
                 default:
+                    p_values[i] = 0;
             }
-        } );
-        return l_prob.get() / m_rvprob.size();
+        }
+        return p_values;
     }
 
     /**
-     * calculates the acceptance probability for multiple bids
-     * @param p_bids the desired bids
-     * @param p_time the current moment in the negotiation
-     * @return touples consisting o bids and their acceptance rate
+     * the sorted acceptance values of a moment,
+     * kept until another moment is asked for
+     * @param p_time the current moment of negotiation
+     * @return the sorted acceptance values
      */
-    public CColleges calculateForBids( final ArrayList<Double> p_bids, final Integer p_time )
+    private double[] curve( final Integer p_time )
     {
-        final CColleges l_bidprob = new CColleges();
-        p_bids.forEach( b ->
+        if ( ( m_curve == null ) || ( !p_time.equals( m_curvetime ) ) )
         {
-            final AtomicDouble l_prob = new AtomicDouble( 0.0 );
-            m_accprob = calculateAccProb( p_time );
-            final ArrayList<Double> l_new = new ArrayList<>();
-            m_accprob.forEach( c ->
-            {
-                switch ( m_opponent )
-                {
-                    case "Initiator":
-                        if ( c >= b )
-                        {
-                            l_prob.getAndAdd( 1.0 );
-                            l_new.add( c );
-                        }
-                        break;
-                    case "Acceptor":
-                        if ( c <= b )
-                        {
-                            l_prob.getAndAdd( 1.0 );
-                            l_new.add( c );
-                        }
-                        break;
-                    default:
-                }
-            } );
-            l_bidprob.add( new CCollege( b, l_prob.get() / m_rvprob.size() ) );
-        } );
-        return l_bidprob;
+            m_curve = values( p_time, m_curve == null ? new double[m_rvprob.length] : m_curve );
+            Arrays.sort( m_curve );
+            m_curvetime = p_time;
+        }
+        return m_curve;
+    }
+
+    /**
+     * number of acceptance values accepting a bid,
+     * the initiator accepts values at or above the bid, the acceptor at or below
+     * @param p_curve the sorted acceptance values
+     * @param p_bid the bid
+     * @return the number of accepting values
+     */
+    private int rank( final double[] p_curve, final double p_bid )
+    {
+        switch ( m_opponent )
+        {
+            case "Initiator":
+                return p_curve.length - bound( p_curve, p_bid, false );
+            case "Acceptor":
+                return bound( p_curve, p_bid, true );
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * binary search for the first value above a bid
+     * @param p_curve the sorted acceptance values
+     * @param p_bid the bid
+     * @param p_inclusive true for the first value strictly above the bid, false for the first value at or above it
+     * @return the index of the value, the length if there is none
+     */
+    private static int bound( final double[] p_curve, final double p_bid, final boolean p_inclusive )
+    {
+        int l_low = 0;
+        int l_high = p_curve.length;
+        while ( l_low < l_high )
+        {
+            final int l_middle = ( l_low + l_high ) >>> 1;
+            if ( ( p_curve[l_middle] < p_bid ) || ( p_inclusive && ( p_curve[l_middle] == p_bid ) ) )
+                l_low = l_middle + 1;
+            else
+                l_high = l_middle;
+        }
+        return l_low;
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.optimisation;
+
+import gurobi.GRB;
+import gurobi.GRBEnv;
+import gurobi.GRBException;
+import gurobi.GRBLinExpr;
+import gurobi.GRBModel;
+import gurobi.GRBVar;
+import org.socialcars.sinziana.pfara.environment.CCompressedGraph;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+
+/**
+ * long-lived gurobi session, one per thread
+ * keeps the environment alive between optimiser calls
+ * and caches the model skeleton (the shared edge variables and the objective)
+ * of the last graph it was used with
+ */
+public final class CGurobiSession
+{
+    private static final ThreadLocal<CGurobiSession> SESSIONS = new ThreadLocal<>();
+
+    private final GRBEnv m_env;
+    private CGraph m_graph;
+    private GRBModel m_model;
+    private GRBVar[] m_ys;
+
+    /**
+     * ctor
+     * the log is written only by the first environment start
+     * @throws GRBException gurobi
+     */
+    private CGurobiSession() throws GRBException
+    {
+        m_env = new GRBEnv( true );
+        m_env.set( GRB.IntParam.OutputFlag, 0 );
+        m_env.set( GRB.StringParam.LogFile, "pspp.log" );
+        m_env.start();
+    }
+
+    /**
+     * the session of the calling thread
+     * created on first use
+     * @return the session
+     * @throws GRBException gurobi
+     */
+    public static CGurobiSession current() throws GRBException
+    {
+        CGurobiSession l_session = SESSIONS.get();
+        if ( l_session == null )
+        {
+            l_session = new CGurobiSession();
+            SESSIONS.set( l_session );
+        }
+        return l_session;
+    }
+
+    /**
+     * disposes the session of the calling thread,
+     * the drivers call it once their run is over
+     */
+    public static void close()
+    {
+        final CGurobiSession l_session = SESSIONS.get();
+        if ( l_session == null ) return;
+        SESSIONS.remove();
+        try
+        {
+            l_session.disposeModel();
+            l_session.m_env.dispose();
+        }
+        catch ( final GRBException l_err )
+        {
+            l_err.printStackTrace();
+        }
+    }
+
+    /**
+     * the model for the given graph
+     * the edge variables are only built when the graph changes
+     * @param p_graph the graph
+     * @return the model holding the edge variables and the objective
+     * @throws GRBException gurobi
+     */
+    public GRBModel model( final CGraph p_graph ) throws GRBException
+    {
+        if ( p_graph != m_graph ) buildSkeleton( p_graph );
+        return m_model;
+    }
+
+    /**
+     * the shared edge variables of the cached skeleton
+     * @param p_graph the graph
+     * @return the edge variables indexed by edge id
+     * @throws GRBException gurobi
+     */
+    public GRBVar[] edgeVariables( final CGraph p_graph ) throws GRBException
+    {
+        if ( p_graph != m_graph ) buildSkeleton( p_graph );
+        return m_ys;
+    }
+
+    /**
+     * stores the current solution of the edge variables
+     * as the start of the next optimisation
+     * @param p_graph the graph
+     */
+    public void keepIncumbent( final CGraph p_graph )
+    {
+        if ( p_graph != m_graph ) return;
+        for ( final GRBVar l_edgevar : m_ys )
+        {
+            try
+            {
+                l_edgevar.set( GRB.DoubleAttr.Start, l_edgevar.get( GRB.DoubleAttr.X ) );
+            }
+            catch ( final GRBException l_err )
+            {
+                l_err.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * builds the edge variables and the objective function
+     * @param p_graph the graph
+     * @throws GRBException gurobi
+     */
+    private void buildSkeleton( final CGraph p_graph ) throws GRBException
+    {
+        disposeModel();
+        m_model = new GRBModel( m_env );
+        final CCompressedGraph l_core = p_graph.core();
+        m_ys = new GRBVar[l_core.edgeCount()];
+
+        //defines the objective function
+        final GRBLinExpr l_obj = new GRBLinExpr();
+        for ( int i = 0; i < m_ys.length; i++ )
+        {
+            final IEdge l_edge = l_core.edge( i );
+            final double l_weight = 0.5 * l_core.weight( i );
+            m_ys[i] = m_model.addVar( 0.0, 1.0, l_weight, GRB.BINARY, "y" + l_edge.from().name() + "-" + l_edge.to().name() );
+            l_obj.addTerm( l_weight, m_ys[i] );
+        }
+        m_model.setObjective( l_obj );
+        m_model.update();
+        m_graph = p_graph;
+    }
+
+    /**
+     * destroys the cached model
+     * @throws GRBException gurobi
+     */
+    private void disposeModel() throws GRBException
+    {
+        if ( m_model != null ) m_model.dispose();
+        m_model = null;
+        m_ys = null;
+        m_graph = null;
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.optimisation;
+
+import com.google.common.util.concurrent.AtomicDouble;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.CCompressedGraph;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * the platooning shortest path class
+ * solved in pure java without an external solver
+ * every vehicle gets a pool of resource feasible candidate routes
+ * through a k-best labelling search (length, time and cost limits)
+ * and a branch-and-bound picks one candidate per vehicle
+ * so that the cost of the shared edges is minimal,
+ * the solver is not exact: the result is only optimal over the candidate pools,
+ * and only if the branch-and-bound ends within its node limit,
+ * otherwise it is the best assignment found so far (see complete)
+ */
+public class CLabellingPSPP implements IPSPP
+{
+    /**
+     * default number of candidate routes per vehicle
+     */
+    private static final int CANDIDATES = 8;
+    /**
+     * number of branch-and-bound nodes after which the search stops
+     */
+    private static final int MAXNODES = 200000;
+
+    private final CGraph m_graph;
+    private final Integer m_source;
+    private final ArrayList<CVehicle> m_pods;
+    private final CUnits m_unit;
+    private final Double m_omega;
+    private final Integer m_candidates;
+    private final CCompressedGraph m_core;
+    private Double m_speed;
+    private Double m_optimum;
+    private Double m_incumbent;
+
+    private final HashMap<CVehicle, ArrayList<IEdge>> m_results;
+    private final HashMap<IEdge, Integer> m_np;
+    private ArrayList<CVehicle> m_flagged;
+
+    private List<List<List<IEdge>>> m_pool;
+    private int[] m_choice;
+    private int[] m_bestchoice;
+    private double m_best;
+    private int m_nodes;
+    private boolean m_complete;
+
+    /**
+     * ctor
+     * @param p_env the environment
+     * @param p_source source node
+     * @param p_pods pods
+     * @param p_unit the transformation unit
+     * @param p_omega the platooning subsidisation coefficient
+     */
+    public CLabellingPSPP( final CGraph p_env, final Integer p_source, final ArrayList<CVehicle> p_pods, final CUnits p_unit, final Double p_omega )
+    {
+        this( p_env, p_source, p_pods, p_unit, p_omega, CANDIDATES );
+    }
+
+    /**
+     * ctor
+     * @param p_env the environment
+     * @param p_source source node
+     * @param p_pods pods
+     * @param p_unit the transformation unit
+     * @param p_omega the platooning subsidisation coefficient
+     * @param p_candidates the number of candidate routes kept per vehicle
+     */
+    public CLabellingPSPP( final CGraph p_env, final Integer p_source, final ArrayList<CVehicle> p_pods, final CUnits p_unit, final Double p_omega,
+                           final Integer p_candidates )
+    {
+        m_graph = p_env;
+        m_source = p_source;
+        m_pods = p_pods;
+        m_unit = p_unit;
+        m_omega = p_omega;
+        m_candidates = p_candidates;
+        m_np = new HashMap<>();
+        m_results = new HashMap<>();
+        m_flagged = new ArrayList<>();
+
+        m_core = p_env.core();
+        m_optimum = null;
+        m_incumbent = null;
+    }
+
+    @Override
+    public void solve()
+    {
+        addSpeedConstrain();
+        final int l_source = m_core.nodeId( m_graph.nodeByName( m_source.toString() ) );
+
+        //candidate routes for every vehicle
+        m_pool = new ArrayList<>();
+        for ( final CVehicle l_pod : m_pods )
+        {
+            final List<List<IEdge>> l_candidates = candidates( l_source, m_core.nodeId( m_graph.nodeByName( l_pod.destination() ) ), l_pod );
+            //no feasible route for one of the vehicles, the problem is infeasible
+            if ( l_candidates.isEmpty() ) return;
+            m_pool.add( l_candidates );
+        }
+
+        m_choice = new int[m_pods.size()];
+        m_bestchoice = new int[m_pods.size()];
+        m_best = Double.MAX_VALUE;
+        m_nodes = 0;
+        m_complete = true;
+        greedy();
+        branch( 0, new HashMap<>(), 0.0 );
+
+        m_optimum = m_best;
+        saveResults();
+        m_flagged = secondCostCheck();
+    }
+
+    /**
+     * adds the speed constraint
+     */
+    private void addSpeedConstrain()
+    {
+        final ArrayList<Double> l_maxspeeds = new ArrayList<>();
+        m_pods.forEach( p -> l_maxspeeds.add( p.preferences().maxSpeed() ) );
+        m_speed = Collections.min( l_maxspeeds );
+    }
+
+    /**
+     * k-best labelling search for loopless routes
+     * respecting the length, time and cost limits of the vehicle
+     * @param p_source the origin node id
+     * @param p_destination the destination node id
+     * @param p_pod the vehicle
+     * @return the candidate routes ordered by cost
+     */
+    private List<List<IEdge>> candidates( final int p_source, final int p_destination, final CVehicle p_pod )
+    {
+        final double l_maxlength = p_pod.preferences().lengthLimit();
+        final double l_maxtime = p_pod.preferences().timeLimit();
+        final double l_maxcost = p_pod.preferences().maxCost() + p_pod.preferences().maxCost() / 2;
+        final double l_speed = m_speed * m_unit.getBlock().doubleValue();
+
+        final List<List<IEdge>> l_result = new ArrayList<>();
+        final int[] l_settled = new int[m_core.nodeCount()];
+        final PriorityQueue<CLabel> l_queue = new PriorityQueue<>( Comparator.comparingDouble( CLabel::cost ) );
+        l_queue.add( new CLabel( p_source, -1, null, 0.0, 0.0, 0.0 ) );
+
+        while ( ( !l_queue.isEmpty() ) && ( l_result.size() < m_candidates ) )
+        {
+            final CLabel l_label = l_queue.poll();
+            if ( ++l_settled[l_label.node()] > m_candidates ) continue;
+            if ( l_label.node() == p_destination )
+            {
+                l_result.add( l_label.route( m_core ) );
+                continue;
+            }
+
+            for ( int i = m_core.outBegin( l_label.node() ); i < m_core.outEnd( l_label.node() ); i++ )
+            {
+                final int l_edge = m_core.outEdge( i );
+                if ( l_label.visits( m_core.to( l_edge ) ) ) continue;
+                final double l_length = l_label.length() + m_core.length( l_edge );
+                final double l_time = l_label.time() + m_core.length( l_edge ) / l_speed;
+                final double l_cost = l_label.cost() + m_core.weight( l_edge );
+                if ( ( l_length <= l_maxlength ) && ( l_time <= l_maxtime ) && ( l_cost <= l_maxcost ) )
+                    l_queue.add( new CLabel( m_core.to( l_edge ), l_edge, l_label, l_cost, l_length, l_time ) );
+            }
+        }
+        return l_result;
+    }
+
+    /**
+     * builds a first incumbent by letting every vehicle
+     * pick the candidate with the smallest additional cost
+     */
+    private void greedy()
+    {
+        final HashMap<IEdge, Integer> l_used = new HashMap<>();
+        double l_cost = 0.0;
+        for ( int i = 0; i < m_pool.size(); i++ )
+        {
+            int l_pick = 0;
+            double l_min = Double.MAX_VALUE;
+            for ( int j = 0; j < m_pool.get( i ).size(); j++ )
+            {
+                final double l_increment = increment( m_pool.get( i ).get( j ), l_used );
+                if ( l_increment < l_min )
+                {
+                    l_min = l_increment;
+                    l_pick = j;
+                }
+            }
+            m_bestchoice[i] = l_pick;
+            l_cost += l_min;
+            m_pool.get( i ).get( l_pick ).forEach( e -> l_used.merge( e, 1, Integer::sum ) );
+        }
+        m_best = l_cost;
+        m_incumbent = l_cost;
+    }
+
+    /**
+     * branch-and-bound over the candidate routes
+     * @param p_index the index of the vehicle to be assigned
+     * @param p_used the edges used so far and by how many vehicles
+     * @param p_cost the cost of the used edges
+     */
+    private void branch( final int p_index, final HashMap<IEdge, Integer> p_used, final double p_cost )
+    {
+        m_nodes++;
+        if ( p_index == m_pool.size() )
+        {
+            if ( p_cost < m_best )
+            {
+                m_best = p_cost;
+                System.arraycopy( m_choice, 0, m_bestchoice, 0, m_choice.length );
+            }
+            return;
+        }
+        if ( m_nodes > MAXNODES )
+        {
+            m_complete = false;
+            return;
+        }
+        if ( p_cost + bound( p_index, p_used ) >= m_best ) return;
+
+        for ( int j = 0; j < m_pool.get( p_index ).size(); j++ )
+        {
+            final List<IEdge> l_route = m_pool.get( p_index ).get( j );
+            final double l_increment = increment( l_route, p_used );
+            if ( p_cost + l_increment >= m_best ) continue;
+
+            m_choice[p_index] = j;
+            l_route.forEach( e -> p_used.merge( e, 1, Integer::sum ) );
+            branch( p_index + 1, p_used, p_cost + l_increment );
+            l_route.forEach( e -> p_used.computeIfPresent( e, ( k, v ) -> v == 1 ? null : v - 1 ) );
+        }
+    }
+
+    /**
+     * lower bound on the cost still to be added
+     * the largest of the cheapest increments of the unassigned vehicles
+     * @param p_index the index of the first unassigned vehicle
+     * @param p_used the edges used so far
+     * @return the bound
+     */
+    private double bound( final int p_index, final HashMap<IEdge, Integer> p_used )
+    {
+        double l_bound = 0.0;
+        for ( int i = p_index; i < m_pool.size(); i++ )
+        {
+            double l_min = Double.MAX_VALUE;
+            for ( final List<IEdge> l_route : m_pool.get( i ) )
+                l_min = Math.min( l_min, increment( l_route, p_used ) );
+            l_bound = Math.max( l_bound, l_min );
+        }
+        return l_bound;
+    }
+
+    /**
+     * the cost added to the objective when a route is selected
+     * @param p_route the route
+     * @param p_used the edges already selected
+     * @return the additional cost
+     */
+    private static double increment( final List<IEdge> p_route, final HashMap<IEdge, Integer> p_used )
+    {
+        double l_cost = 0.0;
+        for ( final IEdge l_edge : p_route )
+            if ( !p_used.containsKey( l_edge ) ) l_cost += 0.5 * l_edge.weight();
+        return l_cost;
+    }
+
+    /**
+     * saves the chosen routes and the number of vehicles per edge
+     */
+    private void saveResults()
+    {
+        for ( int i = 0; i < m_pods.size(); i++ )
+        {
+            final ArrayList<IEdge> l_route = new ArrayList<>( m_pool.get( i ).get( m_bestchoice[i] ) );
+            l_route.forEach( e -> m_np.put( e, m_np.getOrDefault( e, 0 ) + 1 ) );
+            m_results.put( m_pods.get( i ), l_route );
+        }
+    }
+
+    /**
+     * failsafe function to ensure the solver solution
+     * outperforms selfish routing
+     * @return vehicles whose cost is higher
+     */
+    private ArrayList<CVehicle> secondCostCheck()
+    {
+        final ArrayList<CVehicle> l_flagged = new ArrayList<>();
+        m_results.keySet().forEach( p ->
+        {
+            final AtomicDouble l_cost = new AtomicDouble( 0.0 );
+            m_results.get( p ).forEach( e -> l_cost.getAndAdd( ( e.weight().doubleValue() + ( e.weight().doubleValue() / m_omega * m_np.get( e ) ) ) / m_np.get( e ) )  );
+            if ( l_cost.get() > p.preferences().maxCost() ) l_flagged.add( p );
+        } );
+        return l_flagged;
+    }
+
+    /**
+     * gets the sorted routes
+     * empty if the problem was infeasible
+     * @return the routes found by the solver
+     */
+    @Override
+    public HashMap<CVehicle, ArrayList<IEdge>> getRoutes()
+    {
+        return m_results;
+    }
+
+    /**
+     * the flagged vehicles
+     * @return vehicles whose cost is higher with the solver
+     */
+    @Override
+    public ArrayList<CVehicle> getFlagged()
+    {
+        return m_flagged;
+    }
+
+    /**
+     * the final solution( all y's selected)
+     * @return the complete solution
+     */
+    @Override
+    public HashMap<IEdge, Integer> getNP()
+    {
+        return m_np;
+    }
+
+    /**
+     * the objective value
+     * @return the cost of the shared edges, null if infeasible
+     */
+    public Double optimum()
+    {
+        return m_optimum;
+    }
+
+    /**
+     * the objective value of the greedy incumbent
+     * the branch-and-bound started from
+     * @return the greedy cost, null if infeasible
+     */
+    public Double incumbent()
+    {
+        return m_incumbent;
+    }
+
+    /**
+     * whether the branch-and-bound ended within its node limit,
+     * so that the objective value is the optimum over the candidate pools
+     * @return true if the search was complete, false if it stopped early or was infeasible
+     */
+    public boolean complete()
+    {
+        return m_complete;
+    }
+
+    @Override
+    public void display()
+    {
+        System.out.println( "Origin is: " + m_source.toString() );
+        System.out.println( "Destinations are: " );
+        m_pods.forEach( p -> System.out.print( p.name() + ": " +  p.destination() + " " ) );
+        System.out.println();
+        System.out.println();
+
+        m_results.keySet().forEach( d -> m_results.get( d ).forEach( x -> System.out.println( d.name() + " : " + x.name() ) ) );
+        System.out.println();
+
+        m_np.keySet().forEach( y -> System.out.println( "y:" + y.name() ) );
+    }
+
+    /**
+     * partial route in the labelling search
+     */
+    private static final class CLabel
+    {
+        private final int m_node;
+        private final int m_edge;
+        private final CLabel m_parent;
+        private final double m_cost;
+        private final double m_length;
+        private final double m_time;
+
+        /**
+         * ctor
+         * @param p_node the id of the node reached
+         * @param p_edge the id of the edge used to reach the node, negative at the origin
+         * @param p_parent the previous label
+         * @param p_cost the accumulated cost
+         * @param p_length the accumulated length
+         * @param p_time the accumulated time
+         */
+        CLabel( final int p_node, final int p_edge, final CLabel p_parent, final double p_cost, final double p_length, final double p_time )
+        {
+            m_node = p_node;
+            m_edge = p_edge;
+            m_parent = p_parent;
+            m_cost = p_cost;
+            m_length = p_length;
+            m_time = p_time;
+        }
+
+        int node()
+        {
+            return m_node;
+        }
+
+        double cost()
+        {
+            return m_cost;
+        }
+
+        double length()
+        {
+            return m_length;
+        }
+
+        double time()
+        {
+            return m_time;
+        }
+
+        /**
+         * checks whether the partial route already passes a node
+         * @param p_node the node id
+         * @return true if the node was visited
+         */
+        boolean visits( final int p_node )
+        {
+            for ( CLabel l_label = this; l_label != null; l_label = l_label.m_parent )
+                if ( l_label.m_node == p_node ) return true;
+            return false;
+        }
+
+        /**
+         * the ordered route leading to this label
+         * @param p_core the graph the ids refer to
+         * @return list of edges
+         */
+        List<IEdge> route( final CCompressedGraph p_core )
+        {
+            final ArrayList<IEdge> l_route = new ArrayList<>();
+            for ( CLabel l_label = this; l_label.m_edge >= 0; l_label = l_label.m_parent )
+                l_route.add( p_core.edge( l_label.m_edge ) );
+            Collections.reverse( l_route );
+            return l_route;
+        }
+    }
+}
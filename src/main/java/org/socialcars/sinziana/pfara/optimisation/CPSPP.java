@@ -17,12 +17,13 @@ package org.socialcars.sinziana.pfara.optimisation;
 
 import com.google.common.util.concurrent.AtomicDouble;
 import gurobi.GRB;
-import gurobi.GRBEnv;
+import gurobi.GRBConstr;
 import gurobi.GRBException;
 import gurobi.GRBLinExpr;
 import gurobi.GRBModel;
 import gurobi.GRBVar;
 import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.environment.CCompressedGraph;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
 import org.socialcars.sinziana.pfara.units.CUnits;
@@ -30,17 +31,22 @@ import org.socialcars.sinziana.pfara.units.CUnits;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.stream.IntStream;
 
 /**
  * the platooning shortest path class
+ * the environment and the edge variables are kept by the thread's gurobi session,
+ * every call only adds (and removes afterwards) the vehicle variables and constraints,
+ * all variables are indexed by edge id so the model grows with the edges and not with the squared nodes
  */
 public class CPSPP implements IPSPP
 {
-    private final GRBEnv m_env;
+    private final CGurobiSession m_session;
     private final GRBModel m_model;
-    private final GRBVar[][] m_ys;
-    private final HashMap<String, GRBVar[][]> m_xs;
+    private final CCompressedGraph m_core;
+    private final GRBVar[] m_ys;
+    private final HashMap<String, GRBVar[]> m_xs;
+    private final ArrayList<GRBVar> m_vehiclevars = new ArrayList<>();
+    private final ArrayList<GRBConstr> m_constraints = new ArrayList<>();
     private final Integer m_source;
     private final CGraph m_graph;
     private Double m_optimum;
@@ -66,11 +72,11 @@ public class CPSPP implements IPSPP
      */
     public CPSPP( final CGraph p_env, final Integer p_source, final ArrayList<CVehicle> p_pods, final CUnits p_unit, final Double p_omega ) throws GRBException
     {
-        m_env = new GRBEnv( "pspp.log" );
-        m_model = new GRBModel( m_env );
-        m_ys = new GRBVar[ p_env.size() + 1][p_env.size() + 1];
+        m_session = CGurobiSession.current();
+        m_model = m_session.model( p_env );
+        m_core = p_env.core();
+        m_ys = m_session.edgeVariables( p_env );
         m_xs = new HashMap<>();
-        p_pods.forEach( p -> m_xs.put( p.name(), new GRBVar[p_env.size() + 1][p_env.size() + 1] ) );
         m_source = p_source;
         m_pods = p_pods;
         m_graph = p_env;
@@ -80,141 +86,143 @@ public class CPSPP implements IPSPP
         m_unit = p_unit;
         m_omega = p_omega;
 
-        //defines the objective function
-        final GRBLinExpr l_obj = new GRBLinExpr();
-        p_env.edges().forEach( e ->
+        //the variables added before a failure must not stay in the cached model
+        try
         {
-            final Integer l_start = Integer.valueOf( e.from().name() );
-            final Integer l_end = Integer.valueOf( e.to().name() );
-            try
-            {
-                final Double l_edge = 0.5 * e.weight().doubleValue();
-                m_ys[l_start][l_end] = m_model.addVar( 0.0, 1.0, l_edge,
-                        GRB.BINARY,
-                        "y" + l_start  + "-" + l_end );
-                l_obj.addTerm( l_edge, m_ys[l_start][l_end] );
+            addVariables();
+        }
+        catch ( final GRBException | RuntimeException l_err )
+        {
+            cleanUp();
+            throw l_err;
+        }
+        m_optimum = null;
+    }
 
-                p_pods.forEach( p ->
-                {
-                    final String l_ds = p.name();
-                    final GRBVar[][] l_temp = m_xs.get( l_ds );
-                    try
-                    {
-                        l_temp[l_start][l_end] = m_model.addVar( 0.0, 1.0, 0.0,
-                                GRB.BINARY,
-                                "x" + "_" + l_ds + ":" + l_start + "-" + l_end );
-                    }
-                    catch ( final GRBException l_err )
-                    {
-                        l_err.printStackTrace();
-                    }
-                } );
-            }
-            catch ( final GRBException l_e1 )
+    /**
+     * adds the vehicle variables, the objective is part of the cached skeleton
+     * @throws GRBException gurobi
+     */
+    private void addVariables() throws GRBException
+    {
+        for ( final CVehicle l_pod : m_pods )
+        {
+            final GRBVar[] l_temp = new GRBVar[m_core.edgeCount()];
+            for ( int i = 0; i < l_temp.length; i++ )
             {
-                l_e1.printStackTrace();
+                final IEdge l_edge = m_core.edge( i );
+                l_temp[i] = m_model.addVar( 0.0, 1.0, 0.0,
+                        GRB.BINARY,
+                        "x" + "_" + l_pod.name() + ":" + l_edge.from().name() + "-" + l_edge.to().name() );
+                m_vehiclevars.add( l_temp[i] );
             }
-
-        } );
-        m_model.setObjective( l_obj );
-        m_optimum = null;
+            m_xs.put( l_pod.name(), l_temp );
+        }
     }
 
     @Override
     public void solve() throws GRBException
+    {
+        try
+        {
+            build();
+            m_model.optimize();
+            m_optimum = m_model.get( GRB.DoubleAttr.ObjVal );
+            if ( !m_optimum.equals( null ) )
+            {
+                saveResults();
+                m_flagged = secondCostCheck();
+                m_session.keepIncumbent( m_graph );
+            }
+        }
+        finally
+        {
+            cleanUp();
+        }
+    }
+
+    /**
+     * adds all the vehicle constraints to the model
+     * @throws GRBException gurobi
+     */
+    void build() throws GRBException
     {
         addConstraints();
         addLengthConstraint();
         addSpeedConstrain();
         addTimeConstraint();
         addCostConstraint();
-        m_model.optimize();
-        m_optimum = m_model.get( GRB.DoubleAttr.ObjVal );
-        if ( !m_optimum.equals( null ) )
-        {
-            saveResults();
-            m_flagged = secondCostCheck();
-        }
-        cleanUp();
+        m_model.update();
     }
 
     /**
      * adds the flow and binary constraints
+     * @throws GRBException gurobi
      */
-    private void addConstraints()
+    private void addConstraints() throws GRBException
     {
-        //flow constraint
-        m_pods.forEach( p ->
+        //flow constraint, built from the incidence lists of every node
+        final int l_source = m_core.nodeId( m_graph.nodeByName( m_source.toString() ) );
+        for ( final CVehicle l_pod : m_pods )
         {
-            final GRBVar[][] l_temp = m_xs.get( p.name() );
-            IntStream.range( 0, m_graph.size() + 1 ).boxed().forEach( i ->
+            final GRBVar[] l_temp = m_xs.get( l_pod.name() );
+            final int l_destination = m_core.nodeId( m_graph.nodeByName( l_pod.destination() ) );
+            for ( int i = 0; i < m_core.nodeCount(); i++ )
             {
-                final GRBLinExpr l_expr = new GRBLinExpr();
-                IntStream.range( 0, m_graph.size() + 1 ).boxed().forEach( j ->
-                {
-                    if ( l_temp[i][j] != null ) l_expr.addTerm( 1.0, l_temp[i][j] );
-                    if ( l_temp[j][i] != null ) l_expr.addTerm( -1.0, l_temp[j][i] );
-                } );
-                try
-                {
-                    if  ( i.equals( m_source ) )
-                        m_model.addConstr( l_expr, GRB.EQUAL, 1.0, "Origin" +  p );
-                    else if ( i.equals( Integer.valueOf( p.destination() ) ) )
-                        m_model.addConstr( l_expr, GRB.EQUAL, -1.0, "Destination" +  p );
-                    else
-                        m_model.addConstr( l_expr, GRB.EQUAL, 0.0, "Flow" +  p );
-                }
-                catch ( final GRBException l_err )
-                {
-                    l_err.printStackTrace();
-                }
-            } );
-        } );
+                final GRBLinExpr l_expr = flow( i, l_temp );
+                if ( i == l_source )
+                    m_constraints.add( m_model.addConstr( l_expr, GRB.EQUAL, 1.0, "Origin" + l_pod ) );
+                else if ( i == l_destination )
+                    m_constraints.add( m_model.addConstr( l_expr, GRB.EQUAL, -1.0, "Destination" + l_pod ) );
+                else
+                    m_constraints.add( m_model.addConstr( l_expr, GRB.EQUAL, 0.0, "Flow" + l_pod ) );
+            }
+        }
 
         //x<=y
-        m_graph.edges().forEach( e ->
+        for ( final CVehicle l_pod : m_pods )
         {
-            final Integer l_start = Integer.valueOf( e.from().name() );
-            final Integer l_end = Integer.valueOf( e.to().name() );
-
-            m_pods.forEach( p ->
+            final GRBVar[] l_temp = m_xs.get( l_pod.name() );
+            for ( int i = 0; i < l_temp.length; i++ )
             {
                 final GRBLinExpr l_expr = new GRBLinExpr();
-                final GRBVar[][] l_temp = m_xs.get( p.name() );
-                l_expr.addTerm( 1.0, l_temp[l_start][l_end] );
-                l_expr.addTerm( -1.0, m_ys[l_start][l_end] );
-                try
-                {
-                    m_model.addConstr( l_expr, GRB.LESS_EQUAL, 0.0, "x<=y" );
-                }
-                catch ( final GRBException l_ex )
-                {
-                    System.out.println( l_ex.getErrorCode() );
-                }
-            } );
-        } );
+                l_expr.addTerm( 1.0, l_temp[i] );
+                l_expr.addTerm( -1.0, m_ys[i] );
+                m_constraints.add( m_model.addConstr( l_expr, GRB.LESS_EQUAL, 0.0, "x<=y" ) );
+            }
+        }
+    }
+
+    /**
+     * outflow minus inflow of a node
+     * @param p_node the node id
+     * @param p_xs the edge variables of a vehicle
+     * @return the flow expression
+     */
+    private GRBLinExpr flow( final int p_node, final GRBVar[] p_xs )
+    {
+        final GRBLinExpr l_expr = new GRBLinExpr();
+        for ( int j = m_core.outBegin( p_node ); j < m_core.outEnd( p_node ); j++ )
+            l_expr.addTerm( 1.0, p_xs[m_core.outEdge( j )] );
+        for ( int j = m_core.inBegin( p_node ); j < m_core.inEnd( p_node ); j++ )
+            l_expr.addTerm( -1.0, p_xs[m_core.inEdge( j )] );
+        return l_expr;
     }
 
     /**
      * adds the length constraint
+     * @throws GRBException gurobi
      */
-    private void addLengthConstraint()
+    private void addLengthConstraint() throws GRBException
     {
-        m_pods.forEach( p ->
+        final double[] l_lengths = m_core.lengths();
+
+        for ( final CVehicle l_pod : m_pods )
         {
-            try
-            {
-                final GRBVar[][] l_temp = m_xs.get( p.name() );
-                final double l_ml = p.preferences().lengthLimit();
-                final GRBLinExpr l_dist = new GRBLinExpr();
-                m_graph.edges().forEach( e -> l_dist.addTerm( e.length(), l_temp[Integer.valueOf( e.from().name() )][Integer.valueOf( e.to().name() )] ) );
-                m_model.addConstr( l_dist, GRB.LESS_EQUAL, l_ml, "maxdist" + p.name() );
-            }
-            catch ( final GRBException l_err )
-            {
-                l_err.printStackTrace();
-            }
-        } );
+            final GRBLinExpr l_dist = new GRBLinExpr();
+            l_dist.addTerms( l_lengths, m_xs.get( l_pod.name() ) );
+            m_constraints.add( m_model.addConstr( l_dist, GRB.LESS_EQUAL, l_pod.preferences().lengthLimit(), "maxdist" + l_pod.name() ) );
+        }
     }
 
     /**
@@ -229,82 +237,58 @@ public class CPSPP implements IPSPP
 
     /**
      * adds the time consintraint
+     * @throws GRBException gurobi
      */
-    private void addTimeConstraint()
+    private void addTimeConstraint() throws GRBException
     {
-        final HashMap<IEdge, Double> l_times = new HashMap<>();
-        m_graph.edges().forEach( e ->
-                l_times.put( e, e.length() / ( m_speed * m_unit.getBlock().doubleValue() ) )
-        );
-        m_pods.forEach( p ->
+        final double[] l_times = new double[m_core.edgeCount()];
+        for ( int i = 0; i < l_times.length; i++ )
+            l_times[i] = m_core.length( i ) / ( m_speed * m_unit.getBlock().doubleValue() );
+
+        for ( final CVehicle l_pod : m_pods )
         {
-            try
-            {
-                final GRBVar[][] l_temp = m_xs.get( p.name() );
-                final Integer l_tl = p.preferences().timeLimit();
-                final GRBLinExpr l_time = new GRBLinExpr();
-                m_graph.edges().forEach( e -> l_time.addTerm( l_times.get( e ), l_temp[Integer.valueOf( e.from().name() )][Integer.valueOf( e.to().name() )] ) );
-                m_model.addConstr( l_time, GRB.LESS_EQUAL, l_tl, "maxtime" + p );
-            }
-            catch ( final GRBException l_err )
-            {
-                l_err.printStackTrace();
-            }
-        } );
+            final GRBLinExpr l_time = new GRBLinExpr();
+            l_time.addTerms( l_times, m_xs.get( l_pod.name() ) );
+            m_constraints.add( m_model.addConstr( l_time, GRB.LESS_EQUAL, l_pod.preferences().timeLimit(), "maxtime" + l_pod ) );
+        }
     }
 
     /**
      * adds the cost constraint
+     * @throws GRBException gurobi
      */
-    private void addCostConstraint()
+    private void addCostConstraint() throws GRBException
     {
-        m_pods.forEach( p ->
+        final double[] l_weights = m_core.weights();
+        for ( final CVehicle l_pod : m_pods )
         {
-            try
-            {
-                final GRBVar[][] l_temp = m_xs.get( p.name() );
-                final double l_mc = p.preferences().maxCost();
-                final GRBLinExpr l_cost = new GRBLinExpr();
-                m_graph.edges().forEach( e -> l_cost.addTerm( e.weight().doubleValue(), l_temp[Integer.valueOf( e.from().name() )][Integer.valueOf( e.to().name() )] ) );
-                m_model.addConstr( l_cost, GRB.LESS_EQUAL, l_mc + l_mc / 2, "maxcost" + p.name() );
-            }
-            catch ( final GRBException l_err )
-            {
-                l_err.printStackTrace();
-            }
-        } );
+            final double l_mc = l_pod.preferences().maxCost();
+            final GRBLinExpr l_cost = new GRBLinExpr();
+            l_cost.addTerms( l_weights, m_xs.get( l_pod.name() ) );
+            m_constraints.add( m_model.addConstr( l_cost, GRB.LESS_EQUAL, l_mc + l_mc / 2, "maxcost" + l_pod.name() ) );
+        }
     }
 
     /**
      * saves the result so model can be destroyed after solving
+     * @throws GRBException gurobi
      */
-    private void saveResults()
+    private void saveResults() throws GRBException
     {
-        m_graph.edges().forEach( e ->
+        for ( final CVehicle l_pod : m_pods )
         {
-            final Integer l_start = Integer.valueOf( e.from().name() );
-            final Integer l_end = Integer.valueOf( e.to().name() );
-
-            m_pods.forEach( p ->
+            final double[] l_values = m_model.get( GRB.DoubleAttr.X, m_xs.get( l_pod.name() ) );
+            final ArrayList<IEdge> l_res = m_results.get( l_pod );
+            for ( int i = 0; i < l_values.length; i++ )
             {
-                try
-                {
-                    final GRBVar[][] l_temp = m_xs.get( p.name() );
-                    final ArrayList<IEdge> l_res = m_results.get( p );
-                    if ( ( l_temp[l_start][l_end] != null ) && ( l_temp[l_start][l_end].get( GRB.DoubleAttr.X ) == 1 ) )
-                    {
-                        m_np.put( e, m_np.getOrDefault( e, 0 ) + 1 );
-                        l_res.add( e );
-                        m_endtimes.put( p, m_endtimes.getOrDefault( p.name(), 0 ) + Math.toIntExact( Math.round( e.length() / m_speed ) ) );
-                        m_lengths.put( p, m_lengths.getOrDefault( p.name(), 0.0 ) + e.length() );
-                    }
-                }
-                catch ( final GRBException l_err )
-                {
-                    l_err.printStackTrace();
-                }
-            } );
-        } );
+                if ( l_values[i] != 1 ) continue;
+                final IEdge l_edge = m_core.edge( i );
+                m_np.put( l_edge, m_np.getOrDefault( l_edge, 0 ) + 1 );
+                l_res.add( l_edge );
+                m_endtimes.put( l_pod, m_endtimes.getOrDefault( l_pod.name(), 0 ) + Math.toIntExact( Math.round( m_core.length( i ) / m_speed ) ) );
+                m_lengths.put( l_pod, m_lengths.getOrDefault( l_pod.name(), 0.0 ) + m_core.length( i ) );
+            }
+        }
         sortResult();
     }
 
@@ -382,6 +366,15 @@ public class CPSPP implements IPSPP
         return m_np;
     }
 
+    /**
+     * the objective value
+     * @return the objective of the model, null before solving
+     */
+    public Double optimum()
+    {
+        return m_optimum;
+    }
+
     @Override
     public void display()
     {
@@ -398,12 +391,18 @@ public class CPSPP implements IPSPP
     }
 
     /**
-     * destroys the model
+     * removes the vehicle variables and constraints
+     * so that the model skeleton can be reused by the next call
      * @throws GRBException gurobi
      */
-    private void cleanUp() throws GRBException
+    void cleanUp() throws GRBException
     {
-        m_model.dispose();
-        m_env.dispose();
+        for ( final GRBConstr l_constr : m_constraints )
+            m_model.remove( l_constr );
+        for ( final GRBVar l_var : m_vehiclevars )
+            m_model.remove( l_var );
+        m_constraints.clear();
+        m_vehiclevars.clear();
+        m_model.update();
     }
 }
@@ -21,6 +21,7 @@ import gurobi.GRBException;
 import gurobi.GRBLinExpr;
 import gurobi.GRBModel;
 import gurobi.GRBVar;
+import org.socialcars.sinziana.pfara.environment.CCompressedGraph;
 import org.socialcars.sinziana.pfara.environment.CGraph;
 import org.socialcars.sinziana.pfara.environment.IEdge;
 import org.socialcars.sinziana.pfara.environment.INode;
@@ -35,7 +36,8 @@ public class CSPP implements ISPP
 {
     private final GRBEnv m_env;
     private final GRBModel m_model;
-    private final GRBVar[][] m_xs;
+    private final CCompressedGraph m_core;
+    private final GRBVar[] m_xs;
     private Integer m_length;
     private double m_cost;
     private ArrayList<IEdge> m_results;
@@ -52,7 +54,8 @@ public class CSPP implements ISPP
     {
         m_env = new GRBEnv( "spp.log" );
         m_model = new GRBModel( m_env );
-        m_xs = new GRBVar[p_network.size() + 1][p_network.size() + 1];
+        m_core = p_network.core();
+        m_xs = new GRBVar[m_core.edgeCount()];
         m_length = 0;
         m_cost = 0;
         m_graph = p_network;
@@ -60,27 +63,20 @@ public class CSPP implements ISPP
         m_destination = p_destination;
         m_results = new ArrayList<>();
 
-        p_network.edges().forEach( iEdge ->
+        for ( int i = 0; i < m_xs.length; i++ )
         {
-            final INode l_start = iEdge.from();
-            final INode l_end = iEdge.to();
+            final INode l_start = m_core.edge( i ).from();
+            final INode l_end = m_core.edge( i ).to();
             //creates the objective function
-            try
-            {
-                if ( iEdge.weight().doubleValue() == 0.0 )
-                    //some weight must be given, throws the program for a loop
-                    m_xs[Integer.valueOf( l_start.name() )][Integer.valueOf( l_end.name() )] = m_model.addVar( 0.0, 1.0, iEdge.weight().doubleValue() + 0.000001,
-                            GRB.BINARY,
-                            "y" + l_start  + "-" + l_end );
-                else m_xs[Integer.valueOf( l_start.name() )][Integer.valueOf( l_end.name() )] = m_model.addVar( 0.0, 1.0, iEdge.weight().doubleValue(),
+            if ( m_core.weight( i ) == 0.0 )
+                //some weight must be given, throws the program for a loop
+                m_xs[i] = m_model.addVar( 0.0, 1.0, m_core.weight( i ) + 0.000001,
                         GRB.BINARY,
                         "y" + l_start  + "-" + l_end );
-            }
-            catch ( final GRBException l_err )
-            {
-                l_err.printStackTrace();
-            }
-        } );
+            else m_xs[i] = m_model.addVar( 0.0, 1.0, m_core.weight( i ),
+                    GRB.BINARY,
+                    "y" + l_start  + "-" + l_end );
+        }
     }
 
     /**
@@ -102,42 +98,34 @@ public class CSPP implements ISPP
     private void addConstraints( final CGraph p_network, final Integer p_origin, final Integer p_destination ) throws GRBException
     {
         //flow constraints
-        for ( int i = 0; i < p_network.size(); i++ )
+        final int l_origin = m_core.nodeId( p_network.nodeByName( p_origin.toString() ) );
+        final int l_destination = m_core.nodeId( p_network.nodeByName( p_destination.toString() ) );
+        for ( int i = 0; i < m_core.nodeCount(); i++ )
         {
             final GRBLinExpr l_expr = new GRBLinExpr();
-            for ( int j = 0; j < p_network.size(); j++ )
-            {
-                if ( m_xs[i][j] != null ) l_expr.addTerm( 1.0, m_xs[i][j] );
-                if ( m_xs[j][i] != null ) l_expr.addTerm( -1.0, m_xs[j][i] );
-            }
-            if ( i == p_origin ) m_model.addConstr( l_expr, GRB.EQUAL, 1.0, "OriginConstraint" );
-            else if ( i == p_destination ) m_model.addConstr( l_expr, GRB.EQUAL, -1.0, "DestinationConstraint" );
+            for ( int j = m_core.outBegin( i ); j < m_core.outEnd( i ); j++ )
+                l_expr.addTerm( 1.0, m_xs[m_core.outEdge( j )] );
+            for ( int j = m_core.inBegin( i ); j < m_core.inEnd( i ); j++ )
+                l_expr.addTerm( -1.0, m_xs[m_core.inEdge( j )] );
+            if ( i == l_origin ) m_model.addConstr( l_expr, GRB.EQUAL, 1.0, "OriginConstraint" );
+            else if ( i == l_destination ) m_model.addConstr( l_expr, GRB.EQUAL, -1.0, "DestinationConstraint" );
             else m_model.addConstr( l_expr, GRB.EQUAL, 0.0, "FlowConstraint" );
         }
     }
 
     //the results should be available after the execution
     //
-    private void saveResults()
+    private void saveResults() throws GRBException
     {
-        m_graph.edges().forEach( e ->
+        final double[] l_values = m_model.get( GRB.DoubleAttr.X, m_xs );
+        for ( int i = 0; i < l_values.length; i++ )
         {
-            try
-            {
-                if ( ( m_xs[Integer.valueOf( e.from().name() )][Integer.valueOf( e.to().name() )] != null )
-                        && ( m_xs[Integer.valueOf( e.from().name() )][Integer.valueOf( e.to().name() )].get( GRB.DoubleAttr.X ) == 1 ) )
-                {
-                    m_results.add( e );
-                    m_length++;
-                }
-            }
-            catch ( final GRBException l_err )
+            if ( l_values[i] == 1 )
             {
-                l_err.printStackTrace();
+                m_results.add( m_core.edge( i ) );
+                m_length++;
             }
-        } );
-
-
+        }
     }
 
     /**
@@ -0,0 +1,137 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.negotiation.events.ENegotiationEventType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * test class for the binary event file
+ */
+public class TestCBinaryWriter
+{
+    /**
+     * testing that the records read back over several blocks
+     * are the ones written and free text is skipped
+     * @throws IOException file
+     */
+    @Test
+    public void roundtrip() throws IOException
+    {
+        final Path l_file = Files.createTempFile( "events", ".bin" );
+        final List<CEventRecord> l_written = new ArrayList<>();
+
+        final CBinaryWriter l_writer = new CBinaryWriter( l_file );
+        for ( int i = 0; i < 3; i++ )
+        {
+            final List<CEventRecord> l_batch = new ArrayList<>();
+            for ( int j = 0; j < 100; j++ )
+            {
+                final String l_who = "veh" + ( 100 * i + j );
+                l_batch.add( new CEventRecord( Level.INFO, l_who, EEventType.values()[j % EEventType.values().length], "node" + j % 7,
+                                               10 * i + j, new String[]{"veh" + j, "veh" + ( 100 * i + j + 1 )}, null, null ) );
+                l_batch.add( new CEventRecord( Level.INFO, l_who, ENegotiationEventType.values()[j % ENegotiationEventType.values().length],
+                                               null, null, null, j % 2 == 0 ? null : 0.5 * j, null ) );
+            }
+            l_written.addAll( l_batch );
+            l_batch.add( CEventRecord.of( Level.INFO, "free text" ) );
+            l_writer.write( l_batch );
+        }
+        l_writer.close();
+
+        final List<CEventRecord> l_read = new ArrayList<>();
+        try ( CBinaryReader l_reader = new CBinaryReader( l_file ) )
+        {
+            l_reader.forEachRemaining( l_read::add );
+        }
+        Files.delete( l_file );
+
+        Assert.assertEquals( l_written.size(), l_read.size() );
+        for ( int i = 0; i < l_written.size(); i++ )
+        {
+            final CEventRecord l_expected = l_written.get( i );
+            final CEventRecord l_actual = l_read.get( i );
+            Assert.assertEquals( l_expected.who(), l_actual.who() );
+            Assert.assertEquals( l_expected.what(), l_actual.what() );
+            Assert.assertEquals( l_expected.where(), l_actual.where() );
+            Assert.assertEquals( l_expected.when(), l_actual.when() );
+            Assert.assertEquals( l_expected.buyout(), l_actual.buyout() );
+            if ( l_expected.with() != null )
+            {
+                final String[] l_with = l_expected.with().clone();
+                final String[] l_actualwith = l_actual.with().clone();
+                Arrays.sort( l_with );
+                Arrays.sort( l_actualwith );
+                Assert.assertArrayEquals( l_with, l_actualwith );
+            }
+        }
+    }
+
+    /**
+     * testing that the companions are numbered apart from the other names
+     * and that a batch that could not be written does not number its names
+     * @throws IOException file
+     */
+    @Test
+    public void numbering() throws IOException
+    {
+        final String l_first = "veh0";
+        final Path l_file = Files.createTempFile( "events", ".bin" );
+        final CBinaryWriter l_writer = new CBinaryWriter( l_file );
+        try
+        {
+            l_writer.write( List.of( new CEventRecord( Level.INFO, l_first, EEventType.FORMED, "node0", 0, new String[]{"veh1", null}, null, null ) ) );
+            Assert.fail();
+        }
+        catch ( final NullPointerException l_err )
+        {
+            //the names of the failed batch are numbered again by the next one
+        }
+
+        final List<CEventRecord> l_batch = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ )
+            l_batch.add( new CEventRecord( Level.INFO, l_first, EEventType.ARRIVED, "node" + i, i, null, null, null ) );
+        l_batch.add( new CEventRecord( Level.INFO, l_first, EEventType.FORMED, "node0", 200, new String[]{"veh1", "veh2"}, null, null ) );
+        l_writer.write( l_batch );
+        l_writer.write( List.of( new CEventRecord( Level.INFO, "veh3", EEventType.FORMED, "node1", 201, new String[]{l_first, "veh2"}, null, null ) ) );
+        l_writer.close();
+
+        final List<CEventRecord> l_read = new ArrayList<>();
+        try ( CBinaryReader l_reader = new CBinaryReader( l_file ) )
+        {
+            l_reader.forEachRemaining( l_read::add );
+            Assert.assertEquals( 204, l_reader.names().size() );
+            Assert.assertEquals( List.of( "veh1", "veh2", l_first ), l_reader.vehicles() );
+        }
+        Files.delete( l_file );
+
+        Assert.assertEquals( 202, l_read.size() );
+        Assert.assertEquals( "node199", l_read.get( 199 ).where() );
+        Assert.assertArrayEquals( new String[]{"veh1", "veh2"}, l_read.get( 200 ).with() );
+        Assert.assertArrayEquals( new String[]{"veh2", l_first}, l_read.get( 201 ).with() );
+        Assert.assertEquals( "veh3", l_read.get( 201 ).who() );
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+/**
+ * test class for the bounded event history
+ */
+public class TestCEventHistory
+{
+    /**
+     * testing the lifecycle queries
+     */
+    @Test
+    public void lifecycle()
+    {
+        final CEventHistory l_history = CEventHistory.none();
+        Assert.assertFalse( l_history.after( EEventType.FORMED, EEventType.SPLIT ) );
+
+        l_history.add( new CEvent( null, EEventType.FORMED, "a", 1, null ) );
+        Assert.assertTrue( l_history.after( EEventType.FORMED, EEventType.SPLIT ) );
+        l_history.add( new CEvent( null, EEventType.SPLIT, "b", 2, null ) );
+        Assert.assertFalse( l_history.after( EEventType.FORMED, EEventType.SPLIT ) );
+        l_history.add( new CEvent( null, EEventType.FORMED, "c", 3, null ) );
+        Assert.assertTrue( l_history.after( EEventType.FORMED, EEventType.SPLIT ) );
+
+        Assert.assertFalse( l_history.has( EEventType.COMPLETED ) );
+        l_history.add( new CEvent( null, EEventType.COMPLETED, "d", 4, null ) );
+        Assert.assertTrue( l_history.has( EEventType.COMPLETED ) );
+
+        Assert.assertEquals( 2, l_history.count( EEventType.FORMED ) );
+        Assert.assertEquals( "c", l_history.last( EEventType.FORMED ).where() );
+        Assert.assertEquals( 4, l_history.size() );
+        Assert.assertTrue( l_history.events().isEmpty() );
+    }
+
+    /**
+     * testing that only the last events are retained
+     */
+    @Test
+    public void retention()
+    {
+        final CEventHistory l_last = CEventHistory.last( 3 );
+        final CEventHistory l_all = CEventHistory.all();
+        for ( int i = 0; i < 10; i++ )
+        {
+            l_last.add( new CEvent( null, EEventType.ARRIVED, String.valueOf( i ), i, null ) );
+            l_all.add( new CEvent( null, EEventType.ARRIVED, String.valueOf( i ), i, null ) );
+        }
+
+        Assert.assertEquals( 10, l_all.events().size() );
+        Assert.assertEquals( 3, l_last.events().size() );
+        Assert.assertEquals( 10, l_last.size() );
+        final Iterator<IEvent> l_events = l_last.events().iterator();
+        for ( int i = 7; i < 10; i++ )
+            Assert.assertEquals( String.valueOf( i ), l_events.next().where() );
+    }
+}
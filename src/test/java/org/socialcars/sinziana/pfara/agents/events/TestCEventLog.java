@@ -0,0 +1,157 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.agents.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.stream.IntStream;
+
+/**
+ * test class for the asynchronous event log
+ */
+public class TestCEventLog
+{
+    /**
+     * testing that all records arrive in order, in bounded batches,
+     * and that records below the level are dropped
+     */
+    @Test
+    public void batches()
+    {
+        final List<String> l_written = Collections.synchronizedList( new ArrayList<>() );
+        final List<Integer> l_sizes = Collections.synchronizedList( new ArrayList<>() );
+        final CEventLog l_log = new CEventLog( new IEventWriter()
+        {
+            @Override
+            public void write( final List<CEventRecord> p_batch )
+            {
+                l_sizes.add( p_batch.size() );
+                p_batch.forEach( r -> l_written.add( r.text() ) );
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        }, Level.INFO, 128, 16 );
+
+        for ( int i = 0; i < 10000; i++ )
+        {
+            l_log.log( Level.INFO, String.valueOf( i ) );
+            l_log.log( Level.FINE, "dropped" );
+        }
+        l_log.flush();
+
+        Assert.assertEquals( 10000, l_written.size() );
+        for ( int i = 0; i < 10000; i++ )
+            Assert.assertEquals( String.valueOf( i ), l_written.get( i ) );
+        l_sizes.forEach( s -> Assert.assertTrue( s <= 16 ) );
+
+        l_log.close();
+        l_log.log( Level.INFO, "closed" );
+        Assert.assertEquals( 10000, l_written.size() );
+    }
+
+    /**
+     * testing that closing while other threads log
+     * writes every record the log accepted
+     * @throws InterruptedException thread
+     */
+    @Test
+    public void close() throws InterruptedException
+    {
+        for ( int n = 0; n < 20; n++ )
+            closing();
+    }
+
+    /**
+     * testing that a writer throwing a runtime exception
+     * does not stop the background thread, so logging into a full buffer
+     * and flushing do not block
+     */
+    @Test( timeout = 10000 )
+    public void failing()
+    {
+        final AtomicLong l_seen = new AtomicLong();
+        final CEventLog l_log = new CEventLog( new IEventWriter()
+        {
+            @Override
+            public void write( final List<CEventRecord> p_batch )
+            {
+                if ( l_seen.getAndAdd( p_batch.size() ) == 0 ) throw new IllegalStateException( "failing writer" );
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        }, Level.INFO, 8, 4 );
+
+        IntStream.range( 0, 1000 ).forEach( i -> l_log.log( Level.INFO, String.valueOf( i ) ) );
+        l_log.flush();
+        Assert.assertEquals( 1000, l_seen.get() );
+        l_log.close();
+    }
+
+    /**
+     * closes a log while four threads log to it
+     * @throws InterruptedException thread
+     */
+    private static void closing() throws InterruptedException
+    {
+        final AtomicLong l_written = new AtomicLong();
+        final CEventLog l_log = new CEventLog( new IEventWriter()
+        {
+            @Override
+            public void write( final List<CEventRecord> p_batch )
+            {
+                l_written.addAndGet( p_batch.size() );
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        }, Level.INFO, 64, 8 );
+
+        final CountDownLatch l_started = new CountDownLatch( 4 );
+        final List<Thread> l_threads = new ArrayList<>();
+        for ( int t = 0; t < 4; t++ )
+        {
+            final Thread l_thread = new Thread( () ->
+            {
+                l_started.countDown();
+                IntStream.range( 0, 5000 ).forEach( i -> l_log.log( Level.INFO, String.valueOf( i ) ) );
+            } );
+            l_thread.start();
+            l_threads.add( l_thread );
+        }
+        l_started.await();
+        l_log.close();
+        for ( final Thread l_thread : l_threads )
+            l_thread.join();
+
+        Assert.assertEquals( l_log.logged(), l_written.get() );
+    }
+}
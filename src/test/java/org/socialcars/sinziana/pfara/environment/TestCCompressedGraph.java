@@ -0,0 +1,170 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.data.input.CGraphpojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * test class for the compressed sparse row graph core
+ */
+public class TestCCompressedGraph
+{
+    private static final int SIDE = 32;
+
+    private CGraph m_grid;
+    private CCompressedGraph m_core;
+
+    /**
+     * initializing
+     * a square grid of more than 1000 nodes
+     */
+    @Before
+    public void init()
+    {
+        m_grid = new CGraph( grid( SIDE ) );
+        m_core = m_grid.core();
+    }
+
+    /**
+     * builds a square grid with unit weight edges in both directions
+     * between neighbouring nodes, named by row-major index
+     * @param p_side number of nodes on one side
+     * @return the graph plain old java object
+     */
+    public static CGraphpojo grid( final int p_side )
+    {
+        final List<Map<String, Object>> l_nodes = new ArrayList<>();
+        final List<Map<String, Object>> l_edges = new ArrayList<>();
+        for ( int i = 0; i < p_side * p_side; i++ )
+        {
+            final Map<String, Object> l_coordinates = new HashMap<>();
+            l_coordinates.put( "lat", 0.1 * ( i / p_side ) );
+            l_coordinates.put( "lon", 0.1 * ( i % p_side ) );
+            final Map<String, Object> l_node = new HashMap<>();
+            l_node.put( "name", String.valueOf( i ) );
+            l_node.put( "coordinates", l_coordinates );
+            l_nodes.add( l_node );
+
+            if ( i % p_side < p_side - 1 )
+            {
+                l_edges.add( edge( i, i + 1 ) );
+                l_edges.add( edge( i + 1, i ) );
+            }
+            if ( i + p_side < p_side * p_side )
+            {
+                l_edges.add( edge( i, i + p_side ) );
+                l_edges.add( edge( i + p_side, i ) );
+            }
+        }
+        final Map<String, Object> l_graph = new HashMap<>();
+        l_graph.put( "nodes", l_nodes );
+        l_graph.put( "edges", l_edges );
+        return new ObjectMapper().convertValue( l_graph, CGraphpojo.class );
+    }
+
+    /**
+     * a grid edge
+     * @param p_from origin node
+     * @param p_to end node
+     * @return the edge description
+     */
+    private static Map<String, Object> edge( final int p_from, final int p_to )
+    {
+        final Map<String, Object> l_edge = new HashMap<>();
+        l_edge.put( "name", p_from + "-" + p_to );
+        l_edge.put( "from", String.valueOf( p_from ) );
+        l_edge.put( "to", String.valueOf( p_to ) );
+        l_edge.put( "weight", 1.0 );
+        return l_edge;
+    }
+
+    /**
+     * testing that every edge appears exactly once
+     * in the outgoing range of its origin and the incoming range of its end
+     */
+    @Test
+    public void incidence()
+    {
+        Assert.assertEquals( SIDE * SIDE, m_core.nodeCount() );
+        Assert.assertEquals( 4 * SIDE * ( SIDE - 1 ), m_core.edgeCount() );
+
+        final int[] l_out = new int[m_core.edgeCount()];
+        final int[] l_in = new int[m_core.edgeCount()];
+        for ( int i = 0; i < m_core.nodeCount(); i++ )
+        {
+            for ( int j = m_core.outBegin( i ); j < m_core.outEnd( i ); j++ )
+            {
+                Assert.assertEquals( i, m_core.from( m_core.outEdge( j ) ) );
+                l_out[m_core.outEdge( j )]++;
+            }
+            for ( int j = m_core.inBegin( i ); j < m_core.inEnd( i ); j++ )
+            {
+                Assert.assertEquals( i, m_core.to( m_core.inEdge( j ) ) );
+                l_in[m_core.inEdge( j )]++;
+            }
+        }
+        for ( int i = 0; i < m_core.edgeCount(); i++ )
+        {
+            Assert.assertEquals( 1, l_out[i] );
+            Assert.assertEquals( 1, l_in[i] );
+            Assert.assertEquals( i, m_core.edgeId( m_core.edge( i ) ) );
+        }
+    }
+
+    /**
+     * testing the lookup of an edge by its nodes
+     */
+    @Test
+    public void pairs()
+    {
+        for ( int i = 0; i < m_core.edgeCount(); i++ )
+            Assert.assertEquals( i, m_core.edge( m_core.from( i ), m_core.to( i ) ) );
+        Assert.assertEquals( -1, m_core.edge( 0, SIDE + 1 ) );
+        Assert.assertEquals( -1, m_core.edge( 0, 0 ) );
+    }
+
+    /**
+     * testing the routing between opposite corners
+     * and the alternative of a single edge
+     */
+    @Test
+    public void route()
+    {
+        final List<IEdge> l_route = m_grid.route( "0", String.valueOf( SIDE * SIDE - 1 ) );
+        Assert.assertEquals( 2 * ( SIDE - 1 ), l_route.size() );
+        Assert.assertEquals( "0", l_route.get( 0 ).from().name() );
+        Assert.assertEquals( String.valueOf( SIDE * SIDE - 1 ), l_route.get( l_route.size() - 1 ).to().name() );
+        for ( int i = 1; i < l_route.size(); i++ )
+            Assert.assertEquals( l_route.get( i - 1 ).to(), l_route.get( i ).from() );
+
+        Assert.assertTrue( m_grid.route( "0", "0" ).isEmpty() );
+
+        final IEdge l_edge = m_grid.edgeByName( "0-1" );
+        final List<List<IEdge>> l_alternatives = m_grid.alternatives( l_edge, 1 );
+        Assert.assertEquals( 1, l_alternatives.size() );
+        Assert.assertEquals( 3, l_alternatives.get( 0 ).size() );
+        Assert.assertFalse( l_alternatives.get( 0 ).contains( l_edge ) );
+    }
+}
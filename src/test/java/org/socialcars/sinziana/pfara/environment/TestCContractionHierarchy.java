@@ -0,0 +1,175 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * test class for the contraction hierarchy
+ */
+public class TestCContractionHierarchy
+{
+    private static final int SIDE = 100;
+    private static final int QUERIES = 500;
+
+    private static CCompressedGraph s_core;
+    private static CContractionHierarchy s_hierarchy;
+    private static int[][] s_pairs;
+
+    /**
+     * initializing once for all tests
+     * a square grid of 10000 nodes and random origin destination pairs
+     */
+    @BeforeClass
+    public static void init()
+    {
+        s_core = new CGraph( TestCCompressedGraph.grid( SIDE ) ).core();
+        s_hierarchy = CContractionHierarchy.build( s_core );
+
+        final Random l_random = new Random( 17 );
+        s_pairs = new int[QUERIES][];
+        for ( int i = 0; i < QUERIES; i++ )
+            s_pairs[i] = new int[]{l_random.nextInt( s_core.nodeCount() ), l_random.nextInt( s_core.nodeCount() )};
+    }
+
+    /**
+     * testing that the paths are connected
+     * and are the dijkstra paths, although the grid has many shortest paths
+     */
+    @Test
+    public void paths()
+    {
+        for ( final int[] l_pair : s_pairs )
+        {
+            final int[] l_path = s_hierarchy.shortestPath( l_pair[0], l_pair[1] );
+            final int[] l_dijkstra = s_core.shortestPath( l_pair[0], l_pair[1], s_core.weights(), -1 );
+            Assert.assertEquals( cost( l_dijkstra ), cost( l_path ), 1e-9 );
+            Assert.assertArrayEquals( l_dijkstra, l_path );
+
+            int l_node = l_pair[0];
+            for ( final int l_edge : l_path )
+            {
+                Assert.assertEquals( l_node, s_core.from( l_edge ) );
+                l_node = s_core.to( l_edge );
+            }
+            Assert.assertEquals( l_pair[1], l_node );
+        }
+        Assert.assertTrue( s_hierarchy.settled() / s_hierarchy.queries() < s_core.nodeCount() / 10 );
+    }
+
+    /**
+     * testing that the choice among several shortest paths
+     * is the same for every build and every query
+     */
+    @Test
+    public void deterministic()
+    {
+        final CContractionHierarchy l_rebuilt = CContractionHierarchy.build( s_core );
+        Assert.assertEquals( s_hierarchy.shortcuts(), l_rebuilt.shortcuts() );
+        for ( final int[] l_pair : s_pairs )
+        {
+            final int[] l_path = s_hierarchy.shortestPath( l_pair[0], l_pair[1] );
+            Assert.assertArrayEquals( l_path, l_rebuilt.shortestPath( l_pair[0], l_pair[1] ) );
+            Assert.assertArrayEquals( l_path, s_hierarchy.shortestPath( l_pair[0], l_pair[1] ) );
+        }
+    }
+
+    /**
+     * testing that a written index is read back
+     * only for the graph it was built for
+     * @throws IOException file
+     */
+    @Test
+    public void file() throws IOException
+    {
+        final Path l_file = Files.createTempFile( "pfara", ".ch" );
+        try
+        {
+            s_hierarchy.save( l_file );
+            final CContractionHierarchy l_loaded = CContractionHierarchy.load( s_core, l_file );
+            Assert.assertNotNull( l_loaded );
+            Assert.assertEquals( s_hierarchy.shortcuts(), l_loaded.shortcuts() );
+            for ( final int[] l_pair : s_pairs )
+                Assert.assertArrayEquals( s_hierarchy.shortestPath( l_pair[0], l_pair[1] ), l_loaded.shortestPath( l_pair[0], l_pair[1] ) );
+
+            Assert.assertNull( CContractionHierarchy.load( new CGraph( TestCCompressedGraph.grid( 10 ) ).core(), l_file ) );
+        }
+        finally
+        {
+            Files.delete( l_file );
+        }
+    }
+
+    /**
+     * testing that a truncated or corrupt file is not read
+     * but rebuilt and replaced
+     * @throws IOException file
+     */
+    @Test
+    public void corrupt() throws IOException
+    {
+        final Path l_directory = Files.createTempDirectory( "pfara" );
+        final Path l_file = l_directory.resolve( "index.ch" );
+        try
+        {
+            s_hierarchy.save( l_file );
+            final byte[] l_content = Files.readAllBytes( l_file );
+
+            Files.write( l_file, Arrays.copyOf( l_content, l_content.length / 2 ) );
+            Assert.assertNull( CContractionHierarchy.load( s_core, l_file ) );
+
+            final byte[] l_flipped = l_content.clone();
+            l_flipped[l_content.length / 2] ^= 1;
+            Files.write( l_file, l_flipped );
+            Assert.assertNull( CContractionHierarchy.load( s_core, l_file ) );
+
+            final CContractionHierarchy l_rebuilt = CContractionHierarchy.of( s_core, l_file );
+            Assert.assertEquals( s_hierarchy.shortcuts(), l_rebuilt.shortcuts() );
+            Assert.assertArrayEquals( l_content, Files.readAllBytes( l_file ) );
+            try ( Stream<Path> l_files = Files.list( l_directory ) )
+            {
+                Assert.assertEquals( 1, l_files.count() );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( l_file );
+            Files.delete( l_directory );
+        }
+    }
+
+    /**
+     * path cost over the graph weights
+     * @param p_path the edge ids
+     * @return the cost
+     */
+    private double cost( final int[] p_path )
+    {
+        double l_cost = 0;
+        for ( final int l_edge : p_path )
+            l_cost += s_core.weight( l_edge );
+        return l_cost;
+    }
+}
@@ -20,31 +20,32 @@ import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
+import org.socialcars.sinziana.pfara.data.input.CCoordinatespojo;
 import org.socialcars.sinziana.pfara.data.input.CEdgepojo;
-import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.data.input.CNodepojo;
+import org.socialcars.sinziana.pfara.data.input.CStoplightpojo;
+import org.socialcars.sinziana.pfara.units.CUnits;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class TestCEdge
 {
-    private CInputpojo m_input;
-    private Map<String, INode> m_nodes;
     private CEdge m_edge;
 
     /**
      * initialises the needed edge and node elements
-     * @throws IOException file exception
+     * from inline pojos
      */
     @Before
-    public void init() throws IOException
+    public void init()
     {
-        m_input = new ObjectMapper().readValue( new File( "src/test/resources/minimal-graph.json" ), CInputpojo.class );
-        m_nodes = m_input.getGraph().getNodes().stream().map( CNode::new ).collect( Collectors.toMap( CNode::name, i -> i ) );
-        final CEdgepojo l_edgepojo = m_input.getGraph().getEdges().iterator().next();
-        m_edge = new CEdge( l_edgepojo, m_nodes.get( l_edgepojo.getFrom() ), m_nodes.get( l_edgepojo.getTo() ) );
+        final CEdgepojo l_edgepojo = new CEdgepojo();
+        l_edgepojo.setName( "edge0-1" );
+        l_edgepojo.setFrom( "node0" );
+        l_edgepojo.setTo( "node1" );
+        l_edgepojo.setWeight( 10.0 );
+        m_edge = new CEdge( l_edgepojo, node( l_edgepojo.getFrom(), 0.0 ), node( l_edgepojo.getTo(), 10.0 ) );
     }
 
     /**
@@ -97,6 +98,26 @@ public class TestCEdge
         Assert.assertTrue( m_edge.length() == 10.0 );
     }
 
+    /**
+     * tests the geometry depending on the units
+     */
+    @Test
+    public void testGeometry()
+    {
+        Assume.assumeNotNull( m_edge );
+        Assert.assertTrue( Double.isNaN( m_edge.freeFlowTime() ) );
+
+        final CUnits l_unit = new CUnits( 1, 0.01 );
+        Assert.assertEquals( 1000.0, m_edge.blocks( l_unit ), 1e-9 );
+        m_edge.precompute( l_unit );
+        Assert.assertEquals( 1000.0, m_edge.blocks( l_unit ), 1e-9 );
+        Assert.assertEquals( 100.0, m_edge.blocks( new CUnits( 1, 0.1 ) ), 1e-9 );
+        Assert.assertTrue( Double.isNaN( m_edge.freeFlowTime() ) );
+
+        m_edge.addBackgroundTraffic( new CBackground( 2.0, 10.0 ) );
+        Assert.assertEquals( 20000.0, m_edge.freeFlowTime(), 1e-6 );
+    }
+
     /**
      * test the stoplight adding function
      */
@@ -104,7 +125,12 @@ public class TestCEdge
     public void testStoplight()
     {
         Assume.assumeNotNull( m_edge );
-        final CStoplight l_sl = new CStoplight( m_input.getStoplights().get( 0 ) );
+        final Map<String, Object> l_pojo = new HashMap<>();
+        l_pojo.put( "location", m_edge.name() );
+        l_pojo.put( "red", 5 );
+        l_pojo.put( "green", 5 );
+        l_pojo.put( "start", 0 );
+        final CStoplight l_sl = new CStoplight( new ObjectMapper().convertValue( l_pojo, CStoplightpojo.class ) );
         m_edge.addStoplight( l_sl );
         Assert.assertTrue( m_edge.stoplight() != null );
     }
@@ -118,4 +144,21 @@ public class TestCEdge
         Assume.assumeNotNull( m_edge );
         Assert.assertTrue( m_edge.toString().contentEquals( "edge0-1(10)" ) );
     }
+
+    /**
+     * builds a node on the first meridian
+     * @param p_name the name
+     * @param p_latitude the latitude
+     * @return the node
+     */
+    private static INode node( final String p_name, final double p_latitude )
+    {
+        final CCoordinatespojo l_coordinates = new CCoordinatespojo();
+        l_coordinates.setLat( p_latitude );
+        l_coordinates.setLon( 0.0 );
+        final CNodepojo l_pojo = new CNodepojo();
+        l_pojo.setName( p_name );
+        l_pojo.setCoordinates( l_coordinates );
+        return new CNode( l_pojo );
+    }
 }
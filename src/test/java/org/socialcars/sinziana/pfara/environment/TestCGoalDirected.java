@@ -0,0 +1,131 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * test class for the goal directed routing
+ */
+public class TestCGoalDirected
+{
+    private static final int SIDE = 50;
+    private static final int QUERIES = 200;
+
+    private CGraph m_grid;
+    private CCompressedGraph m_core;
+    private int[][] m_pairs;
+
+    /**
+     * initializing
+     * a square grid and random origin destination pairs
+     */
+    @Before
+    public void init()
+    {
+        m_grid = new CGraph( TestCCompressedGraph.grid( SIDE ) );
+        m_core = m_grid.core();
+
+        final Random l_random = new Random( 23 );
+        m_pairs = new int[QUERIES][];
+        for ( int i = 0; i < QUERIES; i++ )
+            m_pairs[i] = new int[]{l_random.nextInt( m_core.nodeCount() ), l_random.nextInt( m_core.nodeCount() )};
+    }
+
+    /**
+     * testing that a* and alt find connected paths of the dijkstra cost
+     * while settling fewer nodes, alt the fewest
+     */
+    @Test
+    public void pruning()
+    {
+        final CGoalDirected l_dijkstra = CGoalDirected.dijkstra( m_core );
+        final CGoalDirected l_astar = CGoalDirected.astar( m_core );
+        final CGoalDirected l_alt = CGoalDirected.alt( m_core, 4 );
+        for ( final int[] l_pair : m_pairs )
+        {
+            final double l_cost = cost( m_core.shortestPath( l_pair[0], l_pair[1], m_core.weights(), -1 ) );
+            Assert.assertEquals( l_cost, cost( l_dijkstra.shortestPath( l_pair[0], l_pair[1] ) ), 1e-9 );
+            final int[] l_astarpath = l_astar.shortestPath( l_pair[0], l_pair[1] );
+            final int[] l_altpath = l_alt.shortestPath( l_pair[0], l_pair[1] );
+            Assert.assertEquals( l_cost, cost( l_astarpath ), 1e-9 );
+            Assert.assertEquals( l_cost, cost( l_altpath ), 1e-9 );
+            connected( l_pair, l_astarpath );
+            connected( l_pair, l_altpath );
+        }
+
+        Assert.assertEquals( l_dijkstra.queries(), l_astar.queries() );
+        Assert.assertEquals( l_dijkstra.queries(), l_alt.queries() );
+        Assert.assertEquals( 4, l_alt.landmarks().length );
+        Assert.assertTrue( 2 * l_astar.settled() < l_dijkstra.settled() );
+        Assert.assertTrue( l_alt.settled() < l_astar.settled() );
+    }
+
+    /**
+     * testing the choice of the algorithm on the graph
+     */
+    @Test
+    public void routing()
+    {
+        Assert.assertEquals( ERouting.DIJKSTRA, m_grid.routing() );
+        Assert.assertNull( m_grid.search() );
+
+        final String l_to = String.valueOf( SIDE * SIDE - 1 );
+        final List<IEdge> l_route = m_grid.routing( ERouting.ALT ).route( "0", l_to );
+        Assert.assertEquals( ERouting.ALT, m_grid.routing() );
+        Assert.assertEquals( 2 * ( SIDE - 1 ), l_route.size() );
+        Assert.assertEquals( 1, m_grid.search().queries() );
+
+        Assert.assertEquals( 2 * ( SIDE - 1 ), m_grid.routing( ERouting.ASTAR ).route( "0", l_to ).size() );
+        Assert.assertEquals( ERouting.ASTAR, m_grid.search().routing() );
+        Assert.assertEquals( 2 * ( SIDE - 1 ), m_grid.routing( ERouting.DIJKSTRA ).route( "0", l_to ).size() );
+        Assert.assertNull( m_grid.search() );
+    }
+
+    /**
+     * checks that a path leads from the origin to the destination
+     * @param p_pair the origin and destination node ids
+     * @param p_path the edge ids
+     */
+    private void connected( final int[] p_pair, final int[] p_path )
+    {
+        int l_node = p_pair[0];
+        for ( final int l_edge : p_path )
+        {
+            Assert.assertEquals( l_node, m_core.from( l_edge ) );
+            l_node = m_core.to( l_edge );
+        }
+        Assert.assertEquals( p_pair[1], l_node );
+    }
+
+    /**
+     * path cost over the graph weights
+     * @param p_path the edge ids
+     * @return the cost
+     */
+    private double cost( final int[] p_path )
+    {
+        double l_cost = 0;
+        for ( final int l_edge : p_path )
+            l_cost += m_core.weight( l_edge );
+        return l_cost;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * test class for the k shortest paths
+ */
+public class TestCKShortestPaths
+{
+    private static final int SIDE = 4;
+    private static final int COUNT = 30;
+
+    private CCompressedGraph m_core;
+
+    /**
+     * initializing
+     * a small square grid whose simple paths can be enumerated
+     */
+    @Before
+    public void init()
+    {
+        m_core = new CGraph( TestCCompressedGraph.grid( SIDE ) ).core();
+    }
+
+    /**
+     * testing that the paths are loopless, distinct
+     * and have the costs of the cheapest simple paths
+     */
+    @Test
+    public void paths()
+    {
+        final int l_to = SIDE * SIDE - 1;
+        final List<Double> l_costs = new ArrayList<>();
+        enumerate( 0, l_to, new boolean[m_core.nodeCount()], 0, l_costs );
+        Collections.sort( l_costs );
+
+        final CKShortestPaths l_engine = new CKShortestPaths( m_core, m_core.weights() );
+        final List<int[]> l_paths = l_engine.paths( 0, l_to, COUNT );
+        Assert.assertEquals( COUNT, l_paths.size() );
+        for ( int i = 0; i < COUNT; i++ )
+        {
+            final boolean[] l_visited = new boolean[m_core.nodeCount()];
+            int l_node = 0;
+            double l_cost = 0;
+            l_visited[l_node] = true;
+            for ( final int l_edge : l_paths.get( i ) )
+            {
+                Assert.assertEquals( l_node, m_core.from( l_edge ) );
+                l_node = m_core.to( l_edge );
+                Assert.assertFalse( l_visited[l_node] );
+                l_visited[l_node] = true;
+                l_cost += m_core.weight( l_edge );
+            }
+            Assert.assertEquals( l_to, l_node );
+            Assert.assertEquals( l_costs.get( i ), l_cost, 1e-9 );
+            for ( int j = 0; j < i; j++ )
+                Assert.assertFalse( Arrays.equals( l_paths.get( i ), l_paths.get( j ) ) );
+        }
+
+        Assert.assertEquals( 1, l_engine.queries() );
+        Assert.assertTrue( l_engine.searches() > COUNT );
+        Assert.assertTrue( l_engine.paths( 0, 0, COUNT ).isEmpty() );
+    }
+
+    /**
+     * testing the alternatives of an edge
+     */
+    @Test
+    public void alternatives()
+    {
+        final CGraph l_grid = new CGraph( TestCCompressedGraph.grid( SIDE ) );
+        final IEdge l_edge = l_grid.edgeByName( "0-1" );
+        final List<List<IEdge>> l_alternatives = l_grid.alternatives( l_edge, 3 );
+        Assert.assertEquals( 3, l_alternatives.size() );
+        Assert.assertEquals( 3, l_alternatives.get( 0 ).size() );
+        l_alternatives.forEach( i ->
+        {
+            Assert.assertFalse( i.contains( l_edge ) );
+            Assert.assertEquals( l_edge.from(), i.get( 0 ).from() );
+            Assert.assertEquals( l_edge.to(), i.get( i.size() - 1 ).to() );
+        } );
+    }
+
+    /**
+     * costs of all simple paths by depth first search
+     * @param p_node the current node id
+     * @param p_to the destination node id
+     * @param p_visited the nodes on the current path
+     * @param p_cost the cost of the current path
+     * @param p_costs the costs found
+     */
+    private void enumerate( final int p_node, final int p_to, final boolean[] p_visited, final double p_cost, final List<Double> p_costs )
+    {
+        if ( p_node == p_to )
+        {
+            p_costs.add( p_cost );
+            return;
+        }
+        p_visited[p_node] = true;
+        for ( int i = m_core.outBegin( p_node ); i < m_core.outEnd( p_node ); i++ )
+            if ( !p_visited[m_core.to( m_core.outEdge( i ) )] )
+                enumerate( m_core.to( m_core.outEdge( i ) ), p_to, p_visited, p_cost + m_core.weight( m_core.outEdge( i ) ), p_costs );
+        p_visited[p_node] = false;
+    }
+}
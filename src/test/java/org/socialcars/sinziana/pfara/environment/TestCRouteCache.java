@@ -0,0 +1,88 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * test class for the route cache
+ */
+public class TestCRouteCache
+{
+    private CCompressedGraph m_core;
+
+    /**
+     * initializing
+     * @throws IOException file
+     */
+    @Before
+    public void init() throws IOException
+    {
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/tiergarten.json" ), CInputpojo.class );
+        m_core = new CGraph( l_input.getGraph() ).core();
+    }
+
+    /**
+     * testing that cached routes are the ones
+     * computed directly and that repeated origins hit the cache
+     */
+    @Test
+    public void hits()
+    {
+        final CRouteCache l_cache = new CRouteCache( m_core, 4 );
+        for ( int i = 0; i < m_core.nodeCount(); i += 7 )
+            Assert.assertArrayEquals( m_core.shortestPath( 0, i, m_core.weights(), -1 ), l_cache.route( 0, i, m_core.weights() ) );
+
+        Assert.assertEquals( 1, l_cache.misses() );
+        Assert.assertEquals( 1, l_cache.size() );
+        Assert.assertTrue( l_cache.hits() > 0 );
+
+        //another weight function is another tree
+        final double[] l_hops = new double[m_core.edgeCount()];
+        Arrays.fill( l_hops, 1.0 );
+        l_cache.route( 0, 10, l_hops );
+        Assert.assertEquals( 2, l_cache.misses() );
+    }
+
+    /**
+     * testing that the least recently used tree is evicted
+     */
+    @Test
+    public void eviction()
+    {
+        final CRouteCache l_cache = new CRouteCache( m_core, 2 );
+        l_cache.route( 0, 1, m_core.weights() );
+        l_cache.route( 1, 2, m_core.weights() );
+        l_cache.route( 0, 2, m_core.weights() );
+        l_cache.route( 2, 3, m_core.weights() );
+        Assert.assertEquals( 2, l_cache.size() );
+        Assert.assertEquals( 1, l_cache.evictions() );
+
+        //origin 0 was used more recently than origin 1
+        l_cache.route( 0, 3, m_core.weights() );
+        Assert.assertEquals( 3, l_cache.misses() );
+        l_cache.route( 1, 3, m_core.weights() );
+        Assert.assertEquals( 4, l_cache.misses() );
+    }
+}
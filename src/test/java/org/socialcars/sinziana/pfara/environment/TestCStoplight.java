@@ -21,9 +21,13 @@ import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.data.input.CStoplightpojo;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
 
 public class TestCStoplight
 {
@@ -94,4 +98,58 @@ public class TestCStoplight
         Assert.assertTrue( m_stoplight.timeLeft() == 5 );
     }
 
+    /**
+     * tests that updating several timesteps at once
+     * is the same as updating them one by one
+     */
+    @Test
+    public void testUpdateSteps()
+    {
+        final Map<String, Object> l_pojo = new HashMap<>();
+        l_pojo.put( "location", "edge" );
+        l_pojo.put( "red", 3 );
+        l_pojo.put( "green", 7 );
+        l_pojo.put( "start", 0 );
+        final CStoplight l_stepped = new CStoplight( new ObjectMapper().convertValue( l_pojo, CStoplightpojo.class ) );
+        final CStoplight l_skipped = new CStoplight( new ObjectMapper().convertValue( l_pojo, CStoplightpojo.class ) );
+        l_stepped.setLogger( Logger.getLogger( TestCStoplight.class.getName() ) );
+        l_stepped.start();
+        l_skipped.start();
+
+        for ( int i = 0; i < 40; i++ )
+        {
+            for ( int j = 0; j < i; j++ )
+                l_stepped.update();
+            l_skipped.update( i );
+            Assert.assertEquals( l_stepped.state(), l_skipped.state() );
+            Assert.assertEquals( l_stepped.timeLeft(), l_skipped.timeLeft() );
+        }
+    }
+
+    /**
+     * tests that the state at a timestep is the one
+     * reached by updating the light up to that timestep
+     */
+    @Test
+    public void testClosedForm()
+    {
+        final Map<String, Object> l_pojo = new HashMap<>();
+        l_pojo.put( "location", "edge" );
+        l_pojo.put( "red", 4 );
+        l_pojo.put( "green", 6 );
+        l_pojo.put( "start", 3 );
+        final CStoplight l_light = new CStoplight( new ObjectMapper().convertValue( l_pojo, CStoplightpojo.class ) );
+        l_light.setLogger( Logger.getLogger( TestCStoplight.class.getName() ) );
+        Assert.assertNull( l_light.state( 2 ) );
+        Assert.assertEquals( 9, l_light.nextSwitch( 0 ) );
+
+        l_light.start();
+        for ( int i = 3; i < 50; i++ )
+        {
+            Assert.assertEquals( l_light.state(), l_light.state( i ) );
+            Assert.assertEquals( l_light.timeLeft(), l_light.timeLeft( i ) );
+            Assert.assertEquals( i + l_light.timeLeft(), l_light.nextSwitch( i ) );
+            l_light.update();
+        }
+    }
 }
@@ -0,0 +1,69 @@
+/**
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.data.input.CStoplightpojo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * test class for the stoplight registry
+ */
+public class TestCStoplightRegistry
+{
+    /**
+     * testing that the registry visits every switch of every light
+     * and leaves the lights in the state of their last switch
+     */
+    @Test
+    public void switches()
+    {
+        final List<CStoplight> l_lights = new ArrayList<>();
+        for ( int i = 1; i < 4; i++ )
+        {
+            final Map<String, Object> l_pojo = new HashMap<>();
+            l_pojo.put( "location", "edge" + i );
+            l_pojo.put( "red", i );
+            l_pojo.put( "green", 2 * i );
+            l_pojo.put( "start", 0 );
+            final CStoplight l_light = new CStoplight( new ObjectMapper().convertValue( l_pojo, CStoplightpojo.class ) );
+            l_light.setLogger( Logger.getLogger( TestCStoplightRegistry.class.getName() ) );
+            l_light.start();
+            l_lights.add( l_light );
+        }
+
+        final CStoplightRegistry l_registry = new CStoplightRegistry( l_lights, 0 );
+        int l_switches = 0;
+        int l_expected = 0;
+        for ( int i = 1; i <= 60; i++ )
+        {
+            for ( final CStoplight l_light : l_lights )
+                if ( l_light.state( i ) != l_light.state( i - 1 ) ) l_expected++;
+            if ( l_registry.nextSwitch() == i ) l_switches += l_registry.advance( i );
+            Assert.assertTrue( l_registry.nextSwitch() > i );
+        }
+        Assert.assertEquals( l_expected, l_switches );
+        for ( final CStoplight l_light : l_lights )
+            Assert.assertTrue( l_light.timeLeft() > 0 );
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.environment.negotiables;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for stopping the negotiability analysis early,
+ * the analysis is stopped once the candidates are enumerated, so no candidate is validated
+ */
+public class TestCNegotiabilityAnalysis
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCNegotiabilityAnalysis.class.getName() );
+    private static final Path OUTPUT = Paths.get( "TestNegotiabilityAnalysis" );
+
+    private CGraph m_env;
+    private List<CVehicle> m_profiles;
+    private CUnits m_unit;
+    private Handler m_handler;
+
+    /**
+     * initializing
+     * @throws IOException file
+     */
+    @Before
+    public void init() throws IOException
+    {
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/spiderweb_2.json" ), CInputpojo.class );
+        m_unit = new CUnits( 1, 1.0 );
+        m_env = new CGraph( l_input.getGraph(), m_unit );
+        m_profiles = l_input.getVehicles().stream().map( p -> new CVehicle( p, 0, LOGGER, m_unit, false, 1.0 ) ).collect( Collectors.toList() );
+    }
+
+    /**
+     * removes the handler and the output file
+     * @throws IOException file
+     */
+    @After
+    public void clean() throws IOException
+    {
+        if ( m_handler != null ) LOGGER.removeHandler( m_handler );
+        Files.deleteIfExists( OUTPUT );
+    }
+
+    /**
+     * testing a cancellation before the run
+     * @throws IOException file
+     */
+    @Test
+    public void cancelled() throws IOException
+    {
+        final CNegotiabilityAnalysis l_analysis = new CNegotiabilityAnalysis( m_env, m_profiles, m_unit, 4.0, 2, LOGGER );
+        l_analysis.cancel();
+        final CNegotiabilityResult l_result = l_analysis.run( OUTPUT, 0 );
+
+        Assert.assertTrue( l_analysis.cancelled() );
+        Assert.assertEquals( EAnalysisState.CANCELLED, l_result.state() );
+        Assert.assertEquals( 0, l_result.candidates( ENegotiableShape.TRIANGLE ) + l_result.candidates( ENegotiableShape.POLYGON ) );
+        Assert.assertEquals( 0, l_result.evaluated() );
+        Assert.assertTrue( l_result.entries().isEmpty() );
+        Assert.assertEquals( 1, Files.readAllLines( OUTPUT ).size() );
+    }
+
+    /**
+     * testing a cancellation between the enumeration and the validation
+     * @throws IOException file
+     */
+    @Test
+    public void cancel() throws IOException
+    {
+        final CNegotiabilityAnalysis l_analysis = new CNegotiabilityAnalysis( m_env, m_profiles, m_unit, 4.0, 2, LOGGER );
+        enumerated( i -> l_analysis.cancel() );
+        final CNegotiabilityResult l_result = l_analysis.run( OUTPUT, 0 );
+
+        Assert.assertEquals( EAnalysisState.CANCELLED, l_result.state() );
+        Assert.assertTrue( l_result.candidates( ENegotiableShape.TRIANGLE ) + l_result.candidates( ENegotiableShape.POLYGON ) > 0 );
+        Assert.assertEquals( 0, l_result.evaluated() );
+        Assert.assertTrue( l_result.entries().isEmpty() );
+    }
+
+    /**
+     * testing a time budget spent before the validation
+     * @throws IOException file
+     */
+    @Test
+    public void expired() throws IOException
+    {
+        final CNegotiabilityAnalysis l_analysis = new CNegotiabilityAnalysis( m_env, m_profiles, m_unit, 4.0, 2, LOGGER );
+        enumerated( i -> sleep( 20 ) );
+        final CNegotiabilityResult l_result = l_analysis.run( OUTPUT, 10 );
+
+        Assert.assertFalse( l_analysis.cancelled() );
+        Assert.assertEquals( EAnalysisState.EXPIRED, l_result.state() );
+        Assert.assertEquals( 0, l_result.evaluated() );
+        Assert.assertTrue( l_result.entries().isEmpty() );
+    }
+
+    /**
+     * testing that a budget the analysis stays within completes it
+     * @throws IOException file
+     */
+    @Test
+    public void budget() throws IOException
+    {
+        final CNegotiabilityResult l_result = new CNegotiabilityAnalysis( m_env, m_profiles, m_unit, 4.0, 2, LOGGER ).run( OUTPUT, 600000 );
+
+        Assert.assertEquals( EAnalysisState.COMPLETED, l_result.state() );
+        Assert.assertEquals( (long) l_result.profiles() * ( l_result.candidates( ENegotiableShape.TRIANGLE ) + l_result.candidates( ENegotiableShape.POLYGON ) ),
+                             l_result.evaluated() );
+    }
+
+    /**
+     * runs an action when the analysis logs its candidates
+     * @param p_action the action
+     */
+    private void enumerated( final Consumer<LogRecord> p_action )
+    {
+        m_handler = new Handler()
+        {
+            @Override
+            public void publish( final LogRecord p_record )
+            {
+                if ( p_record.getMessage().startsWith( "Candidates" ) ) p_action.accept( p_record );
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        LOGGER.addHandler( m_handler );
+    }
+
+    /**
+     * sleeps past a time budget
+     * @param p_millis the milliseconds
+     */
+    private static void sleep( final long p_millis )
+    {
+        try
+        {
+            Thread.sleep( p_millis );
+        }
+        catch ( final InterruptedException l_exception )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
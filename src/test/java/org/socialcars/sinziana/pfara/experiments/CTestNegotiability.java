@@ -18,8 +18,12 @@
 
 package org.socialcars.sinziana.pfara.experiments;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.socialcars.sinziana.pfara.environment.negotiables.CNegotiabilityResult;
+import org.socialcars.sinziana.pfara.environment.negotiables.EAnalysisState;
+import org.socialcars.sinziana.pfara.environment.negotiables.ENegotiableShape;
 
 import java.io.IOException;
 
@@ -34,8 +38,11 @@ public class CTestNegotiability
     }
 
     @Test
-    public void run()
+    public void run() throws IOException
     {
-        m_neg.run();
+        final CNegotiabilityResult l_result = m_neg.run();
+        Assert.assertEquals( EAnalysisState.COMPLETED, l_result.state() );
+        Assert.assertEquals( (long) l_result.profiles() * ( l_result.candidates( ENegotiableShape.TRIANGLE ) + l_result.candidates( ENegotiableShape.POLYGON ) ),
+                             l_result.evaluated() );
     }
 }
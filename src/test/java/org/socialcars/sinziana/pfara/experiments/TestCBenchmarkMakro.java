@@ -18,19 +18,28 @@
 
 package org.socialcars.sinziana.pfara.experiments;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.EEventType;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class TestCBenchmarkMakro
 {
+    private static final String GRAPH = "src/test/resources/tiergarten.json";
+    private static final String BACKGROUND = "src/test/resources/tiergarten_info.json";
+    private static final String OUTPUT = "TiergartenOutInBench_2veh";
+
     private CBenchmarkMakro m_benchmakro;
 
     @Before
     public void init() throws IOException
     {
-        m_benchmakro = new CBenchmarkMakro( "src/test/resources/tiergarten.json", "src/test/resources/tiergarten_info.json", "TiergartenOutInBench_2veh", 1, 0.01 );
+        m_benchmakro = new CBenchmarkMakro( GRAPH, BACKGROUND, OUTPUT, 1, 0.01 );
     }
 
     @Test
@@ -39,5 +48,50 @@ public class TestCBenchmarkMakro
         m_benchmakro.run();
     }
 
+    /**
+     * the events of a run go to the event file,
+     * the vehicles only keep the counts and the last event of every type
+     * @throws IOException file
+     */
+    @Test
+    public void history() throws IOException
+    {
+        m_benchmakro.run();
+        m_benchmakro.vehicles().forEach( p ->
+        {
+            Assert.assertTrue( p.history().has( EEventType.COMPLETED ) );
+            Assert.assertTrue( p.history().count( EEventType.ARRIVED ) > 0 );
+            Assert.assertTrue( p.events().isEmpty() );
+        } );
+    }
+
+    /**
+     * a full macro run ends with the route cost, length and duration
+     * every vehicle had in the run of the baseline tick loop
+     * @throws IOException file
+     */
+    @Test
+    public void pinned() throws IOException
+    {
+        m_benchmakro.run();
+        final Map<String, CVehicle> l_vehicles = m_benchmakro.vehicles().stream().collect( Collectors.toMap( CVehicle::name, p -> p ) );
+        Assert.assertEquals( 2, l_vehicles.size() );
+        pinned( l_vehicles.get( "f" ), 183.5, 1.5496859453535712, 196 );
+        pinned( l_vehicles.get( "g" ), 181.5, 1.371547841734497, 177 );
+    }
+
+    /**
+     * checks the route of a vehicle against pinned values
+     * @param p_vehicle the vehicle
+     * @param p_cost the route cost
+     * @param p_length the route length
+     * @param p_duration the route duration
+     */
+    private static void pinned( final CVehicle p_vehicle, final double p_cost, final double p_length, final int p_duration )
+    {
+        Assert.assertEquals( p_cost, p_vehicle.routeCost(), 1e-9 );
+        Assert.assertEquals( p_length, p_vehicle.routeLength(), 1e-9 );
+        Assert.assertEquals( p_duration, p_vehicle.routeDuration().intValue() );
+    }
 
 }
@@ -0,0 +1,168 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.experiments;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.functionality.CSimulationState;
+import org.socialcars.sinziana.pfara.functionality.EVehicleState;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for the reporting of a small known fleet,
+ * five vehicles crossing one edge in a platoon of two and one of three
+ */
+public class TestCReporting
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCReporting.class.getName() );
+    private static final String OUTFILE = "TestReporting";
+
+    private ArrayList<CVehicle> m_vehicles;
+    private CSimulationState m_state;
+    private IEdge m_edge;
+
+    /**
+     * initializing
+     * @throws IOException file
+     */
+    @Before
+    public void init() throws IOException
+    {
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/25.json" ), CInputpojo.class );
+        final CUnits l_unit = new CUnits( 1, 0.01 );
+        m_edge = new CGraph( l_input.getGraph() ).edgeByName( "edge0-1" );
+        m_vehicles = l_input.getVehicles().stream()
+                .map( p -> new CVehicle( p, 0, LOGGER, l_unit, false, 1.0 ) )
+                .collect( Collectors.toCollection( ArrayList::new ) );
+        m_state = new CSimulationState( m_vehicles.size() );
+    }
+
+    /**
+     * removes the output files
+     * @throws IOException file
+     */
+    @After
+    public void clean() throws IOException
+    {
+        Files.deleteIfExists( Paths.get( "CSV" + OUTFILE ) );
+        Files.deleteIfExists( Paths.get( "CSVTicks" + OUTFILE ) );
+    }
+
+    /**
+     * testing the aggregate rows and the vehicle rows of a run
+     * @throws IOException file
+     */
+    @Test
+    public void run() throws IOException
+    {
+        final CReporting l_report = new CReporting( OUTFILE, false );
+        l_report.tick( 0, m_vehicles, m_state );
+
+        for ( int i = 0; i < m_vehicles.size(); i++ )
+        {
+            m_vehicles.get( i ).departed( m_edge, 1 );
+            m_state.set( i, EVehicleState.ACTIVE );
+        }
+        form( 0, 1 );
+        form( 2, 3, 4 );
+        l_report.tick( 1, m_vehicles, m_state );
+
+        for ( int i = 0; i < m_vehicles.size(); i++ )
+        {
+            m_vehicles.get( i ).arrived( m_edge, 3 );
+            m_state.set( i, i == 0 ? EVehicleState.COMPLETE : EVehicleState.IDLE );
+        }
+        l_report.tick( 3, m_vehicles, m_state );
+        Assert.assertEquals( 2, rows( "CSV" ).size() );
+
+        //a member leaving a platoon of three for a new one
+        for ( int i = 0; i < 3; i++ )
+            m_vehicles.get( i ).split( m_edge.to().name(), 4 );
+        form( 1, 2 );
+        l_report.tick( 4, m_vehicles, m_state );
+        l_report.writeCSV( m_vehicles );
+
+        Assert.assertEquals(
+            List.of( "Time,Active,Idle,Completed,Platooning,Formed,Negotiating", "0,0,5,0,0,0,0", "1,5,0,0,5,2,0", "3,0,4,1,5,2,0", "4,0,4,1,4,3,0" ),
+            rows( "CSVTicks" ).stream().map( i -> String.join( ",", i ) ).collect( Collectors.toList() )
+        );
+
+        //the completed vehicle first, the others in their order
+        final List<String[]> l_rows = rows( "CSV" );
+        Assert.assertEquals( 6, l_rows.size() );
+        Assert.assertEquals( "Vehicle", l_rows.get( 0 )[0] );
+        final double l_weight = m_edge.weight().doubleValue();
+        final double[] l_cost = {l_weight / 2 + l_weight, l_weight / 2 + l_weight, l_weight / 3 + l_weight, l_weight / 3 + l_weight, l_weight / 3 + l_weight};
+        for ( int i = 0; i < m_vehicles.size(); i++ )
+        {
+            final String[] l_row = l_rows.get( i + 1 );
+            Assert.assertEquals( m_vehicles.get( i ).name(), l_row[0] );
+            Assert.assertEquals( l_cost[i], Double.parseDouble( l_row[1] ), 1e-9 );
+            Assert.assertEquals( m_edge.length(), Double.parseDouble( l_row[2] ), 1e-9 );
+            Assert.assertEquals( "2", l_row[3] );
+        }
+    }
+
+    /**
+     * forms a platoon
+     * @param p_members the indices of the members
+     */
+    private void form( final int... p_members )
+    {
+        for ( int i = 0; i < p_members.length; i++ )
+        {
+            final ArrayList<CVehicle> l_companions = new ArrayList<>();
+            for ( int j = 0; j < p_members.length; j++ )
+                if ( i != j ) l_companions.add( m_vehicles.get( p_members[j] ) );
+            m_vehicles.get( p_members[i] ).formed( m_edge.from().name(), 1, l_companions );
+        }
+    }
+
+    /**
+     * reads an output file
+     * @param p_prefix the prefix of the file
+     * @return the rows
+     * @throws IOException file
+     */
+    private static List<String[]> rows( final String p_prefix ) throws IOException
+    {
+        try ( CSVReader l_reader = new CSVReader( new FileReader( p_prefix + OUTFILE ) ) )
+        {
+            return l_reader.readAll();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.data.input.CVehiclepojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.CStoplight;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * test class for the event kernel
+ */
+public class TestCEventKernel
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCEventKernel.class.getName() );
+    /**
+     * copies of every vehicle of the input, each waiting one timestep longer before its departure
+     */
+    private static final int COPIES = 8;
+    /**
+     * copies of every vehicle in the comparison with the stepped simulation
+     */
+    private static final int STEPPED = 3;
+    private static final String INPUT = "src/test/resources/25.json";
+    private static final String SEPARATOR = " ";
+
+    /**
+     * testing that stepping the movement on a pool
+     * leaves the vehicles in the same state as stepping it sequentially
+     * @throws IOException file
+     */
+    @Test
+    public void parallel() throws IOException
+    {
+        final AtomicBoolean l_pooled = new AtomicBoolean();
+        final List<String> l_sequential = run( null, new AtomicBoolean() );
+
+        final ForkJoinPool l_pool = new ForkJoinPool( 4 );
+        final List<String> l_parallel = run( l_pool, l_pooled );
+        l_pool.shutdown();
+
+        Assert.assertTrue( l_pooled.get() );
+        Assert.assertEquals( 5 * COPIES + 2, l_sequential.size() );
+        Assert.assertEquals( l_sequential, l_parallel );
+    }
+
+    /**
+     * runs the vehicles of the input over their shortest routes
+     * @param p_pool the pool, null for sequential movement
+     * @param p_pooled set if a vehicle was moved outside of the calling thread
+     * @return the arrivals in the order they were handled, the final state of every vehicle and the end of the run
+     * @throws IOException file
+     */
+    private static List<String> run( final ForkJoinPool p_pool, final AtomicBoolean p_pooled ) throws IOException
+    {
+        final CUnits l_unit = new CUnits( 1, 0.01 );
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( INPUT ), CInputpojo.class );
+        final CGraph l_env = new CGraph( l_input.getGraph() );
+        final ArrayList<CVehicle> l_vehicles = new ArrayList<>();
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        for ( int i = 0; i < COPIES; i++ )
+            for ( final CVehiclepojo l_pojo : l_input.getVehicles() )
+            {
+                final CVehicle l_vehicle = new CVehicle( l_pojo, 0, LOGGER, l_unit, true, 1.0 );
+                l_vehicle.setDelay( i );
+                l_vehicles.add( l_vehicle );
+                l_routes.put( l_vehicle, new ArrayList<>( l_env.route( l_vehicle.origin(), l_vehicle.destination() ) ) );
+            }
+
+        final Thread l_caller = Thread.currentThread();
+        final List<String> l_arrivals = new ArrayList<>();
+        final IEventHandler l_handler = new IEventHandler()
+        {
+            @Override
+            public void timestep( final Integer p_time )
+            {
+            }
+
+            @Override
+            public void depart( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+            {
+                p_vehicle.departed( p_edge, p_time );
+            }
+
+            @Override
+            public void move( final CVehicle p_vehicle, final IEdge p_edge )
+            {
+                if ( Thread.currentThread() != l_caller ) p_pooled.set( true );
+                p_vehicle.moveMikro();
+            }
+
+            @Override
+            public void arrive( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+            {
+                p_vehicle.arrived( p_edge, p_time );
+                l_routes.get( p_vehicle ).remove( 0 );
+                l_arrivals.add( l_vehicles.indexOf( p_vehicle ) + SEPARATOR + p_edge.name() + SEPARATOR + p_time );
+            }
+
+            @Override
+            public void edgeEnd( final Integer p_time )
+            {
+            }
+        };
+
+        //every departure is stepped on the pool
+        final CEventKernel l_kernel = new CEventKernel( l_vehicles, l_routes, Collections.emptyList(), new CSimulationState( l_vehicles.size() ),
+                                                        l_handler, 0, p_pool, 1 );
+        final Integer l_end = l_kernel.run();
+        Assert.assertTrue( l_kernel.state().finished() );
+
+        final List<String> l_result = new ArrayList<>();
+        l_result.add( String.join( ",", l_arrivals ) );
+        l_vehicles.stream()
+                  .map( i -> String.join( SEPARATOR, i.location(), String.valueOf( i.speed() ), String.valueOf( i.routeCost() ),
+                                          String.valueOf( i.routeLength() ), String.valueOf( i.routeDuration() ) ) )
+                  .collect( Collectors.toCollection( () -> l_result ) );
+        l_result.add( l_end + SEPARATOR + l_kernel.events() );
+        return l_result;
+    }
+
+    /**
+     * testing that the kernel gives every vehicle the same cost, length, duration and arrivals
+     * as stepping all vehicles in every timestep, with macroscopic movement
+     * @throws IOException file
+     */
+    @Test
+    public void makro() throws IOException
+    {
+        Assert.assertEquals( stepped( false, true ), stepped( false, false ) );
+    }
+
+    /**
+     * testing that the kernel gives every vehicle the same cost, length, duration and arrivals
+     * as stepping all vehicles in every timestep, with microscopic movement
+     * and stoplights on every other edge only
+     * @throws IOException file
+     */
+    @Test
+    public void mikro() throws IOException
+    {
+        Assert.assertEquals( stepped( true, true ), stepped( true, false ) );
+    }
+
+    /**
+     * runs the vehicles of the input, grouped at every edge end, either stepped or on the kernel
+     * @param p_mikro microscopic movement with stoplights on every other edge
+     * @param p_stepped true for stepping every vehicle in every timestep, false for the kernel
+     * @return the cost, length, duration and arrival timesteps of every vehicle
+     * @throws IOException file
+     */
+    private static List<String> stepped( final boolean p_mikro, final boolean p_stepped ) throws IOException
+    {
+        final CUnits l_unit = new CUnits( 1, 0.01 );
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( INPUT ), CInputpojo.class );
+        final CGraph l_env = new CGraph( l_input.getGraph() );
+        if ( p_mikro )
+            l_env.createStoplights( IntStream.range( 0, l_input.getStoplights().size() ).filter( i -> i % 2 == 0 )
+                                             .mapToObj( l_input.getStoplights()::get ).collect( Collectors.toList() ) );
+        final List<CStoplight> l_stoplights = l_env.edges().stream().map( IEdge::stoplight ).collect( Collectors.toList() );
+        l_stoplights.stream().filter( Objects::nonNull ).forEach( i ->
+        {
+            i.setLogger( LOGGER );
+            i.start();
+        } );
+        Assert.assertTrue( l_stoplights.contains( null ) );
+
+        final ArrayList<CVehicle> l_vehicles = new ArrayList<>();
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        for ( int i = 0; i < STEPPED; i++ )
+            for ( final CVehiclepojo l_pojo : l_input.getVehicles() )
+            {
+                final CVehicle l_vehicle = new CVehicle( l_pojo, 0, LOGGER, l_unit, p_mikro, 1.0 );
+                l_vehicle.setDelay( i );
+                l_vehicles.add( l_vehicle );
+                l_routes.put( l_vehicle, new ArrayList<>( l_env.route( l_vehicle.origin(), l_vehicle.destination() ) ) );
+            }
+
+        final CPreGrouping l_grouping = new CPreGrouping( l_vehicles, l_env, l_unit, l_routes, p_mikro, false, 1.0 );
+        l_grouping.group( 0 );
+        final HashMap<CVehicle, List<String>> l_arrivals = new HashMap<>();
+        final IEventHandler l_handler = new IEventHandler()
+        {
+            @Override
+            public void timestep( final Integer p_time )
+            {
+            }
+
+            @Override
+            public void depart( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+            {
+                p_vehicle.departed( p_edge, p_time );
+                l_grouping.departed( p_vehicle );
+                if ( p_mikro ) p_vehicle.moveMikro();
+            }
+
+            @Override
+            public void move( final CVehicle p_vehicle, final IEdge p_edge )
+            {
+                if ( p_mikro ) p_vehicle.moveMikro();
+                else p_vehicle.moveMakro( 10.0 );
+            }
+
+            @Override
+            public void arrive( final CVehicle p_vehicle, final IEdge p_edge, final Integer p_time )
+            {
+                if ( p_mikro ) l_env.delayVehicle( p_vehicle, p_time );
+                p_vehicle.arrived( p_edge, p_time );
+                l_routes.get( p_vehicle ).remove( 0 );
+                l_grouping.arrived( p_vehicle );
+                l_arrivals.computeIfAbsent( p_vehicle, v -> new ArrayList<>() ).add( p_edge.name() + SEPARATOR + p_time );
+            }
+
+            @Override
+            public void edgeEnd( final Integer p_time )
+            {
+                l_grouping.group( p_time );
+            }
+        };
+
+        if ( p_stepped )
+            step( l_vehicles, l_routes, l_stoplights, l_handler );
+        else
+            new CEventKernel( l_vehicles, l_routes, l_stoplights, new CSimulationState( l_vehicles.size() ), l_handler, 0 ).run();
+
+        final Function<CVehicle, String> l_result = i -> String.join( SEPARATOR, String.valueOf( i.routeCost() ), String.valueOf( i.routeLength() ),
+                                                                      String.valueOf( i.routeDuration() ), String.valueOf( l_arrivals.get( i ) ) );
+        return l_vehicles.stream().map( l_result ).collect( Collectors.toList() );
+    }
+
+    /**
+     * the stepped simulation the kernel replaced,
+     * every vehicle acts in every timestep in list order and every light is updated after them
+     * @param p_vehicles the vehicles
+     * @param p_routes the routes of the vehicles
+     * @param p_stoplights the stoplights, null for edges without one
+     * @param p_handler the actions of the experiment
+     */
+    private static void step( final List<CVehicle> p_vehicles, final HashMap<CVehicle, List<IEdge>> p_routes, final List<CStoplight> p_stoplights,
+                              final IEventHandler p_handler )
+    {
+        final CSimulationState l_state = new CSimulationState( p_vehicles.size() );
+        for ( int t = 0; !l_state.finished(); t++ )
+        {
+            boolean l_arrived = false;
+            for ( int i = 0; i < p_vehicles.size(); i++ )
+                l_arrived |= step( p_vehicles.get( i ), i, p_routes.get( p_vehicles.get( i ) ), l_state, p_handler, t );
+            if ( l_arrived ) p_handler.edgeEnd( t );
+            p_stoplights.stream().filter( Objects::nonNull ).forEach( CStoplight::update );
+        }
+    }
+
+    /**
+     * one timestep of a vehicle in the stepped simulation
+     * @param p_vehicle the vehicle
+     * @param p_index the vehicle index
+     * @param p_route the route of the vehicle
+     * @param p_state the lifecycle state
+     * @param p_handler the actions of the experiment
+     * @param p_time the timestep
+     * @return true if the vehicle arrived at a node
+     */
+    private static boolean step( final CVehicle p_vehicle, final int p_index, final List<IEdge> p_route, final CSimulationState p_state,
+                                 final IEventHandler p_handler, final int p_time )
+    {
+        if ( p_route.isEmpty() )
+        {
+            p_state.set( p_index, EVehicleState.COMPLETE );
+            return false;
+        }
+        if ( p_vehicle.getDelay() > 0 )
+        {
+            p_vehicle.updateDelay();
+            return false;
+        }
+
+        final IEdge l_edge = p_route.get( 0 );
+        if ( p_vehicle.position().equals( 0.0 ) ) p_handler.depart( p_vehicle, l_edge, p_time );
+        if ( p_vehicle.position().doubleValue() < l_edge.length() )
+        {
+            p_handler.move( p_vehicle, l_edge );
+            return false;
+        }
+        p_handler.arrive( p_vehicle, l_edge, p_time );
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for the incremental pre-grouping
+ */
+public class TestCPreGrouping
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCPreGrouping.class.getName() );
+    private static final int STEPS = 12;
+
+    /**
+     * testing that feeding the arrivals and departures into one grouping
+     * forms the same platoons as building a new grouping over all vehicles at every step,
+     * the vehicles leave the shared origin one step after each other and move one edge per step
+     * @throws IOException file
+     */
+    @Test
+    public void incremental() throws IOException
+    {
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/25.json" ), CInputpojo.class );
+        final CUnits l_unit = new CUnits( 1, 0.01 );
+        final CGraph l_env = new CGraph( l_input.getGraph(), l_unit );
+
+        final List<CVehicle> l_incremental = vehicles( l_input, l_unit );
+        final HashMap<CVehicle, List<IEdge>> l_incrementalroutes = routes( l_env, l_incremental );
+        final List<CVehicle> l_rebuilt = vehicles( l_input, l_unit );
+        final HashMap<CVehicle, List<IEdge>> l_rebuiltroutes = routes( l_env, l_rebuilt );
+
+        final CPreGrouping l_grouping = new CPreGrouping( new ArrayList<>( l_incremental ), l_env, l_unit, l_incrementalroutes, false, false, 1.0 );
+        l_grouping.group( 0 );
+        new CPreGrouping( new ArrayList<>( l_rebuilt ), l_env, l_unit, l_rebuiltroutes, false, false, 1.0 ).group( 0 );
+        Assert.assertEquals( platoons( l_rebuilt ), platoons( l_incremental ) );
+
+        boolean l_platooned = false;
+        for ( int t = 1; t <= STEPS; t++ )
+        {
+            for ( int i = 0; i < Math.min( t, l_incremental.size() ); i++ )
+            {
+                final CVehicle l_vehicle = l_incremental.get( i );
+                if ( l_incrementalroutes.get( l_vehicle ).isEmpty() ) continue;
+
+                final IEdge l_edge = l_incrementalroutes.get( l_vehicle ).remove( 0 );
+                l_vehicle.departed( l_edge, t );
+                l_grouping.departed( l_vehicle );
+                l_vehicle.arrived( l_edge, t );
+                l_grouping.arrived( l_vehicle );
+
+                final CVehicle l_copy = l_rebuilt.get( i );
+                l_rebuiltroutes.get( l_copy ).remove( 0 );
+                l_copy.departed( l_edge, t );
+                l_copy.arrived( l_edge, t );
+            }
+            l_grouping.group( t );
+            new CPreGrouping( new ArrayList<>( l_rebuilt ), l_env, l_unit, l_rebuiltroutes, false, false, 1.0 ).group( t );
+
+            Assert.assertEquals( platoons( l_rebuilt ), platoons( l_incremental ) );
+            l_platooned |= l_incremental.stream().skip( 1 ).anyMatch( CVehicle::platooning );
+        }
+        Assert.assertTrue( l_platooned );
+        Assert.assertTrue( l_incrementalroutes.values().stream().allMatch( List::isEmpty ) );
+    }
+
+    /**
+     * creates the vehicles of the input
+     * @param p_input the input
+     * @param p_unit the unit
+     * @return the vehicles
+     */
+    private static List<CVehicle> vehicles( final CInputpojo p_input, final CUnits p_unit )
+    {
+        return p_input.getVehicles().stream().map( p -> new CVehicle( p, 0, LOGGER, p_unit, false, 1.0 ) ).collect( Collectors.toList() );
+    }
+
+    /**
+     * the shortest routes of the vehicles
+     * @param p_env the environment
+     * @param p_vehicles the vehicles
+     * @return the routes
+     */
+    private static HashMap<CVehicle, List<IEdge>> routes( final CGraph p_env, final List<CVehicle> p_vehicles )
+    {
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        p_vehicles.forEach( p -> l_routes.put( p, new ArrayList<>( p_env.route( p.origin(), p.destination() ) ) ) );
+        return l_routes;
+    }
+
+    /**
+     * the platoon of every vehicle
+     * @param p_vehicles the vehicles
+     * @return the names of the companions of every vehicle, sorted
+     */
+    private static List<List<String>> platoons( final List<CVehicle> p_vehicles )
+    {
+        return p_vehicles.stream()
+                         .map( p -> p.companions().stream().map( CVehicle::name ).sorted().collect( Collectors.toList() ) )
+                         .collect( Collectors.toList() );
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.functionality;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+/**
+ * test class for the vehicle lifecycle state
+ */
+public class TestCSimulationState
+{
+    /**
+     * testing the counts and sets through a lifecycle
+     */
+    @Test
+    public void lifecycle()
+    {
+        final CSimulationState l_state = new CSimulationState( 5 );
+        Assert.assertEquals( 5, l_state.count( EVehicleState.IDLE ) );
+        Assert.assertEquals( 5, l_state.remaining() );
+
+        l_state.set( 1, EVehicleState.ACTIVE );
+        l_state.set( 3, EVehicleState.ACTIVE );
+        l_state.set( 3, EVehicleState.ACTIVE );
+        l_state.set( 4, EVehicleState.COMPLETE );
+        Assert.assertEquals( 2, l_state.count( EVehicleState.ACTIVE ) );
+        Assert.assertEquals( 2, l_state.count( EVehicleState.IDLE ) );
+        Assert.assertEquals( 4, l_state.remaining() );
+        Assert.assertEquals( "1,3", l_state.vehicles( EVehicleState.ACTIVE ).mapToObj( String::valueOf ).collect( Collectors.joining( "," ) ) );
+        Assert.assertEquals( EVehicleState.IDLE, l_state.state( 0 ) );
+
+        for ( int i = 0; i < l_state.size(); i++ )
+            l_state.set( i, EVehicleState.COMPLETE );
+        Assert.assertTrue( l_state.finished() );
+        Assert.assertEquals( 0, l_state.count( EVehicleState.ACTIVE ) );
+
+        //completions are kept in the order they happened
+        Assert.assertEquals( 4, l_state.completion( 0 ) );
+        Assert.assertEquals( 0, l_state.completion( 1 ) );
+        Assert.assertEquals( 3, l_state.completion( 4 ) );
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+
+public class TestCBidDistribution
+{
+    /**
+     * tests that equal seeds give equal bids
+     * inside the range of the round
+     */
+    @Test
+    public void testSeeded()
+    {
+        for ( final EBidDistribution l_distribution : EBidDistribution.values() )
+        {
+            final SplittableRandom l_first = new SplittableRandom( 42 );
+            final SplittableRandom l_second = new SplittableRandom( 42 );
+            for ( int i = 0; i < 1000; i++ )
+            {
+                final double l_bid = l_distribution.sample( l_first, 2.0, 3.5 );
+                Assert.assertEquals( l_bid, l_distribution.sample( l_second, 2.0, 3.5 ), 0 );
+                Assert.assertTrue( ( l_bid >= 2.0 ) && ( l_bid <= 3.5 ) );
+            }
+        }
+    }
+
+    /**
+     * tests the bids of an empty range
+     */
+    @Test
+    public void testEmptyRange()
+    {
+        Assert.assertEquals( 1.5, EBidDistribution.UNIFORM.sample( new SplittableRandom( 1 ), 1.5, 1.5 ), 0 );
+        Assert.assertEquals( 1.5, EBidDistribution.TRIANGULAR.sample( new SplittableRandom( 1 ), 1.5, 1.5 ), 0 );
+    }
+
+    /**
+     * tests the bidding module on candidate bids
+     * drawn from equally seeded generators
+     */
+    @Test
+    public void testBestBid()
+    {
+        final SplittableRandom l_random = new SplittableRandom( 7 );
+        final double[] l_bids = new double[20];
+        for ( int i = 0; i < l_bids.length; i++ )
+            l_bids[i] = EBidDistribution.UNIFORM.sample( l_random, 0.1, 0.9 );
+
+        final CBiddingModule l_first = new CBiddingModule( "Initiator", 0.1, 10, 3 );
+        final CBiddingModule l_second = new CBiddingModule( "Initiator", 0.1, 10, 3 );
+        for ( int t = 1; t <= 10; t++ )
+            Assert.assertEquals( l_first.getBestBid( l_bids, t, 0.5 ), l_second.getBestBid( l_bids, t, 0.5 ) );
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.CEventLog;
+import org.socialcars.sinziana.pfara.agents.events.CEventRecord;
+import org.socialcars.sinziana.pfara.agents.events.IEventWriter;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.data.input.CVehiclepojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.environment.INode;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for the negotiation of node clusters
+ */
+public class TestCClusterNegotiation
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCClusterNegotiation.class.getName() );
+    private static final int DEADLINE = 50;
+    /**
+     * the grid nodes the clusters wait at, the offsets of the start nodes of the input
+     */
+    private static final int[] OFFSETS = {0, 1, 5, 6, 10, 11};
+
+    /**
+     * testing that clusters negotiated in parallel give the same routes
+     * and log the same events in the same order as negotiated one after another
+     * @throws IOException file
+     */
+    @Test
+    public void parallel() throws IOException
+    {
+        final List<String> l_sequential = new ArrayList<>();
+        final Map<String, List<String>> l_seqroutes = run( null, l_sequential );
+
+        final ForkJoinPool l_pool = new ForkJoinPool( 4 );
+        final List<String> l_parallel = new ArrayList<>();
+        final Map<String, List<String>> l_parroutes = run( l_pool, l_parallel );
+        l_pool.shutdown();
+
+        Assert.assertFalse( l_sequential.isEmpty() );
+        Assert.assertEquals( l_sequential, l_parallel );
+        Assert.assertEquals( l_seqroutes, l_parroutes );
+    }
+
+    /**
+     * negotiates two vehicles at each of the nodes
+     * @param p_pool the pool, null for sequential negotiation
+     * @param p_events the logged events
+     * @return the edge names of the routes by vehicle name
+     * @throws IOException file
+     */
+    private static Map<String, List<String>> run( final ForkJoinPool p_pool, final List<String> p_events ) throws IOException
+    {
+        final CUnits l_unit = new CUnits( 1, 1.0 );
+        CGraph l_env = null;
+        final Map<INode, List<CVehicle>> l_clusters = new HashMap<>();
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        for ( final int l_offset : OFFSETS )
+        {
+            final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/25.json" ), CInputpojo.class );
+            if ( l_env == null ) l_env = new CGraph( l_input.getGraph(), l_unit );
+            final List<CVehicle> l_cluster = new ArrayList<>();
+            for ( final CVehiclepojo l_pojo : l_input.getVehicles().subList( 1, 3 ) )
+            {
+                l_pojo.setName( l_pojo.getName() + "-" + l_offset );
+                l_pojo.setStart( String.valueOf( Integer.parseInt( l_pojo.getStart() ) + l_offset ) );
+                l_pojo.setFinish( String.valueOf( Integer.parseInt( l_pojo.getFinish() ) + l_offset ) );
+                l_cluster.add( new CVehicle( l_pojo, 0, LOGGER, l_unit, true, 3.0 ) );
+            }
+            for ( final CVehicle l_vehicle : l_cluster )
+                l_routes.put( l_vehicle, l_env.route( l_vehicle.origin(), l_vehicle.destination() ) );
+            l_clusters.put( l_env.nodeByName( l_cluster.get( 0 ).origin() ), l_cluster );
+        }
+
+        final List<String> l_events = Collections.synchronizedList( p_events );
+        final IEventWriter l_writer = new IEventWriter()
+        {
+            @Override
+            public void write( final List<CEventRecord> p_batch )
+            {
+                p_batch.forEach( r -> l_events.add( r.toString() ) );
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        //only the events of the negotiation, not the creation of the vehicles
+        final CEventLog l_log = CEventLog.of( LOGGER );
+        l_log.flush();
+        l_log.attach( l_writer );
+        Assert.assertEquals( OFFSETS.length, new CClusterNegotiation( l_env, true, DEADLINE, p_pool ).negotiate( l_clusters, l_routes, 0 ) );
+        l_log.flush();
+        l_log.detach( l_writer );
+
+        return l_routes.keySet().stream().collect( Collectors.toMap(
+            CVehicle::name, v -> l_routes.get( v ).stream().map( IEdge::name ).collect( Collectors.toList() ) ) );
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ * Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ *  General Public License as  published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If not, see http://www.gnu.org/licenses/
+ */
+
+package org.socialcars.sinziana.pfara.negotiation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.agents.events.EEventType;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.environment.INode;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * test class for the negotiation scheduler,
+ * on protocols playing a fixed number of rounds and on the alternative offers protocol
+ */
+public class TestCNegotiationScheduler
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCNegotiationScheduler.class.getName() );
+    private static final int DEADLINE = 400;
+
+    /**
+     * tests that protocols are stepped together,
+     * the rounds played are those of the longest negotiation
+     */
+    @Test
+    public void testInterleaved()
+    {
+        final CProtocol l_short = new CProtocol( 3 );
+        final CProtocol l_long = new CProtocol( 7 );
+        final CNegotiationScheduler l_scheduler = new CNegotiationScheduler().add( l_short ).add( l_long );
+        Assert.assertEquals( 2, l_scheduler.size() );
+
+        Assert.assertEquals( 7, l_scheduler.run() );
+        Assert.assertEquals( 3, l_short.getRoundCounter().intValue() );
+        Assert.assertEquals( 7, l_long.getRoundCounter().intValue() );
+        Assert.assertEquals( 0, l_scheduler.size() );
+        Assert.assertFalse( l_scheduler.step() );
+    }
+
+    /**
+     * tests that the stack depth does not grow with the deadline
+     */
+    @Test
+    public void testStackDepth()
+    {
+        final CProtocol l_protocol = new CProtocol( 500 );
+        Assert.assertEquals( 500, new CNegotiationScheduler().add( l_protocol ).run() );
+        Assert.assertEquals( 1, l_protocol.depths().size() );
+    }
+
+    /**
+     * tests an alternative offers negotiation between two vehicles
+     * haggling for hundreds of rounds, every delivered offer is answered
+     * in the round after the previous one, the last round is within the deadline
+     * and a negotiation without agreement is closed at the deadline
+     * @throws IOException file
+     */
+    @Test
+    public void testAlternativeOffers() throws IOException
+    {
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/25.json" ), CInputpojo.class );
+        final CUnits l_unit = new CUnits( 1, 1.0 );
+        final CGraph l_env = new CGraph( l_input.getGraph(), l_unit );
+        final List<CVehicle> l_vehicles = l_input.getVehicles().stream().skip( 1 ).limit( 2 )
+                                                 .map( p -> new CVehicle( p, 0, LOGGER, l_unit, true, 3.0 ) )
+                                                 .collect( Collectors.toList() );
+        final HashMap<CVehicle, List<IEdge>> l_routes = new HashMap<>();
+        l_vehicles.forEach( p -> l_routes.put( p, l_env.route( p.origin(), p.destination() ) ) );
+        final List<IEdge> l_initial = new ArrayList<>( l_routes.get( l_vehicles.get( 1 ) ) );
+
+        //the round of the negotiation currently played, at every haggling offer
+        final List<Integer> l_rounds = new ArrayList<>();
+        final CAlternativeOffers l_protocol = new CAlternativeOffers( l_vehicles, l_env.nodeByName( l_vehicles.get( 0 ).origin() ), l_env, l_routes, DEADLINE )
+        {
+            @Override
+            public void haggle( final CVehicle p_responder, final CSimpleOffer p_offer )
+            {
+                l_rounds.add( getRoundCounter() );
+                super.haggle( p_responder, p_offer );
+            }
+        };
+        l_protocol.open( 0 );
+        l_vehicles.get( 0 ).sendOffer( l_routes.get( l_vehicles.get( 0 ) ) );
+        final long l_played = new CNegotiationScheduler().add( l_protocol ).run();
+
+        Assert.assertEquals( IntStream.range( 0, l_rounds.size() ).boxed().collect( Collectors.toList() ), l_rounds );
+        Assert.assertTrue( l_rounds.size() > DEADLINE * 3 / 4 );
+        Assert.assertTrue( l_rounds.size() <= DEADLINE );
+        Assert.assertEquals( l_rounds.size(), l_played );
+        Assert.assertEquals( 0, l_protocol.getRoundCounter().intValue() );
+
+        //both vehicles are released with the same outcome
+        l_vehicles.forEach( p -> Assert.assertFalse( p.negotiating() ) );
+        final boolean l_accepted = l_vehicles.get( 0 ).history().has( EEventType.FORMED );
+        Assert.assertEquals( l_accepted, l_vehicles.get( 1 ).history().has( EEventType.FORMED ) );
+        Assert.assertEquals( l_accepted, !l_initial.equals( l_routes.get( l_vehicles.get( 1 ) ) ) );
+        if ( !l_accepted ) Assert.assertEquals( DEADLINE, l_rounds.size() );
+    }
+
+    /**
+     * protocol playing a fixed number of rounds
+     */
+    private static final class CProtocol implements IProtocol
+    {
+        private final int m_deadline;
+        private final Set<Integer> m_depths = new HashSet<>();
+        private int m_round;
+
+        /**
+         * ctor
+         * @param p_deadline the number of rounds
+         */
+        CProtocol( final int p_deadline )
+        {
+            m_deadline = p_deadline;
+        }
+
+        /**
+         * the stack depths of the rounds
+         * @return the depths
+         */
+        Set<Integer> depths()
+        {
+            return m_depths;
+        }
+
+        @Override
+        public boolean step()
+        {
+            m_round++;
+            m_depths.add( Thread.currentThread().getStackTrace().length );
+            return m_round < m_deadline;
+        }
+
+        @Override
+        public Integer getRoundCounter()
+        {
+            return m_round;
+        }
+
+        @Override
+        public Integer getDeadline()
+        {
+            return m_deadline;
+        }
+
+        @Override
+        public void open( final Integer p_time )
+        {
+        }
+
+        @Override
+        public EProtocolType type()
+        {
+            return EProtocolType.AO;
+        }
+
+        @Override
+        public void sendOffer( final CVehicle p_veh, final CInitialOffer p_offer )
+        {
+        }
+
+        @Override
+        public void receiveAccept( final CVehicle p_veh, final IOffer p_offer )
+        {
+        }
+
+        @Override
+        public void receiveReject( final IOffer p_offer )
+        {
+        }
+
+        @Override
+        public void receiveBreakaway( final IOffer p_offer )
+        {
+        }
+
+        @Override
+        public void haggle( final CVehicle p_veh, final CSimpleOffer p_offer )
+        {
+        }
+
+        @Override
+        public INode getNodeID()
+        {
+            return null;
+        }
+    }
+}
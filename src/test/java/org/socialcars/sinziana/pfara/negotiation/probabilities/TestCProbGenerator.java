@@ -15,12 +15,16 @@
 
 package org.socialcars.sinziana.pfara.negotiation.probabilities;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CCollege;
 import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CColleges;
 
 public class TestCProbGenerator
 {
+    private static final String NORMAL = "normal";
+
     private CProbGenerator m_gen;
 
     @Before
@@ -32,47 +36,98 @@ public class TestCProbGenerator
     @Test
     public void normal()
     {
-        final CColleges l_prob = m_gen.getCollegeDistribution( "normal", 10 );
-        l_prob.sort();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() + "  "  + c.getAlpha() ) );
+        assertColleges( m_gen.getCollegeDistribution( NORMAL, 10 ), 10 );
     }
 
     @Test
     public void beta()
     {
-        final CColleges l_prob = m_gen.getCollegeDistribution( "beta", 100 );
-        l_prob.sort();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() + " " + c.getAlpha() ) );
+        final CColleges l_prob = assertColleges( m_gen.getCollegeDistribution( "beta", 100 ), 100 );
+        l_prob.getColleges().forEach( c -> Assert.assertTrue( ( c.getU() >= 0 ) && ( c.getU() <= 1 ) ) );
     }
 
     @Test
     public void cauchy()
     {
-        final CColleges l_prob = m_gen.getCollegeDistribution( "cauchy", 100 );
-        l_prob.sort();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() + " " + c.getAlpha() ) );
+        assertColleges( m_gen.getCollegeDistribution( "cauchy", 100 ), 100 );
     }
 
     @Test
     public void gamma()
     {
-        final CColleges l_prob = m_gen.getCollegeDistribution( "gamma", 100 );
-        l_prob.sort();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() + " " + c.getAlpha() ) );
+        final CColleges l_prob = assertColleges( m_gen.getCollegeDistribution( "gamma", 100 ), 100 );
+        l_prob.getColleges().forEach( c -> Assert.assertTrue( c.getU() >= 0 ) );
     }
 
     @Test
     public void logNorm()
     {
-        final CColleges l_prob = m_gen.getCollegeDistribution( "log", 100 );
-        l_prob.sort();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() + " " + c.getAlpha() ) );
+        final CColleges l_prob = assertColleges( m_gen.getCollegeDistribution( "log", 100 ), 100 );
+        l_prob.getColleges().forEach( c -> Assert.assertTrue( c.getU() > 0 ) );
     }
 
     @Test
     public void fixed()
     {
-        final CColleges l_prob = m_gen.fixedColleges();
-        l_prob.getColleges().forEach( c -> System.out.println( c.getU() * c.getAlpha() ) );
+        assertColleges( m_gen.fixedColleges(), 10 );
+    }
+
+    @Test
+    public void seeded()
+    {
+        final CProbGenerator l_first = new CProbGenerator( 42 );
+        final CProbGenerator l_second = new CProbGenerator( 42 );
+        for ( int i = 0; i < 50; i++ )
+            Assert.assertArrayEquals( l_first.sample( NORMAL, 100, 0.5 ), l_second.sample( NORMAL, 100, 0.5 ), 0 );
+
+        l_first.seed( 7 );
+        l_second.seed( 7 );
+        Assert.assertEquals( l_first.getDistribution( "beta", 20, 0.0 ), l_second.getDistribution( "beta", 20, 0.0 ) );
+    }
+
+    /**
+     * testing that every peak samples the one cached normal distribution, scaled by the peak
+     */
+    @Test
+    public void scaled()
+    {
+        final CProbGenerator l_first = new CProbGenerator( 42 );
+        final CProbGenerator l_second = new CProbGenerator( 42 );
+        for ( int i = 1; i <= 50; i++ )
+        {
+            final double l_peak = i / 100.0;
+            final double[] l_unit = l_first.sample( NORMAL, 100, 1 ).clone();
+            final double[] l_sample = l_second.sample( NORMAL, 100, l_peak );
+            for ( int j = 0; j < l_unit.length; j++ )
+                Assert.assertEquals( l_peak * l_unit[j], l_sample[j], 1e-12 );
+        }
+    }
+
+    @Test
+    public void bounded()
+    {
+        final double[] l_buffer = m_gen.sample( NORMAL, 100, 0.5 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            Assert.assertSame( l_buffer, m_gen.sample( NORMAL, 100, 0.1 + ( i % 50 ) / 100.0 ) );
+            Assert.assertEquals( 100, m_gen.getDistribution( NORMAL, 100, 0.5 ).size() );
+        }
+        Assert.assertEquals( 10, m_gen.getCollegeDistribution( NORMAL, 10 ).getColleges().size() );
+        Assert.assertEquals( 10, m_gen.getCollegeDistribution( NORMAL, 10 ).getColleges().size() );
+        Assert.assertEquals( 0, m_gen.sample( "unknown", 10, 0.5 ).length );
+    }
+
+    /**
+     * asserts the size of colleges and that a college is worth less the further it is from the middle
+     * @param p_colleges the colleges
+     * @param p_size the expected size
+     * @return the colleges
+     */
+    private static CColleges assertColleges( final CColleges p_colleges, final int p_size )
+    {
+        Assert.assertEquals( p_size, p_colleges.getColleges().size() );
+        for ( final CCollege l_college : p_colleges.getColleges() )
+            Assert.assertEquals( 1 - Math.abs( l_college.getU() - 0.5 ) / 0.5, l_college.getAlpha(), 1e-12 );
+        return p_colleges;
     }
 }
@@ -15,15 +15,22 @@
 
 package org.socialcars.sinziana.pfara.negotiation.probabilities;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.socialcars.sinziana.pfara.negotiation.CBiddingModule;
+import org.socialcars.sinziana.pfara.negotiation.simultaneoussearch.CCollege;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 public class TestCRVtoAccProb
 {
+    private static final String INITIATOR = "Initiator";
+
     private CRVtoAccProb m_rvacci;
     private CRVtoAccProb m_rvacca;
     private ArrayList<Double> m_prob;
@@ -33,7 +40,7 @@ public class TestCRVtoAccProb
     {
         final CProbGenerator l_probgen = new CProbGenerator();
         m_prob = l_probgen.fixed();
-        m_rvacci = new CRVtoAccProb( "Initiator", 1.0, 0.1, 10, m_prob );
+        m_rvacci = new CRVtoAccProb( INITIATOR, 1.0, 0.1, 10, m_prob );
         m_rvacca = new CRVtoAccProb( "Acceptor", 1.0, 0.9, 10, m_prob );
     }
 
@@ -81,5 +88,84 @@ public class TestCRVtoAccProb
         System.out.println( m_rvacci.calculateForBids( l_bids, 9 ) );
         System.out.println( m_rvacca.calculateForBids( l_bids, 9 ) );
     }
-}
 
+    @Test
+    public void testRank()
+    {
+        final Random l_random = new Random( 42 );
+        final ArrayList<Double> l_bids = new ArrayList<>();
+        IntStream.range( 0, 200 ).forEach( i -> l_bids.add( l_random.nextDouble() ) );
+        m_prob.forEach( l_bids::add );
+
+        for ( int t = 0; t <= 10; t++ )
+        {
+            final ArrayList<Double> l_acci = m_rvacci.calculateAccProb( t );
+            final ArrayList<Double> l_acca = m_rvacca.calculateAccProb( t );
+            final int l_time = t;
+            l_bids.forEach( b ->
+            {
+                Assert.assertEquals( l_acci.stream().filter( x -> x >= b ).count() / (double) l_acci.size(), m_rvacci.calculateForBid( b, l_time ), 0 );
+                Assert.assertEquals( l_acca.stream().filter( x -> x <= b ).count() / (double) l_acca.size(), m_rvacca.calculateForBid( b, l_time ), 0 );
+            } );
+            l_acci.forEach( x -> Assert.assertEquals(
+                m_rvacci.calculateForBid( x, l_time ),
+                m_rvacci.calculateForBids( new ArrayList<>( List.of( x ) ), l_time ).getColleges().get( 0 ).getAlpha() ) );
+        }
+    }
+
+    /**
+     * testing that a reset instance answers like a new one,
+     * also when the number of samples changes
+     */
+    @Test
+    public void testReset()
+    {
+        final Random l_random = new Random( 42 );
+        final CRVtoAccProb l_reused = new CRVtoAccProb( INITIATOR, 1.0, 0.1, 10, new double[50] );
+        for ( int t = 1; t <= 10; t++ )
+        {
+            final double[] l_rvs = l_random.doubles( t < 5 ? 50 : 80 ).toArray();
+            final Double l_strategy = 0.5 * t;
+            l_reused.calculateForBid( 0.5, t );
+            l_reused.reset( l_strategy, l_rvs );
+            final CRVtoAccProb l_fresh = new CRVtoAccProb( INITIATOR, l_strategy, 0.1, 10, l_rvs.clone() );
+
+            Assert.assertEquals( l_fresh.calculateAccProb( t ), l_reused.calculateAccProb( t ) );
+            for ( int i = 0; i <= 10; i++ )
+                Assert.assertEquals( l_fresh.calculateForBid( i / 10.0, t ), l_reused.calculateForBid( i / 10.0, t ) );
+        }
+    }
+
+    /**
+     * testing the sorted rank against the linear count on a large sample,
+     * and the best bid of the list and the array bidding on the same seed
+     */
+    @Test
+    public void sortedMatchesLinear()
+    {
+        final Random l_random = new Random( 42 );
+        final ArrayList<Double> l_rvs = new ArrayList<>();
+        IntStream.range( 0, 10000 ).forEach( i -> l_rvs.add( l_random.nextDouble() ) );
+        final ArrayList<Double> l_bids = new ArrayList<>();
+        IntStream.range( 0, 1000 ).forEach( i -> l_bids.add( l_random.nextDouble() ) );
+        final CRVtoAccProb l_rvacc = new CRVtoAccProb( INITIATOR, 1.0, 0.1, 10, l_rvs );
+
+        for ( int n = 0; n < 3; n++ )
+        {
+            final ArrayList<Double> l_accprob = l_rvacc.calculateAccProb( n + 1 );
+            final double l_linear = l_bids.stream().mapToDouble( b -> l_accprob.stream().filter( x -> x >= b ).count() / (double) l_accprob.size() ).sum();
+            final double l_ranked = l_rvacc.calculateForBids( l_bids, n + 1 ).getColleges().stream().mapToDouble( CCollege::getAlpha ).sum();
+            Assert.assertEquals( l_linear, l_ranked, 1e-9 );
+        }
+
+        final CBiddingModule l_list = new CBiddingModule( INITIATOR, 0.1, 10, 42 );
+        final CBiddingModule l_array = new CBiddingModule( INITIATOR, 0.1, 10, 42 );
+        final double[] l_values = l_bids.stream().mapToDouble( Double::doubleValue ).toArray();
+        for ( int t = 1; t <= 10; t++ )
+        {
+            final Double l_best = l_list.getBestBid( l_bids, t, 0.5 );
+            Assert.assertTrue( l_bids.contains( l_best ) );
+            Assert.assertEquals( l_best, l_array.getBestBid( l_values, t, 0.5 ) );
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.optimisation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gurobi.GRBException;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.IEdge;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for the pure java platooning shortest path solver
+ */
+public class TestCLabellingPSPP
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCLabellingPSPP.class.getName() );
+
+    private CInputpojo m_input;
+    private CGraph m_env;
+    private CUnits m_unit;
+    private ArrayList<CVehicle> m_vehicles;
+    private Integer m_source;
+
+    /**
+     * initializing
+     * only the vehicles sharing the origin of the first vehicle are kept
+     * @throws IOException file
+     */
+    @Before
+    public void init() throws IOException
+    {
+        m_input = new ObjectMapper().readValue( new File( "src/test/resources/tiergarten.json" ), CInputpojo.class );
+        m_unit = new CUnits( 1, 0.01 );
+        m_env = new CGraph( m_input.getGraph() );
+        m_vehicles = vehicles();
+        m_source = Integer.valueOf( m_vehicles.get( 0 ).origin() );
+    }
+
+    /**
+     * the vehicles sharing the origin of the first vehicle
+     * @return the vehicles
+     */
+    private ArrayList<CVehicle> vehicles()
+    {
+        final List<CVehicle> l_all = m_input.getVehicles().stream()
+                .map( p -> new CVehicle( p, 0, LOGGER, m_unit, false, 1.0 ) )
+                .collect( Collectors.toList() );
+        return l_all.stream().filter( p -> p.origin().equals( l_all.get( 0 ).origin() ) ).collect( Collectors.toCollection( ArrayList::new ) );
+    }
+
+    /**
+     * testing that every vehicle receives a connected route
+     * from the source to its destination, and that the objective
+     * is half the weight of every edge used
+     */
+    @Test
+    public void solve()
+    {
+        final CLabellingPSPP l_opt = new CLabellingPSPP( m_env, m_source, m_vehicles, m_unit, 3.0 );
+        l_opt.solve();
+        Assert.assertNotNull( l_opt.optimum() );
+        Assert.assertTrue( l_opt.complete() );
+        Assert.assertEquals( m_vehicles.size(), l_opt.getRoutes().size() );
+        Assert.assertEquals( l_opt.getNP().keySet().stream().mapToDouble( e -> 0.5 * e.weight() ).sum(), l_opt.optimum(), 1e-9 );
+
+        m_vehicles.forEach( p ->
+        {
+            final List<IEdge> l_route = l_opt.getRoutes().get( p );
+            Assert.assertNotNull( l_route );
+            Assert.assertFalse( l_route.isEmpty() );
+            Assert.assertEquals( m_source.toString(), l_route.get( 0 ).from().name() );
+            Assert.assertEquals( p.destination(), l_route.get( l_route.size() - 1 ).to().name() );
+            for ( int i = 1; i < l_route.size(); i++ )
+                Assert.assertEquals( l_route.get( i - 1 ).to(), l_route.get( i ).from() );
+            l_route.forEach( e -> Assert.assertTrue( l_opt.getNP().get( e ) > 0 ) );
+        } );
+        Assert.assertNotNull( l_opt.getFlagged() );
+    }
+
+    /**
+     * testing that a vehicle without a route within its length limit
+     * makes the group infeasible
+     */
+    @Test
+    public void infeasible()
+    {
+        m_input.getVehicles().get( 0 ).getPreference().setMaxLength( 0.0 );
+        final CLabellingPSPP l_opt = new CLabellingPSPP( m_env, m_source, vehicles(), m_unit, 3.0 );
+        l_opt.solve();
+
+        Assert.assertNull( l_opt.optimum() );
+        Assert.assertFalse( l_opt.complete() );
+        Assert.assertTrue( l_opt.getRoutes().isEmpty() );
+        Assert.assertTrue( l_opt.getNP().isEmpty() );
+        Assert.assertTrue( l_opt.getFlagged().isEmpty() );
+    }
+
+    /**
+     * testing that the branch-and-bound never ends above
+     * its greedy incumbent, and that it reaches the objective
+     * of gurobi, if a license is available
+     */
+    @Test
+    public void objective()
+    {
+        final CLabellingPSPP l_opt = new CLabellingPSPP( m_env, m_source, m_vehicles, m_unit, 3.0 );
+        l_opt.solve();
+        Assert.assertNotNull( l_opt.incumbent() );
+        Assert.assertTrue( l_opt.optimum() <= l_opt.incumbent() );
+
+        final CPSPP l_gurobi;
+        try
+        {
+            l_gurobi = new CPSPP( m_env, m_source, m_vehicles, m_unit, 3.0 );
+            l_gurobi.solve();
+        }
+        catch ( final GRBException | UnsatisfiedLinkError l_err )
+        {
+            Assume.assumeNoException( l_err );
+            return;
+        }
+        Assert.assertEquals( l_gurobi.optimum(), l_opt.optimum(), 1e-6 );
+    }
+}
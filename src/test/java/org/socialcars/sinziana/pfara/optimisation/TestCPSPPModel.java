@@ -0,0 +1,109 @@
+/*
+ *  This file is part of the mesoscopic traffic simulation PFaRA of Clauthal University of
+ *  Technology-Mobile and Enterprise Computing aswell as SocialCars Research Training Group.
+ *  Copyright (c) 2017-2021 Sinziana-Maria Sebe (sms14@tu-clausthal.de)
+ *
+ *  This program is free software: you can redistribute it and/or modify it under the terms of the
+ *  GNUGeneral Public License as  published by the Free Software Foundation, either version 3 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR
+ *  PURPOSE.  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program. If
+ *  not, see http://www.gnu.org/licenses/
+ *
+ */
+
+package org.socialcars.sinziana.pfara.optimisation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gurobi.GRB;
+import gurobi.GRBException;
+import gurobi.GRBModel;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.socialcars.sinziana.pfara.agents.CVehicle;
+import org.socialcars.sinziana.pfara.data.input.CInputpojo;
+import org.socialcars.sinziana.pfara.environment.CGraph;
+import org.socialcars.sinziana.pfara.environment.TestCCompressedGraph;
+import org.socialcars.sinziana.pfara.units.CUnits;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * test class for building the edge indexed optimisation model
+ */
+public class TestCPSPPModel
+{
+    private static final Logger LOGGER = Logger.getLogger( TestCPSPPModel.class.getName() );
+    private static final int SIDE = 32;
+    private static final int RUNS = 5;
+
+    private CGraph m_grid;
+    private CUnits m_unit;
+    private ArrayList<CVehicle> m_vehicles;
+
+    /**
+     * initializing
+     * a square grid of more than 1000 nodes
+     * and the tiergarten vehicles sharing the first vehicle's origin
+     * @throws IOException file
+     */
+    @Before
+    public void init() throws IOException
+    {
+        m_grid = new CGraph( TestCCompressedGraph.grid( SIDE ) );
+        m_unit = new CUnits( 1, 0.01 );
+        final CInputpojo l_input = new ObjectMapper().readValue( new File( "src/test/resources/tiergarten.json" ), CInputpojo.class );
+        final List<CVehicle> l_all = l_input.getVehicles().stream()
+                .map( p -> new CVehicle( p, 0, LOGGER, m_unit, false, 1.0 ) )
+                .collect( Collectors.toList() );
+        m_vehicles = l_all.stream().filter( p -> p.origin().equals( l_all.get( 0 ).origin() ) ).collect( Collectors.toCollection( ArrayList::new ) );
+    }
+
+    /**
+     * testing that the model grows with the edges and not with the squared nodes,
+     * every vehicle adds one variable per edge, one flow constraint per node,
+     * one x<=y constraint per edge and the length, time and cost constraints,
+     * and the cleaned up model is the skeleton of the edge variables again
+     */
+    @Test
+    public void build()
+    {
+        final int l_nodes = m_grid.size();
+        final int l_edges = m_grid.edges().size();
+        final int l_vehicles = m_vehicles.size();
+        try
+        {
+            for ( int i = 0; i < RUNS; i++ )
+            {
+                final CPSPP l_opt = new CPSPP( m_grid, Integer.valueOf( m_vehicles.get( 0 ).origin() ), m_vehicles, m_unit, 3.0 );
+                final GRBModel l_model = CGurobiSession.current().model( m_grid );
+                l_opt.build();
+                Assert.assertEquals( l_edges * ( l_vehicles + 1 ), l_model.get( GRB.IntAttr.NumVars ) );
+                Assert.assertEquals( l_vehicles * ( l_nodes + l_edges + 3 ), l_model.get( GRB.IntAttr.NumConstrs ) );
+
+                l_opt.cleanUp();
+                Assert.assertEquals( l_edges, l_model.get( GRB.IntAttr.NumVars ) );
+                Assert.assertEquals( 0, l_model.get( GRB.IntAttr.NumConstrs ) );
+            }
+        }
+        catch ( final GRBException | UnsatisfiedLinkError l_err )
+        {
+            Assume.assumeNoException( l_err );
+        }
+        finally
+        {
+            CGurobiSession.close();
+        }
+    }
+}